@@ -0,0 +1,97 @@
+package com.nilijoski.backend.account;
+
+import com.nilijoski.backend.model.Counter;
+import com.nilijoski.backend.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Hands out unique account numbers and matching IBANs (hi/lo).
+ * <p>
+ * Each node reserves a block of {@code banking.accounts.block-size} numbers with one atomic
+ * {@code $inc} on a shared {@link Counter} and serves registrations from memory until the
+ * block runs out. Blocks never overlap across nodes; numbers of a block that a node did not
+ * use before shutting down are simply skipped. Numbers already taken by accounts created
+ * before the allocator existed are filtered out when a block is reserved.
+ */
+@Slf4j
+@Component
+public class AccountNumberAllocator {
+
+    static final String COUNTER_ID = "accountNumber";
+    private static final long MAX_ACCOUNT_NUMBER = 9_999_999_999L;
+
+    private final MongoTemplate mongoTemplate;
+    private final String bankCode;
+    private final int blockSize;
+    // Not synchronized: a virtual thread blocked on Mongo inside a monitor would pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<String> available = new ArrayDeque<>();
+
+    public AccountNumberAllocator(MongoTemplate mongoTemplate,
+                                  @Value("${banking.accounts.bank-code:37040044}") String bankCode,
+                                  @Value("${banking.accounts.block-size:100}") int blockSize) {
+        GermanIban.of(bankCode, "0".repeat(GermanIban.ACCOUNT_NUMBER_LENGTH));
+        this.mongoTemplate = mongoTemplate;
+        this.bankCode = bankCode;
+        this.blockSize = blockSize;
+    }
+
+    public record AccountIdentifiers(String accountNumber, String iban) {
+    }
+
+    public AccountIdentifiers next() {
+        lock.lock();
+        try {
+            while (available.isEmpty()) {
+                reserveBlock();
+            }
+            String accountNumber = available.poll();
+            return new AccountIdentifiers(accountNumber, GermanIban.of(bankCode, accountNumber));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reserveBlock() {
+        Counter counter = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(COUNTER_ID)),
+                new Update().inc("value", blockSize),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Counter.class);
+        long hi = counter.getValue();
+        long lo = hi - blockSize + 1;
+        if (hi > MAX_ACCOUNT_NUMBER) {
+            throw new IllegalStateException("Account number range exhausted");
+        }
+
+        // Zero-padded numbers of equal length sort like the numbers themselves
+        Set<String> taken = new HashSet<>(mongoTemplate.findDistinct(
+                Query.query(where("accountNumber").gte(format(lo)).lte(format(hi))),
+                "accountNumber", User.class, String.class));
+        for (long number = lo; number <= hi; number++) {
+            String accountNumber = format(number);
+            if (!taken.contains(accountNumber)) {
+                available.add(accountNumber);
+            }
+        }
+        log.debug("Reserved account numbers {}..{} ({} already taken)", lo, hi, taken.size());
+    }
+
+    private static String format(long number) {
+        return String.format("%010d", number);
+    }
+}
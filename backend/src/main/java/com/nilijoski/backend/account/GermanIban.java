@@ -0,0 +1,51 @@
+package com.nilijoski.backend.account;
+
+/**
+ * Builds German IBANs: {@code DE}, two check digits, the 8-digit bank code and the
+ * 10-digit account number, with check digits per ISO 13616 (mod 97).
+ */
+public final class GermanIban {
+
+    public static final int ACCOUNT_NUMBER_LENGTH = 10;
+    private static final int BANK_CODE_LENGTH = 8;
+    // "DE" with letters mapped to numbers (A=10 ... Z=35) as appended when computing check digits
+    private static final String COUNTRY_DIGITS = "1314";
+
+    private GermanIban() {
+    }
+
+    public static String of(String bankCode, String accountNumber) {
+        requireDigits(bankCode, BANK_CODE_LENGTH, "bank code");
+        requireDigits(accountNumber, ACCOUNT_NUMBER_LENGTH, "account number");
+        String bban = bankCode + accountNumber;
+        int checkDigits = 98 - mod97(bban + COUNTRY_DIGITS + "00");
+        return "DE" + (checkDigits < 10 ? "0" : "") + checkDigits + bban;
+    }
+
+    public static boolean isValid(String iban) {
+        if (iban == null || iban.length() != 22 || !iban.startsWith("DE")) {
+            return false;
+        }
+        String digits = iban.substring(4) + COUNTRY_DIGITS + iban.substring(2, 4);
+        for (int i = 0; i < digits.length(); i++) {
+            if (!Character.isDigit(digits.charAt(i))) {
+                return false;
+            }
+        }
+        return mod97(digits) == 1;
+    }
+
+    private static int mod97(String digits) {
+        int remainder = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            remainder = (remainder * 10 + (digits.charAt(i) - '0')) % 97;
+        }
+        return remainder;
+    }
+
+    private static void requireDigits(String value, int length, String name) {
+        if (value == null || value.length() != length || !value.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("German " + name + " must be " + length + " digits: " + value);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.nilijoski.backend.archive;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads through the hot store and the archive, so callers see one continuous history.
+ * Writes only go to the hot store.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "banking.archive.enabled", havingValue = "true")
+public class TieredTransactionStore implements TransactionStore {
+
+    private final TransactionStore hot;
+    private final TransactionArchive archive;
+
+    public TieredTransactionStore(@Qualifier(TransactionStore.HOT) TransactionStore hot, TransactionArchive archive) {
+        this.hot = hot;
+        this.archive = archive;
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        return hot.save(transaction);
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        Optional<Transaction> transaction = hot.findById(id);
+        return transaction.isPresent() ? transaction : archive.findById(id);
+    }
+
+    @Override
+    public List<Transaction> findByIds(Collection<String> ids) {
+        List<Transaction> found = new ArrayList<>(hot.findByIds(ids));
+        if (found.size() < ids.size()) {
+            Set<String> hotIds = found.stream().map(Transaction::getId).collect(Collectors.toSet());
+            ids.stream()
+                    .filter(id -> !hotIds.contains(id))
+                    .map(archive::findById)
+                    .flatMap(Optional::stream)
+                    .forEach(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        // Segments do not keep the key, retries happen long before max-age
+        return hot.findByIdempotencyKey(idempotencyKey);
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return merge(archive.findAll(), hot.findAll());
+    }
+
+    @Override
+    public List<Transaction> findByFromIban(String fromIban) {
+        return merge(archive.findByAccount(fromIban, transaction -> fromIban.equals(transaction.getFromIban())),
+                hot.findByFromIban(fromIban));
+    }
+
+    @Override
+    public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+        List<Transaction> archived = new ArrayList<>(archive.findByAccount(fromIban,
+                transaction -> fromIban.equals(transaction.getFromIban())));
+        archived.addAll(archive.findByAccount(toIban, transaction -> toIban.equals(transaction.getToIban())));
+        return merge(archived, hot.findByFromIbanOrToIban(fromIban, toIban));
+    }
+
+    @Override
+    public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+        List<Transaction> archived = new ArrayList<>(archive.findByAccount(fromAccountNumber,
+                transaction -> fromAccountNumber.equals(transaction.getFromAccountNumber())));
+        archived.addAll(archive.findByAccount(toAccountNumber,
+                transaction -> toAccountNumber.equals(transaction.getToAccountNumber())));
+        return merge(archived, hot.findByFromAccountNumberOrToAccountNumber(fromAccountNumber, toAccountNumber));
+    }
+
+    // New transactions only ever reach the hot store, and archiving moves rows without changing the merged history
+    @Override
+    public HistoryVersion historyVersionByIban(String iban) {
+        return hot.historyVersionByIban(iban);
+    }
+
+    @Override
+    public HistoryVersion historyVersionByAccountNumber(String accountNumber) {
+        return hot.historyVersionByAccountNumber(accountNumber);
+    }
+
+    @Override
+    public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+        return hot.findOlderThan(cutoff, limit);
+    }
+
+    @Override
+    public Stream<Transaction> streamSince(LocalDateTime from) {
+        // Read for recent history only; transactions stay in the hot store until banking.archive.max-age
+        return hot.streamSince(from);
+    }
+
+    @Override
+    public void deleteAll(Collection<Transaction> transactions) {
+        hot.deleteAll(transactions);
+    }
+
+    private List<Transaction> merge(List<Transaction> archived, List<Transaction> recent) {
+        // A crash between writing a segment and deleting from the hot store leaves duplicates; the hot copy wins
+        Map<String, Transaction> merged = new LinkedHashMap<>();
+        archived.stream()
+                .sorted(Comparator.comparing(Transaction::getTransactionDate))
+                .forEach(transaction -> merged.put(transaction.getId(), transaction));
+        recent.forEach(transaction -> merged.put(transaction.getId(), transaction));
+        return new ArrayList<>(merged.values());
+    }
+}
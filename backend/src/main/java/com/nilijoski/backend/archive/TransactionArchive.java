@@ -0,0 +1,203 @@
+package com.nilijoski.backend.archive;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nilijoski.backend.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Cold tier of the transaction history: a directory of immutable {@link TransactionSegment} files.
+ * <p>
+ * Only the segment headers are kept in memory. A lookup inflates just the segments whose
+ * account filter (or date range, for ids) can contain a match. The rows of recently read
+ * segments are cached, up to {@code banking.archive.cached-rows}, so paging through one
+ * account's old history does not inflate the same segments again.
+ * <p>
+ * The directory belongs to this node, while the rows moved into it are deleted from the shared
+ * Mongo: a second node would neither see them nor keep its own archiver from moving rows the
+ * first one never sees. The archive therefore holds a lease in Mongo, renewed every
+ * {@value #LEASE_RENEWAL_SECONDS} seconds; a node that finds the lease held by another one
+ * fails to start, and one that loses it (a pause longer than the lease) stops appending.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.archive.enabled", havingValue = "true")
+public class TransactionArchive {
+
+    static final String LEASE_COLLECTION = "archive_lease";
+    static final long LEASE_RENEWAL_SECONDS = 20;
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String LEASE_ID = "archive";
+    private static final Duration LEASE = Duration.ofSeconds(3 * LEASE_RENEWAL_SECONDS);
+
+    private final Path directory;
+    private final MongoTemplate mongoTemplate;
+    private final String owner = UUID.randomUUID().toString();
+    private final List<TransactionSegment.Index> segments = new CopyOnWriteArrayList<>();
+    private final Cache<Path, List<Transaction>> rows;
+
+    // Null while another node holds the lease
+    private volatile LocalDateTime leaseUntil;
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public TransactionArchive(@Value("${banking.archive.directory:archive}") Path directory,
+                              @Value("${banking.archive.cached-rows:200000}") long cachedRows,
+                              MongoTemplate mongoTemplate) {
+        this.directory = directory;
+        this.mongoTemplate = mongoTemplate;
+        this.rows = Caffeine.newBuilder()
+                .maximumWeight(cachedRows)
+                .weigher((Path path, List<Transaction> segmentRows) -> segmentRows.size())
+                .build();
+    }
+
+    // Without a lease, for tests that use a single archive anyway
+    TransactionArchive(Path directory, long cachedRows) {
+        this(directory, cachedRows, null);
+    }
+
+    @PostConstruct
+    void loadSegments() throws IOException {
+        if (!renewLease()) {
+            throw new IllegalStateException("The transaction archive is in use by another node; banking.archive.enabled "
+                    + "may only be set on one node, since its segments are kept in a local directory");
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(TransactionSegment.EXTENSION)).toList()) {
+                segments.add(TransactionSegment.readIndex(file));
+            }
+        }
+        segments.sort(Comparator.comparing(TransactionSegment.Index::from));
+    }
+
+    @Scheduled(fixedDelay = LEASE_RENEWAL_SECONDS, timeUnit = TimeUnit.SECONDS)
+    public void renewLeaseScheduled() {
+        if (!renewLease()) {
+            log.error("Lost the transaction archive lease to another node, no more segments will be written here");
+        }
+    }
+
+    /**
+     * Extends this node's lease on the archive, or takes it over once the previous owner's expired.
+     */
+    boolean renewLease() {
+        LocalDateTime now = LocalDateTime.now();
+        if (mongoTemplate == null) {
+            leaseUntil = LocalDateTime.MAX;
+            return true;
+        }
+        try {
+            mongoTemplate.upsert(
+                    Query.query(where("_id").is(LEASE_ID)
+                            .orOperator(where("owner").is(owner), where("until").lt(now))),
+                    new Update().set("owner", owner).set("until", now.plus(LEASE)),
+                    LEASE_COLLECTION);
+            leaseUntil = now.plus(LEASE);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The lease exists but neither is ours nor has expired, so the upsert tried to insert a second one
+            leaseUntil = null;
+            return false;
+        }
+    }
+
+    public List<TransactionSegment.Index> getSegments() {
+        return List.copyOf(segments);
+    }
+
+    public TransactionSegment.Index append(List<Transaction> transactions) {
+        LocalDateTime until = leaseUntil;
+        // Also when renewals failed for as long as the lease lasts, since another node may hold it by now
+        if (until == null || !LocalDateTime.now().isBefore(until)) {
+            throw new IllegalStateException("This node does not hold the transaction archive lease");
+        }
+        Transaction first = transactions.get(0);
+        String name = FILE_DATE.format(first.getTransactionDate()) + "-" + new ObjectId().toHexString()
+                + TransactionSegment.EXTENSION;
+        try {
+            TransactionSegment.Index index = TransactionSegment.write(directory.resolve(name), transactions);
+            segments.add(index);
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive segment " + name, e);
+        }
+    }
+
+    public Optional<Transaction> findById(String id) {
+        Predicate<TransactionSegment.Index> candidates = segment -> true;
+        if (ObjectId.isValid(id)) {
+            // ObjectIds carry their creation time, which is within moments of the transaction date
+            LocalDateTime created = LocalDateTime.ofInstant(new ObjectId(id).getDate().toInstant(), ZoneId.systemDefault());
+            candidates = segment -> segment.overlaps(created.minusMinutes(1), created.plusMinutes(1));
+        }
+        return find(candidates, transaction -> id.equals(transaction.getId()), true).stream().findFirst();
+    }
+
+    /**
+     * Every archived row; reads past the cache, so a full scan does not evict the segments in use.
+     */
+    public List<Transaction> findAll() {
+        return find(segment -> true, transaction -> true, false);
+    }
+
+    public List<Transaction> findByAccount(String accountKey, Predicate<Transaction> filter) {
+        return find(segment -> segment.mightContain(accountKey), filter, true);
+    }
+
+    private List<Transaction> find(Predicate<TransactionSegment.Index> segmentFilter, Predicate<Transaction> rowFilter,
+                                   boolean cached) {
+        List<Transaction> result = new ArrayList<>();
+        for (TransactionSegment.Index segment : segments) {
+            if (!segmentFilter.test(segment)) {
+                continue;
+            }
+            List<Transaction> segmentRows = cached ? rows.get(segment.path(), TransactionArchive::read) : read(segment.path());
+            segmentRows.stream()
+                    .filter(rowFilter)
+                    .forEach(result::add);
+        }
+        return result;
+    }
+
+    private static List<Transaction> read(Path path) {
+        try {
+            return TransactionSegment.readRows(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive segment " + path, e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.nilijoski.backend.archive;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Periodically moves transactions older than {@code banking.archive.max-age} from the hot store
+ * into archive segments. A segment is durable on disk before its rows are deleted from Mongo.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.archive.enabled", havingValue = "true")
+public class TransactionArchiver {
+
+    private final TransactionStore hot;
+    private final TransactionArchive archive;
+    private final Duration maxAge;
+    private final int segmentRows;
+
+    public TransactionArchiver(@Qualifier(TransactionStore.HOT) TransactionStore hot,
+                               TransactionArchive archive,
+                               @Value("${banking.archive.max-age:365d}") Duration maxAge,
+                               @Value("${banking.archive.segment-rows:50000}") int segmentRows) {
+        this.hot = hot;
+        this.archive = archive;
+        this.maxAge = maxAge;
+        this.segmentRows = segmentRows;
+    }
+
+    @Scheduled(fixedDelayString = "${banking.archive.interval:1h}", initialDelayString = "${banking.archive.interval:1h}")
+    public void archiveScheduled() {
+        archive(LocalDateTime.now().minus(maxAge));
+    }
+
+    /**
+     * Archives everything dated before {@code cutoff}, one segment per batch.
+     *
+     * @return number of archived transactions
+     */
+    public int archive(LocalDateTime cutoff) {
+        int archived = 0;
+        List<Transaction> batch;
+        while (!(batch = hot.findOlderThan(cutoff, segmentRows)).isEmpty()) {
+            TransactionSegment.Index segment = archive.append(batch);
+            hot.deleteAll(batch);
+            archived += batch.size();
+            log.info("Archived {} transactions from {} to {} into {}", segment.rows(), segment.from(), segment.to(),
+                    segment.path().getFileName());
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,261 @@
+package com.nilijoski.backend.archive;
+
+import com.nilijoski.backend.cache.BloomFilter;
+import com.nilijoski.backend.model.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Immutable, column-oriented segment file of archived transactions.
+ * <p>
+ * Layout: a small uncompressed header with the row count, the date range and a Bloom
+ * filter over the account keys (IBAN and account number) present in the segment,
+ * followed by one deflate-compressed block per column. The header doubles as the sparse
+ * index, so it can be loaded on its own without inflating any column; at about ten bits
+ * per account it stays small however many segments the archive grows to.
+ */
+public final class TransactionSegment {
+
+    static final String EXTENSION = ".seg";
+
+    private static final int MAGIC = 0x54585347;
+    // Version 2 wrote strings with writeUTF, which cannot hold more than 64 KB
+    private static final short VERSION = 3;
+    private static final double ACCOUNTS_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final List<Column> STRING_COLUMNS = List.of(
+            new Column(Transaction::getId, Transaction::setId),
+            new Column(Transaction::getFromIban, Transaction::setFromIban),
+            new Column(Transaction::getToIban, Transaction::setToIban),
+            new Column(Transaction::getFromFirstName, Transaction::setFromFirstName),
+            new Column(Transaction::getFromLastName, Transaction::setFromLastName),
+            new Column(Transaction::getToFirstName, Transaction::setToFirstName),
+            new Column(Transaction::getToLastName, Transaction::setToLastName),
+            new Column(Transaction::getFromAccountNumber, Transaction::setFromAccountNumber),
+            new Column(Transaction::getToAccountNumber, Transaction::setToAccountNumber),
+            new Column(transaction -> transaction.getAmount() == null ? null : transaction.getAmount().toPlainString(),
+                    (transaction, value) -> transaction.setAmount(value == null ? null : new BigDecimal(value))),
+            new Column(Transaction::getTransactionType, Transaction::setTransactionType),
+            new Column(Transaction::getStatus, Transaction::setStatus),
+            new Column(Transaction::getDescription, Transaction::setDescription),
+            new Column(Transaction::getWarning, Transaction::setWarning)
+    );
+
+    private TransactionSegment() {
+    }
+
+    /**
+     * Sparse index entry of one segment, kept in memory for every segment on disk.
+     */
+    public record Index(Path path, int rows, LocalDateTime from, LocalDateTime to, BloomFilter accounts) {
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !to.isBefore(start) && !from.isAfter(end);
+        }
+
+        /**
+         * False for segments without rows of the account; true for those with, and for about 1% of the others.
+         */
+        boolean mightContain(String account) {
+            return accounts.mightContain(account);
+        }
+    }
+
+    private record Column(Function<Transaction, String> getter, BiConsumer<Transaction, String> setter) {
+    }
+
+    /**
+     * Writes the transactions to {@code path} atomically: the file only appears once it is complete and synced.
+     */
+    public static Index write(Path path, List<Transaction> transactions) throws IOException {
+        List<Transaction> rows = new ArrayList<>(transactions);
+        rows.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+        Set<String> accounts = new HashSet<>();
+        for (Transaction transaction : rows) {
+            addIfPresent(accounts, transaction.getFromIban());
+            addIfPresent(accounts, transaction.getToIban());
+            addIfPresent(accounts, transaction.getFromAccountNumber());
+            addIfPresent(accounts, transaction.getToAccountNumber());
+        }
+        LocalDateTime from = rows.get(0).getTransactionDate();
+        LocalDateTime to = rows.get(rows.size() - 1).getTransactionDate();
+        BloomFilter filter = accountFilter(accounts);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(rows.size());
+            writeDate(out, from);
+            writeDate(out, to);
+            filter.writeTo(out);
+
+            for (Column column : STRING_COLUMNS) {
+                writeBlock(out, block -> {
+                    for (Transaction transaction : rows) {
+                        writeNullable(block, column.getter().apply(transaction));
+                    }
+                });
+            }
+            writeBlock(out, block -> {
+                for (Transaction transaction : rows) {
+                    writeDate(block, transaction.getTransactionDate());
+                }
+            });
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+
+        return new Index(path, rows.size(), from, to, filter);
+    }
+
+    /**
+     * Reads only the header of a segment.
+     */
+    public static Index readIndex(Path path) throws IOException {
+        try (DataInputStream in = open(path)) {
+            return readHeader(path, in);
+        }
+    }
+
+    /**
+     * Inflates all columns of a segment and reassembles its rows.
+     */
+    public static List<Transaction> readRows(Path path) throws IOException {
+        try (DataInputStream in = open(path)) {
+            Index index = readHeader(path, in);
+            List<Transaction> rows = new ArrayList<>(index.rows());
+            for (int i = 0; i < index.rows(); i++) {
+                rows.add(new Transaction());
+            }
+
+            for (Column column : STRING_COLUMNS) {
+                try (DataInputStream block = readBlock(in)) {
+                    for (Transaction transaction : rows) {
+                        column.setter().accept(transaction, readNullable(block));
+                    }
+                }
+            }
+            try (DataInputStream block = readBlock(in)) {
+                for (Transaction transaction : rows) {
+                    transaction.setTransactionDate(readDate(block));
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static DataInputStream open(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+    }
+
+    private static Index readHeader(Path path, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a transaction segment: " + path);
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported transaction segment version " + version + ": " + path);
+        }
+        int rows = in.readInt();
+        LocalDateTime from = readDate(in);
+        LocalDateTime to = readDate(in);
+        BloomFilter accounts = BloomFilter.readFrom(in);
+        return new Index(path, rows, from, to, accounts);
+    }
+
+    private static BloomFilter accountFilter(Collection<String> accounts) {
+        BloomFilter filter = BloomFilter.create(Math.max(1, accounts.size()), ACCOUNTS_FALSE_POSITIVE_RATE);
+        accounts.forEach(filter::put);
+        return filter;
+    }
+
+    private interface BlockWriter {
+        void write(DataOutputStream block) throws IOException;
+    }
+
+    private static void writeBlock(DataOutputStream out, BlockWriter writer) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DataOutputStream block = new DataOutputStream(new DeflaterOutputStream(compressed))) {
+            writer.write(block);
+        }
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+    }
+
+    private static DataInputStream readBlock(DataInputStream in) throws IOException {
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+        InputStream inflated = new InflaterInputStream(new ByteArrayInputStream(compressed));
+        return new DataInputStream(new BufferedInputStream(inflated));
+    }
+
+    // UTF-8 bytes behind their length, -1 for null
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime date) throws IOException {
+        out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(date.getNano());
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static void addIfPresent(Set<String> accounts, String key) {
+        if (key != null) {
+            accounts.add(key);
+        }
+    }
+}
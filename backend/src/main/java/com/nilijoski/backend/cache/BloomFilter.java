@@ -0,0 +1,153 @@
+package com.nilijoski.backend.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * <p>
+ * Bits live in an {@link AtomicLongArray}, so concurrent inserts never lose each other's
+ * bits and lookups take no lock. Probe positions use double hashing of one 64-bit hash
+ * (Kirsch-Mitzenmacher), so each operation hashes the string once.
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final LongAdder insertions = new LongAdder();
+
+    private BloomFilter(long bitCount, int hashCount, long capacity) {
+        this(new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) / 64)), hashCount, capacity);
+    }
+
+    private BloomFilter(AtomicLongArray words, int hashCount, long capacity) {
+        this.words = words;
+        this.bitCount = (long) words.length() * 64;
+        this.hashCount = hashCount;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sizes the filter so it stays at {@code falsePositiveRate} until {@code expectedInsertions} entries.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + expectedInsertions + " @ " + falsePositiveRate);
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * LN2));
+        return new BloomFilter(bits, hashes, expectedInsertions);
+    }
+
+    public void put(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ SEED);
+        for (int i = 1; i <= hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ SEED);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of {@link #put} calls; duplicates count twice, so this overestimates distinct entries.
+     */
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * False-positive rate to expect with the current number of insertions.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions() / bitCount), hashCount);
+    }
+
+    /**
+     * Writes the bits and sizing; {@link #readFrom} restores a filter answering the same. Insertions are not kept.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(hashCount);
+        out.writeLong(capacity);
+        out.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        int hashes = in.readInt();
+        long capacity = in.readLong();
+        AtomicLongArray words = new AtomicLongArray(in.readInt());
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, in.readLong());
+        }
+        return new BloomFilter(words, hashes, capacity);
+    }
+
+    private long index(long combined) {
+        return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
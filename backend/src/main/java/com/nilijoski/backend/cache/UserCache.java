@@ -0,0 +1,216 @@
+package com.nilijoski.backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.nilijoski.backend.diagnostics.CacheLookupEvent;
+import com.nilijoski.backend.diagnostics.CorrelationId;
+import com.nilijoski.backend.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded near cache for {@link User} lookups by id, IBAN and account number.
+ * <p>
+ * Entries are stored once under the user id; IBAN and account number are secondary
+ * keys pointing at that id, so one invalidation drops all three. The cache is bounded
+ * by the estimated heap size of its entries and always hands out copies, so callers
+ * can never modify a cached user.
+ * <p>
+ * Cached balances are for display only. Anything that debits or credits an account
+ * must read the user from the repository.
+ * <p>
+ * A read that misses takes a {@link #stamp()} before going to the repository and hands it to
+ * {@link #put(User, long)}. Invalidations advance a counter per stripe of ids, so a user read
+ * before a concurrent save and invalidation is not cached afterwards. Without the change
+ * stream listener, writes on other nodes are only seen once the TTL expires.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final Cache<String, User> usersById;
+    private final Map<String, String> idsByIban = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByAccountNumber = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    // Latest invalidation per stripe of ids; ids sharing a stripe only cost each other a put
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+    private volatile long allInvalidatedAt;
+
+    public UserCache(@Value("${banking.cache.users.max-size:16MB}") DataSize maxSize,
+                     @Value("${banking.cache.users.ttl:10m}") Duration ttl) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, User user) -> estimateSize(user))
+                .expireAfterWrite(ttl)
+                .removalListener((String id, User user, RemovalCause cause) -> {
+                    if (cause != RemovalCause.REPLACED) {
+                        removeSecondaryKeys(id, user);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public Optional<User> getById(String id) {
+        return recorded("id", find(id));
+    }
+
+    public Optional<User> getByIban(String iban) {
+        return recorded("iban", lookup(idsByIban.get(iban)));
+    }
+
+    public Optional<User> getByAccountNumber(String accountNumber) {
+        return recorded("accountNumber", lookup(idsByAccountNumber.get(accountNumber)));
+    }
+
+    private Optional<User> lookup(String id) {
+        return id == null ? Optional.empty() : find(id);
+    }
+
+    private Optional<User> find(String id) {
+        return Optional.ofNullable(usersById.getIfPresent(id)).map(UserCache::copy);
+    }
+
+    private static Optional<User> recorded(String key, Optional<User> user) {
+        CacheLookupEvent event = new CacheLookupEvent();
+        if (event.shouldCommit()) {
+            event.correlationId = CorrelationId.current();
+            event.cache = "users";
+            event.key = key;
+            event.hit = user.isPresent();
+            event.commit();
+        }
+        return user;
+    }
+
+    /**
+     * Marks the start of a repository read whose result is to be {@link #put(User, long) cached}.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches a user read just now, with no write of it in flight.
+     */
+    public void put(User user) {
+        put(user, stamp());
+    }
+
+    /**
+     * Caches a user read from the repository after {@code stamp} was taken, unless it was
+     * invalidated since: the read may then have returned the document from before the write.
+     */
+    public void put(User user, long stamp) {
+        if (user == null || user.getId() == null || invalidatedSince(user.getId(), stamp)) {
+            return;
+        }
+        User copy = copy(user);
+        usersById.put(copy.getId(), copy);
+        if (copy.getIban() != null) {
+            idsByIban.put(copy.getIban(), copy.getId());
+        }
+        if (copy.getAccountNumber() != null) {
+            idsByAccountNumber.put(copy.getAccountNumber(), copy.getId());
+        }
+        // An invalidation between the check and the put may have missed the entry
+        if (invalidatedSince(copy.getId(), stamp)) {
+            usersById.asMap().remove(copy.getId(), copy);
+        }
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            invalidatedAt.set(stripe(id), invalidations.incrementAndGet());
+            usersById.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        allInvalidatedAt = invalidations.incrementAndGet();
+        usersById.invalidateAll();
+        idsByIban.clear();
+        idsByAccountNumber.clear();
+    }
+
+    private boolean invalidatedSince(String id, long stamp) {
+        return allInvalidatedAt > stamp || invalidatedAt.get(stripe(id)) > stamp;
+    }
+
+    private static int stripe(String id) {
+        return (id.hashCode() & Integer.MAX_VALUE) % INVALIDATION_STRIPES;
+    }
+
+    public long size() {
+        return usersById.estimatedSize();
+    }
+
+    void cleanUp() {
+        usersById.cleanUp();
+    }
+
+    private void removeSecondaryKeys(String id, User user) {
+        if (user == null) {
+            return;
+        }
+        if (user.getIban() != null) {
+            idsByIban.remove(user.getIban(), id);
+        }
+        if (user.getAccountNumber() != null) {
+            idsByAccountNumber.remove(user.getAccountNumber(), id);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, usersById, "users");
+        Gauge.builder("banking.cache.users.weight", usersById,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .baseUnit("bytes")
+                .description("Estimated heap size of the cached users")
+                .register(registry);
+    }
+
+    static int estimateSize(User user) {
+        int size = 160;
+        size += sizeOf(user.getId()) + sizeOf(user.getUsername()) + sizeOf(user.getPassword())
+                + sizeOf(user.getFirstName()) + sizeOf(user.getLastName()) + sizeOf(user.getIban())
+                + sizeOf(user.getAccountNumber()) + sizeOf(user.getStatus());
+        if (user.getSavedRecipientIbans() != null) {
+            for (String iban : user.getSavedRecipientIbans()) {
+                size += 8 + sizeOf(iban);
+            }
+        }
+        if (user.getNameKeys() != null) {
+            size += 32 + sizeOf(user.getNameKeys().getFirstName()) + sizeOf(user.getNameKeys().getLastName())
+                    + sizeOf(user.getNameKeys().getFirstNamePhonetic()) + sizeOf(user.getNameKeys().getLastNamePhonetic());
+        }
+        return size;
+    }
+
+    private static int sizeOf(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getFirstName(),
+                user.getLastName(), user.getIban(), user.getAccountNumber(), user.getBalance(), user.getStatus(),
+                user.getSavedRecipientIbans() == null ? new ArrayList<>() : new ArrayList<>(user.getSavedRecipientIbans()),
+                user.getCreatedAt(), user.getUpdatedAt(), user.getNameKeys());
+    }
+}
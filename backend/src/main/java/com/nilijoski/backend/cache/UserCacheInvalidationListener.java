@@ -0,0 +1,111 @@
+package com.nilijoski.backend.cache;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.nilijoski.backend.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link UserCache} of every node coherent by tailing a change stream on the
+ * {@code users} collection. Change streams need a replica set (a single-node one is enough).
+ * <p>
+ * Writes made by other nodes evict the local entry, and usernames registered on other nodes are
+ * added to the local {@link UsernameFilter}. If the stream breaks, the whole cache is dropped
+ * because events may have been missed in the meantime, and the stream is reopened.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.cache.users.change-stream.enabled", havingValue = "true")
+public class UserCacheInvalidationListener implements SmartLifecycle {
+
+    private static final long RETRY_DELAY_MILLIS = 1_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final UsernameFilter usernameFilter;
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread worker;
+
+    public UserCacheInvalidationListener(MongoTemplate mongoTemplate, UserCache userCache, UsernameFilter usernameFilter) {
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.usernameFilter = usernameFilter;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("user-cache-invalidation").start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        worker.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            var stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class)).watch();
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> opened = stream.cursor()) {
+                cursor = opened;
+                while (running) {
+                    invalidate(opened.next());
+                }
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("User change stream interrupted, clearing the user cache: {}", e.getMessage());
+                userCache.invalidateAll();
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    private void invalidate(ChangeStreamDocument<Document> change) {
+        if (change.getOperationType() == OperationType.INSERT && change.getFullDocument() != null) {
+            String username = change.getFullDocument().getString("username");
+            if (username != null) {
+                usernameFilter.add(username);
+            }
+        }
+        BsonDocument key = change.getDocumentKey();
+        BsonValue id = key == null ? null : key.get("_id");
+        if (id == null) {
+            // drop, rename or invalidate events carry no document key
+            userCache.invalidateAll();
+        } else if (id.isObjectId()) {
+            userCache.invalidate(id.asObjectId().getValue().toHexString());
+        } else if (id.isString()) {
+            userCache.invalidate(id.asString().getValue());
+        }
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.nilijoski.backend.cache;
+
+import com.nilijoski.backend.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory {@link BloomFilter} of every username, so "is this name free?" can usually be
+ * answered without a query: a negative answer is certain, a positive one has to be confirmed
+ * against the unique index on {@code users.username}.
+ * <p>
+ * The filter is built in the background after startup; until then every name counts as
+ * possibly taken. It is sized for the current user count times
+ * {@code banking.users.username-filter.headroom} and rebuilt when more names were added than
+ * it was sized for, or after {@code rebuild-interval} (which also forgets deleted users).
+ * Without the user change stream, registrations on other nodes only show up after the next
+ * rebuild; the unique index still rejects them, so a stale filter costs a confusing "available" hint, never a duplicate.
+ */
+@Slf4j
+@Component
+public class UsernameFilter {
+
+    private final MongoTemplate mongoTemplate;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+    private final double headroom;
+    private final Duration rebuildInterval;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Counter absent;
+    private final Counter maybePresent;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private volatile Instant builtAt = Instant.MIN;
+
+    public UsernameFilter(MongoTemplate mongoTemplate,
+                          @Value("${banking.users.username-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${banking.users.username-filter.min-capacity:100000}") long minCapacity,
+                          @Value("${banking.users.username-filter.headroom:2.0}") double headroom,
+                          @Value("${banking.users.username-filter.rebuild-interval:6h}") Duration rebuildInterval,
+                          MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        this.headroom = headroom;
+        this.rebuildInterval = rebuildInterval;
+        this.absent = lookups(meterRegistry, "absent");
+        this.maybePresent = lookups(meterRegistry, "maybe-present");
+        Gauge.builder("banking.users.username-filter.false-positive-rate", this,
+                        filter -> filter.current == null ? 1 : filter.current.expectedFalsePositiveRate())
+                .description("Expected false-positive rate at the current fill")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("banking.users.username-filter.lookups")
+                .tag("result", result)
+                .description("Username lookups answered by the Bloom filter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * False means the username is certainly not taken; true means it has to be checked.
+     */
+    public boolean mightContain(String username) {
+        BloomFilter filter = current;
+        if (filter != null && !filter.mightContain(username)) {
+            absent.increment();
+            return false;
+        }
+        maybePresent.increment();
+        return true;
+    }
+
+    public void add(String username) {
+        // Read the filter under construction first: once it is swapped in, current already points at it
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(username);
+        }
+        BloomFilter filter = current;
+        if (filter != null && filter != next) {
+            filter.put(username);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.users.username-filter.check-interval:1m}")
+    public void rebuildIfNeeded() {
+        BloomFilter filter = current;
+        if (filter == null
+                || filter.insertions() > filter.capacity()
+                || builtAt.plus(rebuildInterval).isBefore(Instant.now())) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long users = mongoTemplate.estimatedCount(User.class);
+            long capacity = Math.max(minCapacity, (long) Math.ceil(users * headroom));
+            BloomFilter next = BloomFilter.create(capacity, falsePositiveRate);
+            // Published before the scan, so names registered while it runs are added to it as well
+            building = next;
+
+            long start = System.nanoTime();
+            Query usernames = new Query();
+            usernames.fields().include("username");
+            try (Stream<User> stream = mongoTemplate.stream(usernames, User.class)) {
+                stream.map(User::getUsername).filter(Objects::nonNull).forEach(next::put);
+            }
+
+            current = next;
+            builtAt = Instant.now();
+            log.info("Built username filter with {} names in {} ms ({} bits, {} hashes, capacity {})",
+                    next.insertions(), Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                    next.bitCount(), next.hashCount(), capacity);
+        } catch (RuntimeException e) {
+            log.warn("Could not build username filter, keeping the previous one: {}", e.getMessage());
+        } finally {
+            building = null;
+            rebuildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nilijoski.backend.capture;
+
+import com.nilijoski.backend.account.GermanIban;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+
+/**
+ * Anonymizes account identifiers as a keyed hash (HMAC-SHA256 truncated to 64 bits), so capture
+ * files show which requests touch the same account without revealing it. IBANs and account
+ * numbers of the same account hash to the same key; usernames hash to keys of their own.
+ * Without the salt, keys cannot be tested against known IBANs.
+ */
+public final class AccountKeys {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final String bankCode;
+    private final ThreadLocal<Mac> macs;
+
+    public AccountKeys(byte[] salt, String bankCode) {
+        this.bankCode = bankCode;
+        SecretKeySpec key = new SecretKeySpec(salt, HMAC);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public long ofIban(String iban) {
+        return iban == null || iban.isBlank() ? CaptureRecord.NO_KEY
+                : hash("iban:" + iban.replaceAll("\\s", "").toUpperCase(Locale.ROOT));
+    }
+
+    public long ofAccountNumber(String accountNumber) {
+        if (accountNumber == null || accountNumber.isBlank()) {
+            return CaptureRecord.NO_KEY;
+        }
+        try {
+            return ofIban(GermanIban.of(bankCode, accountNumber));
+        } catch (IllegalArgumentException e) {
+            return hash("account:" + accountNumber);
+        }
+    }
+
+    public long ofUsername(String username) {
+        return username == null || username.isBlank() ? CaptureRecord.NO_KEY : hash("user:" + username);
+    }
+
+    private long hash(String value) {
+        byte[] digest = macs.get().doFinal(value.getBytes(StandardCharsets.UTF_8));
+        long key = ByteBuffer.wrap(digest).getLong();
+        return key == CaptureRecord.NO_KEY ? 1 : key;
+    }
+}
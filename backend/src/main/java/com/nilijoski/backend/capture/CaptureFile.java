@@ -0,0 +1,165 @@
+package com.nilijoski.backend.capture;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of capture files: a header ({@code "BKTR"}, format version, start time in epoch
+ * microseconds), then one record per request, in the order requests completed:
+ * <pre>
+ *   u8      endpoint code
+ *   u8      flags: 1 = account key, 2 = counterparty key, 4 = amount
+ *   varint  start, zigzag delta in microseconds from the previous record's start
+ *   varint  duration in microseconds
+ *   varint  HTTP status
+ *   i64     account key        (if flagged)
+ *   i64     counterparty key   (if flagged)
+ *   varint  amount in cents    (if flagged)
+ * </pre>
+ * A typical record takes 15 to 30 bytes.
+ */
+public final class CaptureFile {
+
+    static final int MAGIC = 0x424B5452;
+    static final int VERSION = 1;
+
+    private static final int HAS_ACCOUNT = 1;
+    private static final int HAS_COUNTERPARTY = 2;
+    private static final int HAS_AMOUNT = 4;
+
+    private CaptureFile() {
+    }
+
+    public static final class Writer implements Closeable, Flushable {
+
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private long previousStart;
+
+        public Writer(OutputStream stream, long startMicros) throws IOException {
+            this.counter = new CountingOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            this.out = new DataOutputStream(counter);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(startMicros);
+            this.previousStart = startMicros;
+        }
+
+        public void write(CaptureRecord record) throws IOException {
+            int flags = (record.accountKey() != CaptureRecord.NO_KEY ? HAS_ACCOUNT : 0)
+                    | (record.counterpartyKey() != CaptureRecord.NO_KEY ? HAS_COUNTERPARTY : 0)
+                    | (record.amountCents() != CaptureRecord.NO_AMOUNT ? HAS_AMOUNT : 0);
+            out.writeByte(record.endpoint().code());
+            out.writeByte(flags);
+            long delta = record.startMicros() - previousStart;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            previousStart = record.startMicros();
+            writeVarLong(record.durationMicros());
+            writeVarLong(record.status());
+            if ((flags & HAS_ACCOUNT) != 0) {
+                out.writeLong(record.accountKey());
+            }
+            if ((flags & HAS_COUNTERPARTY) != 0) {
+                out.writeLong(record.counterpartyKey());
+            }
+            if ((flags & HAS_AMOUNT) != 0) {
+                writeVarLong(record.amountCents());
+            }
+        }
+
+        /**
+         * Bytes written so far, including buffered ones.
+         */
+        public long size() {
+            return counter.count;
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads every record of a capture file. A record cut short by a crash ends the file.
+     */
+    public static List<CaptureRecord> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a capture file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported capture file version " + version);
+        }
+        long start = in.readLong();
+        List<CaptureRecord> records = new ArrayList<>();
+        while (true) {
+            int code = in.read();
+            if (code < 0) {
+                return records;
+            }
+            try {
+                int flags = in.readUnsignedByte();
+                long zigzag = readVarLong(in);
+                start += (zigzag >>> 1) ^ -(zigzag & 1);
+                long duration = readVarLong(in);
+                int status = (int) readVarLong(in);
+                long account = (flags & HAS_ACCOUNT) != 0 ? in.readLong() : CaptureRecord.NO_KEY;
+                long counterparty = (flags & HAS_COUNTERPARTY) != 0 ? in.readLong() : CaptureRecord.NO_KEY;
+                long amount = (flags & HAS_AMOUNT) != 0 ? readVarLong(in) : CaptureRecord.NO_AMOUNT;
+                records.add(new CaptureRecord(start, CapturedEndpoint.ofCode(code), status, duration, account,
+                        counterparty, amount));
+            } catch (EOFException e) {
+                return records;
+            }
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
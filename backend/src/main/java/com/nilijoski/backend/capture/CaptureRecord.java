@@ -0,0 +1,17 @@
+package com.nilijoski.backend.capture;
+
+/**
+ * One captured request. Account keys are anonymized (see {@link AccountKeys}), {@code 0} when
+ * absent; {@code amountCents} is {@code -1} when the request carries no amount.
+ *
+ * @param startMicros     start of the request, microseconds since the epoch
+ * @param durationMicros  time until the response was complete
+ * @param accountKey      the account the request acts on or for
+ * @param counterpartyKey the other account involved, e.g. a transfer's recipient
+ */
+public record CaptureRecord(long startMicros, CapturedEndpoint endpoint, int status, long durationMicros,
+                            long accountKey, long counterpartyKey, long amountCents) {
+
+    public static final long NO_KEY = 0;
+    public static final long NO_AMOUNT = -1;
+}
@@ -0,0 +1,79 @@
+package com.nilijoski.backend.capture;
+
+import com.nilijoski.backend.web.EndpointMatcher;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+
+/**
+ * API endpoints whose traffic is captured. The {@code code} identifies the endpoint in capture
+ * files and must never change or be reused.
+ */
+public enum CapturedEndpoint {
+
+    LOGIN(1, "POST", "/api/users/login"),
+    REGISTER(2, "POST", "/api/users/register"),
+    USERNAME_AVAILABILITY(3, "GET", "/api/users/availability/{username}"),
+    ACCOUNT_BY_NUMBER(4, "GET", "/api/users/number/{accountNumber}"),
+    SAVED_RECIPIENTS(5, "GET", "/api/users/{userId}/saved-recipients"),
+    ADD_SAVED_RECIPIENT(6, "POST", "/api/users/{userId}/saved-recipients"),
+    REMOVE_SAVED_RECIPIENT(7, "DELETE", "/api/users/{userId}/saved-recipients/{recipientIban}"),
+    USER_BY_USERNAME(8, "GET", "/api/users/{username}"),
+    TRANSFER(9, "POST", "/api/transactions/transfer"),
+    RECIPIENTS(10, "GET", "/api/transactions/recipients/{iban}"),
+    HISTORY_BY_IBAN(11, "GET", "/api/transactions/iban/{iban}"),
+    HISTORY_BY_ACCOUNT_NUMBER(12, "GET", "/api/transactions/account/{accountNumber}"),
+    TRANSACTION_BY_ID(13, "GET", "/api/transactions/{id}");
+
+    private static final CapturedEndpoint[] BY_CODE = new CapturedEndpoint[16];
+    private static final EndpointMatcher<CapturedEndpoint> MATCHER = new EndpointMatcher<>();
+
+    static {
+        for (CapturedEndpoint endpoint : values()) {
+            BY_CODE[endpoint.code] = endpoint;
+            // Declaration order puts literal paths before the patterns that would also match them
+            MATCHER.add(endpoint.template, List.of(endpoint.method), endpoint);
+        }
+    }
+
+    private final int code;
+    private final String method;
+    private final String template;
+    private final PathPattern pattern;
+
+    CapturedEndpoint(int code, String method, String template) {
+        this.code = code;
+        this.method = method;
+        this.template = template;
+        this.pattern = PathPatternParser.defaultInstance.parse(template);
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public String template() {
+        return template;
+    }
+
+    PathPattern pattern() {
+        return pattern;
+    }
+
+    public static CapturedEndpoint match(String method, String path) {
+        return MATCHER.match(method, path);
+    }
+
+    public static CapturedEndpoint ofCode(int code) {
+        CapturedEndpoint endpoint = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Unknown endpoint code " + code);
+        }
+        return endpoint;
+    }
+}
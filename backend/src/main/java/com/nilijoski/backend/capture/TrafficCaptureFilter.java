@@ -0,0 +1,139 @@
+package com.nilijoski.backend.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.security.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * Captures requests to the {@link CapturedEndpoint}s for {@link TrafficReplayer}: endpoint,
+ * timing, status, anonymized account keys and transfer amounts. Nothing else of the request
+ * is kept, in particular no names, descriptions, passwords or tokens.
+ * <p>
+ * Runs before token authentication, so rejected requests are captured too, and reads the
+ * authenticated caller once the request is done. Request bodies are only buffered for the
+ * endpoints that need a field from them, and only as far as the controller read them.
+ */
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY = 8 * 1024;
+
+    private final TrafficRecorder recorder;
+    private final AccountKeys accountKeys;
+    private final ObjectMapper objectMapper;
+
+    public TrafficCaptureFilter(TrafficRecorder recorder, ObjectMapper objectMapper) {
+        this.recorder = recorder;
+        this.accountKeys = recorder.accountKeys();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CapturedEndpoint endpoint = CapturedEndpoint.match(request.getMethod(), request.getRequestURI());
+        if (endpoint == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest captured = hasBody(endpoint) ? new ContentCachingRequestWrapper(request, MAX_BODY) : request;
+        long startMicros = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(captured, response);
+        } finally {
+            long durationMicros = (System.nanoTime() - start) / 1000;
+            recorder.record(capture(endpoint, captured, response.getStatus(), startMicros, durationMicros));
+        }
+    }
+
+    private CaptureRecord capture(CapturedEndpoint endpoint, HttpServletRequest request, int status,
+                                  long startMicros, long durationMicros) {
+        Map<String, String> path = pathVariables(endpoint, request.getRequestURI());
+        JsonNode body = hasBody(endpoint) ? body((ContentCachingRequestWrapper) request) : null;
+        long account = CaptureRecord.NO_KEY;
+        long counterparty = CaptureRecord.NO_KEY;
+        long amount = CaptureRecord.NO_AMOUNT;
+        switch (endpoint) {
+            case LOGIN, REGISTER -> account = accountKeys.ofUsername(text(body, "username"));
+            case USERNAME_AVAILABILITY, USER_BY_USERNAME -> account = accountKeys.ofUsername(path.get("username"));
+            case ACCOUNT_BY_NUMBER, HISTORY_BY_ACCOUNT_NUMBER ->
+                    account = accountKeys.ofAccountNumber(path.get("accountNumber"));
+            case RECIPIENTS, HISTORY_BY_IBAN -> account = accountKeys.ofIban(path.get("iban"));
+            case SAVED_RECIPIENTS, TRANSACTION_BY_ID -> account = callerKey();
+            case ADD_SAVED_RECIPIENT -> {
+                account = callerKey();
+                counterparty = accountKeys.ofIban(text(body, "recipientIban"));
+            }
+            case REMOVE_SAVED_RECIPIENT -> {
+                account = callerKey();
+                counterparty = accountKeys.ofIban(path.get("recipientIban"));
+            }
+            case TRANSFER -> {
+                account = accountKeys.ofIban(text(body, "fromIban"));
+                counterparty = accountKeys.ofIban(text(body, "toIban"));
+                amount = cents(body);
+            }
+        }
+        return new CaptureRecord(startMicros, endpoint, status, durationMicros, account, counterparty, amount);
+    }
+
+    private static boolean hasBody(CapturedEndpoint endpoint) {
+        return endpoint == CapturedEndpoint.LOGIN || endpoint == CapturedEndpoint.REGISTER
+                || endpoint == CapturedEndpoint.TRANSFER || endpoint == CapturedEndpoint.ADD_SAVED_RECIPIENT;
+    }
+
+    private static Map<String, String> pathVariables(CapturedEndpoint endpoint, String uri) {
+        PathPattern.PathMatchInfo match = endpoint.pattern().matchAndExtract(PathContainer.parsePath(uri));
+        return match == null ? Map.of() : match.getUriVariables();
+    }
+
+    private JsonNode body(ContentCachingRequestWrapper request) {
+        byte[] content = request.getContentAsByteArray();
+        if (content.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(content);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private long callerKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof TokenService.TokenClaims claims) {
+            return accountKeys.ofIban(claims.iban());
+        }
+        return CaptureRecord.NO_KEY;
+    }
+
+    private static String text(JsonNode body, String field) {
+        JsonNode value = body == null ? null : body.get(field);
+        return value == null || !value.isTextual() ? null : value.asText();
+    }
+
+    private static long cents(JsonNode body) {
+        JsonNode value = body == null ? null : body.get("amount");
+        if (value == null || !value.isNumber()) {
+            return CaptureRecord.NO_AMOUNT;
+        }
+        // Non-positive amounts are rejected either way; zero replays that
+        return Math.max(0, value.decimalValue().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue());
+    }
+}
@@ -0,0 +1,159 @@
+package com.nilijoski.backend.capture;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes captured requests to {@code banking.capture.directory}, starting a new file once one
+ * reaches {@code banking.capture.max-file-size}. Request threads only enqueue; a single writer
+ * thread encodes and writes. When the queue is full, records are dropped and counted rather
+ * than slowing requests down.
+ * <p>
+ * Without {@code banking.capture.salt}, account keys are salted randomly per run: files of one
+ * run can be replayed, but keys no longer line up across restarts.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.capture.enabled", havingValue = "true")
+public class TrafficRecorder {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int BATCH = 256;
+
+    private final Path directory;
+    private final long maxFileSize;
+    private final AccountKeys accountKeys;
+    private final BlockingQueue<CaptureRecord> queue;
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private CaptureFile.Writer file;
+
+    public TrafficRecorder(@Value("${banking.capture.directory:capture}") Path directory,
+                           @Value("${banking.capture.max-file-size:64MB}") DataSize maxFileSize,
+                           @Value("${banking.capture.queue-capacity:65536}") int queueCapacity,
+                           @Value("${banking.capture.salt:}") String salt,
+                           @Value("${banking.accounts.bank-code:37040044}") String bankCode,
+                           MeterRegistry meterRegistry) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxFileSize = maxFileSize.toBytes();
+        this.accountKeys = new AccountKeys(salt.isEmpty() ? randomSalt() : salt.getBytes(StandardCharsets.UTF_8),
+                bankCode);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.recorded = Counter.builder("banking.capture.records")
+                .description("Requests written to capture files")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("banking.capture.dropped")
+                .description("Captured requests dropped because the writer fell behind")
+                .register(meterRegistry);
+        this.writer = Thread.ofPlatform().daemon().name("traffic-capture").start(this::drain);
+        log.info("Capturing traffic to {}", this.directory.toAbsolutePath());
+    }
+
+    public AccountKeys accountKeys() {
+        return accountKeys;
+    }
+
+    public void record(CaptureRecord record) {
+        if (!queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        List<CaptureRecord> batch = new ArrayList<>(BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                CaptureRecord first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    flush();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                log.warn("Writing captured traffic failed, dropping {} records", batch.size(), e);
+                dropped.increment(batch.size());
+                closeFile();
+            }
+            batch.clear();
+        }
+        closeFile();
+    }
+
+    private void write(List<CaptureRecord> batch) throws IOException {
+        for (CaptureRecord record : batch) {
+            if (file == null || file.size() >= maxFileSize) {
+                closeFile();
+                file = newFile(record.startMicros());
+            }
+            file.write(record);
+        }
+        recorded.increment(batch.size());
+    }
+
+    private CaptureFile.Writer newFile(long startMicros) throws IOException {
+        Path path = directory.resolve("capture-" + LocalDateTime.now().format(FILE_TIME) + ".bin");
+        OutputStream out = Files.newOutputStream(path);
+        return new CaptureFile.Writer(out, startMicros);
+    }
+
+    private void flush() {
+        if (file != null) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                log.warn("Flushing captured traffic failed", e);
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("Closing capture file failed", e);
+            }
+            file = null;
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        // No interrupt: it would close the file channel in the middle of a write
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private static byte[] randomSalt() {
+        byte[] salt = new byte[32];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+}
@@ -0,0 +1,362 @@
+package com.nilijoski.backend.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.security.SecurityConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays capture files written by {@link TrafficRecorder} against a local instance:
+ * <pre>
+ *   java -cp target/banking-app.jar -Dloader.main=com.nilijoski.backend.capture.TrafficReplayer \
+ *       org.springframework.boot.loader.launch.PropertiesLauncher \
+ *       --target http://localhost:8080 --speed 10 --accounts 200 capture/*.bin
+ * </pre>
+ * Captured accounts are mapped onto a pool of freshly registered local accounts in order of
+ * first appearance, so the same files always produce the same requests. Requests are sent at
+ * their captured offsets divided by {@code --speed} ({@code max} sends them back to back), but a
+ * request never starts before the previous request of the same local account has finished, so
+ * every account sees its requests in captured order. Latency is measured from the intended
+ * start, so a server falling behind shows up as latency rather than as a slower replay.
+ * <p>
+ * Run the target with {@code banking.rate-limit.enabled=false} and an access token TTL longer
+ * than the replay. Local accounts start with the default balance, so replayed transfers larger
+ * than that are rejected; the report counts those as status mismatches.
+ */
+public final class TrafficReplayer {
+
+    private static final String PASSWORD = "replay-Password-1";
+
+    private final int poolSize;
+    private final double speed;
+    private final int maxInFlight;
+
+    /**
+     * @param speed replay speed relative to the capture, {@link Double#POSITIVE_INFINITY} for no pauses
+     */
+    public TrafficReplayer(int poolSize, double speed, int maxInFlight) {
+        if (poolSize < 2) {
+            throw new IllegalArgumentException("At least two accounts are needed to replay transfers");
+        }
+        this.poolSize = poolSize;
+        this.speed = speed;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends one captured request for the local accounts at the given pool positions ({@code -1}
+     * when the record has no such key) and completes with the HTTP status.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<Integer> send(CaptureRecord record, int account, int counterparty);
+    }
+
+    public Report replay(List<CaptureRecord> captured, Sender sender) throws InterruptedException {
+        List<CaptureRecord> records = new ArrayList<>(captured);
+        // Files hold records in completion order
+        records.sort(Comparator.comparingLong(CaptureRecord::startMicros));
+        Map<CapturedEndpoint, EndpointStats> stats = new EnumMap<>(CapturedEndpoint.class);
+        records.forEach(record -> stats.computeIfAbsent(record.endpoint(), EndpointStats::new).expected++);
+
+        Map<Long, Integer> slots = new HashMap<>();
+        Map<Integer, CompletableFuture<Void>> tails = new HashMap<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long origin = records.isEmpty() ? 0 : records.getFirst().startMicros();
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> all = new ArrayList<>(records.size());
+
+        for (CaptureRecord record : records) {
+            int account = slot(slots, record.accountKey());
+            int counterparty = slot(slots, record.counterpartyKey());
+            if (counterparty == account && account >= 0) {
+                // Two captured accounts sharing a local one would turn into a transfer to itself
+                counterparty = (account + 1) % poolSize;
+            }
+            long due = Double.isInfinite(speed) ? System.nanoTime()
+                    : started + (long) ((record.startMicros() - origin) * 1000 / speed);
+            waitUntil(due);
+            inFlight.acquire();
+
+            CompletableFuture<Void> previous = CompletableFuture.allOf(tail(tails, account), tail(tails, counterparty));
+            int from = account;
+            int to = counterparty;
+            EndpointStats endpoint = stats.get(record.endpoint());
+            CompletableFuture<Void> done = previous
+                    .thenCompose(ignored -> sender.send(record, from, to))
+                    .handle((status, failure) -> {
+                        endpoint.record(record.status(), failure == null ? status : -1, System.nanoTime() - due);
+                        inFlight.release();
+                        return null;
+                    });
+            if (account >= 0) {
+                tails.put(account, done);
+            }
+            if (counterparty >= 0) {
+                tails.put(counterparty, done);
+            }
+            all.add(done);
+        }
+        CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).join();
+        return new Report(System.nanoTime() - started, List.copyOf(stats.values()));
+    }
+
+    private int slot(Map<Long, Integer> slots, long key) {
+        if (key == CaptureRecord.NO_KEY) {
+            return -1;
+        }
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = slots.size() % poolSize;
+            slots.put(key, slot);
+        }
+        return slot;
+    }
+
+    private static CompletableFuture<Void> tail(Map<Integer, CompletableFuture<Void>> tails, int slot) {
+        CompletableFuture<Void> tail = slot < 0 ? null : tails.get(slot);
+        return tail == null ? CompletableFuture.completedFuture(null) : tail;
+    }
+
+    private static void waitUntil(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public record Report(long elapsedNanos, List<EndpointStats> endpoints) {
+
+        public void print(PrintStream out) {
+            int requests = endpoints.stream().mapToInt(EndpointStats::count).sum();
+            out.printf("%d requests in %.1f s (%.0f/s)%n", requests, elapsedNanos / 1e9,
+                    requests / Math.max(elapsedNanos / 1e9, 1e-9));
+            out.printf("%-26s %8s %8s %10s %10s %10s %10s%n",
+                    "endpoint", "requests", "errors", "mismatch", "p50 ms", "p99 ms", "max ms");
+            for (EndpointStats stats : endpoints) {
+                out.printf("%-26s %8d %8d %10d %10.2f %10.2f %10.2f%n", stats.endpoint(), stats.count(),
+                        stats.errors(), stats.mismatches(), stats.percentileMillis(50), stats.percentileMillis(99),
+                        stats.percentileMillis(100));
+            }
+        }
+    }
+
+    /**
+     * Outcome of the replayed requests to one endpoint. A mismatch is a request whose replayed
+     * status class (2xx, 4xx, ...) differs from the captured one.
+     */
+    public static final class EndpointStats {
+
+        private final CapturedEndpoint endpoint;
+        private int expected;
+        private long[] latencies;
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicInteger mismatches = new AtomicInteger();
+
+        EndpointStats(CapturedEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private void record(int capturedStatus, int status, long latencyNanos) {
+            if (latencies == null) {
+                synchronized (this) {
+                    if (latencies == null) {
+                        latencies = new long[expected];
+                    }
+                }
+            }
+            latencies[count.getAndIncrement()] = latencyNanos;
+            if (status < 0 || status >= 500) {
+                errors.incrementAndGet();
+            }
+            if (status / 100 != capturedStatus / 100) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        public CapturedEndpoint endpoint() {
+            return endpoint;
+        }
+
+        public int count() {
+            return count.get();
+        }
+
+        public int errors() {
+            return errors.get();
+        }
+
+        public int mismatches() {
+            return mismatches.get();
+        }
+
+        public double percentileMillis(double percentile) {
+            if (count() == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count());
+            Arrays.sort(sorted);
+            int index = Math.max((int) Math.ceil(percentile / 100 * sorted.length) - 1, 0);
+            return sorted[index] / 1e6;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = "http://localhost:8080";
+        double speed = 1;
+        int accounts = 100;
+        int maxInFlight = 512;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--target" -> target = args[++i];
+                case "--speed" -> speed = "max".equals(args[++i]) ? Double.POSITIVE_INFINITY : Double.parseDouble(args[i]);
+                case "--accounts" -> accounts = Integer.parseInt(args[++i]);
+                case "--max-in-flight" -> maxInFlight = Integer.parseInt(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: TrafficReplayer [--target url] [--speed 1|10|max] [--accounts n] "
+                    + "[--max-in-flight n] capture-file...");
+            System.exit(2);
+        }
+
+        List<CaptureRecord> records = new ArrayList<>();
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                records.addAll(CaptureFile.read(in));
+            }
+        }
+        HttpSender sender = new HttpSender(URI.create(target), new ObjectMapper());
+        System.out.printf("Registering %d accounts at %s%n", accounts, target);
+        sender.registerAccounts(accounts);
+        System.out.printf("Replaying %d requests from %d files at speed %s%n", records.size(), files.size(),
+                Double.isInfinite(speed) ? "max" : speed + "x");
+        new TrafficReplayer(accounts, speed, maxInFlight).replay(records, sender).print(System.out);
+    }
+
+    private record LocalAccount(String id, String username, String firstName, String lastName, String iban,
+                                String accountNumber, String accessToken) {
+    }
+
+    /**
+     * Turns captured records into requests against a running instance.
+     */
+    static final class HttpSender implements Sender {
+
+        private final URI target;
+        private final ObjectMapper objectMapper;
+        private final HttpClient client = HttpClient.newHttpClient();
+        private final String run = Long.toString(System.currentTimeMillis(), 36);
+        private final AtomicInteger registrations = new AtomicInteger();
+        private List<LocalAccount> accounts = List.of();
+
+        HttpSender(URI target, ObjectMapper objectMapper) {
+            this.target = target;
+            this.objectMapper = objectMapper;
+        }
+
+        void registerAccounts(int count) throws IOException, InterruptedException {
+            List<LocalAccount> registered = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                HttpResponse<String> response = client.send(register("replay-" + run + "-" + i),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 201) {
+                    throw new IllegalStateException("Registering a replay account failed with " + response.statusCode());
+                }
+                JsonNode user = objectMapper.readTree(response.body());
+                registered.add(new LocalAccount(user.path("id").asText(), user.path("username").asText(),
+                        user.path("firstName").asText(), user.path("lastName").asText(), user.path("iban").asText(),
+                        user.path("accountNumber").asText(),
+                        response.headers().firstValue(SecurityConfig.ACCESS_TOKEN_HEADER).orElseThrow()));
+            }
+            accounts = registered;
+        }
+
+        @Override
+        public CompletableFuture<Integer> send(CaptureRecord record, int account, int counterparty) {
+            // Records without a usable key act on the first account
+            LocalAccount self = accounts.get(Math.max(account, 0));
+            LocalAccount other = counterparty < 0 ? null : accounts.get(counterparty);
+            HttpRequest request = switch (record.endpoint()) {
+                case LOGIN -> post("/api/users/login", null, Map.of("username", self.username(), "password", PASSWORD));
+                case REGISTER -> register("replay-" + run + "-r" + registrations.incrementAndGet());
+                case USERNAME_AVAILABILITY -> get("/api/users/availability/" + self.username(), null);
+                case ACCOUNT_BY_NUMBER -> get("/api/users/number/" + self.accountNumber(), self);
+                case USER_BY_USERNAME -> get("/api/users/" + self.username(), self);
+                case SAVED_RECIPIENTS -> get("/api/users/" + self.id() + "/saved-recipients", self);
+                case ADD_SAVED_RECIPIENT -> post("/api/users/" + self.id() + "/saved-recipients", self,
+                        Map.of("recipientIban", ibanOf(other)));
+                case REMOVE_SAVED_RECIPIENT ->
+                        request("/api/users/" + self.id() + "/saved-recipients/" + ibanOf(other), self).DELETE().build();
+                case TRANSFER -> post("/api/transactions/transfer", self, transfer(record, self, other));
+                case RECIPIENTS -> get("/api/transactions/recipients/" + self.iban(), self);
+                case HISTORY_BY_IBAN -> get("/api/transactions/iban/" + self.iban(), self);
+                case HISTORY_BY_ACCOUNT_NUMBER -> get("/api/transactions/account/" + self.accountNumber(), self);
+                // Captured transaction ids are not kept; a miss exercises the same lookup
+                case TRANSACTION_BY_ID -> get("/api/transactions/replay-" + record.startMicros(), self);
+            };
+            return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(HttpResponse::statusCode);
+        }
+
+        private static Map<String, Object> transfer(CaptureRecord record, LocalAccount from, LocalAccount to) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("fromIban", from.iban());
+            body.put("toIban", ibanOf(to));
+            body.put("toFirstName", to == null ? "" : to.firstName());
+            body.put("toLastName", to == null ? "" : to.lastName());
+            body.put("amount", BigDecimal.valueOf(Math.max(record.amountCents(), 0), 2));
+            body.put("description", "Replay");
+            return body;
+        }
+
+        private static String ibanOf(LocalAccount account) {
+            return account == null ? "" : account.iban();
+        }
+
+        private HttpRequest register(String username) {
+            return post("/api/users/register", null, Map.of("username", username, "password", PASSWORD,
+                    "firstName", "Replay", "lastName", username));
+        }
+
+        private HttpRequest get(String path, LocalAccount caller) {
+            return request(path, caller).GET().build();
+        }
+
+        private HttpRequest post(String path, LocalAccount caller, Map<String, ?> body) {
+            try {
+                return request(path, caller)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                        .build();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private HttpRequest.Builder request(String path, LocalAccount caller) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(target.resolve(path));
+            if (caller != null) {
+                builder.header("Authorization", "Bearer " + caller.accessToken());
+            }
+            return builder;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.nilijoski.backend.concurrency;
+
+import com.nilijoski.backend.web.EndpointMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit for account and transaction requests that adapts to latency the way TCP
+ * Vegas adapts its congestion window, so a slow Mongo sheds load instead of piling requests up
+ * on Tomcat threads until all of them time out together.
+ * <p>
+ * Each completed request is compared with the latency of its group without load:
+ * {@code limit * (1 - noLoad / latency)} estimates how many requests in flight are queueing
+ * rather than being served. While that estimate stays below about {@code 3 * log10(limit)} the
+ * limit grows; above {@code 6 * log10(limit)} it drops to the level that leaves the lower
+ * amount queued. The limit changes at most once per round trip, judged by requests that
+ * started after the previous change. Comparing every group with its own baseline keeps a
+ * transfer (several round trips) from looking like a queued account lookup.
+ * <p>
+ * Only successful (2xx) responses are samples: errors and {@code 304 Not Modified} are often cut
+ * short and say nothing about the latency of real work. A baseline is the
+ * {@value #BASELINE_PERCENTILE} quantile of the group's last {@value #BASELINE_WINDOW} samples
+ * admitted under light load, so a few responses served from a cache do not make the usual
+ * ones look queued. Under lasting load no light samples come in and a baseline taken while
+ * queueing would let the limit creep up, and one kept from before Mongo slowed down would pin it
+ * at {@code min-limit}. Every {@value #PROBE_MULTIPLIER} &times; limit requests the baselines
+ * therefore start afresh from the next {@code min-limit} requests, the least queued of which is
+ * the best estimate at hand. The limit itself stays put during the probe, so healthy traffic is
+ * not shed for the sake of a measurement.
+ * <p>
+ * Requests over the limit are rejected at once. Sheddable groups may only fill
+ * {@code sheddable-share} of the limit; the remainder is kept for critical ones (transfers).
+ */
+@Component
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(name = "banking.admission.enabled", havingValue = "true")
+public class AdaptiveLimiter {
+
+    static final int PROBE_MULTIPLIER = 30;
+    static final int BASELINE_WINDOW = 100;
+    static final double BASELINE_PERCENTILE = 0.1;
+
+    // A probe that cannot collect samples (long-running requests keep the count up) gives up after this long
+    private static final long PROBE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final EndpointMatcher<Group> matcher = new EndpointMatcher<>();
+    private final List<Group> groups = new ArrayList<>();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double sheddableShare;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    // Guarded by this
+    private long lastChangeNanos;
+    private long samplesSinceProbe;
+    private boolean probing;
+    private long probeStartNanos;
+    private int probeSamples;
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public AdaptiveLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    AdaptiveLimiter(AdmissionProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        if (properties.minLimit() <= 0 || properties.maxLimit() < properties.minLimit()
+                || properties.initialLimit() < properties.minLimit() || properties.initialLimit() > properties.maxLimit()) {
+            throw new IllegalArgumentException("banking.admission limits must satisfy 0 < min-limit <= initial-limit <= max-limit");
+        }
+        if (properties.sheddableShare() <= 0 || properties.sheddableShare() > 1) {
+            throw new IllegalArgumentException("banking.admission.sheddable-share must be in (0, 1]");
+        }
+        this.minLimit = properties.minLimit();
+        this.maxLimit = properties.maxLimit();
+        this.sheddableShare = properties.sheddableShare();
+        this.nanoClock = nanoClock;
+        this.limit = properties.initialLimit();
+
+        for (Map.Entry<String, AdmissionProperties.Group> entry : properties.groups().entrySet()) {
+            Group group = new Group(entry.getKey(), entry.getValue().priority(), meterRegistry);
+            groups.add(group);
+            for (String pattern : entry.getValue().patterns()) {
+                matcher.add(pattern, entry.getValue().methods(), group);
+            }
+        }
+        Gauge.builder("banking.admission.limit", this, AdaptiveLimiter::limit)
+                .description("Requests currently allowed in flight")
+                .register(meterRegistry);
+        Gauge.builder("banking.admission.in-flight", this, AdaptiveLimiter::inFlight)
+                .description("Admitted requests currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The group a request belongs to, or null when it is not limited.
+     */
+    public Group match(String method, String path) {
+        return matcher.match(method, path);
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(Group group, long startNanos, long latencyNanos, boolean busy) {
+        long now = startNanos + latencyNanos;
+        if (probing) {
+            probe(group, startNanos, latencyNanos, now);
+            return;
+        }
+        group.active = true;
+        if (!busy || group.noLoadNanos == 0) {
+            group.addBaselineSample(latencyNanos);
+        }
+        if (++samplesSinceProbe >= PROBE_MULTIPLIER * limit) {
+            startProbe(now);
+            return;
+        }
+        if (startNanos < lastChangeNanos) {
+            return;
+        }
+
+        double current = limit;
+        double log = Math.max(1, Math.log10(current));
+        double queued = current * (1 - (double) group.noLoadNanos / Math.max(1, latencyNanos));
+        double next;
+        if (queued <= log) {
+            next = current + 6 * log;
+        } else if (queued < 3 * log) {
+            next = current + log;
+        } else if (queued > 6 * log) {
+            next = current - queued + 3 * log;
+        } else {
+            return;
+        }
+        // A limit the traffic never came close to says nothing about the latency at that limit
+        if (next > current && !busy) {
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+        lastChangeNanos = now;
+    }
+
+    private void startProbe(long now) {
+        probing = true;
+        probeStartNanos = now;
+        probeSamples = 0;
+        for (Group group : groups) {
+            group.probed = false;
+        }
+    }
+
+    private void probe(Group group, long startNanos, long latencyNanos, long now) {
+        if (startNanos >= probeStartNanos) {
+            if (!group.probed) {
+                // Samples from before the probe may be stale
+                group.clearBaseline();
+                group.probed = true;
+            }
+            group.addBaselineSample(latencyNanos);
+            probeSamples++;
+        }
+        if (probeSamples < minLimit && now - probeStartNanos < PROBE_TIMEOUT_NANOS) {
+            return;
+        }
+        for (Group each : groups) {
+            if (!each.probed && each.active) {
+                // Crowded out by busier groups, so its next request starts a fresh baseline instead of a stale one
+                each.clearBaseline();
+            }
+            each.active = false;
+        }
+        probing = false;
+        samplesSinceProbe = 0;
+        lastChangeNanos = now;
+    }
+
+    public final class Group {
+
+        private final String name;
+        private final AdmissionProperties.Priority priority;
+        private final Counter rejected;
+
+        // Guarded by the limiter
+        private final long[] baseline = new long[BASELINE_WINDOW];
+        private final long[] sorted = new long[BASELINE_WINDOW];
+        private int baselineSamples;
+        private long noLoadNanos;
+        private boolean probed;
+        private boolean active;
+
+        Group(String name, AdmissionProperties.Priority priority, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.priority = priority;
+            this.rejected = Counter.builder("banking.admission.rejected")
+                    .tag("group", name)
+                    .description("Requests of the group rejected because the limit was reached")
+                    .register(meterRegistry);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        private void clearBaseline() {
+            baselineSamples = 0;
+            noLoadNanos = 0;
+        }
+
+        private void addBaselineSample(long latencyNanos) {
+            baseline[baselineSamples++ % BASELINE_WINDOW] = Math.max(1, latencyNanos);
+            int size = Math.min(baselineSamples, BASELINE_WINDOW);
+            System.arraycopy(baseline, 0, sorted, 0, size);
+            Arrays.sort(sorted, 0, size);
+            noLoadNanos = sorted[(int) (BASELINE_PERCENTILE * (size - 1))];
+        }
+
+        public AdmissionProperties.Priority priority() {
+            return priority;
+        }
+
+        /**
+         * A permit to run the request, or null when the limit is reached; every permit must be
+         * {@link Permit#release() released}.
+         */
+        public Permit tryAcquire() {
+            double current = limit;
+            int allowed = priority == AdmissionProperties.Priority.CRITICAL
+                    ? (int) current
+                    : Math.max(1, (int) (current * sheddableShare));
+            while (true) {
+                int running = inFlight.get();
+                if (running >= allowed) {
+                    rejected.increment();
+                    return null;
+                }
+                if (inFlight.compareAndSet(running, running + 1)) {
+                    return new Permit(this, nanoClock.getAsLong(), (running + 1) * 2 >= allowed);
+                }
+            }
+        }
+    }
+
+    public final class Permit {
+
+        private final Group group;
+        private final long startNanos;
+        // At least half of what the group may use was in flight when the request was admitted
+        private final boolean busy;
+
+        private Permit(Group group, long startNanos, boolean busy) {
+            this.group = group;
+            this.startNanos = startNanos;
+            this.busy = busy;
+        }
+
+        /**
+         * Frees the permit of a request answered with {@code status}; only successful ones are
+         * samples of the latency.
+         */
+        public void release(int status) {
+            inFlight.decrementAndGet();
+            if (status >= 200 && status < 300) {
+                onSample(group, startNanos, nanoClock.getAsLong() - startNanos, busy);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.nilijoski.backend.concurrency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits requests of the {@link AdaptiveLimiter} groups while they fit under the current limit
+ * and answers 503 with {@code Retry-After} at once otherwise. Runs before the bulkheads, so the
+ * time spent waiting for a bulkhead slot counts as latency and shrinks the limit.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdaptiveLimiter limiter;
+
+    public AdmissionFilter(AdaptiveLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveLimiter.Group group = limiter.match(request.getMethod(), request.getRequestURI());
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveLimiter.Permit permit = group.tryAcquire();
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            chain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            permit.release(status);
+        }
+    }
+}
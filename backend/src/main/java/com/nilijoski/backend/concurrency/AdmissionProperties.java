@@ -0,0 +1,40 @@
+package com.nilijoski.backend.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounds of the adaptive concurrency limit and the endpoint groups it applies to, under
+ * {@code banking.admission}. A request belongs to the first group with a matching pattern and
+ * method, in declaration order; requests of no group are not limited.
+ *
+ * @param sheddableShare part of the limit that sheddable groups may fill, the rest is kept for critical ones
+ */
+@ConfigurationProperties("banking.admission")
+public record AdmissionProperties(@DefaultValue("20") int initialLimit,
+                                  @DefaultValue("5") int minLimit,
+                                  @DefaultValue("200") int maxLimit,
+                                  @DefaultValue("0.8") double sheddableShare,
+                                  Map<String, Group> groups) {
+
+    public AdmissionProperties {
+        groups = groups == null ? Map.of() : new LinkedHashMap<>(groups);
+    }
+
+    public enum Priority {
+        CRITICAL,
+        SHEDDABLE
+    }
+
+    /**
+     * @param methods HTTP methods the group applies to, all methods when empty
+     */
+    public record Group(List<String> patterns,
+                        @DefaultValue List<String> methods,
+                        @DefaultValue("sheddable") Priority priority) {
+    }
+}
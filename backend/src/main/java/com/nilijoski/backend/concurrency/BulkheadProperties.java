@@ -0,0 +1,33 @@
+package com.nilijoski.backend.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Concurrency caps per endpoint group under {@code banking.bulkheads.groups.<name>}. A request
+ * belongs to the first group with a matching pattern and method, in declaration order.
+ */
+@ConfigurationProperties("banking.bulkheads")
+public record BulkheadProperties(Map<String, Group> groups) {
+
+    public BulkheadProperties {
+        groups = groups == null ? Map.of() : new LinkedHashMap<>(groups);
+    }
+
+    /**
+     * Lets at most {@code maxConcurrent} requests of the group run at once; a request waits up to
+     * {@code maxWait} for a slot before it is rejected.
+     *
+     * @param methods HTTP methods the group applies to, all methods when empty
+     */
+    public record Group(List<String> patterns,
+                        @DefaultValue List<String> methods,
+                        int maxConcurrent,
+                        @DefaultValue("100ms") Duration maxWait) {
+    }
+}
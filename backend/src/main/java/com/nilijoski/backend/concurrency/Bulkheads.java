@@ -0,0 +1,96 @@
+package com.nilijoski.backend.concurrency;
+
+import com.nilijoski.backend.web.EndpointMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One fair {@link Semaphore} per endpoint group, capping how many requests of the group do
+ * Mongo-bound work at the same time.
+ * <p>
+ * With virtual threads the servlet container no longer bounds concurrency through its pool
+ * size, so a burst of history reads could otherwise take every pooled Mongo connection and
+ * starve transfers and logins. Keep the sum of the caps below the driver's
+ * {@code maxPoolSize} (100 by default).
+ */
+@Component
+@EnableConfigurationProperties(BulkheadProperties.class)
+@ConditionalOnProperty(name = "banking.bulkheads.enabled", havingValue = "true")
+public class Bulkheads {
+
+    private final EndpointMatcher<Bulkhead> matcher = new EndpointMatcher<>();
+
+    public Bulkheads(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        for (Map.Entry<String, BulkheadProperties.Group> entry : properties.groups().entrySet()) {
+            Bulkhead bulkhead = new Bulkhead(entry.getKey(), entry.getValue(), meterRegistry);
+            for (String pattern : entry.getValue().patterns()) {
+                matcher.add(pattern, entry.getValue().methods(), bulkhead);
+            }
+        }
+    }
+
+    /**
+     * The group a request belongs to, or null when it is not limited.
+     */
+    public Bulkhead match(String method, String path) {
+        return matcher.match(method, path);
+    }
+
+    public static final class Bulkhead {
+
+        private final String name;
+        private final int maxConcurrent;
+        private final long maxWaitNanos;
+        private final Semaphore permits;
+        private final Counter rejected;
+
+        Bulkhead(String name, BulkheadProperties.Group config, MeterRegistry meterRegistry) {
+            if (config.maxConcurrent() <= 0) {
+                throw new IllegalArgumentException("banking.bulkheads.groups." + name + ".max-concurrent must be positive");
+            }
+            this.name = name;
+            this.maxConcurrent = config.maxConcurrent();
+            this.maxWaitNanos = config.maxWait().toNanos();
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.rejected = Counter.builder("banking.bulkhead.rejected")
+                    .tag("group", name)
+                    .description("Requests rejected because the group was at its concurrency limit")
+                    .register(meterRegistry);
+            Gauge.builder("banking.bulkhead.active", this, Bulkhead::active)
+                    .tag("group", name)
+                    .description("Requests of the group currently running")
+                    .register(meterRegistry);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int active() {
+            return maxConcurrent - permits.availablePermits();
+        }
+
+        /**
+         * Waits up to {@code max-wait} for a slot; every successful call must be paired with {@link #release()}.
+         */
+        public boolean tryAcquire() throws InterruptedException {
+            if (permits.tryAcquire() || permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            rejected.increment();
+            return false;
+        }
+
+        public void release() {
+            permits.release();
+        }
+    }
+}
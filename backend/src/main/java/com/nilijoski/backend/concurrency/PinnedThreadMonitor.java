@@ -0,0 +1,119 @@
+package com.nilijoski.backend.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier, which happens when one blocks
+ * inside a {@code synchronized} block or a native frame. A pinned virtual thread holds a
+ * carrier (one per core) for the whole blocking call, so a few of them stall every request.
+ * <p>
+ * Consumes {@code jdk.VirtualThreadPinned} JFR events above
+ * {@code banking.virtual-threads.pinning.threshold} in-process. Each event is counted in
+ * {@code banking.virtual-threads.pinned}, tagged with the innermost frame of our own code, and
+ * timed; the first event per frame is logged with its stack trace.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "banking.virtual-threads.pinning.enabled", havingValue = "true", matchIfMissing = true)
+public class PinnedThreadMonitor implements SmartLifecycle {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private static final String APPLICATION_PACKAGE = "com.nilijoski.";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+    private volatile RecordingStream stream;
+
+    public PinnedThreadMonitor(@Value("${banking.virtual-threads.pinning.threshold:20ms}") Duration threshold,
+                               MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(EVENT, this::record);
+        recording.startAsync();
+        stream = recording;
+        log.info("Reporting virtual threads pinned for longer than {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    void record(RecordedEvent event) {
+        List<RecordedFrame> frames = frames(event.getStackTrace());
+        String location = location(frames);
+
+        Counter.builder("banking.virtual-threads.pinned")
+                .tag("frame", location)
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry)
+                .increment();
+        Timer.builder("banking.virtual-threads.pinned.duration")
+                .description("How long virtual threads stayed pinned")
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        if (reported.add(location)) {
+            log.warn("Virtual thread pinned for {} ms at {}; further pins here are only counted\n\tat {}",
+                    event.getDuration().toMillis(), location,
+                    frames.stream().limit(LOGGED_FRAMES).map(PinnedThreadMonitor::describe)
+                            .collect(Collectors.joining("\n\tat ")));
+        }
+    }
+
+    private static List<RecordedFrame> frames(RecordedStackTrace stackTrace) {
+        return stackTrace == null ? List.of() : stackTrace.getFrames();
+    }
+
+    // The innermost frame in our own code says which call to fix; JDK and driver frames are shared by all callers
+    private static String location(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .orElse("unknown");
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
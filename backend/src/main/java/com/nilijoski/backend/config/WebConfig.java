@@ -1,35 +1,37 @@
 package com.nilijoski.backend.config;
 
+import com.nilijoski.backend.web.StaticAssetHandler;
+import com.nilijoski.backend.web.StaticAssets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
 
 import java.io.IOException;
+import java.util.Map;
 
+/**
+ * Serves the frontend from memory (see {@link StaticAssetHandler}) for every path no controller handles.
+ */
+@Slf4j
 @Configuration
-public class WebConfig implements WebMvcConfigurer {
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebConfig {
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/**")
-                .addResourceLocations("classpath:/static/")
-                .resourceChain(true)
-                .addResolver(new PathResourceResolver() {
-                    @Override
-                    protected Resource getResource(String resourcePath, Resource location) throws IOException {
-                        Resource requestedResource = location.createRelative(resourcePath);
-                        
-                        // If the resource exists, return it
-                        if (requestedResource.exists() && requestedResource.isReadable()) {
-                            return requestedResource;
-                        }
-                        
-                        // For all other paths (client-side routes), return index.html
-                        return new ClassPathResource("/static/index.html");
-                    }
-                });
+    static final String STATIC_LOCATION = "classpath:/static/";
+
+    @Bean
+    StaticAssets staticAssets() throws IOException {
+        StaticAssets assets = StaticAssets.load(new PathMatchingResourcePatternResolver(), STATIC_LOCATION);
+        log.info("Serving {} static files from memory", assets.size());
+        return assets;
+    }
+
+    // Right after the controllers, ahead of Spring Boot's welcome page and resource handler mappings
+    @Bean
+    SimpleUrlHandlerMapping staticAssetHandlerMapping(StaticAssets staticAssets) {
+        return new SimpleUrlHandlerMapping(Map.of("/**", new StaticAssetHandler(staticAssets)), 1);
     }
 }
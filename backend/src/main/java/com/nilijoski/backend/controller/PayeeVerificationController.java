@@ -0,0 +1,33 @@
+package com.nilijoski.backend.controller;
+
+import com.nilijoski.backend.exception.AccountNotFoundException;
+import com.nilijoski.backend.payee.PayeeVerificationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/payee-verification")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PayeeVerificationController {
+
+    private final PayeeVerificationService payeeVerificationService;
+
+    @PostMapping
+    public ResponseEntity<PayeeVerificationService.Verification> verify(@RequestBody Map<String, String> request) {
+        String iban = request.get("iban");
+        if (iban == null || iban.isBlank()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return ResponseEntity.ok(payeeVerificationService.verify(iban, request.get("firstName"), request.get("lastName")));
+        } catch (AccountNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.nilijoski.backend.controller;
+
+import com.nilijoski.backend.exception.StandingOrderNotFoundException;
+import com.nilijoski.backend.model.StandingOrder;
+import com.nilijoski.backend.security.Caller;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.standingorder.StandingOrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/standing-orders")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "banking.standing-orders.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class StandingOrderController {
+
+    private final StandingOrderService standingOrderService;
+
+    @PostMapping
+    public ResponseEntity<StandingOrder> create(@RequestBody Map<String, Object> request, Principal principal) {
+        // Orders only ever debit the caller's own account, which is also the default
+        String fromIban = (String) request.get("fromIban");
+        TokenService.TokenClaims claims = Caller.claims(principal);
+        if (fromIban == null && claims != null) {
+            fromIban = claims.iban();
+        }
+        if (!Caller.holdsIban(principal, fromIban)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            StandingOrder order = standingOrderService.create(
+                    fromIban,
+                    (String) request.get("toIban"),
+                    (String) request.get("toFirstName"),
+                    (String) request.get("toLastName"),
+                    BigDecimal.valueOf(((Number) request.get("amount")).doubleValue()),
+                    (String) request.get("description"),
+                    StandingOrder.Frequency.valueOf((String) request.get("frequency")),
+                    dateTime(request.get("firstRunAt")),
+                    dateTime(request.get("endAt")));
+            return new ResponseEntity<>(order, HttpStatus.CREATED);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static LocalDateTime dateTime(Object value) {
+        return value == null ? null : LocalDateTime.parse((String) value);
+    }
+
+    @GetMapping("/iban/{iban}")
+    public ResponseEntity<List<StandingOrder>> getByIban(@PathVariable String iban, Principal principal) {
+        if (!Caller.holdsIban(principal, iban)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok(standingOrderService.getByIban(iban));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StandingOrder> getById(@PathVariable String id, Principal principal) {
+        try {
+            StandingOrder order = standingOrderService.getById(id);
+            if (!Caller.holdsIban(principal, order.getFromIban())) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+            return ResponseEntity.ok(order);
+        } catch (StandingOrderNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable String id, Principal principal) {
+        try {
+            // The debited account never changes, so checking it before cancelling leaves no gap
+            if (!Caller.holdsIban(principal, standingOrderService.getById(id).getFromIban())) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+            standingOrderService.cancel(id);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (StandingOrderNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+}
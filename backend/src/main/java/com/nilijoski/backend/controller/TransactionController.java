@@ -1,27 +1,44 @@
 package com.nilijoski.backend.controller;
 
 import com.nilijoski.backend.dto.TransferResponse;
+import com.nilijoski.backend.exception.TransactionNotFoundException;
 import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.security.Caller;
+import com.nilijoski.backend.security.TokenService;
 import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.web.ETags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class TransactionController {
 
     private final TransactionService transactionService;
 
     @PostMapping("/transfer")
-    public ResponseEntity<TransferResponse> transfer(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<TransferResponse> transfer(@RequestBody Map<String, Object> request, Principal principal) {
+        // Money only leaves the caller's own account, which is also the default
+        String fromIban = (String) request.get("fromIban");
+        TokenService.TokenClaims claims = Caller.claims(principal);
+        if (fromIban == null && claims != null) {
+            fromIban = claims.iban();
+        }
+        if (!Caller.holdsIban(principal, fromIban)) {
+            return new ResponseEntity<>(TransferResponse.error("Not the holder of " + fromIban), HttpStatus.FORBIDDEN);
+        }
         try {
-            String fromIban = (String) request.get("fromIban");
             String toIban = (String) request.get("toIban");
             String toFirstName = (String) request.get("toFirstName");
             String toLastName = (String) request.get("toLastName");
@@ -45,32 +62,82 @@ public class TransactionController {
     }
 
     @GetMapping("/recipients/{iban}")
-    public ResponseEntity<List<String>> getRecipientsByUserIban(@PathVariable String iban) {
+    public ResponseEntity<List<String>> getRecipientsByUserIban(@PathVariable String iban, WebRequest request,
+                                                                   Principal principal) {
+        if (!Caller.holdsIban(principal, iban)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        // Read before the body, so a transaction stored in between can only make the body newer than its tag
+        String eTag = ETags.of(transactionService.getHistoryVersionByIban(iban));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         List<String> recipientIbans = transactionService.getRecipientIbanByUserIban(iban);
-        return ResponseEntity.ok(recipientIbans);
+        return conditional(eTag, recipientIbans);
     }
 
     @GetMapping("/iban/{iban}")
-    public ResponseEntity<List<Transaction>> getTransactionsByIban(@PathVariable String iban) {
+    public ResponseEntity<List<Transaction>> getTransactionsByIban(@PathVariable String iban, WebRequest request,
+                                                                 Principal principal) {
+        if (!Caller.holdsIban(principal, iban)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        String eTag = ETags.of(transactionService.getHistoryVersionByIban(iban));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         List<Transaction> transactions = transactionService.getTransactionsByIban(iban);
-        return ResponseEntity.ok(transactions);
+        return conditional(eTag, transactions);
     }
     
     @GetMapping
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
+    public ResponseEntity<List<Transaction>> getAllTransactions(Principal principal) {
+        if (!Caller.isOperator(principal)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         List<Transaction> transactions = transactionService.getAllTransactions();
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Transaction> getTransactionById(@PathVariable String id) {
-        Transaction transaction = transactionService.getTransactionById(id);
-        return ResponseEntity.ok(transaction);
+    public ResponseEntity<Transaction> getTransactionById(@PathVariable String id, WebRequest request,
+                                                          Principal principal) {
+        // Loaded first, so an unknown id is never answered with 304
+        Transaction transaction;
+        try {
+            transaction = transactionService.getTransactionById(id);
+        } catch (TransactionNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (!Caller.isParty(principal, transaction)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        // Transactions never change once written
+        String eTag = ETags.ofImmutable(id);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return conditional(eTag, transaction);
     }
     
     @GetMapping("/account/{accountNumber}")
-    public ResponseEntity<List<Transaction>> getTransactionsByAccountNumber(@PathVariable String accountNumber) {
+    public ResponseEntity<List<Transaction>> getTransactionsByAccountNumber(@PathVariable String accountNumber,
+                                                                            WebRequest request, Principal principal) {
+        if (!Caller.holdsAccount(principal, accountNumber)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        String eTag = ETags.of(transactionService.getHistoryVersionByAccountNumber(accountNumber));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         List<Transaction> transactions = transactionService.getTransactionsByAccountNumber(accountNumber);
-        return ResponseEntity.ok(transactions);
+        return conditional(eTag, transactions);
+    }
+
+    private <T> ResponseEntity<T> conditional(String eTag, T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(eTag)
+                .body(body);
     }
 }
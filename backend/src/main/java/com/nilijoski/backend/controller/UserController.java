@@ -1,21 +1,33 @@
 package com.nilijoski.backend.controller;
 
+import com.nilijoski.backend.exception.InvalidTokenException;
+import com.nilijoski.backend.exception.PasswordHashingUnavailableException;
 import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.Caller;
+import com.nilijoski.backend.security.SecurityConfig;
+import com.nilijoski.backend.security.TokenService;
 import com.nilijoski.backend.service.UserService;
+import com.nilijoski.backend.web.ETags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
     
     private final UserService userService;
+    private final TokenService tokenService;
     
     @PostMapping("/register")
     public ResponseEntity<User> register(@RequestBody Map<String, String> request) {
@@ -26,7 +38,11 @@ public class UserController {
             String lastName = request.get("lastName");
 
             User user = userService.register(username, password, firstName, lastName);
-            return new ResponseEntity<>(user, HttpStatus.CREATED);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .headers(tokenHeaders(tokenService.issue(user)))
+                    .body(user);
+        } catch (PasswordHashingUnavailableException e) {
+            return hashingUnavailable();
         } catch (RuntimeException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
@@ -39,54 +55,125 @@ public class UserController {
             String password = request.get("password");
 
             User user = userService.login(username, password);
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok()
+                    .headers(tokenHeaders(tokenService.issue(user)))
+                    .body(user);
+        } catch (PasswordHashingUnavailableException e) {
+            return hashingUnavailable();
         } catch (RuntimeException e) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
     }
+
+    @PostMapping("/token/refresh")
+    public ResponseEntity<TokenService.TokenPair> refreshToken(@RequestBody Map<String, String> request) {
+        try {
+            return ResponseEntity.ok(tokenService.refresh(request.get("refreshToken")));
+        } catch (InvalidTokenException e) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody Map<String, String> request) {
+        tokenService.revoke(request.get("accessToken"));
+        tokenService.revoke(request.get("refreshToken"));
+        return ResponseEntity.noContent().build();
+    }
+
+    private static HttpHeaders tokenHeaders(TokenService.TokenPair tokens) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SecurityConfig.ACCESS_TOKEN_HEADER, tokens.accessToken());
+        headers.set(SecurityConfig.REFRESH_TOKEN_HEADER, tokens.refreshToken());
+        return headers;
+    }
+
+    private static <T> ResponseEntity<T> hashingUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
     
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<User>> getAllUsers(Principal principal) {
+        if (!Caller.isOperator(principal)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         List<User> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/availability/{username}")
+    public ResponseEntity<Map<String, Object>> getUsernameAvailability(@PathVariable String username) {
+        return ResponseEntity.ok(Map.of("username", username, "available", userService.isUsernameAvailable(username)));
+    }
+
     @GetMapping("/number/{accountNumber}")
-    public ResponseEntity<User> getAccountByAccountNumber(@PathVariable String accountNumber) {
+    public ResponseEntity<User> getAccountByAccountNumber(@PathVariable String accountNumber, Principal principal) {
+        if (!Caller.holdsAccount(principal, accountNumber)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         try {
             User user = userService.getUserByAccountNumber(accountNumber);
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(ETags.of(user))
+                    .body(user);
         } catch (RuntimeException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
     @GetMapping("/{username}")
-    public ResponseEntity<User> getUserByUsername(@PathVariable String username) {
+    public ResponseEntity<User> getUserByUsername(@PathVariable String username, Principal principal) {
         User user = userService.getUserByUsername(username);
-        return ResponseEntity.ok(user);
+        if (!Caller.isUser(principal, user.getId())) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(ETags.of(user))
+                .body(user);
     }
 
     @PostMapping("/{userId}/saved-recipients")
-    public ResponseEntity<User> addSavedRecipient(@PathVariable String userId, @RequestBody Map<String, String> request) {
+    public ResponseEntity<User> addSavedRecipient(@PathVariable String userId, @RequestBody Map<String, String> request,
+                                                  Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         String recipientIban = request.get("recipientIban");
         User user = userService.addSavedRecipient(userId, recipientIban);
         return ResponseEntity.ok(user);
     }
 
     @GetMapping("/{userId}/saved-recipients")
-    public ResponseEntity<List<User>> getSavedRecipients(@PathVariable String userId) {
+    public ResponseEntity<List<User>> getSavedRecipients(@PathVariable String userId, Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         List<User> recipients = userService.getSavedRecipients(userId);
-        return ResponseEntity.ok(recipients);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(ETags.of(recipients))
+                .body(recipients);
     }
 
     @DeleteMapping("/{userId}/saved-recipients/{recipientIban}")
-    public ResponseEntity<User> removeSavedRecipient(@PathVariable String userId, @PathVariable String recipientIban) {
+    public ResponseEntity<User> removeSavedRecipient(@PathVariable String userId, @PathVariable String recipientIban,
+                                                     Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         User user = userService.removeSavedRecipient(userId, recipientIban);
         return ResponseEntity.ok(user);
     }
 
     @DeleteMapping("/{userId}")
-    public void removeSavedRecipient(@PathVariable String userId) {
+    public ResponseEntity<Void> removeSavedRecipient(@PathVariable String userId, Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
         userService.deleteUser(userId);
+        return ResponseEntity.ok().build();
     }
 }
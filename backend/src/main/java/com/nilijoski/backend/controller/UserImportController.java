@@ -0,0 +1,80 @@
+package com.nilijoski.backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.exception.ImportJobNotFoundException;
+import com.nilijoski.backend.model.ImportError;
+import com.nilijoski.backend.model.ImportJob;
+import com.nilijoski.backend.onboarding.ImportRowReader;
+import com.nilijoski.backend.onboarding.UserImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/users/import")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "banking.import.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserImportController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(consumes = TEXT_CSV)
+    public ResponseEntity<ImportJob> importCsv(@RequestParam(required = false) String jobId, InputStream body) {
+        return importUsers(body, ImportRowReader.Format.CSV, jobId);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportJob> importNdJson(@RequestParam(required = false) String jobId, InputStream body) {
+        return importUsers(body, ImportRowReader.Format.NDJSON, jobId);
+    }
+
+    private ResponseEntity<ImportJob> importUsers(InputStream body, ImportRowReader.Format format, String jobId) {
+        try {
+            return ResponseEntity.ok(userImportService.importUsers(body, format, jobId));
+        } catch (ImportJobNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJob> getJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(userImportService.getJob(jobId));
+        } catch (ImportJobNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping(value = "/{jobId}/errors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getErrors(@PathVariable String jobId) {
+        Stream<ImportError> errors;
+        try {
+            errors = userImportService.streamErrors(jobId);
+        } catch (ImportJobNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        StreamingResponseBody body = out -> {
+            try (errors) {
+                Iterator<ImportError> iterator = errors.iterator();
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,27 @@
+package com.nilijoski.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(CacheLookupEvent.NAME)
+@Label("Cache Lookup")
+@Category({"Banking", "Cache"})
+@StackTrace(false)
+public class CacheLookupEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "banking.CacheLookup";
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Hit")
+    public boolean hit;
+}
@@ -0,0 +1,36 @@
+package com.nilijoski.backend.diagnostics;
+
+import org.slf4j.MDC;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Id shared by everything done for one request: log lines (through the MDC) and the flight
+ * recorder events. Callers may pass their own in {@value #HEADER}; it is echoed back either way.
+ * <p>
+ * The id lives in the MDC of the request thread, so work handed to other threads, including the
+ * reactive stack, is recorded without one.
+ */
+public final class CorrelationId {
+
+    public static final String HEADER = "X-Correlation-Id";
+    static final String MDC_KEY = "correlationId";
+
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private CorrelationId() {
+    }
+
+    public static String current() {
+        String id = MDC.get(MDC_KEY);
+        return id == null ? "" : id;
+    }
+
+    /**
+     * Keeps a well-formed caller id and replaces anything else, so headers cannot inject log content.
+     */
+    static String accept(String requested) {
+        return requested != null && VALID.matcher(requested).matches() ? requested : UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.nilijoski.backend.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Continuous flight recording with the banking events enabled, kept in a ring buffer on disk
+ * bounded by {@code banking.jfr.max-age} and {@code banking.jfr.max-size}. The recording is
+ * written to {@code banking.jfr.directory} on shutdown; during an incident take a snapshot with
+ * {@code jcmd <pid> JFR.dump name=banking filename=incident.jfr} and feed it to
+ * {@link RecordingAnalyzer}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.jfr.enabled", havingValue = "true")
+public class FlightRecording implements SmartLifecycle {
+
+    static final String NAME = "banking";
+    static final List<Class<? extends jdk.jfr.Event>> EVENTS =
+            List.of(TransferEvent.class, StageEvent.class, RepositoryCallEvent.class, CacheLookupEvent.class);
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final String settings;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final Path directory;
+    private volatile Recording recording;
+
+    public FlightRecording(@Value("${banking.jfr.settings:default}") String settings,
+                           @Value("${banking.jfr.max-age:6h}") Duration maxAge,
+                           @Value("${banking.jfr.max-size:256MB}") DataSize maxSize,
+                           @Value("${banking.jfr.directory:recordings}") Path directory) {
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+        this.directory = directory;
+    }
+
+    @Override
+    public void start() {
+        try {
+            Files.createDirectories(directory);
+            Recording started = new Recording(Configuration.getConfiguration(settings));
+            started.setName(NAME);
+            started.setToDisk(true);
+            started.setMaxAge(maxAge);
+            started.setMaxSize(maxSize.toBytes());
+            started.setDumpOnExit(true);
+            started.setDestination(directory.resolve(NAME + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr"));
+            EVENTS.forEach(event -> started.enable(event).withoutThreshold());
+            started.start();
+            recording = started;
+            log.info("Flight recording '{}' started with settings '{}', keeping {} or {}", NAME, settings, maxAge, maxSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JFR settings: " + settings, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        Recording running = recording;
+        recording = null;
+        if (running != null) {
+            // Stopping writes the recording to its destination
+            running.stop();
+            log.info("Flight recording written to {}", running.getDestination());
+            running.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return recording != null;
+    }
+}
@@ -0,0 +1,169 @@
+package com.nilijoski.backend.diagnostics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Offline breakdown of a {@code .jfr} file containing the banking events: transfer latency,
+ * latency per transfer stage and per repository method, and cache hit rates. With a
+ * correlation id it prints the timeline of that one request instead.
+ * <p>
+ * Needs nothing but the JDK:
+ * {@code java -cp target/classes com.nilijoski.backend.diagnostics.RecordingAnalyzer banking.jfr [correlation-id]}
+ */
+public final class RecordingAnalyzer {
+
+    private RecordingAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: RecordingAnalyzer <recording.jfr> [correlation-id]");
+            System.exit(2);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of(args[0]));
+        if (args.length == 2) {
+            timeline(events, args[1], System.out);
+        } else {
+            breakdown(events, System.out);
+        }
+    }
+
+    /**
+     * Latency distribution of a group of events, in milliseconds.
+     */
+    record Stats(String name, int count, double mean, double p50, double p99, double max, double total) {
+
+        static Stats of(String name, List<RecordedEvent> events) {
+            double[] millis = events.stream().mapToDouble(event -> toMillis(event.getDuration())).sorted().toArray();
+            double total = Arrays.stream(millis).sum();
+            return new Stats(name, millis.length, total / millis.length, percentile(millis, 50), percentile(millis, 99),
+                    millis[millis.length - 1], total);
+        }
+
+        private static double percentile(double[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+
+    static void breakdown(List<RecordedEvent> events, PrintStream out) {
+        List<RecordedEvent> transfers = ofType(events, TransferEvent.NAME);
+        if (!transfers.isEmpty()) {
+            out.println("Transfers");
+            printHeader(out);
+            for (Stats stats : group(transfers, event -> event.getString("outcome"))) {
+                print(out, stats, null);
+            }
+            out.println();
+        }
+
+        List<RecordedEvent> stages = ofType(events, StageEvent.NAME);
+        if (!stages.isEmpty()) {
+            List<Stats> byStage = group(stages, event -> event.getString("operation") + " " + event.getString("stage"));
+            double total = byStage.stream().mapToDouble(Stats::total).sum();
+            out.println("Stages");
+            printHeader(out);
+            for (Stats stats : byStage) {
+                print(out, stats, stats.total() / total);
+            }
+            out.println();
+        }
+
+        List<RecordedEvent> calls = ofType(events, RepositoryCallEvent.NAME);
+        if (!calls.isEmpty()) {
+            out.println("Repository calls");
+            printHeader(out);
+            Map<String, List<RecordedEvent>> byMethod = byKey(calls,
+                    event -> event.getString("repository") + "." + event.getString("method"));
+            for (Stats stats : group(calls, event -> event.getString("repository") + "." + event.getString("method"))) {
+                double documents = byMethod.get(stats.name()).stream().mapToInt(event -> event.getInt("documents"))
+                        .average().orElse(0);
+                print(out, stats, null);
+                out.printf("    %.1f documents per call%n", documents);
+            }
+            out.println();
+        }
+
+        List<RecordedEvent> lookups = ofType(events, CacheLookupEvent.NAME);
+        if (!lookups.isEmpty()) {
+            out.println("Cache lookups");
+            byKey(lookups, event -> event.getString("cache") + " by " + event.getString("key")).forEach((name, group) -> {
+                long hits = group.stream().filter(event -> event.getBoolean("hit")).count();
+                out.printf("  %-40s %8d lookups %6.1f%% hits%n", name, group.size(), 100.0 * hits / group.size());
+            });
+        }
+    }
+
+    static void timeline(List<RecordedEvent> events, String correlationId, PrintStream out) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.hasField("correlationId") && correlationId.equals(event.getString("correlationId")))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .toList();
+        if (matching.isEmpty()) {
+            out.println("No events with correlation id " + correlationId);
+            return;
+        }
+        var start = matching.getFirst().getStartTime();
+        for (RecordedEvent event : matching) {
+            out.printf("  +%9.3f ms %9.3f ms  %s%n", toMillis(Duration.between(start, event.getStartTime())),
+                    toMillis(event.getDuration()), describe(event));
+        }
+    }
+
+    private static String describe(RecordedEvent event) {
+        return switch (event.getEventType().getName()) {
+            case TransferEvent.NAME -> "transfer " + event.getString("outcome");
+            case StageEvent.NAME -> "stage " + event.getString("stage") + (event.getBoolean("failed") ? " (failed)" : "");
+            case RepositoryCallEvent.NAME -> event.getString("repository") + "." + event.getString("method")
+                    + " -> " + event.getInt("documents") + " documents" + (event.getBoolean("failed") ? " (failed)" : "");
+            case CacheLookupEvent.NAME -> event.getString("cache") + " cache by " + event.getString("key")
+                    + (event.getBoolean("hit") ? " hit" : " miss");
+            default -> event.getEventType().getName();
+        };
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    private static Map<String, List<RecordedEvent>> byKey(List<RecordedEvent> events, Function<RecordedEvent, String> key) {
+        Map<String, List<RecordedEvent>> groups = new TreeMap<>();
+        for (RecordedEvent event : events) {
+            groups.computeIfAbsent(key.apply(event), name -> new ArrayList<>()).add(event);
+        }
+        return groups;
+    }
+
+    static List<Stats> group(List<RecordedEvent> events, Function<RecordedEvent, String> key) {
+        return byKey(events, key).entrySet().stream()
+                .map(entry -> Stats.of(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(Stats::total).reversed())
+                .toList();
+    }
+
+    private static void printHeader(PrintStream out) {
+        out.printf("  %-40s %8s %10s %10s %10s %10s %7s%n", "", "count", "mean ms", "p50 ms", "p99 ms", "max ms", "share");
+    }
+
+    private static void print(PrintStream out, Stats stats, Double share) {
+        out.printf("  %-40s %8d %10.3f %10.3f %10.3f %10.3f %7s%n", stats.name(), stats.count(), stats.mean(),
+                stats.p50(), stats.p99(), stats.max(), share == null ? "" : String.format("%.1f%%", share * 100));
+    }
+
+    private static double toMillis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nilijoski.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name(RepositoryCallEvent.NAME)
+@Label("Repository Call")
+@Category({"Banking", "Persistence"})
+@StackTrace(false)
+public class RepositoryCallEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "banking.RepositoryCall";
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Documents Returned")
+    public int documents;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,100 @@
+package com.nilijoski.backend.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records a {@link RepositoryCallEvent} for every call into a Spring Data repository or a
+ * {@code TransactionStore}. When no recording has the event enabled, the call goes straight through.
+ * <p>
+ * Reactive results are timed until they complete, counting the documents as they are emitted.
+ */
+@Aspect
+@Component
+public class RepositoryCallRecorder {
+
+    private static final String APPLICATION_PACKAGE = "com.nilijoski.";
+
+    private final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..)) "
+            + "|| execution(* com.nilijoski.backend.repository.TransactionStore+.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.correlationId = CorrelationId.current();
+        event.repository = repositoryName(joinPoint);
+        event.method = joinPoint.getSignature().getName();
+        event.begin();
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            event.failed = true;
+            event.commit();
+            throw e;
+        }
+        if (result instanceof Mono<?> mono) {
+            return mono.doOnNext(document -> event.documents = 1)
+                    .doOnError(e -> event.failed = true)
+                    .doFinally(signal -> event.commit());
+        }
+        if (result instanceof Flux<?> flux) {
+            AtomicInteger documents = new AtomicInteger();
+            return flux.doOnNext(document -> documents.incrementAndGet())
+                    .doOnError(e -> event.failed = true)
+                    .doFinally(signal -> {
+                        event.documents = documents.get();
+                        event.commit();
+                    });
+        }
+        event.documents = documents(result);
+        event.commit();
+        return result;
+    }
+
+    static int documents(Object result) {
+        if (result == null || result instanceof Boolean || result instanceof Number) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    // Spring Data proxies only reveal the repository through their interfaces
+    private String repositoryName(ProceedingJoinPoint joinPoint) {
+        Object proxy = joinPoint.getThis();
+        return names.computeIfAbsent(proxy.getClass(), type -> {
+            Class<?> target = AopUtils.getTargetClass(joinPoint.getTarget());
+            if (target.getName().startsWith(APPLICATION_PACKAGE)) {
+                return target.getSimpleName();
+            }
+            for (Class<?> candidate : ClassUtils.getAllInterfaces(proxy)) {
+                if (candidate.getName().startsWith(APPLICATION_PACKAGE)) {
+                    return candidate.getSimpleName();
+                }
+            }
+            return joinPoint.getSignature().getDeclaringType().getSimpleName();
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.nilijoski.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One step of a multi-step operation, recorded alongside its timer by
+ * {@link com.nilijoski.backend.metrics.StageTimers}.
+ */
+@Name(StageEvent.NAME)
+@Label("Stage")
+@Category({"Banking", "Transfers"})
+@Description("One step of a multi-step operation such as a transfer")
+@StackTrace(false)
+public class StageEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "banking.Stage";
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Operation")
+    @Description("Meter name of the operation's stage timers")
+    public String operation;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,28 @@
+package com.nilijoski.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans a whole transfer: the event starts with the transfer and is committed when it
+ * completes or fails.
+ */
+@Name(TransferEvent.NAME)
+@Label("Transfer")
+@Category({"Banking", "Transfers"})
+@Description("A money transfer from validation to the stored transaction")
+@StackTrace(false)
+public class TransferEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "banking.Transfer";
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Outcome")
+    @Description("\"committed\", or the simple name of the exception that ended the transfer")
+    public String outcome;
+}
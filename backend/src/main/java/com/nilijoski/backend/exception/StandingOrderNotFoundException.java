@@ -0,0 +1,7 @@
+package com.nilijoski.backend.exception;
+
+public class StandingOrderNotFoundException extends RuntimeException {
+    public StandingOrderNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.nilijoski.backend.metrics;
+
+import com.mongodb.event.CommandEvent;
+import com.mongodb.event.CommandStartedEvent;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.mongodb.DefaultMongoCommandTagsProvider;
+import io.micrometer.core.instrument.binder.mongodb.MongoCommandTagsProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tags for the {@code mongodb.driver.commands} timer recorded by the driver's command listener,
+ * which Spring Boot registers on every Mongo client. Keeps the command name, collection and
+ * status and drops the cluster id and server address, which would multiply every series by the
+ * number of client instances and replica set members.
+ */
+@Component
+public class MongoCommandTags implements MongoCommandTagsProvider {
+
+    private final MongoCommandTagsProvider defaults = new DefaultMongoCommandTagsProvider();
+
+    @Override
+    public Iterable<Tag> commandTags(CommandEvent event) {
+        Tags tags = Tags.empty();
+        for (Tag tag : defaults.commandTags(event)) {
+            if (tag.getKey().equals("command") || tag.getKey().equals("collection") || tag.getKey().equals("status")) {
+                tags = tags.and(tag);
+            }
+        }
+        return tags;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        defaults.commandStarted(event);
+    }
+}
@@ -0,0 +1,61 @@
+package com.nilijoski.backend.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Counts exceptions leaving the public methods of {@code @Service} beans as
+ * {@code banking.service.exceptions}, tagged with the service, method and exception class.
+ * All three come from the code rather than the request, so the number of series stays bounded.
+ * <p>
+ * The reactive services signal errors instead of throwing, so their {@link Mono} and
+ * {@link Flux} results are counted when the error is emitted.
+ */
+@Aspect
+@Component
+public class ServiceExceptionMetrics {
+
+    static final String METER = "banking.service.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceExceptionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) && execution(public * *(..))")
+    public Object count(ProceedingJoinPoint joinPoint) throws Throwable {
+        String service = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            increment(service, method, e);
+            throw e;
+        }
+        if (result instanceof Mono<?> mono) {
+            return mono.doOnError(e -> increment(service, method, e));
+        }
+        if (result instanceof Flux<?> flux) {
+            return flux.doOnError(e -> increment(service, method, e));
+        }
+        return result;
+    }
+
+    private void increment(String service, String method, Throwable e) {
+        Counter.builder(METER)
+                .tag("service", service)
+                .tag("method", method)
+                .tag("exception", e.getClass().getSimpleName())
+                .description("Exceptions thrown by the service layer")
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,81 @@
+package com.nilijoski.backend.metrics;
+
+import com.nilijoski.backend.diagnostics.CorrelationId;
+import com.nilijoski.backend.diagnostics.StageEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * One timer per stage of a multi-step operation, all under the same meter name and told apart
+ * by a {@code stage} tag. Stages are fixed up front, so the tag can never grow with the data.
+ * Each timer publishes a percentile histogram, letting Prometheus aggregate quantiles across nodes.
+ * <p>
+ * Every stage is also recorded as a {@link StageEvent} for the flight recorder, tied to the
+ * request by its correlation id.
+ */
+public class StageTimers {
+
+    private final String name;
+    private final Map<String, Timer> timers = new LinkedHashMap<>();
+
+    public StageTimers(MeterRegistry meterRegistry, String name, String description, String... stages) {
+        this.name = name;
+        for (String stage : stages) {
+            timers.put(stage, Timer.builder(name)
+                    .tag("stage", stage)
+                    .description(description)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Times {@code step} under the given stage; failed steps are recorded too.
+     */
+    public <T> T record(String stage, Supplier<T> step) {
+        Timer timer = timer(stage);
+        StageEvent event = new StageEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            T result = timer.record(step);
+            failed = false;
+            return result;
+        } finally {
+            commit(event, stage, failed);
+        }
+    }
+
+    public void record(String stage, Runnable step) {
+        record(stage, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    private void commit(StageEvent event, String stage, boolean failed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.correlationId = CorrelationId.current();
+            event.operation = name;
+            event.stage = stage;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    private Timer timer(String stage) {
+        Timer timer = timers.get(stage);
+        if (timer == null) {
+            throw new IllegalArgumentException("Unknown stage: " + stage);
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,22 @@
+package com.nilijoski.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Named, monotonically increasing sequence shared by all nodes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "counters")
+public class Counter {
+
+    @Id
+    private String id;
+
+    private long value;
+}
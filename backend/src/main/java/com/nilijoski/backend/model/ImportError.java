@@ -0,0 +1,28 @@
+package com.nilijoski.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "import_errors")
+public class ImportError {
+
+    @Id
+    private String id;
+
+    private String jobId;
+
+    /**
+     * 1-based row of the input, not counting the CSV header.
+     */
+    private long row;
+
+    private String username;
+
+    private String message;
+}
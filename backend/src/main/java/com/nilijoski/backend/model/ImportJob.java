@@ -0,0 +1,41 @@
+package com.nilijoski.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk user import. {@code committedRows} counts input rows whose outcome
+ * (inserted or failed) is durably recorded; a resumed import skips exactly that many rows.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "import_jobs")
+public class ImportJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String INTERRUPTED = "INTERRUPTED";
+    // A write failed; resumable like an interrupted import
+    public static final String FAILED = "FAILED";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String id;
+
+    private String format;
+
+    private String status;
+
+    private long committedRows;
+
+    private long inserted;
+
+    private long failed;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,29 @@
+package com.nilijoski.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Match keys of an account holder's name, derived whenever the name is written so payee
+ * verification only has to derive the keys of the name it is given.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NameKeys {
+
+    /**
+     * Lower case, transliterated and without diacritics or punctuation, words separated by one space.
+     */
+    private String firstName;
+
+    private String lastName;
+
+    /**
+     * Cologne phonetic codes of the normalized words.
+     */
+    private String firstNamePhonetic;
+
+    private String lastNamePhonetic;
+}
@@ -0,0 +1,32 @@
+package com.nilijoski.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A completed transaction still to be delivered to downstream systems. The id is the
+ * transaction's id, so receivers can drop the duplicates at-least-once delivery brings.
+ * {@code confirmed} is set once the transaction was found stored, {@code pendingSinks} lists the
+ * sinks that have not acknowledged it yet.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "outbox")
+public class OutboxEvent {
+
+    @Id
+    private String id;
+
+    private Transaction transaction;
+
+    private LocalDateTime createdAt;
+
+    private boolean confirmed;
+
+    private List<String> pendingSinks;
+}
@@ -0,0 +1,88 @@
+package com.nilijoski.backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A future-dated ({@link Frequency#ONCE}) or recurring transfer. Occurrences are counted from
+ * {@code firstRunAt}, so a monthly order starting on the 31st runs on the last day of shorter
+ * months and on the 31st again afterwards. {@code leaseOwner} and {@code leaseUntil} are set
+ * while a node executes the order.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "standing_orders")
+public class StandingOrder {
+
+    public static final String ACTIVE = "ACTIVE";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+
+    public enum Frequency {
+        ONCE,
+        DAILY,
+        WEEKLY,
+        MONTHLY;
+
+        /**
+         * Time of occurrence {@code n} (0 is the first), or null when there is none.
+         */
+        public LocalDateTime occurrence(LocalDateTime first, long n) {
+            return switch (this) {
+                case ONCE -> n == 0 ? first : null;
+                case DAILY -> first.plusDays(n);
+                case WEEKLY -> first.plusWeeks(n);
+                case MONTHLY -> first.plusMonths(n);
+            };
+        }
+    }
+
+    @Id
+    private String id;
+
+    private String fromIban;
+
+    private String toIban;
+
+    private String toFirstName;
+
+    private String toLastName;
+
+    private BigDecimal amount;
+
+    private String description;
+
+    private Frequency frequency;
+
+    private LocalDateTime firstRunAt;
+
+    // Last possible occurrence, null to run until cancelled
+    private LocalDateTime endAt;
+
+    private LocalDateTime nextRunAt;
+
+    private long executedRuns;
+
+    private long failedRuns;
+
+    private LocalDateTime lastRunAt;
+
+    private String lastTransactionId;
+
+    private String lastError;
+
+    private String status;
+
+    private String leaseOwner;
+
+    private LocalDateTime leaseUntil;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
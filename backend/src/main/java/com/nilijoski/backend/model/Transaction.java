@@ -45,4 +45,7 @@ public class Transaction {
     private String warning;
 
     private LocalDateTime transactionDate;
+
+    // Set by callers that may retry a transfer (standing orders), so a retry finds the first attempt
+    private String idempotencyKey;
 }
@@ -0,0 +1,38 @@
+package com.nilijoski.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All transactions of one account for one day, capped at a fixed number of events.
+ * A transfer is stored in the bucket of the sender and in the bucket of the recipient.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "transaction_buckets")
+public class TransactionBucket {
+
+    @Id
+    private String id;
+
+    private String accountNumber;
+
+    private String iban;
+
+    private LocalDate day;
+
+    private int count;
+
+    // Highest transaction id ever appended; unlike the count it never drops when rows are archived
+    private String newestId;
+
+    private List<Transaction> transactions = new ArrayList<>();
+}
@@ -1,5 +1,6 @@
 package com.nilijoski.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -22,6 +23,8 @@ public class User {
 
     private String username;
 
+    // The BCrypt hash never leaves the server
+    @JsonIgnore
     private String password;
 
     private String firstName;
@@ -41,4 +44,8 @@ public class User {
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    // Stored for payee verification, not part of the API
+    @JsonIgnore
+    private NameKeys nameKeys;
 }
@@ -0,0 +1,11 @@
+package com.nilijoski.backend.onboarding;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One user of a bulk import. Every account opens with {@code banking.import.default-balance};
+ * rows carrying a balance are rejected, as money only moves through transfers.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportRow(String username, String password, String firstName, String lastName) {
+}
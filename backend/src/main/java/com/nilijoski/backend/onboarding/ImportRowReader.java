@@ -0,0 +1,170 @@
+package com.nilijoski.backend.onboarding;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads import rows one line at a time, so memory does not depend on the input size.
+ * A malformed line becomes a row with an error instead of aborting the import, and so does a
+ * row with a balance.
+ */
+public abstract class ImportRowReader implements Closeable {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String BALANCE = "balance";
+    private static final String BALANCE_REJECTED = "Balances cannot be imported";
+
+    public record Parsed(long row, ImportRow data, String error) {
+    }
+
+    private final BufferedReader reader;
+    private long row;
+
+    private ImportRowReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    public static ImportRowReader open(Format format, InputStream input, ObjectMapper objectMapper) throws IOException {
+        return format == Format.CSV ? new Csv(input) : new NdJson(input, objectMapper);
+    }
+
+    /**
+     * @return the next row, or {@code null} at the end of the input
+     */
+    public Parsed next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        row++;
+        try {
+            return new Parsed(row, parse(line), null);
+        } catch (IllegalArgumentException e) {
+            return new Parsed(row, null, e.getMessage());
+        }
+    }
+
+    protected abstract ImportRow parse(String line);
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class NdJson extends ImportRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        private NdJson(InputStream input, ObjectMapper objectMapper) {
+            super(input);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected ImportRow parse(String line) {
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (node.hasNonNull(BALANCE)) {
+                    throw new IllegalArgumentException(BALANCE_REJECTED);
+                }
+                return objectMapper.treeToValue(node, ImportRow.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming the columns; quoted fields may not span lines.
+     */
+    private static final class Csv extends ImportRowReader {
+
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        private Csv(InputStream input) throws IOException {
+            super(input);
+            String header = super.reader.readLine();
+            if (header == null) {
+                return;
+            }
+            List<String> names = split(header.replace("\uFEFF", ""));
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim(), i);
+            }
+            for (String required : List.of("username", "password")) {
+                if (!columns.containsKey(required)) {
+                    throw new IOException("CSV header lacks the " + required + " column");
+                }
+            }
+        }
+
+        @Override
+        protected ImportRow parse(String line) {
+            List<String> fields = split(line);
+            if (fields.size() != columns.size()) {
+                throw new IllegalArgumentException("Expected " + columns.size() + " columns but found " + fields.size());
+            }
+            if (field(fields, BALANCE) != null) {
+                throw new IllegalArgumentException(BALANCE_REJECTED);
+            }
+            return new ImportRow(field(fields, "username"), field(fields, "password"),
+                    field(fields, "firstName"), field(fields, "lastName"));
+        }
+
+        private String field(List<String> fields, String name) {
+            Integer index = columns.get(name);
+            if (index == null) {
+                return null;
+            }
+            String value = fields.get(index);
+            return value.isEmpty() ? null : value;
+        }
+
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
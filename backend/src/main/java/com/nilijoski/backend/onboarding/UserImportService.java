@@ -0,0 +1,245 @@
+package com.nilijoski.backend.onboarding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.nilijoski.backend.account.AccountNumberAllocator;
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.exception.ImportJobNotFoundException;
+import com.nilijoski.backend.model.ImportError;
+import com.nilijoski.backend.model.ImportJob;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.security.PasswordHasher;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Streams users from CSV or NDJSON into the {@code users} collection.
+ * <p>
+ * Input is processed in batches of {@code banking.import.batch-size} rows: passwords are hashed
+ * in parallel on the {@link PasswordHasher} pool, the batch is written with one unordered bulk
+ * insert, and rejected rows (duplicate usernames, invalid input) are stored as {@link ImportError}s.
+ * Only then does the job's {@code committedRows} advance, so memory stays at one batch and an
+ * interrupted or failed import can be resumed by sending the same input again with its job id.
+ * Rows of the batch that was in flight when the import broke off may then be reported as
+ * duplicates.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "banking.import.enabled", havingValue = "true")
+public class UserImportService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final PasswordHasher passwordHasher;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final UsernameFilter usernameFilter;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final BigDecimal defaultBalance;
+
+    public UserImportService(MongoTemplate mongoTemplate,
+                             PasswordHasher passwordHasher,
+                             AccountNumberAllocator accountNumberAllocator,
+                             UsernameFilter usernameFilter,
+                             ObjectMapper objectMapper,
+                             @Value("${banking.import.batch-size:500}") int batchSize,
+                             @Value("${banking.import.default-balance:1000.00}") BigDecimal defaultBalance) {
+        this.mongoTemplate = mongoTemplate;
+        this.passwordHasher = passwordHasher;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.usernameFilter = usernameFilter;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.defaultBalance = defaultBalance;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(ImportError.class)
+                .ensureIndex(new Index().on("jobId", Sort.Direction.ASC).on("row", Sort.Direction.ASC));
+    }
+
+    /**
+     * Imports {@code input}, or resumes the job {@code resumeJobId} with the same input.
+     */
+    public ImportJob importUsers(InputStream input, ImportRowReader.Format format, String resumeJobId) {
+        ImportJob job = resumeJobId == null ? newJob(format) : getJob(resumeJobId);
+        if (ImportJob.COMPLETED.equals(job.getStatus())) {
+            return job;
+        }
+        job.setStatus(ImportJob.RUNNING);
+        save(job);
+
+        try (ImportRowReader reader = ImportRowReader.open(format, input, objectMapper)) {
+            for (long skipped = 0; skipped < job.getCommittedRows(); skipped++) {
+                if (reader.next() == null) {
+                    break;
+                }
+            }
+
+            List<ImportRowReader.Parsed> batch = new ArrayList<>(batchSize);
+            ImportRowReader.Parsed parsed;
+            while ((parsed = reader.next()) != null) {
+                batch.add(parsed);
+                if (batch.size() == batchSize) {
+                    commit(job, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                commit(job, batch);
+            }
+            job.setStatus(ImportJob.COMPLETED);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Import {} interrupted after {} rows: {}", job.getId(), job.getCommittedRows(), e.getMessage());
+            job.setStatus(ImportJob.INTERRUPTED);
+        } catch (RuntimeException e) {
+            // Most likely Mongo, which may refuse this write as well
+            log.warn("Import {} failed after {} rows: {}", job.getId(), job.getCommittedRows(), e.getMessage());
+            job.setStatus(ImportJob.FAILED);
+            try {
+                save(job);
+            } catch (RuntimeException notSaved) {
+                e.addSuppressed(notSaved);
+            }
+            throw e;
+        }
+        return save(job);
+    }
+
+    public ImportJob getJob(String jobId) {
+        ImportJob job = mongoTemplate.findById(jobId, ImportJob.class);
+        if (job == null) {
+            throw new ImportJobNotFoundException("Import job not found: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Errors of a job in input order, read lazily from a cursor; the caller must close the stream.
+     */
+    public Stream<ImportError> streamErrors(String jobId) {
+        getJob(jobId);
+        return mongoTemplate.stream(Query.query(where("jobId").is(jobId)).with(Sort.by("row")), ImportError.class);
+    }
+
+    private ImportJob newJob(ImportRowReader.Format format) {
+        ImportJob job = new ImportJob();
+        job.setFormat(format.name());
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    private ImportJob save(ImportJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        return mongoTemplate.save(job);
+    }
+
+    private void commit(ImportJob job, List<ImportRowReader.Parsed> batch) {
+        List<ImportError> errors = new ArrayList<>();
+        List<ImportRowReader.Parsed> valid = new ArrayList<>(batch.size());
+        for (ImportRowReader.Parsed parsed : batch) {
+            String problem = parsed.error() != null ? parsed.error() : validate(parsed.data());
+            if (problem == null) {
+                valid.add(parsed);
+            } else {
+                errors.add(error(job, parsed, problem));
+            }
+        }
+
+        long inserted = 0;
+        if (!valid.isEmpty()) {
+            List<String> hashes = passwordHasher.encodeAll(valid.stream().map(parsed -> parsed.data().password()).toList());
+            List<User> users = new ArrayList<>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                users.add(toUser(valid.get(i).data(), hashes.get(i)));
+            }
+            inserted = insert(job, valid, users, errors);
+            // A name whose row failed for another reason only becomes a false positive, which the index check corrects
+            users.forEach(user -> usernameFilter.add(user.getUsername()));
+        }
+
+        if (!errors.isEmpty()) {
+            mongoTemplate.insert(errors, ImportError.class);
+        }
+        job.setInserted(job.getInserted() + inserted);
+        job.setFailed(job.getFailed() + errors.size());
+        job.setCommittedRows(job.getCommittedRows() + batch.size());
+        save(job);
+    }
+
+    private long insert(ImportJob job, List<ImportRowReader.Parsed> rows, List<User> users, List<ImportError> errors) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        bulk.insert(users);
+        try {
+            return bulk.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            // Unordered: every other row of the batch was still attempted, the errors point back by index
+            for (BulkWriteError writeError : e.getErrors()) {
+                errors.add(error(job, rows.get(writeError.getIndex()), describe(writeError)));
+            }
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    private static String describe(BulkWriteError writeError) {
+        if (writeError.getCode() == DUPLICATE_KEY && writeError.getMessage().contains("username")) {
+            return "Username already exists";
+        }
+        return writeError.getMessage();
+    }
+
+    private static String validate(ImportRow row) {
+        if (row.username() == null || row.username().isBlank()) {
+            return "Username is required";
+        }
+        if (row.password() == null || row.password().isEmpty()) {
+            return "Password is required";
+        }
+        return null;
+    }
+
+    private User toUser(ImportRow row, String passwordHash) {
+        AccountNumberAllocator.AccountIdentifiers account = accountNumberAllocator.next();
+        LocalDateTime now = LocalDateTime.now();
+        User user = new User();
+        user.setUsername(row.username());
+        user.setPassword(passwordHash);
+        user.setFirstName(row.firstName());
+        user.setLastName(row.lastName());
+        PayeeNames.apply(user);
+        user.setAccountNumber(account.accountNumber());
+        user.setIban(account.iban());
+        user.setBalance(defaultBalance);
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+        return user;
+    }
+
+    private static ImportError error(ImportJob job, ImportRowReader.Parsed parsed, String message) {
+        return new ImportError(null, job.getId(), parsed.row(), parsed.data() == null ? null : parsed.data().username(), message);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nilijoski.backend.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends transactions as NDJSON to a local file and forces them to disk before acknowledging,
+ * for consumers that tail the file. A batch retried after a crash appears twice.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.file.enabled", havingValue = "true")
+public class FileSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final int batchSize;
+
+    public FileSink(ObjectMapper objectMapper,
+                    @Value("${banking.outbox.file.path:outbox/transactions.ndjson}") Path path,
+                    @Value("${banking.outbox.file.batch-size:1000}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void deliver(List<Transaction> transactions) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (Transaction transaction : transactions) {
+            objectMapper.writeValue(lines, transaction);
+            lines.write('\n');
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
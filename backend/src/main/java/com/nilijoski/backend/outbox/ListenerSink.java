@@ -0,0 +1,44 @@
+package com.nilijoski.backend.outbox;
+
+import com.nilijoski.backend.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publishes a {@link TransactionCompletedEvent} per transaction on the relay thread. A listener
+ * that throws makes the batch be delivered again, to all listeners.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.listener.enabled", havingValue = "true")
+public class ListenerSink implements OutboxSink {
+
+    private final ApplicationEventPublisher publisher;
+    private final int batchSize;
+
+    public ListenerSink(ApplicationEventPublisher publisher,
+                        @Value("${banking.outbox.listener.batch-size:100}") int batchSize) {
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String name() {
+        return "listener";
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void deliver(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            publisher.publishEvent(new TransactionCompletedEvent(transaction));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.nilijoski.backend.outbox;
+
+import com.nilijoski.backend.model.OutboxEvent;
+import com.nilijoski.backend.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writes the outbox event of a transaction together with the transaction.
+ * <p>
+ * Transfers do not run in a Mongo transaction, so the two documents cannot be written atomically.
+ * The event is therefore written first, under the transaction's id, and only becomes deliverable
+ * once the {@link OutboxRelay} found the transaction stored. A transaction can thus never be
+ * stored without its event; an event whose transaction never got stored (the insert failed or the
+ * node died in between) is dropped by the relay after {@code banking.outbox.abandon-after}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.outbox.enabled", havingValue = "true")
+public class Outbox {
+
+    private final MongoTemplate mongoTemplate;
+    private final List<String> sinks;
+
+    public Outbox(MongoTemplate mongoTemplate, ObjectProvider<OutboxSink> sinks) {
+        this.mongoTemplate = mongoTemplate;
+        this.sinks = sinks.orderedStream().map(OutboxSink::name).toList();
+        if (this.sinks.isEmpty()) {
+            log.warn("banking.outbox.enabled is set without any sink, no events will be written");
+        }
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(OutboxEvent.class)
+                .ensureIndex(new Index().on("confirmed", Sort.Direction.ASC).on("createdAt", Sort.Direction.ASC));
+        mongoTemplate.indexOps(OutboxEvent.class)
+                .ensureIndex(new Index().on("pendingSinks", Sort.Direction.ASC).on("createdAt", Sort.Direction.ASC));
+    }
+
+    /**
+     * Stores {@code transaction} through {@code store} after writing its event; assigns the id
+     * when the transaction has none yet.
+     */
+    public Transaction save(Transaction transaction, UnaryOperator<Transaction> store) {
+        OutboxEvent event = eventFor(transaction);
+        if (event != null) {
+            mongoTemplate.insert(event);
+        }
+        // Not removed when this fails: the insert may still have happened, the relay finds out
+        return store.apply(transaction);
+    }
+
+    /**
+     * The event to write ahead of {@code transaction}, or {@code null} when there is no sink;
+     * assigns the transaction's id when it has none yet.
+     */
+    public OutboxEvent eventFor(Transaction transaction) {
+        if (sinks.isEmpty()) {
+            return null;
+        }
+        if (transaction.getId() == null) {
+            transaction.setId(new ObjectId().toHexString());
+        }
+        OutboxEvent event = new OutboxEvent();
+        event.setId(transaction.getId());
+        event.setTransaction(transaction);
+        event.setCreatedAt(LocalDateTime.now());
+        event.setPendingSinks(sinks);
+        return event;
+    }
+}
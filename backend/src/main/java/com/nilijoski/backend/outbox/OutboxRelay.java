@@ -0,0 +1,271 @@
+package com.nilijoski.backend.outbox;
+
+import com.nilijoski.backend.model.OutboxEvent;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Delivers {@link OutboxEvent}s to the {@link OutboxSink}s at least once.
+ * <p>
+ * One node at a time relays, holding a lease in {@code outbox_leases}. Every
+ * {@code poll-interval} it confirms new events whose transaction is stored and drops those
+ * whose transaction never appeared within {@code abandon-after}. Every sink has its own thread
+ * that reads confirmed events it has not acknowledged, oldest first, in batches of the sink's
+ * size, and removes itself from their {@code pendingSinks} once a batch is delivered; events
+ * no sink is waiting for are deleted.
+ * <p>
+ * A sink has at most one batch in flight and the next one is only read once it is delivered,
+ * so a slow receiver is sent as much as it takes and the backlog waits in Mongo rather than in
+ * memory or in front of transfers. A failed batch is retried after a backoff that doubles up to
+ * {@code max-backoff}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private static final String LEASES = "outbox_leases";
+    private static final String LEASE_ID = "relay";
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionStore transactionStore;
+    private final Clock clock;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final Duration abandonAfter;
+    private final int confirmBatchSize;
+    private final Duration maxBackoff;
+    private final List<SinkWorker> workers;
+    private final Counter abandoned;
+    private final String node = UUID.randomUUID().toString();
+
+    private volatile boolean running = true;
+    // Leadership is given up well before the lease expires in Mongo, so two nodes never relay at once
+    private volatile long leaderUntilMillis;
+    private long nextLeaseAttemptMillis;
+
+    private final ScheduledExecutorService executor;
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public OutboxRelay(MongoTemplate mongoTemplate,
+                       TransactionStore transactionStore,
+                       ObjectProvider<OutboxSink> sinks,
+                       MeterRegistry meterRegistry,
+                       @Value("${banking.outbox.poll-interval:200ms}") Duration pollInterval,
+                       @Value("${banking.outbox.lease:30s}") Duration lease,
+                       @Value("${banking.outbox.abandon-after:5m}") Duration abandonAfter,
+                       @Value("${banking.outbox.confirm-batch-size:1000}") int confirmBatchSize,
+                       @Value("${banking.outbox.max-backoff:1m}") Duration maxBackoff) {
+        this(mongoTemplate, transactionStore, sinks.orderedStream().toList(), meterRegistry, Clock.systemDefaultZone(),
+                pollInterval, lease, abandonAfter, confirmBatchSize, maxBackoff);
+    }
+
+    OutboxRelay(MongoTemplate mongoTemplate, TransactionStore transactionStore, List<OutboxSink> sinks,
+                MeterRegistry meterRegistry, Clock clock, Duration pollInterval, Duration lease, Duration abandonAfter,
+                int confirmBatchSize, Duration maxBackoff) {
+        this.mongoTemplate = mongoTemplate;
+        this.transactionStore = transactionStore;
+        this.clock = clock;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.abandonAfter = abandonAfter;
+        this.confirmBatchSize = confirmBatchSize;
+        this.maxBackoff = maxBackoff;
+        this.workers = sinks.stream().map(sink -> new SinkWorker(sink, meterRegistry)).toList();
+        this.abandoned = Counter.builder("banking.outbox.abandoned")
+                .description("Outbox events dropped because their transaction was never stored")
+                .register(meterRegistry);
+        this.executor = Executors.newScheduledThreadPool(1 + workers.size(),
+                Thread.ofPlatform().name("outbox-relay-", 0).daemon().factory());
+    }
+
+    @PostConstruct
+    public void start() {
+        schedule(this::maintain);
+        workers.forEach(worker -> schedule(worker::drain));
+    }
+
+    private void schedule(Runnable task) {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Outbox relay step failed: {}", e.getMessage());
+            }
+        }, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Batches in flight finish; an interrupted one would be delivered again anyway
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    void drainSinks() {
+        workers.forEach(SinkWorker::drain);
+    }
+
+    boolean leader() {
+        return clock.millis() < leaderUntilMillis;
+    }
+
+    void maintain() {
+        long now = clock.millis();
+        if (now >= nextLeaseAttemptMillis) {
+            nextLeaseAttemptMillis = now + lease.toMillis() / 3;
+            leaderUntilMillis = acquireLease() ? now + lease.toMillis() / 2 : 0;
+        }
+        if (leader()) {
+            confirm();
+        }
+    }
+
+    private boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        try {
+            mongoTemplate.upsert(
+                    Query.query(where("_id").is(LEASE_ID)
+                            .orOperator(where("owner").is(node), where("leaseUntil").lt(now))),
+                    new Update().set("owner", node).set("leaseUntil", now.plus(lease)),
+                    LEASES);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Held by another node: the upsert tried to insert a second lease document
+            return false;
+        }
+    }
+
+    private void confirm() {
+        Query query = Query.query(where("confirmed").is(false))
+                .with(Sort.by("createdAt"))
+                .limit(confirmBatchSize);
+        query.fields().include("createdAt");
+        List<OutboxEvent> unconfirmed = mongoTemplate.find(query, OutboxEvent.class);
+        if (unconfirmed.isEmpty()) {
+            return;
+        }
+        Set<String> stored = transactionStore.findByIds(unconfirmed.stream().map(OutboxEvent::getId).toList()).stream()
+                .map(Transaction::getId)
+                .collect(Collectors.toSet());
+        if (!stored.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(where("_id").in(stored)), new Update().set("confirmed", true),
+                    OutboxEvent.class);
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(abandonAfter);
+        List<String> lost = unconfirmed.stream()
+                .filter(event -> !stored.contains(event.getId()) && event.getCreatedAt().isBefore(cutoff))
+                .map(OutboxEvent::getId)
+                .toList();
+        if (!lost.isEmpty()) {
+            mongoTemplate.remove(Query.query(where("_id").in(lost).and("confirmed").is(false)), OutboxEvent.class);
+            abandoned.increment(lost.size());
+            log.warn("Dropped {} outbox events whose transaction was not stored within {}", lost.size(), abandonAfter);
+        }
+    }
+
+    final class SinkWorker {
+
+        private final OutboxSink sink;
+        private final Timer lag;
+        private final Counter delivered;
+        private final Counter failures;
+
+        // Only touched on the worker's thread
+        private Duration backoff = INITIAL_BACKOFF;
+        private long retryAtMillis;
+
+        SinkWorker(OutboxSink sink, MeterRegistry meterRegistry) {
+            this.sink = sink;
+            this.lag = Timer.builder("banking.outbox.lag")
+                    .tag("sink", sink.name())
+                    .description("Time from writing an outbox event to its delivery")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .register(meterRegistry);
+            this.delivered = Counter.builder("banking.outbox.delivered")
+                    .tag("sink", sink.name())
+                    .description("Outbox events delivered")
+                    .register(meterRegistry);
+            this.failures = Counter.builder("banking.outbox.failures")
+                    .tag("sink", sink.name())
+                    .description("Outbox batches that failed and will be retried")
+                    .register(meterRegistry);
+        }
+
+        void drain() {
+            while (running && leader() && clock.millis() >= retryAtMillis) {
+                Query query = Query.query(where("confirmed").is(true).and("pendingSinks").is(sink.name()))
+                        .with(Sort.by("createdAt"))
+                        .limit(sink.batchSize());
+                List<OutboxEvent> batch = mongoTemplate.find(query, OutboxEvent.class);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                try {
+                    sink.deliver(batch.stream().map(OutboxEvent::getTransaction).toList());
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    failures.increment();
+                    retryAtMillis = clock.millis() + backoff.toMillis();
+                    log.warn("Outbox sink {} failed, retrying in {}: {}", sink.name(), backoff, e.getMessage());
+                    backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+                    return;
+                }
+                backoff = INITIAL_BACKOFF;
+                acknowledge(batch);
+                if (batch.size() < sink.batchSize()) {
+                    return;
+                }
+            }
+        }
+
+        private void acknowledge(List<OutboxEvent> batch) {
+            List<String> ids = batch.stream().map(OutboxEvent::getId).toList();
+            mongoTemplate.updateMulti(Query.query(where("_id").in(ids)), new Update().pull("pendingSinks", sink.name()),
+                    OutboxEvent.class);
+            mongoTemplate.remove(Query.query(where("_id").in(ids).and("pendingSinks").size(0)), OutboxEvent.class);
+
+            LocalDateTime now = LocalDateTime.now(clock);
+            for (OutboxEvent event : batch) {
+                lag.record(Duration.between(event.getCreatedAt(), now));
+            }
+            delivered.increment(batch.size());
+        }
+    }
+}
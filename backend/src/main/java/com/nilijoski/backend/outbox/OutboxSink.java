@@ -0,0 +1,29 @@
+package com.nilijoski.backend.outbox;
+
+import com.nilijoski.backend.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Receives completed transactions from the {@link OutboxRelay}. Every bean implementing this is a
+ * sink; each gets its own batches and retries, so a slow or failing one does not hold back the
+ * others.
+ */
+public interface OutboxSink {
+
+    /**
+     * Stored with every event until the sink acknowledged it, so it must stay stable across releases.
+     */
+    String name();
+
+    /**
+     * Most transactions handed to {@link #deliver} at once.
+     */
+    int batchSize();
+
+    /**
+     * Returns once all of {@code transactions} are delivered; any exception retries the whole batch
+     * later. Transactions may arrive more than once, identified by their id.
+     */
+    void deliver(List<Transaction> transactions) throws Exception;
+}
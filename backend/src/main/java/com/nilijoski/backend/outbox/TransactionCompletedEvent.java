@@ -0,0 +1,9 @@
+package com.nilijoski.backend.outbox;
+
+import com.nilijoski.backend.model.Transaction;
+
+/**
+ * Published to in-process {@code @EventListener}s by the {@link ListenerSink}.
+ */
+public record TransactionCompletedEvent(Transaction transaction) {
+}
@@ -0,0 +1,66 @@
+package com.nilijoski.backend.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch as a JSON array of transactions to {@code banking.outbox.webhook.url}. Any
+ * 2xx answer acknowledges the batch; other statuses, timeouts and connection errors retry it.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.outbox.webhook.enabled", havingValue = "true")
+public class WebhookSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final URI url;
+    private final Duration timeout;
+    private final int batchSize;
+    private final HttpClient client;
+
+    public WebhookSink(ObjectMapper objectMapper,
+                       @Value("${banking.outbox.webhook.url}") URI url,
+                       @Value("${banking.outbox.webhook.timeout:5s}") Duration timeout,
+                       @Value("${banking.outbox.webhook.batch-size:100}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void deliver(List<Transaction> transactions) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(transactions)))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Webhook answered " + response.statusCode());
+        }
+    }
+}
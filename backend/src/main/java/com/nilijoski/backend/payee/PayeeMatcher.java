@@ -0,0 +1,99 @@
+package com.nilijoski.backend.payee;
+
+import com.nilijoski.backend.model.NameKeys;
+
+/**
+ * Compares the name a payer gave with the account holder's, both as {@link NameKeys}.
+ * <p>
+ * Equal normalized first and last names are a {@link Result#MATCH}. A
+ * {@link Result#CLOSE_MATCH} needs each part to be close: equal phonetic codes, a typo within
+ * the edit distance its length allows, or an initial for the first name. First and last
+ * name given the other way round are close too. Anything else is {@link Result#NO_MATCH}.
+ */
+public final class PayeeMatcher {
+
+    public enum Result {
+        MATCH, CLOSE_MATCH, NO_MATCH
+    }
+
+    private PayeeMatcher() {
+    }
+
+    public static Result match(NameKeys holder, NameKeys given) {
+        if (holder.getFirstName().equals(given.getFirstName()) && holder.getLastName().equals(given.getLastName())) {
+            return Result.MATCH;
+        }
+        boolean close = closeFirstName(holder.getFirstName(), holder.getFirstNamePhonetic(),
+                given.getFirstName(), given.getFirstNamePhonetic())
+                && close(holder.getLastName(), holder.getLastNamePhonetic(), given.getLastName(), given.getLastNamePhonetic());
+        boolean swapped = holder.getFirstName().equals(given.getLastName()) && holder.getLastName().equals(given.getFirstName());
+        return close || swapped ? Result.CLOSE_MATCH : Result.NO_MATCH;
+    }
+
+    private static boolean closeFirstName(String holder, String holderPhonetic, String given, String givenPhonetic) {
+        if (given.length() == 1 && !holder.isEmpty() && holder.charAt(0) == given.charAt(0)) {
+            return true;
+        }
+        return close(holder, holderPhonetic, given, givenPhonetic);
+    }
+
+    private static boolean close(String holder, String holderPhonetic, String given, String givenPhonetic) {
+        if (holder.isEmpty() || given.isEmpty()) {
+            return false;
+        }
+        if (!holderPhonetic.isEmpty() && holderPhonetic.equals(givenPhonetic)) {
+            return true;
+        }
+        int allowed = allowedEdits(holder.length());
+        return distance(holder, given, allowed) <= allowed;
+    }
+
+    /**
+     * None for names of up to three letters, where one edit makes a different name, one up to
+     * seven and two beyond.
+     */
+    static int allowedEdits(int length) {
+        return length <= 3 ? 0 : length <= 7 ? 1 : 2;
+    }
+
+    /**
+     * Edit distance with adjacent transpositions counting as one edit (optimal string
+     * alignment), or {@code max + 1} as soon as it is certain to exceed {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int d = Math.min(Math.min(previous[j], current[j - 1]) + 1, previous[j - 1] + (ca == cb ? 0 : 1));
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    d = Math.min(d, beforePrevious[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMinimum = Math.min(rowMinimum, d);
+            }
+            // Later rows cannot get back within the bound
+            if (rowMinimum > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.nilijoski.backend.payee;
+
+import com.nilijoski.backend.model.NameKeys;
+import com.nilijoski.backend.model.User;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the {@link NameKeys} that payee verification compares.
+ * <p>
+ * Normalizing lower-cases a name, spells out the German umlauts and ß the way they are
+ * transliterated ("Müller" and "Mueller" become the same key), drops the marks of other
+ * accented letters and treats hyphens, dots and runs of spaces as one separator. The phonetic
+ * key codes every normalized word with the Cologne phonetics, which gives German names that
+ * sound alike, such as "Meier" and "Mayer", the same code.
+ */
+public final class PayeeNames {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private PayeeNames() {
+    }
+
+    public static NameKeys keys(String firstName, String lastName) {
+        String first = normalize(firstName);
+        String last = normalize(lastName);
+        return new NameKeys(first, last, phonetic(first), phonetic(last));
+    }
+
+    /**
+     * The stored keys of the holder, derived on the spot for accounts written before keys existed.
+     */
+    public static NameKeys of(User holder) {
+        return holder.getNameKeys() != null ? holder.getNameKeys() : keys(holder.getFirstName(), holder.getLastName());
+    }
+
+    /**
+     * Stores the keys of the user's current name; call whenever the name is written.
+     */
+    public static void apply(User user) {
+        user.setNameKeys(keys(user.getFirstName(), user.getLastName()));
+    }
+
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        // Composed first, so a decomposed "Mu\u0308ller" spells out its ü like "Müller" does
+        name = Normalizer.normalize(name, Normalizer.Form.NFC);
+        StringBuilder key = new StringBuilder(name.length() + 4);
+        boolean separator = false;
+        boolean ascii = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            String spelled = switch (c) {
+                case 'ä', 'æ' -> "ae";
+                case 'ö', 'ø', 'œ' -> "oe";
+                case 'ü' -> "ue";
+                case 'ß' -> "ss";
+                case 'ł' -> "l";
+                case 'đ' -> "d";
+                case 'þ' -> "th";
+                default -> null;
+            };
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // Left without a precomposed letter; dropped with the others below
+                key.append(c);
+                ascii = false;
+                continue;
+            }
+            if (spelled == null && !Character.isLetter(c)) {
+                // O'Brien is one word, Müller-Lüdenscheidt two
+                separator |= c != '\'' && c != '’' && key.length() > 0;
+                continue;
+            }
+            if (separator) {
+                key.append(' ');
+                separator = false;
+            }
+            if (spelled != null) {
+                key.append(spelled);
+            } else {
+                key.append(c);
+                ascii &= c < 0x80;
+            }
+        }
+        return ascii ? key.toString() : MARKS.matcher(Normalizer.normalize(key, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Cologne phonetics of each word of a normalized name, separated by one space. Letters
+     * outside a-z are skipped.
+     */
+    static String phonetic(String normalized) {
+        StringBuilder codes = new StringBuilder(normalized.length());
+        char previousCode = ' ';
+        boolean wordStart = true;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == ' ') {
+                if (!wordStart) {
+                    codes.append(' ');
+                }
+                previousCode = ' ';
+                wordStart = true;
+                continue;
+            }
+            char before = i > 0 ? normalized.charAt(i - 1) : ' ';
+            char after = i + 1 < normalized.length() ? normalized.charAt(i + 1) : ' ';
+            String code = switch (c) {
+                case 'a', 'e', 'i', 'j', 'o', 'u', 'y' -> "0";
+                case 'b' -> "1";
+                case 'p' -> after == 'h' ? "3" : "1";
+                case 'd', 't' -> after == 'c' || after == 's' || after == 'z' ? "8" : "2";
+                case 'f', 'v', 'w' -> "3";
+                case 'g', 'k', 'q' -> "4";
+                case 'c' -> before == ' '
+                        ? "ahkloqrux".indexOf(after) >= 0 ? "4" : "8"
+                        : "ahkoqux".indexOf(after) >= 0 && before != 's' && before != 'z' ? "4" : "8";
+                case 'x' -> before == 'c' || before == 'k' || before == 'q' ? "8" : "48";
+                case 'l' -> "5";
+                case 'm', 'n' -> "6";
+                case 'r' -> "7";
+                case 's', 'z' -> "8";
+                default -> "";
+            };
+            for (int j = 0; j < code.length(); j++) {
+                char digit = code.charAt(j);
+                // Repeated codes collapse; vowels only count at the start of a word
+                if (digit != previousCode && (digit != '0' || wordStart)) {
+                    codes.append(digit);
+                }
+                previousCode = digit;
+                wordStart = false;
+            }
+        }
+        int end = codes.length();
+        return end > 0 && codes.charAt(end - 1) == ' ' ? codes.substring(0, end - 1) : codes.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.nilijoski.backend.payee;
+
+import com.nilijoski.backend.exception.AccountNotFoundException;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Confirmation of payee: tells a payer before the transfer whether the name they entered
+ * belongs to the account. The holder's name is only revealed for a close match, both here and
+ * in the warning of a transfer made anyway, so neither can be used to look up who holds an IBAN.
+ */
+@Service
+@RequiredArgsConstructor
+public class PayeeVerificationService {
+
+    private final UserService userService;
+
+    public record Verification(PayeeMatcher.Result result, String accountHolder) {
+    }
+
+    /**
+     * @throws AccountNotFoundException if no account has the IBAN
+     */
+    public Verification verify(String iban, String firstName, String lastName) {
+        return verify(userService.getUserByIban(iban), firstName, lastName);
+    }
+
+    public static Verification verify(User holder, String firstName, String lastName) {
+        PayeeMatcher.Result result = PayeeMatcher.match(PayeeNames.of(holder), PayeeNames.keys(firstName, lastName));
+        return new Verification(result,
+                result == PayeeMatcher.Result.CLOSE_MATCH ? holder.getFirstName() + " " + holder.getLastName() : null);
+    }
+
+    /**
+     * The warning a transfer to {@code holder} under the given name carries, {@code null} for a match.
+     */
+    public static String transferWarning(User holder, String firstName, String lastName) {
+        return switch (PayeeMatcher.match(PayeeNames.of(holder), PayeeNames.keys(firstName, lastName))) {
+            case MATCH -> null;
+            case CLOSE_MATCH -> "Close match: Account holder is " + holder.getFirstName() + " " + holder.getLastName();
+            case NO_MATCH -> "Name mismatch: the name does not match the account holder";
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.nilijoski.backend.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-endpoint limits under {@code banking.rate-limit.rules.<name>}. The first rule whose
+ * pattern and method match a request applies, in declaration order.
+ */
+@ConfigurationProperties("banking.rate-limit")
+public record RateLimitProperties(@DefaultValue("10m") Duration idleTimeout,
+                                  Map<String, Rule> rules) {
+
+    public RateLimitProperties {
+        rules = rules == null ? Map.of() : new LinkedHashMap<>(rules);
+    }
+
+    /**
+     * Allows bursts of up to {@code capacity} requests and refills {@code capacity} tokens per {@code period}.
+     *
+     * @param methods HTTP methods the rule applies to, all methods when empty
+     */
+    public record Rule(String pattern,
+                       @DefaultValue List<String> methods,
+                       int capacity,
+                       @DefaultValue("1m") Duration period) {
+    }
+}
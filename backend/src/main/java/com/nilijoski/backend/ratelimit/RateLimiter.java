@@ -0,0 +1,122 @@
+package com.nilijoski.backend.ratelimit;
+
+import com.nilijoski.backend.web.EndpointMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per endpoint rule and client key, held in memory.
+ * <p>
+ * Each rule has its own {@link ConcurrentHashMap}, so lookups of existing buckets are lock-free
+ * and the rare insert only locks one bin. Buckets that have been full for
+ * {@code banking.rate-limit.idle-timeout} are evicted, which keeps memory proportional to the
+ * number of recently active clients. Limits are per node.
+ */
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(name = "banking.rate-limit.enabled", havingValue = "true")
+public class RateLimiter {
+
+    private final List<Rule> rules;
+    private final EndpointMatcher<Rule> matcher = new EndpointMatcher<>();
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.idleTimeoutNanos = properties.idleTimeout().toNanos();
+        this.nanoClock = nanoClock;
+        List<Rule> compiled = new ArrayList<>();
+        for (Map.Entry<String, RateLimitProperties.Rule> entry : properties.rules().entrySet()) {
+            Rule rule = new Rule(entry.getKey(), entry.getValue(), meterRegistry);
+            compiled.add(rule);
+            matcher.add(entry.getValue().pattern(), entry.getValue().methods(), rule);
+            Gauge.builder("banking.rate-limit.buckets", rule.buckets, Map::size)
+                    .tag("rule", rule.name)
+                    .description("Active token buckets")
+                    .register(meterRegistry);
+        }
+        this.rules = List.copyOf(compiled);
+    }
+
+    /**
+     * Outcome of {@link #tryAcquire}; {@code retryAfterNanos} is 0 when the request may proceed.
+     */
+    public record Decision(String rule, long retryAfterNanos) {
+
+        static final Decision UNLIMITED = new Decision(null, 0);
+
+        public boolean allowed() {
+            return retryAfterNanos == 0;
+        }
+    }
+
+    public Decision tryAcquire(String method, String path, String clientKey) {
+        Rule rule = matcher.match(method, path);
+        if (rule == null) {
+            return Decision.UNLIMITED;
+        }
+        long now = nanoClock.getAsLong();
+        TokenBucket bucket = rule.buckets.get(clientKey);
+        if (bucket == null) {
+            bucket = rule.buckets.computeIfAbsent(clientKey, key -> new TokenBucket(now));
+        }
+        long wait = bucket.tryAcquire(now, rule.interval, rule.burst);
+        if (wait > 0) {
+            rule.rejected.increment();
+        }
+        return new Decision(rule.name, wait);
+    }
+
+    @Scheduled(fixedDelayString = "${banking.rate-limit.eviction-interval:1m}")
+    public void evictIdle() {
+        long cutoff = nanoClock.getAsLong() - idleTimeoutNanos;
+        for (Rule rule : rules) {
+            // A request racing with removal may take its token from the evicted bucket; that costs at most one extra request
+            rule.buckets.values().removeIf(bucket -> bucket.fullSince(cutoff));
+        }
+    }
+
+    int bucketCount() {
+        return rules.stream().mapToInt(rule -> rule.buckets.size()).sum();
+    }
+
+    private static final class Rule {
+
+        private final String name;
+        private final long interval;
+        private final long burst;
+        private final Counter rejected;
+        private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        Rule(String name, RateLimitProperties.Rule config, MeterRegistry meterRegistry) {
+            if (config.capacity() <= 0) {
+                throw new IllegalArgumentException("banking.rate-limit.rules." + name + ".capacity must be positive");
+            }
+            this.name = name;
+            this.interval = Math.max(1, config.period().toNanos() / config.capacity());
+            this.burst = interval * config.capacity();
+            this.rejected = Counter.builder("banking.rate-limit.rejected")
+                    .tag("rule", name)
+                    .description("Requests rejected with 429")
+                    .register(meterRegistry);
+        }
+    }
+}
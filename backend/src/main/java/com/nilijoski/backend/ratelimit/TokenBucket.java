@@ -0,0 +1,46 @@
+package com.nilijoski.backend.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ * <p>
+ * Instead of a token count and a refill timestamp, the bucket stores a single "theoretical
+ * arrival time" (the generic cell rate algorithm): the instant at which the bucket would be
+ * full again. Taking a token advances it by one refill interval, so the whole state fits in
+ * one {@link AtomicLong} and is updated with a single compare-and-set.
+ */
+final class TokenBucket {
+
+    private final AtomicLong fullAt;
+
+    TokenBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * @param interval nanoseconds needed to refill one token
+     * @param burst    nanoseconds needed to refill the whole bucket
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquire(long now, long interval, long burst) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - burst;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * A bucket that has been full since before {@code cutoff} is indistinguishable from a new one.
+     */
+    boolean fullSince(long cutoff) {
+        return fullAt.get() < cutoff;
+    }
+}
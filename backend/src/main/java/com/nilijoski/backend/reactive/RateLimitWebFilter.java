@@ -0,0 +1,54 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.ratelimit.RateLimiter;
+import com.nilijoski.backend.security.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reactive counterpart of {@code RateLimitFilter}, with the same client keys: the account
+ * number for signed-in callers, the client address otherwise.
+ */
+public class RateLimitWebFilter implements WebFilter {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitWebFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication.getPrincipal() instanceof TokenService.TokenClaims)
+                .map(authentication -> ((TokenService.TokenClaims) authentication.getPrincipal()).acc())
+                .defaultIfEmpty(remoteAddress(exchange))
+                .flatMap(clientKey -> {
+                    RateLimiter.Decision decision = rateLimiter.tryAcquire(exchange.getRequest().getMethod().name(),
+                            exchange.getRequest().getPath().value(), clientKey);
+                    if (decision.allowed()) {
+                        return chain.filter(exchange);
+                    }
+                    long retryAfterSeconds = Math.max(1,
+                            TimeUnit.NANOSECONDS.toSeconds(decision.retryAfterNanos() + 999_999_999));
+                    exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    private static String remoteAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return address == null ? "" : address.getAddress().getHostAddress();
+    }
+}
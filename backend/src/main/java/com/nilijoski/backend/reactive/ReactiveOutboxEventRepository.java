@@ -0,0 +1,14 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.model.OutboxEvent;
+import com.nilijoski.backend.outbox.Outbox;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Writes the {@link Outbox} events of reactive transfers; the relay reads them with the
+ * blocking client like any other.
+ */
+@Repository
+public interface ReactiveOutboxEventRepository extends ReactiveMongoRepository<OutboxEvent, String> {
+}
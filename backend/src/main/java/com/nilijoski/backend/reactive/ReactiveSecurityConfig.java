@@ -0,0 +1,77 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.ratelimit.RateLimiter;
+import com.nilijoski.backend.security.SecurityConfig;
+import com.nilijoski.backend.security.TokenService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+import java.util.Set;
+
+/**
+ * Security and server setup of the reactive stack, mirroring {@link SecurityConfig}.
+ * Bulkheads are left out: no thread waits for Mongo here, and the driver's connection pool
+ * queue already bounds concurrent queries.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    @Bean
+    SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                  TokenService tokenService,
+                                                  ObjectProvider<RateLimiter> rateLimiter,
+                                                  @Value("${banking.security.tokens.required:true}") boolean tokensRequired,
+                                                  @Value("${banking.security.operators:}") Set<String> operators) {
+        http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .cors(Customizer.withDefaults())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterAt(new TokenAuthenticationWebFilter(tokenService, operators), SecurityWebFiltersOrder.AUTHENTICATION)
+                .authorizeExchange(auth -> {
+                    auth.pathMatchers(SecurityConfig.OPERATOR_ENDPOINTS).hasRole(SecurityConfig.OPERATOR_ROLE);
+                    auth.pathMatchers(SecurityConfig.PUBLIC_ENDPOINTS).permitAll();
+                    if (tokensRequired) {
+                        auth.pathMatchers("/api/**").authenticated();
+                    }
+                    auth.anyExchange().permitAll();
+                });
+
+        rateLimiter.ifAvailable(limiter ->
+                http.addFilterAfter(new RateLimitWebFilter(limiter), SecurityWebFiltersOrder.AUTHENTICATION));
+
+        return http.build();
+    }
+
+    @Bean
+    CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", SecurityConfig.corsConfiguration());
+        return source;
+    }
+
+    // Tomcat is on the classpath for the servlet stack and would otherwise be preferred
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,133 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.dto.TransferResponse;
+import com.nilijoski.backend.exception.TransactionNotFoundException;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.security.Caller;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.web.ETags;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux counterpart of {@code TransactionController}: same paths, status codes and headers.
+ * <p>
+ * Histories are written as they come off the cursor, as a JSON array or, with
+ * {@code Accept: application/x-ndjson}, one transaction per line for exports. Either way the
+ * socket's write demand is what pulls the next batch from Mongo.
+ */
+@RestController
+@RequestMapping("/api/transactions")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTransactionController {
+
+    private final ReactiveTransactionService transactionService;
+
+    @PostMapping("/transfer")
+    public Mono<ResponseEntity<TransferResponse>> transfer(@RequestBody Map<String, Object> request, Principal principal) {
+        String requested = (String) request.get("fromIban");
+        TokenService.TokenClaims claims = Caller.claims(principal);
+        String fromIban = requested == null && claims != null ? claims.iban() : requested;
+        if (!Caller.holdsIban(principal, fromIban)) {
+            return Mono.just(new ResponseEntity<>(TransferResponse.error("Not the holder of " + fromIban), HttpStatus.FORBIDDEN));
+        }
+        return Mono.defer(() -> transactionService.transfer(
+                        fromIban,
+                        (String) request.get("toIban"),
+                        (String) request.get("toFirstName"),
+                        (String) request.get("toLastName"),
+                        BigDecimal.valueOf(((Number) request.get("amount")).doubleValue()),
+                        (String) request.get("description")))
+                .map(transaction -> new ResponseEntity<>(TransferResponse.success(transaction), HttpStatus.CREATED))
+                .onErrorResume(RuntimeException.class, e ->
+                        Mono.just(new ResponseEntity<>(TransferResponse.error(e.getMessage()), HttpStatus.BAD_REQUEST)))
+                .onErrorResume(e -> Mono.just(new ResponseEntity<>(
+                        TransferResponse.error("An unexpected error occurred"), HttpStatus.INTERNAL_SERVER_ERROR)));
+    }
+
+    @GetMapping("/recipients/{iban}")
+    public Mono<ResponseEntity<List<String>>> getRecipientsByUserIban(@PathVariable String iban, ServerWebExchange exchange,
+                                                                      Principal principal) {
+        if (!Caller.holdsIban(principal, iban)) {
+            return forbidden();
+        }
+        // A bare Flux<String> would be written as concatenated text, so the distinct IBANs are collected
+        return historyTag(transactionService.getHistoryVersionByIban(iban))
+                .flatMap(eTag -> transactionService.getRecipientIbanByUserIban(iban).collectList()
+                        .flatMap(recipients -> conditional(exchange, eTag, recipients)));
+    }
+
+    @GetMapping(value = "/iban/{iban}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Transaction>>> getTransactionsByIban(@PathVariable String iban, ServerWebExchange exchange,
+                                                                         Principal principal) {
+        if (!Caller.holdsIban(principal, iban)) {
+            return forbidden();
+        }
+        return historyTag(transactionService.getHistoryVersionByIban(iban))
+                .flatMap(eTag -> conditional(exchange, eTag, transactionService.getTransactionsByIban(iban)));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Transaction>>> getAllTransactions(Principal principal) {
+        if (!Caller.isOperator(principal)) {
+            return forbidden();
+        }
+        return Mono.just(ResponseEntity.ok(transactionService.getAllTransactions()));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Transaction>> getTransactionById(@PathVariable String id, ServerWebExchange exchange,
+                                                                Principal principal) {
+        // Loaded first, so an unknown id is never answered with 304; transactions never change once written
+        return transactionService.getTransactionById(id)
+                .flatMap(transaction -> Caller.isParty(principal, transaction)
+                        ? conditional(exchange, ETags.ofImmutable(id), transaction)
+                        : ReactiveTransactionController.<Transaction>forbidden())
+                .onErrorResume(TransactionNotFoundException.class, e -> Mono.just(new ResponseEntity<>(HttpStatus.NOT_FOUND)));
+    }
+
+    @GetMapping(value = "/account/{accountNumber}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Transaction>>> getTransactionsByAccountNumber(@PathVariable String accountNumber,
+                                                                                  ServerWebExchange exchange,
+                                                                                  Principal principal) {
+        if (!Caller.holdsAccount(principal, accountNumber)) {
+            return forbidden();
+        }
+        return historyTag(transactionService.getHistoryVersionByAccountNumber(accountNumber))
+                .flatMap(eTag -> conditional(exchange, eTag, transactionService.getTransactionsByAccountNumber(accountNumber)));
+    }
+
+    // Resolved before the body is read, so a transaction stored in between can only make the body newer than its tag
+    private static Mono<String> historyTag(Mono<TransactionStore.HistoryVersion> version) {
+        return version.map(ETags::of);
+    }
+
+    private static <T> Mono<ResponseEntity<T>> forbidden() {
+        return Mono.just(new ResponseEntity<>(HttpStatus.FORBIDDEN));
+    }
+
+    private static <T> Mono<ResponseEntity<T>> conditional(ServerWebExchange exchange, String eTag, T body) {
+        if (exchange.checkNotModified(eTag)) {
+            return Mono.empty();
+        }
+        return Mono.just(ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(eTag)
+                .body(body));
+    }
+}
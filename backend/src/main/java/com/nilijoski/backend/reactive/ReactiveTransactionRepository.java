@@ -0,0 +1,31 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.model.Transaction;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Finders return cursor-backed {@link Flux}es: the driver fetches the next batch only once
+ * the subscriber has requested it, so a slow client slows down the cursor instead of
+ * buffering the whole history.
+ */
+@Repository
+public interface ReactiveTransactionRepository extends ReactiveMongoRepository<Transaction, String> {
+
+    Flux<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber);
+
+    Flux<Transaction> findByFromIban(String fromIban);
+
+    Flux<Transaction> findByFromIbanOrToIban(String fromIban, String toIban);
+
+    Mono<Long> countByFromIbanOrToIban(String fromIban, String toIban);
+
+    Mono<Transaction> findFirstByFromIbanOrToIbanOrderByIdDesc(String fromIban, String toIban);
+
+    Mono<Long> countByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber);
+
+    Mono<Transaction> findFirstByFromAccountNumberOrToAccountNumberOrderByIdDesc(String fromAccountNumber,
+                                                                               String toAccountNumber);
+}
@@ -0,0 +1,200 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.exception.*;
+import com.nilijoski.backend.model.OutboxEvent;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.outbox.Outbox;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeVerificationService;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.velocity.VelocityRules;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking counterpart of {@link TransactionService}.
+ * <p>
+ * Histories are streamed straight from the Mongo cursor with at most
+ * {@value #HISTORY_PREFETCH} documents requested ahead of the subscriber, so memory per
+ * request stays constant no matter how long the history is. Only the document layout without
+ * archive is supported; the startup check makes a mismatched configuration fail early.
+ * Transfers are screened by the same {@link VelocityRules} and leave the same {@link Outbox}
+ * events as on the servlet stack.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTransactionService {
+
+    static final int HISTORY_PREFETCH = 256;
+
+    private static final String COMPLETED = "COMPLETED";
+
+    private final ReactiveTransactionRepository transactionRepository;
+    private final ReactiveUserService userService;
+    private final VelocityRules velocityRules;
+    private final Outbox outbox;
+    private final ReactiveOutboxEventRepository outboxEvents;
+
+    public ReactiveTransactionService(ReactiveTransactionRepository transactionRepository,
+                                      ReactiveUserService userService, String layout, boolean archiveEnabled) {
+        this(transactionRepository, userService, layout, archiveEnabled, (VelocityRules) null, null, null);
+    }
+
+    // Explicit for AOT processing, which does not pick between several public constructors by itself
+    @Autowired
+    public ReactiveTransactionService(ReactiveTransactionRepository transactionRepository,
+                                      ReactiveUserService userService,
+                                      @Value("${banking.transactions.layout:document}") String layout,
+                                      @Value("${banking.archive.enabled:false}") boolean archiveEnabled,
+                                      ObjectProvider<VelocityRules> velocityRules,
+                                      ObjectProvider<Outbox> outbox,
+                                      ReactiveOutboxEventRepository outboxEvents) {
+        this(transactionRepository, userService, layout, archiveEnabled, velocityRules.getIfAvailable(),
+                outbox.getIfAvailable(), outboxEvents);
+    }
+
+    ReactiveTransactionService(ReactiveTransactionRepository transactionRepository, ReactiveUserService userService,
+                               String layout, boolean archiveEnabled, VelocityRules velocityRules, Outbox outbox,
+                               ReactiveOutboxEventRepository outboxEvents) {
+        if (!"document".equals(layout) || archiveEnabled) {
+            throw new IllegalStateException("The reactive stack only supports banking.transactions.layout=document "
+                    + "with banking.archive.enabled=false");
+        }
+        this.transactionRepository = transactionRepository;
+        this.userService = userService;
+        this.velocityRules = velocityRules;
+        this.outbox = outbox;
+        this.outboxEvents = outboxEvents;
+    }
+
+    public Mono<Transaction> transfer(String fromIban, String toIban, String toFirstName, String toLastName,
+                                      BigDecimal amount, String description) {
+        if (!TransactionService.isValidIban(toIban)) {
+            return Mono.error(new InvalidIbanException("Invalid IBAN format"));
+        }
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return Mono.error(new InvalidTransferAmountException("Transfer amount must be positive"));
+        }
+        if (fromIban.equals(toIban)) {
+            return Mono.error(new SameAccountTransferException("Cannot transfer money to your own account"));
+        }
+
+        Mono<User> fromUser = userService.getUserByIban(fromIban)
+                .onErrorMap(e -> new AccountNotFoundException("Your account not found"));
+        Mono<User> toUser = userService.getUserByIban(toIban)
+                .onErrorMap(e -> new InvalidIbanException("Recipient IBAN not found. Please check the IBAN and try again."));
+
+        return fromUser.flatMap(from -> toUser.flatMap(to -> {
+            Transaction transaction = new Transaction();
+            transaction.setFromIban(fromIban);
+            transaction.setToIban(toIban);
+            transaction.setFromFirstName(from.getFirstName());
+            transaction.setFromLastName(from.getLastName());
+            transaction.setToFirstName(toFirstName);
+            transaction.setToLastName(toLastName);
+            transaction.setFromAccountNumber(from.getAccountNumber());
+            transaction.setToAccountNumber(to.getAccountNumber());
+            transaction.setAmount(amount);
+            transaction.setTransactionType("TRANSFER");
+            transaction.setDescription(description);
+            transaction.setTransactionDate(LocalDateTime.now());
+            transaction.setStatus("PENDING");
+
+            transaction.setWarning(PayeeVerificationService.transferWarning(to, toFirstName, toLastName));
+
+            // Not cancelled with the request: once money moves, the transfer runs to completion like on the servlet stack
+            return Mono.fromFuture(() -> screenAndSettle(transaction, from, to, amount).toFuture(), true);
+        }));
+    }
+
+    private Mono<Transaction> screenAndSettle(Transaction transaction, User from, User to, BigDecimal amount) {
+        if (velocityRules == null) {
+            return settle(transaction, from, to, amount);
+        }
+        return Mono.fromCallable(() -> velocityRules.screen(from, to.getIban(), amount)).flatMap(screening -> {
+            if (screening.warning() != null) {
+                transaction.setWarning(transaction.getWarning() == null
+                        ? screening.warning()
+                        : transaction.getWarning() + "; " + screening.warning());
+            }
+            return settle(transaction, from, to, amount).doFinally(signal -> {
+                if (signal == SignalType.ON_COMPLETE) {
+                    screening.complete();
+                } else {
+                    screening.cancel();
+                }
+            });
+        });
+    }
+
+    private Mono<Transaction> settle(Transaction transaction, User from, User to, BigDecimal amount) {
+        return userService.withdraw(from.getAccountNumber(), amount)
+                .then(userService.deposit(to.getAccountNumber(), amount))
+                .then(Mono.defer(() -> {
+                    transaction.setStatus(COMPLETED);
+                    return store(transaction);
+                }));
+    }
+
+    // Event first, as in Outbox.save
+    private Mono<Transaction> store(Transaction transaction) {
+        OutboxEvent event = outbox == null ? null : outbox.eventFor(transaction);
+        if (event == null) {
+            return transactionRepository.save(transaction);
+        }
+        return outboxEvents.insert(event).then(transactionRepository.save(transaction));
+    }
+
+    public Flux<String> getRecipientIbanByUserIban(String userIban) {
+        return transactionRepository.findByFromIban(userIban)
+                .limitRate(HISTORY_PREFETCH)
+                .map(Transaction::getToIban)
+                .distinct();
+    }
+
+    public Flux<Transaction> getAllTransactions() {
+        return transactionRepository.findAll().limitRate(HISTORY_PREFETCH);
+    }
+
+    public Mono<Transaction> getTransactionById(String id) {
+        return transactionRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TransactionNotFoundException("Transaction not found with id: " + id)));
+    }
+
+    public Flux<Transaction> getTransactionsByAccountNumber(String accountNumber) {
+        return transactionRepository.findByFromAccountNumberOrToAccountNumber(accountNumber, accountNumber)
+                .limitRate(HISTORY_PREFETCH);
+    }
+
+    public Flux<Transaction> getTransactionsByIban(String iban) {
+        return transactionRepository.findByFromIbanOrToIban(iban, iban)
+                .limitRate(HISTORY_PREFETCH);
+    }
+
+    public Mono<TransactionStore.HistoryVersion> getHistoryVersionByIban(String iban) {
+        return historyVersion(transactionRepository.countByFromIbanOrToIban(iban, iban),
+                transactionRepository.findFirstByFromIbanOrToIbanOrderByIdDesc(iban, iban));
+    }
+
+    public Mono<TransactionStore.HistoryVersion> getHistoryVersionByAccountNumber(String accountNumber) {
+        return historyVersion(transactionRepository.countByFromAccountNumberOrToAccountNumber(accountNumber, accountNumber),
+                transactionRepository.findFirstByFromAccountNumberOrToAccountNumberOrderByIdDesc(accountNumber, accountNumber));
+    }
+
+    // Counted first, as in DocumentTransactionStore: an insert between the two reads shows up in the next count
+    private static Mono<TransactionStore.HistoryVersion> historyVersion(Mono<Long> count, Mono<Transaction> newest) {
+        return count.flatMap(transactions -> newest
+                .map(transaction -> new TransactionStore.HistoryVersion(transactions, transaction.getId()))
+                .defaultIfEmpty(new TransactionStore.HistoryVersion(transactions, null)));
+    }
+}
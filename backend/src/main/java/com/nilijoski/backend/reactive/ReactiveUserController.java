@@ -0,0 +1,167 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.exception.InvalidTokenException;
+import com.nilijoski.backend.exception.PasswordHashingUnavailableException;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.Caller;
+import com.nilijoski.backend.security.SecurityConfig;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.web.ETags;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebFlux counterpart of {@code UserController}: same paths, status codes and headers.
+ */
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+    private final TokenService tokenService;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<User>> register(@RequestBody Map<String, String> request) {
+        return Mono.defer(() -> userService.register(request.get("username"), request.get("password"),
+                        request.get("firstName"), request.get("lastName")))
+                .map(user -> ResponseEntity.status(HttpStatus.CREATED)
+                        .headers(tokenHeaders(tokenService.issue(user)))
+                        .body(user))
+                .onErrorResume(PasswordHashingUnavailableException.class, e -> Mono.just(hashingUnavailable()))
+                .onErrorResume(RuntimeException.class, e -> Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST)));
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<User>> login(@RequestBody Map<String, String> request) {
+        return Mono.defer(() -> userService.login(request.get("username"), request.get("password")))
+                .map(user -> ResponseEntity.ok()
+                        .headers(tokenHeaders(tokenService.issue(user)))
+                        .body(user))
+                .onErrorResume(PasswordHashingUnavailableException.class, e -> Mono.just(hashingUnavailable()))
+                .onErrorResume(RuntimeException.class, e -> Mono.just(new ResponseEntity<>(HttpStatus.UNAUTHORIZED)));
+    }
+
+    @PostMapping("/token/refresh")
+    public ResponseEntity<TokenService.TokenPair> refreshToken(@RequestBody Map<String, String> request) {
+        try {
+            return ResponseEntity.ok(tokenService.refresh(request.get("refreshToken")));
+        } catch (InvalidTokenException e) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody Map<String, String> request) {
+        tokenService.revoke(request.get("accessToken"));
+        tokenService.revoke(request.get("refreshToken"));
+        return ResponseEntity.noContent().build();
+    }
+
+    private static HttpHeaders tokenHeaders(TokenService.TokenPair tokens) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SecurityConfig.ACCESS_TOKEN_HEADER, tokens.accessToken());
+        headers.set(SecurityConfig.REFRESH_TOKEN_HEADER, tokens.refreshToken());
+        return headers;
+    }
+
+    private static <T> ResponseEntity<T> hashingUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<User>>> getAllUsers(Principal principal) {
+        if (!Caller.isOperator(principal)) {
+            return forbidden();
+        }
+        return Mono.just(ResponseEntity.ok(userService.getAllUsers()));
+    }
+
+    @GetMapping("/availability/{username}")
+    public Mono<Map<String, Object>> getUsernameAvailability(@PathVariable String username) {
+        return userService.isUsernameAvailable(username)
+                .map(available -> Map.of("username", username, "available", available));
+    }
+
+    @GetMapping("/number/{accountNumber}")
+    public Mono<ResponseEntity<User>> getAccountByAccountNumber(@PathVariable String accountNumber, Principal principal) {
+        if (!Caller.holdsAccount(principal, accountNumber)) {
+            return forbidden();
+        }
+        return userService.getUserByAccountNumber(accountNumber)
+                .map(ReactiveUserController::versioned)
+                .onErrorResume(RuntimeException.class, e -> Mono.just(new ResponseEntity<>(HttpStatus.NOT_FOUND)));
+    }
+
+    @GetMapping("/{username}")
+    public Mono<ResponseEntity<User>> getUserByUsername(@PathVariable String username, Principal principal) {
+        return userService.getUserByUsername(username)
+                .flatMap(user -> Caller.isUser(principal, user.getId()) ? Mono.just(versioned(user)) : forbidden());
+    }
+
+    @PostMapping("/{userId}/saved-recipients")
+    public Mono<ResponseEntity<User>> addSavedRecipient(@PathVariable String userId, @RequestBody Map<String, String> request,
+                                                        Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return forbidden();
+        }
+        return userService.addSavedRecipient(userId, request.get("recipientIban")).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{userId}/saved-recipients")
+    public Mono<ResponseEntity<List<User>>> getSavedRecipients(@PathVariable String userId, Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return forbidden();
+        }
+        // The ETag covers every recipient, so the (short) list is collected first
+        return userService.getSavedRecipients(userId)
+                .collectList()
+                .map(recipients -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(ETags.of(recipients))
+                        .body(recipients));
+    }
+
+    @DeleteMapping("/{userId}/saved-recipients/{recipientIban}")
+    public Mono<ResponseEntity<User>> removeSavedRecipient(@PathVariable String userId, @PathVariable String recipientIban,
+                                                           Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return forbidden();
+        }
+        return userService.removeSavedRecipient(userId, recipientIban).map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/{userId}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable String userId, Principal principal) {
+        if (!Caller.isUser(principal, userId)) {
+            return forbidden();
+        }
+        return userService.deleteUser(userId).then(Mono.just(ResponseEntity.ok().build()));
+    }
+
+    private static <T> Mono<ResponseEntity<T>> forbidden() {
+        return Mono.just(new ResponseEntity<>(HttpStatus.FORBIDDEN));
+    }
+
+    private static ResponseEntity<User> versioned(User user) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(ETags.of(user))
+                .body(user);
+    }
+}
@@ -0,0 +1,18 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.model.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+
+    Mono<User> findByUsername(String username);
+
+    Mono<User> findByAccountNumber(String accountNumber);
+
+    Mono<User> findByIban(String iban);
+
+    Mono<Boolean> existsByUsername(String username);
+}
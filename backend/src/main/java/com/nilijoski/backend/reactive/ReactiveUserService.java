@@ -0,0 +1,217 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.account.AccountNumberAllocator;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.exception.*;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.repository.UserIndexes;
+import com.nilijoski.backend.security.PasswordHasher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking counterpart of {@code UserService} with the same rules and error types.
+ * <p>
+ * BCrypt and account number allocation stay blocking (CPU-bound and a short locked Mongo
+ * round trip, respectively) and run on the bounded elastic scheduler, never on an event loop.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    private final ReactiveUserRepository userRepository;
+    private final UserCache userCache;
+    private final PasswordHasher passwordHasher;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final UsernameFilter usernameFilter;
+    private static final String USR_NOT_FOUND = "User not found";
+    // An allocated number can only be taken by an account created outside the allocator, so rarely twice in a row
+    private static final int ACCOUNT_ATTEMPTS = 3;
+
+    public Mono<User> register(String username, String password, String firstName, String lastName) {
+        // Checked up front to fail before the expensive hash; the unique index settles races
+        return isUsernameAvailable(username)
+                .flatMap(available -> available
+                        ? blocking(() -> newUser(username, password, firstName, lastName))
+                        : Mono.error(new UsernameExistsException("Username already exists")))
+                .flatMap(user -> insert(user, 1))
+                .doOnNext(saved -> usernameFilter.add(username));
+    }
+
+    private Mono<User> insert(User user, int attempt) {
+        return userRepository.save(user)
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    if (UserIndexes.violates(e, "username")) {
+                        return Mono.error(new UsernameExistsException("Username already exists"));
+                    }
+                    if (attempt == ACCOUNT_ATTEMPTS) {
+                        return Mono.error(e);
+                    }
+                    return blocking(() -> assignAccount(user)).flatMap(retry -> insert(retry, attempt + 1));
+                });
+    }
+
+    private User assignAccount(User user) {
+        AccountNumberAllocator.AccountIdentifiers account = accountNumberAllocator.next();
+        user.setAccountNumber(account.accountNumber());
+        user.setIban(account.iban());
+        return user;
+    }
+
+    private User newUser(String username, String password, String firstName, String lastName) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(passwordHasher.encode(password));
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        PayeeNames.apply(user);
+        assignAccount(user);
+        user.setBalance(new BigDecimal("1000.00"));
+        user.setStatus("ACTIVE");
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        return user;
+    }
+
+    public Mono<Boolean> isUsernameAvailable(String username) {
+        if (!usernameFilter.mightContain(username)) {
+            return Mono.just(true);
+        }
+        return userRepository.existsByUsername(username).map(exists -> !exists);
+    }
+
+    public Mono<User> login(String username, String password) {
+        return userRepository.findByUsername(username)
+                .switchIfEmpty(Mono.error(() -> new InvalidLoginException("Invalid username or password")))
+                .flatMap(user -> blocking(() -> passwordHasher.matches(password, user.getPassword()))
+                        .flatMap(matches -> matches
+                                ? upgradeHash(user, password)
+                                : Mono.error(new InvalidLoginException("Invalid username or password"))));
+    }
+
+    // Rehash with the current cost while the plain password is at hand
+    private Mono<User> upgradeHash(User user, String password) {
+        if (!passwordHasher.needsUpgrade(user.getPassword())) {
+            return Mono.just(user);
+        }
+        return blocking(() -> passwordHasher.encode(password))
+                .flatMap(hash -> {
+                    user.setPassword(hash);
+                    user.setUpdatedAt(LocalDateTime.now());
+                    return saveAndInvalidate(user);
+                });
+    }
+
+    public Mono<User> getUserByUsername(String username) {
+        return userRepository.findByUsername(username)
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(USR_NOT_FOUND)));
+    }
+
+    public Flux<User> getAllUsers() {
+        return userRepository.findAll();
+    }
+
+    public Mono<User> getUserByAccountNumber(String accountNumber) {
+        return Mono.justOrEmpty(userCache.getByAccountNumber(accountNumber))
+                .switchIfEmpty(Mono.defer(() -> cached(userRepository.findByAccountNumber(accountNumber))))
+                .switchIfEmpty(Mono.error(() ->
+                        new AccountNotFoundException("User not found with account number: " + accountNumber)));
+    }
+
+    public Mono<User> getUserByIban(String iban) {
+        return Mono.justOrEmpty(userCache.getByIban(iban))
+                .switchIfEmpty(Mono.defer(() -> cached(userRepository.findByIban(iban))))
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException("User not found with IBAN: " + iban)));
+    }
+
+    public Mono<User> addSavedRecipient(String userId, String recipientIban) {
+        return findById(userId)
+                .flatMap(user -> {
+                    if (user.getSavedRecipientIbans().contains(recipientIban)) {
+                        return Mono.error(new RecipientSavedException("Recipient already saved"));
+                    }
+                    user.getSavedRecipientIbans().add(recipientIban);
+                    return saveAndInvalidate(user);
+                });
+    }
+
+    public Flux<User> getSavedRecipients(String userId) {
+        return findById(userId)
+                .flatMapMany(user -> Flux.fromIterable(user.getSavedRecipientIbans()))
+                .concatMap(iban -> Mono.justOrEmpty(userCache.getByIban(iban))
+                        .switchIfEmpty(Mono.defer(() -> cached(userRepository.findByIban(iban)))));
+    }
+
+    public Mono<User> removeSavedRecipient(String userId, String recipientIban) {
+        return findById(userId)
+                .flatMap(user -> {
+                    user.getSavedRecipientIbans().remove(recipientIban);
+                    return saveAndInvalidate(user);
+                });
+    }
+
+    // Balance changes always start from the stored document, never from the cache
+    public Mono<User> deposit(String accountNumber, BigDecimal amount) {
+        return findByAccountNumber(accountNumber)
+                .flatMap(user -> {
+                    user.setBalance(user.getBalance().add(amount));
+                    user.setUpdatedAt(LocalDateTime.now());
+                    return saveAndInvalidate(user);
+                });
+    }
+
+    public Mono<User> withdraw(String accountNumber, BigDecimal amount) {
+        return findByAccountNumber(accountNumber)
+                .flatMap(user -> {
+                    if (user.getBalance().compareTo(amount) < 0) {
+                        return Mono.error(new InvalidTransferAmountException("Insufficient balance"));
+                    }
+                    user.setBalance(user.getBalance().subtract(amount));
+                    user.setUpdatedAt(LocalDateTime.now());
+                    return saveAndInvalidate(user);
+                });
+    }
+
+    public Mono<Void> deleteUser(String id) {
+        return userRepository.deleteById(id)
+                .doOnSuccess(done -> userCache.invalidate(id));
+    }
+
+    private Mono<User> findById(String userId) {
+        return userRepository.findById(userId)
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(USR_NOT_FOUND)));
+    }
+
+    private Mono<User> findByAccountNumber(String accountNumber) {
+        return userRepository.findByAccountNumber(accountNumber)
+                .switchIfEmpty(Mono.error(() ->
+                        new AccountNotFoundException("User not found with account number: " + accountNumber)));
+    }
+
+    private Mono<User> saveAndInvalidate(User user) {
+        return userRepository.save(user)
+                .doOnNext(saved -> userCache.invalidate(user.getId()));
+    }
+
+    // Called inside Mono.defer, so the stamp is taken before the query is subscribed to
+    private Mono<User> cached(Mono<User> user) {
+        long stamp = userCache.stamp();
+        return user.doOnNext(found -> userCache.put(found, stamp));
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(Schedulers.boundedElastic());
+    }
+}
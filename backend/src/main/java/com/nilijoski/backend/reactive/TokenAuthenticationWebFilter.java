@@ -0,0 +1,61 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.exception.InvalidTokenException;
+import com.nilijoski.backend.security.SecurityConfig;
+import com.nilijoski.backend.security.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reactive counterpart of {@code TokenAuthenticationFilter}: requests without a bearer token
+ * pass through unauthenticated, an invalid token is rejected with 401 straight away. Users
+ * listed as operators get the {@value SecurityConfig#OPERATOR_ROLE} role.
+ */
+public class TokenAuthenticationWebFilter implements WebFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private static final List<GrantedAuthority> OPERATOR_AUTHORITIES =
+            AuthorityUtils.createAuthorityList("ROLE_" + SecurityConfig.OPERATOR_ROLE);
+
+    private final TokenService tokenService;
+    private final Set<String> operators;
+
+    public TokenAuthenticationWebFilter(TokenService tokenService, Set<String> operators) {
+        this.tokenService = tokenService;
+        this.operators = operators;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER)) {
+            return chain.filter(exchange);
+        }
+
+        TokenService.TokenClaims claims;
+        try {
+            claims = tokenService.verify(header.substring(BEARER.length()), TokenService.TokenType.ACCESS);
+        } catch (InvalidTokenException e) {
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            return exchange.getResponse().setComplete();
+        }
+
+        var authentication = new UsernamePasswordAuthenticationToken(claims, null,
+                operators.contains(claims.sub()) ? OPERATOR_AUTHORITIES : AuthorityUtils.NO_AUTHORITIES);
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+}
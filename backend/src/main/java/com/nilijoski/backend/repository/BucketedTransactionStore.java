@@ -0,0 +1,266 @@
+package com.nilijoski.backend.repository;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.TransactionBucket;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Time-series layout: transactions are grouped into {@link TransactionBucket} documents
+ * per account and day, holding at most {@code banking.transactions.bucket.max-events} events.
+ * A history read touches one document per active day instead of one per transaction.
+ */
+@Repository
+@Qualifier(TransactionStore.HOT)
+@ConditionalOnProperty(name = "banking.transactions.layout", havingValue = "bucketed")
+public class BucketedTransactionStore implements TransactionStore {
+
+    private static final String ACCOUNT_NUMBER = "accountNumber";
+    private static final String IBAN = "iban";
+    private static final String DAY = "day";
+    private static final String COUNT = "count";
+    private static final String TRANSACTIONS = "transactions";
+    private static final String NEWEST_ID = "newestId";
+    private static final String IDEMPOTENCY_KEY = TRANSACTIONS + ".idempotencyKey";
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxEventsPerBucket;
+
+    public BucketedTransactionStore(MongoTemplate mongoTemplate,
+                                    @Value("${banking.transactions.bucket.max-events:200}") int maxEventsPerBucket) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxEventsPerBucket = maxEventsPerBucket;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        var indexOps = mongoTemplate.indexOps(TransactionBucket.class);
+        indexOps.ensureIndex(new Index().on(ACCOUNT_NUMBER, Sort.Direction.ASC).on(DAY, Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on(IBAN, Sort.Direction.ASC).on(DAY, Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on(DAY, Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on(TRANSACTIONS + "._id", Sort.Direction.ASC));
+        // Not unique: a transfer is in the buckets of both accounts
+        indexOps.ensureIndex(new Index().on(IDEMPOTENCY_KEY, Sort.Direction.ASC).sparse());
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(new ObjectId().toHexString());
+        }
+
+        append(transaction.getFromAccountNumber(), transaction.getFromIban(), transaction);
+        if (!Objects.equals(transaction.getFromAccountNumber(), transaction.getToAccountNumber())) {
+            append(transaction.getToAccountNumber(), transaction.getToIban(), transaction);
+        }
+        return transaction;
+    }
+
+    private void append(String accountNumber, String iban, Transaction transaction) {
+        if (accountNumber == null) {
+            return;
+        }
+
+        // Matches the newest non-full bucket of the day; the upsert opens a new one when all are full
+        Query query = new Query(where(ACCOUNT_NUMBER).is(accountNumber)
+                .and(DAY).is(transaction.getTransactionDate().toLocalDate())
+                .and(COUNT).lt(maxEventsPerBucket));
+
+        Update update = new Update()
+                .push(TRANSACTIONS, transaction)
+                .inc(COUNT, 1)
+                .max(NEWEST_ID, transaction.getId());
+        if (iban != null) {
+            update.set(IBAN, iban);
+        }
+
+        mongoTemplate.upsert(query, update, TransactionBucket.class);
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        TransactionBucket bucket = mongoTemplate.findOne(
+                new Query(where(TRANSACTIONS + ".id").is(id)), TransactionBucket.class);
+        if (bucket == null) {
+            return Optional.empty();
+        }
+        return bucket.getTransactions().stream()
+                .filter(transaction -> id.equals(transaction.getId()))
+                .findFirst();
+    }
+
+    @Override
+    public List<Transaction> findByIds(Collection<String> ids) {
+        Set<String> wanted = new HashSet<>(ids);
+        return flatten(new Query(where(TRANSACTIONS + ".id").in(wanted)), transaction -> wanted.contains(transaction.getId()));
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return flatten(new Query(), transaction -> true);
+    }
+
+    @Override
+    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        TransactionBucket bucket = mongoTemplate.findOne(
+                new Query(where(IDEMPOTENCY_KEY).is(idempotencyKey)), TransactionBucket.class);
+        if (bucket == null) {
+            return Optional.empty();
+        }
+        return bucket.getTransactions().stream()
+                .filter(transaction -> idempotencyKey.equals(transaction.getIdempotencyKey()))
+                .findFirst();
+    }
+
+    @Override
+    public List<Transaction> findByFromIban(String fromIban) {
+        return flatten(new Query(where(IBAN).is(fromIban)),
+                transaction -> fromIban.equals(transaction.getFromIban()));
+    }
+
+    @Override
+    public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+        return flatten(new Query(where(IBAN).in(fromIban, toIban)),
+                transaction -> fromIban.equals(transaction.getFromIban()) || toIban.equals(transaction.getToIban()));
+    }
+
+    @Override
+    public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+        return flatten(new Query(where(ACCOUNT_NUMBER).in(fromAccountNumber, toAccountNumber)),
+                transaction -> fromAccountNumber.equals(transaction.getFromAccountNumber())
+                        || toAccountNumber.equals(transaction.getToAccountNumber()));
+    }
+
+    @Override
+    public HistoryVersion historyVersionByIban(String iban) {
+        return historyVersion(where(IBAN).is(iban));
+    }
+
+    @Override
+    public HistoryVersion historyVersionByAccountNumber(String accountNumber) {
+        return historyVersion(where(ACCOUNT_NUMBER).is(accountNumber));
+    }
+
+    // Like the document layout: every append raises the newest id, so archiving rows cannot make an older count come back
+    private HistoryVersion historyVersion(Criteria buckets) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(buckets),
+                Aggregation.group().sum(COUNT).as(COUNT).max(NEWEST_ID).as("newest"));
+        Document version = mongoTemplate.aggregate(aggregation, TransactionBucket.class, Document.class)
+                .getUniqueMappedResult();
+        if (version == null) {
+            return new HistoryVersion(0, null);
+        }
+        Object newest = version.get("newest");
+        return new HistoryVersion(((Number) version.get(COUNT)).longValue(), newest == null ? null : newest.toString());
+    }
+
+    /**
+     * Walks the buckets in day order on the day index and stops after {@code limit} transactions,
+     * so every call reads about as many buckets as it returns rows for. Days come oldest first;
+     * within a day the order is the buckets'.
+     */
+    @Override
+    public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+        // Like streamSince, a transfer is taken from its sender's bucket and a deposit from its recipient's
+        Criteria firstBucket = Criteria.expr(ComparisonOperators.valueOf(ACCOUNT_NUMBER)
+                .equalTo(ConditionalOperators.ifNull(TRANSACTIONS + ".fromAccountNumber")
+                        .thenValueOf(TRANSACTIONS + ".toAccountNumber")));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(where(DAY).lte(cutoff.toLocalDate())),
+                Aggregation.sort(Sort.by(DAY)),
+                Aggregation.unwind(TRANSACTIONS),
+                Aggregation.match(where(TRANSACTIONS + ".transactionDate").lt(cutoff)),
+                Aggregation.match(firstBucket),
+                Aggregation.limit(limit),
+                Aggregation.replaceRoot(TRANSACTIONS));
+        return new ArrayList<>(mongoTemplate.aggregate(aggregation, TransactionBucket.class, Transaction.class)
+                .getMappedResults());
+    }
+
+    @Override
+    public Stream<Transaction> streamSince(LocalDateTime from) {
+        // A transfer is read from the first bucket it was appended to: the sender's, or the recipient's for deposits
+        return mongoTemplate.stream(new Query(where(DAY).gte(from.toLocalDate())), TransactionBucket.class)
+                .flatMap(bucket -> bucket.getTransactions().stream()
+                        .filter(transaction -> bucket.getAccountNumber().equals(transaction.getFromAccountNumber() != null
+                                ? transaction.getFromAccountNumber() : transaction.getToAccountNumber()))
+                        .filter(transaction -> !transaction.getTransactionDate().isBefore(from)));
+    }
+
+    @Override
+    public void deleteAll(Collection<Transaction> transactions) {
+        List<Object> ids = transactions.stream()
+                .map(Transaction::getId)
+                .<Object>map(id -> ObjectId.isValid(id) ? new ObjectId(id) : id)
+                .toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Query containing = new Query(where(TRANSACTIONS + "._id").in(ids));
+        containing.fields().include("_id");
+        List<String> buckets = mongoTemplate.find(containing, TransactionBucket.class).stream()
+                .map(TransactionBucket::getId)
+                .toList();
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        // A pipeline, so the count can follow the number of rows actually left in each bucket
+        Document remaining = new Document("$filter", new Document("input", "$" + TRANSACTIONS)
+                .append("as", "transaction")
+                .append("cond", new Document("$not", List.of(new Document("$in", List.of("$$transaction._id", ids))))));
+        AggregationUpdate pull = AggregationUpdate.from(List.of(
+                context -> new Document("$set", new Document(TRANSACTIONS, remaining)),
+                context -> new Document("$set", new Document(COUNT, new Document("$size", "$" + TRANSACTIONS)))));
+        mongoTemplate.updateMulti(new Query(where("_id").in(buckets)), pull, TransactionBucket.class);
+
+        // Archived days receive no new writes, so emptied buckets can go
+        mongoTemplate.remove(new Query(where("_id").in(buckets).and(COUNT).is(0)), TransactionBucket.class);
+    }
+
+    private List<Transaction> flatten(Query query, Predicate<Transaction> filter) {
+        query.with(Sort.by(DAY));
+        // A transfer between two matching accounts lives in both buckets, keep it once
+        Map<String, Transaction> transactions = new LinkedHashMap<>();
+        for (TransactionBucket bucket : mongoTemplate.find(query, TransactionBucket.class)) {
+            for (Transaction transaction : bucket.getTransactions()) {
+                if (filter.test(transaction)) {
+                    transactions.putIfAbsent(transaction.getId(), transaction);
+                }
+            }
+        }
+        return new ArrayList<>(transactions.values());
+    }
+}
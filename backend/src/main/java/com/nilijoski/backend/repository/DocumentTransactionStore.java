@@ -0,0 +1,112 @@
+package com.nilijoski.backend.repository;
+
+import com.nilijoski.backend.model.Transaction;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Default layout: one document per transaction in the {@code transactions} collection.
+ */
+@Repository
+@Qualifier(TransactionStore.HOT)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "banking.transactions.layout", havingValue = "document", matchIfMissing = true)
+public class DocumentTransactionStore implements TransactionStore {
+
+    private final TransactionRepository transactionRepository;
+    private final MongoTemplate mongoTemplate;
+
+    // Unique, so that even two attempts running at once cannot both store their transaction
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(Transaction.class)
+                .ensureIndex(new Index().on("idempotencyKey", Sort.Direction.ASC).unique().sparse());
+    }
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        return transactionRepository.save(transaction);
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        return transactionRepository.findById(id);
+    }
+
+    @Override
+    public List<Transaction> findByIds(Collection<String> ids) {
+        return transactionRepository.findAllById(ids);
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return transactionRepository.findAll();
+    }
+
+    @Override
+    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        return transactionRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
+    @Override
+    public List<Transaction> findByFromIban(String fromIban) {
+        return transactionRepository.findByFromIban(fromIban);
+    }
+
+    @Override
+    public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+        return transactionRepository.findByFromIbanOrToIban(fromIban, toIban);
+    }
+
+    @Override
+    public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+        return transactionRepository.findByFromAccountNumberOrToAccountNumber(fromAccountNumber, toAccountNumber);
+    }
+
+    @Override
+    public HistoryVersion historyVersionByIban(String iban) {
+        // Counted first: an insert between the two reads then still shows up in the next count
+        long count = transactionRepository.countByFromIbanOrToIban(iban, iban);
+        return new HistoryVersion(count, transactionRepository.findFirstByFromIbanOrToIbanOrderByIdDesc(iban, iban)
+                .map(Transaction::getId)
+                .orElse(null));
+    }
+
+    @Override
+    public HistoryVersion historyVersionByAccountNumber(String accountNumber) {
+        long count = transactionRepository.countByFromAccountNumberOrToAccountNumber(accountNumber, accountNumber);
+        return new HistoryVersion(count, transactionRepository
+                .findFirstByFromAccountNumberOrToAccountNumberOrderByIdDesc(accountNumber, accountNumber)
+                .map(Transaction::getId)
+                .orElse(null));
+    }
+
+    @Override
+    public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+        return transactionRepository.findByTransactionDateBefore(cutoff,
+                PageRequest.of(0, limit, Sort.by("transactionDate")));
+    }
+
+    @Override
+    public Stream<Transaction> streamSince(LocalDateTime from) {
+        return transactionRepository.streamByTransactionDateGreaterThanEqual(from);
+    }
+
+    @Override
+    public void deleteAll(Collection<Transaction> transactions) {
+        transactionRepository.deleteAll(transactions);
+    }
+}
@@ -1,10 +1,14 @@
 package com.nilijoski.backend.repository;
 
 import com.nilijoski.backend.model.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends MongoRepository<Transaction, String> {
@@ -13,5 +17,20 @@ public interface TransactionRepository extends MongoRepository<Transaction, Stri
 
     List<Transaction> findByFromIban(String fromIban);
 
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
     List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban);
+
+    long countByFromIbanOrToIban(String fromIban, String toIban);
+
+    Optional<Transaction> findFirstByFromIbanOrToIbanOrderByIdDesc(String fromIban, String toIban);
+
+    long countByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber);
+
+    Optional<Transaction> findFirstByFromAccountNumberOrToAccountNumberOrderByIdDesc(String fromAccountNumber,
+                                                                                   String toAccountNumber);
+
+    List<Transaction> findByTransactionDateBefore(LocalDateTime cutoff, Pageable pageable);
+
+    Stream<Transaction> streamByTransactionDateGreaterThanEqual(LocalDateTime from);
 }
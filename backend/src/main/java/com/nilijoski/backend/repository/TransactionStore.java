@@ -0,0 +1,93 @@
+package com.nilijoski.backend.repository;
+
+import com.nilijoski.backend.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage-layout independent access to transactions.
+ * <p>
+ * {@code TransactionService} only talks to this interface, so the physical layout
+ * (one document per event or time-bucketed documents per account) can be switched
+ * with {@code banking.transactions.layout} without touching the service.
+ */
+public interface TransactionStore {
+
+    /**
+     * Qualifier of the layout store holding the hot (not yet archived) transactions.
+     */
+    String HOT = "hotTransactionStore";
+
+    /**
+     * Version of an account's history for conditional requests: how many transactions it has
+     * and the newest id. Every insert changes it, in whatever order concurrent transfers land.
+     */
+    record HistoryVersion(long transactions, String newestId) {
+
+        static HistoryVersion of(List<Transaction> transactions) {
+            return new HistoryVersion(transactions.size(), transactions.stream()
+                    .map(Transaction::getId)
+                    .max(Comparator.naturalOrder())
+                    .orElse(null));
+        }
+    }
+
+    Transaction save(Transaction transaction);
+
+    Optional<Transaction> findById(String id);
+
+    /**
+     * Those of the transactions with the given ids that exist, in no particular order.
+     */
+    default List<Transaction> findByIds(Collection<String> ids) {
+        return ids.stream().map(this::findById).flatMap(Optional::stream).toList();
+    }
+
+    List<Transaction> findAll();
+
+    /**
+     * The hot transaction stored under {@code idempotencyKey}, if any; keys are only looked up
+     * while their transfer may still be retried, which is long before it is archived.
+     */
+    default Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        return findAll().stream().filter(transaction -> idempotencyKey.equals(transaction.getIdempotencyKey())).findFirst();
+    }
+
+    List<Transaction> findByFromIban(String fromIban);
+
+    List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban);
+
+    List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber);
+
+    /**
+     * Version of the history {@link #findByFromIbanOrToIban} returns for the IBAN, read from the
+     * store itself so that every node derives the same one.
+     */
+    default HistoryVersion historyVersionByIban(String iban) {
+        return HistoryVersion.of(findByFromIbanOrToIban(iban, iban));
+    }
+
+    default HistoryVersion historyVersionByAccountNumber(String accountNumber) {
+        return HistoryVersion.of(findByFromAccountNumberOrToAccountNumber(accountNumber, accountNumber));
+    }
+
+    /**
+     * Oldest transactions dated before {@code cutoff}, at most {@code limit} of them. Layouts may
+     * order the transactions of one day loosely, as long as older days come first.
+     */
+    List<Transaction> findOlderThan(LocalDateTime cutoff, int limit);
+
+    /**
+     * Transactions dated at or after {@code from}, read as they are consumed; close the stream when done.
+     */
+    default Stream<Transaction> streamSince(LocalDateTime from) {
+        return findAll().stream().filter(transaction -> !transaction.getTransactionDate().isBefore(from));
+    }
+
+    void deleteAll(Collection<Transaction> transactions);
+}
@@ -0,0 +1,50 @@
+package com.nilijoski.backend.repository;
+
+import com.nilijoski.backend.model.User;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Unique indexes on the {@code users} collection. They are the final guard against duplicate
+ * usernames, account numbers and IBANs, also for bulk inserts that skip the per-user checks.
+ */
+@Slf4j
+@Component
+public class UserIndexes {
+
+    static final List<String> UNIQUE_FIELDS = List.of("username", "accountNumber", "iban");
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Whether {@code e} was raised by the unique index on {@code field}, judged by the index name
+     * ({@code username_1}) in the server's message.
+     */
+    public static boolean violates(DuplicateKeyException e, String field) {
+        return e.getMessage() != null && e.getMessage().contains("index: " + field + "_1");
+    }
+
+    public UserIndexes(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        var indexOps = mongoTemplate.indexOps(User.class);
+        for (String field : UNIQUE_FIELDS) {
+            try {
+                indexOps.ensureIndex(new Index().on(field, Sort.Direction.ASC).unique());
+            } catch (RuntimeException e) {
+                // Existing duplicates (e.g. from the old random account numbers) have to be fixed by hand
+                log.warn("Could not create unique index on users.{}: {}", field, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nilijoski.backend.security;
+
+import com.nilijoski.backend.model.Transaction;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.security.Principal;
+
+/**
+ * Checks the caller's access token claims against the account a request acts on.
+ * <p>
+ * Controllers receive the {@link Principal} the token filters set up. Without one the request
+ * was let through unauthenticated, which only happens with
+ * {@code banking.security.tokens.required=false}; such requests are not checked. Any other
+ * principal owns nothing.
+ */
+public final class Caller {
+
+    private static final String OPERATOR_AUTHORITY = "ROLE_" + SecurityConfig.OPERATOR_ROLE;
+
+    private Caller() {
+    }
+
+    /**
+     * The claims of the caller's access token, or {@code null} for an unauthenticated request.
+     */
+    public static TokenService.TokenClaims claims(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof TokenService.TokenClaims claims) {
+            return claims;
+        }
+        return null;
+    }
+
+    public static boolean isUser(Principal principal, String userId) {
+        if (principal == null) {
+            return true;
+        }
+        TokenService.TokenClaims claims = claims(principal);
+        return claims != null && claims.sub().equals(userId);
+    }
+
+    public static boolean holdsIban(Principal principal, String iban) {
+        if (principal == null) {
+            return true;
+        }
+        TokenService.TokenClaims claims = claims(principal);
+        return claims != null && claims.iban().equals(iban);
+    }
+
+    public static boolean isOperator(Principal principal) {
+        if (principal == null) {
+            return true;
+        }
+        return principal instanceof Authentication authentication && authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(OPERATOR_AUTHORITY::equals);
+    }
+
+    /**
+     * Whether the caller sent or received the transaction.
+     */
+    public static boolean isParty(Principal principal, Transaction transaction) {
+        return holdsIban(principal, transaction.getFromIban()) || holdsIban(principal, transaction.getToIban());
+    }
+
+    public static boolean holdsAccount(Principal principal, String accountNumber) {
+        if (principal == null) {
+            return true;
+        }
+        TokenService.TokenClaims claims = claims(principal);
+        return claims != null && claims.acc().equals(accountNumber);
+    }
+}
@@ -0,0 +1,187 @@
+package com.nilijoski.backend.security;
+
+import com.nilijoski.backend.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs BCrypt on a small, bounded pool instead of the request threads.
+ * <p>
+ * A BCrypt round costs tens of milliseconds of CPU. With the pool limited to part of the
+ * cores and a short queue in front of it, a burst of logins can only ever occupy those
+ * threads; everything beyond the queue is rejected immediately with
+ * {@link PasswordHashingUnavailableException} instead of piling up behind it.
+ */
+@Component
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Timer encodeTimer;
+    private final Timer verifyTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(@Value("${banking.security.bcrypt.strength:10}") int strength,
+                          @Value("${banking.security.bcrypt.threads:0}") int threads,
+                          @Value("${banking.security.bcrypt.queue-capacity:64}") int queueCapacity,
+                          @Value("${banking.security.bcrypt.timeout:5s}") Duration timeout,
+                          MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().daemon().name("bcrypt-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.verifyTimer = hashTimer(meterRegistry, "verify");
+        this.rejected = Counter.builder("banking.password.hash.rejected")
+                .description("Hash requests rejected because the BCrypt queue was full or too slow")
+                .register(meterRegistry);
+        Gauge.builder("banking.password.hash.queue", executor, pool -> pool.getQueue().size())
+                .description("Hash requests waiting for a BCrypt thread")
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("banking.password.hash")
+                .tag("operation", operation)
+                .description("BCrypt latency including queueing")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    public String encode(String rawPassword) {
+        return run(encodeTimer, () -> encoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(verifyTimer, () -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes a batch for bulk jobs, in parallel on the same pool.
+     * <p>
+     * The batch keeps at most one task per pool thread in flight, so it leaves the queue free
+     * for interactive logins. If the queue is full anyway, the batch waits instead of failing.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        String[] hashes = new String[rawPasswords.size()];
+        Deque<Pending> inFlight = new ArrayDeque<>();
+        int window = executor.getCorePoolSize();
+        try {
+            for (int i = 0; i < rawPasswords.size(); i++) {
+                String rawPassword = rawPasswords.get(i);
+                Callable<String> task = () -> {
+                    long start = System.nanoTime();
+                    try {
+                        return encoder.encode(rawPassword);
+                    } finally {
+                        encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                };
+                while (true) {
+                    if (inFlight.size() >= window) {
+                        complete(inFlight.poll(), hashes);
+                    }
+                    try {
+                        inFlight.add(new Pending(i, executor.submit(task)));
+                        break;
+                    } catch (RejectedExecutionException e) {
+                        if (inFlight.isEmpty()) {
+                            Thread.sleep(10);
+                        } else {
+                            complete(inFlight.poll(), hashes);
+                        }
+                    }
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                complete(inFlight.poll(), hashes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.forEach(pending -> pending.future().cancel(true));
+            throw new PasswordHashingUnavailableException("Password hashing interrupted");
+        }
+        return Arrays.asList(hashes);
+    }
+
+    private record Pending(int index, Future<String> future) {
+    }
+
+    private static void complete(Pending pending, String[] hashes) throws InterruptedException {
+        try {
+            hashes[pending.index()] = pending.future().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * True if the hash was created with a lower cost than currently configured.
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return encoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Callable<T> task) {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingUnavailableException("Too many concurrent password checks, try again shortly");
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingUnavailableException("Password check timed out, try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PasswordHashingUnavailableException("Password check interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
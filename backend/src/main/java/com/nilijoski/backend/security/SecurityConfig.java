@@ -1,43 +1,114 @@
 package com.nilijoski.backend.security;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.capture.TrafficCaptureFilter;
+import com.nilijoski.backend.capture.TrafficRecorder;
+import com.nilijoski.backend.concurrency.AdaptiveLimiter;
+import com.nilijoski.backend.concurrency.AdmissionFilter;
+import com.nilijoski.backend.concurrency.BulkheadFilter;
+import com.nilijoski.backend.concurrency.Bulkheads;
+import com.nilijoski.backend.diagnostics.CorrelationId;
+import com.nilijoski.backend.diagnostics.CorrelationIdFilter;
+import com.nilijoski.backend.ratelimit.RateLimitFilter;
+import com.nilijoski.backend.ratelimit.RateLimiter;
+import jakarta.servlet.Filter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.session.DisableEncodeUrlFilter;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.List;
+import java.util.Set;
 
 @Configuration
 @EnableWebSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfig {
 
+    public static final String ACCESS_TOKEN_HEADER = "X-Access-Token";
+    public static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+    public static final String[] PUBLIC_ENDPOINTS = {"/api/users/login", "/api/users/register",
+            "/api/users/token/refresh", "/api/users/logout", "/api/users/availability/*"};
+    public static final String OPERATOR_ROLE = "OPERATOR";
+    // Checked regardless of banking.security.tokens.required
+    public static final String[] OPERATOR_ENDPOINTS = {"/api/users", "/api/transactions", "/api/users/import",
+            "/api/users/import/**"};
+
     @Bean
-    SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                            TokenService tokenService,
+                                            ObjectProvider<RateLimiter> rateLimiter,
+                                            ObjectProvider<AdaptiveLimiter> adaptiveLimiter,
+                                            ObjectProvider<Bulkheads> bulkheads,
+                                            ObjectProvider<TrafficRecorder> trafficRecorder,
+                                            ObjectMapper objectMapper,
+                                            @Value("${banking.security.tokens.required:true}") boolean tokensRequired,
+                                            @Value("${banking.security.operators:}") Set<String> operators)
+            throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
-                .authorizeHttpRequests(auth -> auth
-                        .anyRequest().permitAll()
-                );
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                // Not beans on purpose, Spring Boot would register them a second time as servlet filters
+                .addFilterBefore(new CorrelationIdFilter(), DisableEncodeUrlFilter.class)
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService, operators),
+                        UsernamePasswordAuthenticationFilter.class)
+                .authorizeHttpRequests(auth -> {
+                    auth.requestMatchers(OPERATOR_ENDPOINTS).hasRole(OPERATOR_ROLE);
+                    auth.requestMatchers(PUBLIC_ENDPOINTS).permitAll();
+                    if (tokensRequired) {
+                        auth.requestMatchers("/api/**").authenticated();
+                    }
+                    auth.anyRequest().permitAll();
+                });
+
+        // Ahead of authentication, so requests rejected there are captured as well
+        trafficRecorder.ifAvailable(recorder -> http.addFilterBefore(new TrafficCaptureFilter(recorder, objectMapper),
+                TokenAuthenticationFilter.class));
+        rateLimiter.ifAvailable(limiter ->
+                http.addFilterAfter(new RateLimitFilter(limiter), TokenAuthenticationFilter.class));
+        Class<? extends Filter> limitedBy = rateLimiter.getIfAvailable() == null
+                ? TokenAuthenticationFilter.class : RateLimitFilter.class;
+        adaptiveLimiter.ifAvailable(limiter -> http.addFilterAfter(new AdmissionFilter(limiter), limitedBy));
+        Class<? extends Filter> admittedBy = adaptiveLimiter.getIfAvailable() == null
+                ? limitedBy : AdmissionFilter.class;
+        bulkheads.ifAvailable(groups -> http.addFilterAfter(new BulkheadFilter(groups), admittedBy));
 
         return http.build();
     }
 
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", corsConfiguration());
+        return source;
+    }
+
+    /**
+     * Shared with the reactive stack.
+     */
+    public static CorsConfiguration corsConfiguration() {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOrigins(List.of("*"));
         config.setAllowedMethods(List.of("GET","POST","PUT","DELETE","OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-
-        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-        source.registerCorsConfiguration("/**", config);
-        return source;
+        config.setExposedHeaders(List.of(ACCESS_TOKEN_HEADER, REFRESH_TOKEN_HEADER, CorrelationId.HEADER));
+        return config;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package com.nilijoski.backend.security;
+
+import com.nilijoski.backend.exception.InvalidTokenException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <access token>}.
+ * <p>
+ * Verification is purely local (see {@link TokenService}). Requests without a token pass
+ * through unauthenticated and are left to the authorization rules; a token that is present
+ * but invalid is rejected with 401 straight away. Users listed as operators get the
+ * {@value SecurityConfig#OPERATOR_ROLE} role.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private static final List<GrantedAuthority> OPERATOR_AUTHORITIES =
+            AuthorityUtils.createAuthorityList("ROLE_" + SecurityConfig.OPERATOR_ROLE);
+
+    private final TokenService tokenService;
+    private final Set<String> operators;
+
+    public TokenAuthenticationFilter(TokenService tokenService) {
+        this(tokenService, Set.of());
+    }
+
+    /**
+     * @param operators ids of the users with the operator role
+     */
+    public TokenAuthenticationFilter(TokenService tokenService, Set<String> operators) {
+        this.tokenService = tokenService;
+        this.operators = operators;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        TokenService.TokenClaims claims;
+        try {
+            claims = tokenService.verify(header.substring(BEARER.length()), TokenService.TokenType.ACCESS);
+        } catch (InvalidTokenException e) {
+            SecurityContextHolder.clearContext();
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+            return;
+        }
+
+        var authentication = new UsernamePasswordAuthenticationToken(claims, null,
+                operators.contains(claims.sub()) ? OPERATOR_AUTHORITIES : AuthorityUtils.NO_AUTHORITIES);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        chain.doFilter(request, response);
+    }
+}
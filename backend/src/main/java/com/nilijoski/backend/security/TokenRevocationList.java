@@ -0,0 +1,38 @@
+package com.nilijoski.backend.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of revoked tokens that have not expired yet.
+ * <p>
+ * An entry is only needed until the token would have expired on its own, so the list
+ * stays as small as the number of logouts and refreshes within one token lifetime.
+ */
+@Component
+public class TokenRevocationList {
+
+    private final Map<String, Long> expiryByTokenId = new ConcurrentHashMap<>();
+
+    public void revoke(String tokenId, long expiresAtEpochSecond) {
+        expiryByTokenId.put(tokenId, expiresAtEpochSecond);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return expiryByTokenId.containsKey(tokenId);
+    }
+
+    public int size() {
+        return expiryByTokenId.size();
+    }
+
+    @Scheduled(fixedDelayString = "${banking.security.tokens.revocation-cleanup-interval:1m}")
+    public void removeExpired() {
+        long now = Instant.now().getEpochSecond();
+        expiryByTokenId.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+}
@@ -0,0 +1,181 @@
+package com.nilijoski.backend.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.exception.InvalidTokenException;
+import com.nilijoski.backend.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed JWTs.
+ * <p>
+ * Access tokens carry everything a request needs (user id, account number, IBAN), so
+ * verifying one is a MAC over a few hundred bytes plus a map lookup in the in-memory
+ * {@link TokenRevocationList}: no database or network round trip. Refresh tokens live
+ * longer and are rotated on every use.
+ * <p>
+ * All nodes must share {@code banking.security.tokens.secret}. Without it a random key is
+ * generated, which invalidates tokens on restart and only works on a single node.
+ */
+@Slf4j
+@Service
+public class TokenService {
+
+    private static final String HMAC = "HmacSHA256";
+    private static final String HEADER = base64("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final TokenRevocationList revocationList;
+    private final ObjectMapper objectMapper;
+    private final Clock clock = Clock.systemUTC();
+
+    public TokenService(@Value("${banking.security.tokens.secret:}") String secret,
+                        @Value("${banking.security.tokens.access-ttl:15m}") Duration accessTtl,
+                        @Value("${banking.security.tokens.refresh-ttl:7d}") Duration refreshTtl,
+                        TokenRevocationList revocationList,
+                        ObjectMapper objectMapper) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("banking.security.tokens.secret is not set, using a random key; tokens will not survive a restart");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret);
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.revocationList = revocationList;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum TokenType { ACCESS, REFRESH }
+
+    /**
+     * Claims of a verified token; also serves as the authenticated principal.
+     */
+    public record TokenClaims(String jti, TokenType typ, String sub, String acc, String iban, long exp) {
+    }
+
+    public record TokenPair(String accessToken, String refreshToken, long expiresIn) {
+    }
+
+    public TokenPair issue(User user) {
+        return issue(user.getId(), user.getAccountNumber(), user.getIban());
+    }
+
+    private TokenPair issue(String userId, String accountNumber, String iban) {
+        long now = clock.instant().getEpochSecond();
+        String access = sign(new TokenClaims(new ObjectId().toHexString(), TokenType.ACCESS, userId, accountNumber, iban,
+                now + accessTtl.toSeconds()));
+        String refresh = sign(new TokenClaims(new ObjectId().toHexString(), TokenType.REFRESH, userId, accountNumber, iban,
+                now + refreshTtl.toSeconds()));
+        return new TokenPair(access, refresh, accessTtl.toSeconds());
+    }
+
+    /**
+     * Exchanges a refresh token for a new pair and revokes the old refresh token.
+     */
+    public TokenPair refresh(String refreshToken) {
+        TokenClaims claims = verify(refreshToken, TokenType.REFRESH);
+        revocationList.revoke(claims.jti(), claims.exp());
+        return issue(claims.sub(), claims.acc(), claims.iban());
+    }
+
+    public void revoke(String token) {
+        try {
+            TokenClaims claims = parse(token);
+            revocationList.revoke(claims.jti(), claims.exp());
+        } catch (InvalidTokenException e) {
+            // nothing to revoke
+        }
+    }
+
+    public TokenClaims verify(String token, TokenType expectedType) {
+        TokenClaims claims = parse(token);
+        if (claims.typ() != expectedType) {
+            throw new InvalidTokenException("Wrong token type");
+        }
+        if (claims.exp() <= clock.instant().getEpochSecond()) {
+            throw new InvalidTokenException("Token expired");
+        }
+        if (revocationList.isRevoked(claims.jti())) {
+            throw new InvalidTokenException("Token revoked");
+        }
+        return claims;
+    }
+
+    private TokenClaims parse(String token) {
+        if (token == null) {
+            throw new InvalidTokenException("Missing token");
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot || !token.startsWith(HEADER + ".")) {
+            throw new InvalidTokenException("Malformed token");
+        }
+
+        byte[] expected = mac(token.substring(0, lastDot));
+        byte[] actual;
+        try {
+            actual = DECODER.decode(token.substring(lastDot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token");
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new InvalidTokenException("Invalid signature");
+        }
+
+        try {
+            return objectMapper.readValue(DECODER.decode(token.substring(firstDot + 1, lastDot)), TokenClaims.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Malformed token");
+        }
+    }
+
+    private String sign(TokenClaims claims) {
+        try {
+            String unsigned = HEADER + "." + base64(objectMapper.writeValueAsBytes(claims));
+            return unsigned + "." + base64(mac(unsigned));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize token claims", e);
+        }
+    }
+
+    private byte[] mac(String data) {
+        return macs.get().doFinal(data.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static String base64(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
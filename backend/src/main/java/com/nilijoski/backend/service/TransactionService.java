@@ -1,54 +1,124 @@
 package com.nilijoski.backend.service;
 
+import com.nilijoski.backend.diagnostics.CorrelationId;
+import com.nilijoski.backend.diagnostics.TransferEvent;
 import com.nilijoski.backend.exception.*;
+import com.nilijoski.backend.metrics.StageTimers;
 import com.nilijoski.backend.model.Transaction;
 import com.nilijoski.backend.model.User;
-import com.nilijoski.backend.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
+import com.nilijoski.backend.outbox.Outbox;
+import com.nilijoski.backend.payee.PayeeVerificationService;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.velocity.VelocityRules;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
 public class TransactionService {
 
-    private final TransactionRepository transactionRepository;
+    static final String TRANSFER_STAGE_METER = "banking.transfer.stage";
+    static final String VALIDATION = "validation";
+    static final String SENDER_LOOKUP = "sender_lookup";
+    static final String RECIPIENT_LOOKUP = "recipient_lookup";
+    static final String VELOCITY = "velocity";
+    static final String WITHDRAW = "withdraw";
+    static final String DEPOSIT = "deposit";
+    static final String INSERT = "insert";
+
+    private final TransactionStore transactionStore;
     private final UserService userService;
+    private final Outbox outbox;
+    private final VelocityRules velocityRules;
+    private final StageTimers stages;
     private static final String COMPLETED = "COMPLETED";
-    
-    @Transactional
-    public Transaction transfer(String fromIban, String toIban, String toFirstName, String toLastName, BigDecimal amount, String description) {
-        // Validate IBAN format
-        if (!isValidIban(toIban)) {
-            throw new InvalidIbanException("Invalid IBAN format");
-        }
 
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new InvalidTransferAmountException("Transfer amount must be positive");
-        }
+    public TransactionService(TransactionStore transactionStore, UserService userService, MeterRegistry meterRegistry) {
+        this(transactionStore, userService, meterRegistry, (Outbox) null, (VelocityRules) null);
+    }
 
-        if (fromIban.equals(toIban)) {
-            throw new SameAccountTransferException("Cannot transfer money to your own account");
-        }
+    // Explicit for AOT processing, which does not pick between several public constructors by itself
+    @Autowired
+    public TransactionService(TransactionStore transactionStore, UserService userService, MeterRegistry meterRegistry,
+                              ObjectProvider<Outbox> outbox, ObjectProvider<VelocityRules> velocityRules) {
+        this(transactionStore, userService, meterRegistry, outbox.getIfAvailable(), velocityRules.getIfAvailable());
+    }
 
-        User fromUser;
-        User toUser;
+    TransactionService(TransactionStore transactionStore, UserService userService, MeterRegistry meterRegistry,
+                       Outbox outbox, VelocityRules velocityRules) {
+        this.transactionStore = transactionStore;
+        this.userService = userService;
+        this.outbox = outbox;
+        this.velocityRules = velocityRules;
+        this.stages = new StageTimers(meterRegistry, TRANSFER_STAGE_METER, "Time spent in each step of a transfer",
+                VALIDATION, SENDER_LOOKUP, RECIPIENT_LOOKUP, VELOCITY, WITHDRAW, DEPOSIT, INSERT);
+    }
+    
+    @Transactional
+    public Transaction transfer(String fromIban, String toIban, String toFirstName, String toLastName, BigDecimal amount, String description) {
+        return transfer(fromIban, toIban, toFirstName, toLastName, amount, description, null);
+    }
 
+    /**
+     * Like {@link #transfer(String, String, String, String, BigDecimal, String)}, but returns the
+     * transaction already stored under {@code idempotencyKey} instead of moving the money again.
+     */
+    @Transactional
+    public Transaction transfer(String fromIban, String toIban, String toFirstName, String toLastName, BigDecimal amount,
+                                String description, String idempotencyKey) {
+        TransferEvent event = new TransferEvent();
+        event.begin();
+        String outcome = null;
         try {
-            fromUser = userService.getUserByIban(fromIban);
-        } catch (Exception e) {
-            throw new AccountNotFoundException("Your account not found");
+            Transaction transaction = transferStages(fromIban, toIban, toFirstName, toLastName, amount, description,
+                    idempotencyKey);
+            outcome = "committed";
+            return transaction;
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.correlationId = CorrelationId.current();
+                event.outcome = outcome;
+                event.commit();
+            }
         }
+    }
 
-        try {
-            toUser = userService.getUserByIban(toIban);
-        } catch (Exception e) {
-            throw new InvalidIbanException("Recipient IBAN not found. Please check the IBAN and try again.");
+    private Transaction transferStages(String fromIban, String toIban, String toFirstName, String toLastName,
+                                       BigDecimal amount, String description, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<Transaction> earlier = transactionStore.findByIdempotencyKey(idempotencyKey);
+            if (earlier.isPresent()) {
+                return earlier.get();
+            }
         }
+        stages.record(VALIDATION, () -> validate(fromIban, toIban, amount));
+
+        User fromUser = stages.record(SENDER_LOOKUP, () -> {
+            try {
+                return userService.getUserByIban(fromIban);
+            } catch (Exception e) {
+                throw new AccountNotFoundException("Your account not found");
+            }
+        });
+
+        User toUser = stages.record(RECIPIENT_LOOKUP, () -> {
+            try {
+                return userService.getUserByIban(toIban);
+            } catch (Exception e) {
+                throw new InvalidIbanException("Recipient IBAN not found. Please check the IBAN and try again.");
+            }
+        });
 
         Transaction transaction = new Transaction();
         transaction.setFromIban(fromIban);
@@ -64,24 +134,59 @@ public class TransactionService {
         transaction.setDescription(description);
         transaction.setTransactionDate(LocalDateTime.now());
         transaction.setStatus("PENDING");
+        transaction.setIdempotencyKey(idempotencyKey);
 
-        if (!toUser.getFirstName().equalsIgnoreCase(toFirstName) ||
-            !toUser.getLastName().equalsIgnoreCase(toLastName)) {
-            transaction.setWarning("Name mismatch: Account holder is " + toUser.getFirstName() + " " + toUser.getLastName());
+        transaction.setWarning(PayeeVerificationService.transferWarning(toUser, toFirstName, toLastName));
+
+        if (velocityRules == null) {
+            return settle(transaction, fromUser, toUser, amount);
+        }
+        VelocityRules.Screening screening = stages.record(VELOCITY, () -> velocityRules.screen(fromUser, toIban, amount));
+        if (screening.warning() != null) {
+            transaction.setWarning(transaction.getWarning() == null
+                    ? screening.warning()
+                    : transaction.getWarning() + "; " + screening.warning());
+        }
+        try {
+            settle(transaction, fromUser, toUser, amount);
+        } catch (RuntimeException e) {
+            screening.cancel();
+            throw e;
         }
+        screening.complete();
+        return transaction;
+    }
 
-        userService.withdraw(fromUser.getAccountNumber(), amount);
+    private Transaction settle(Transaction transaction, User fromUser, User toUser, BigDecimal amount) {
+        stages.record(WITHDRAW, () -> userService.withdraw(fromUser.getAccountNumber(), amount));
 
-        userService.deposit(toUser.getAccountNumber(), amount);
+        stages.record(DEPOSIT, () -> userService.deposit(toUser.getAccountNumber(), amount));
 
         transaction.setStatus(COMPLETED);
-        transactionRepository.save(transaction);
+        stages.record(INSERT, () -> outbox == null
+                ? transactionStore.save(transaction)
+                : outbox.save(transaction, transactionStore::save));
 
         return transaction;
     }
 
+    private static void validate(String fromIban, String toIban, BigDecimal amount) {
+        // Validate IBAN format
+        if (!isValidIban(toIban)) {
+            throw new InvalidIbanException("Invalid IBAN format");
+        }
+
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new InvalidTransferAmountException("Transfer amount must be positive");
+        }
+
+        if (fromIban.equals(toIban)) {
+            throw new SameAccountTransferException("Cannot transfer money to your own account");
+        }
+    }
+
     public List<String> getRecipientIbanByUserIban(String userIban) {
-        List<Transaction> sentTransactions = transactionRepository.findByFromIban(userIban);
+        List<Transaction> sentTransactions = transactionStore.findByFromIban(userIban);
         return sentTransactions.stream()
                 .map(Transaction::getToIban)
                 .distinct()
@@ -95,7 +200,7 @@ public class TransactionService {
         transaction.setTransactionType("DEPOSIT");
         transaction.setStatus(COMPLETED);
         transaction.setTransactionDate(LocalDateTime.now());
-        return transactionRepository.save(transaction);
+        return transactionStore.save(transaction);
     }
     
     public Transaction createWithdrawalTransaction(String accountNumber, BigDecimal amount) {
@@ -105,27 +210,35 @@ public class TransactionService {
         transaction.setTransactionType("WITHDRAWAL");
         transaction.setStatus(COMPLETED);
         transaction.setTransactionDate(LocalDateTime.now());
-        return transactionRepository.save(transaction);
+        return transactionStore.save(transaction);
     }
     
     public List<Transaction> getAllTransactions() {
-        return transactionRepository.findAll();
+        return transactionStore.findAll();
     }
     
     public Transaction getTransactionById(String id) {
-        return transactionRepository.findById(id)
+        return transactionStore.findById(id)
                 .orElseThrow(() -> new TransactionNotFoundException("Transaction not found with id: " + id));
     }
     
     public List<Transaction> getTransactionsByAccountNumber(String accountNumber) {
-        return transactionRepository.findByFromAccountNumberOrToAccountNumber(accountNumber, accountNumber);
+        return transactionStore.findByFromAccountNumberOrToAccountNumber(accountNumber, accountNumber);
     }
 
     public List<Transaction> getTransactionsByIban(String iban) {
-        return transactionRepository.findByFromIbanOrToIban(iban, iban);
+        return transactionStore.findByFromIbanOrToIban(iban, iban);
+    }
+
+    public TransactionStore.HistoryVersion getHistoryVersionByIban(String iban) {
+        return transactionStore.historyVersionByIban(iban);
+    }
+
+    public TransactionStore.HistoryVersion getHistoryVersionByAccountNumber(String accountNumber) {
+        return transactionStore.historyVersionByAccountNumber(accountNumber);
     }
 
-    private boolean isValidIban(String iban) {
+    public static boolean isValidIban(String iban) {
         if (iban == null || iban.isEmpty()) {
             return false;
         }
@@ -1,64 +1,95 @@
 package com.nilijoski.backend.service;
 
+import com.nilijoski.backend.account.AccountNumberAllocator;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.cache.UsernameFilter;
 import com.nilijoski.backend.exception.*;
 import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.repository.UserIndexes;
 import com.nilijoski.backend.repository.UserRepository;
+import com.nilijoski.backend.security.PasswordHasher;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
-import java.util.Random;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
-    private Random random = new Random();
+    private final UserCache userCache;
+    private final PasswordHasher passwordHasher;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final UsernameFilter usernameFilter;
     private static final String USR_NOT_FOUND = "User not found";
+    // An allocated number can only be taken by an account created outside the allocator, so rarely twice in a row
+    private static final int ACCOUNT_ATTEMPTS = 3;
 
     public User register(String username, String password, String firstName, String lastName) {
-        if (userRepository.existsByUsername(username)) {
+        // Checked up front to fail before the expensive hash; the unique index settles races
+        if (!isUsernameAvailable(username)) {
             throw new UsernameExistsException("Username already exists");
         }
 
         // Create user with account details
         User user = new User();
         user.setUsername(username);
-        user.setPassword(passwordEncoder.encode(password));
+        user.setPassword(passwordHasher.encode(password));
         user.setFirstName(firstName);
         user.setLastName(lastName);
-        user.setAccountNumber(generateAccountNumber());
-        user.setIban(generateIban());
+        PayeeNames.apply(user);
         user.setBalance(new BigDecimal("1000.00"));
         user.setStatus("ACTIVE");
         user.setCreatedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
 
-        return userRepository.save(user);
+        User saved = null;
+        for (int attempt = 1; saved == null; attempt++) {
+            AccountNumberAllocator.AccountIdentifiers account = accountNumberAllocator.next();
+            user.setAccountNumber(account.accountNumber());
+            user.setIban(account.iban());
+            try {
+                saved = userRepository.save(user);
+            } catch (DuplicateKeyException e) {
+                if (UserIndexes.violates(e, "username")) {
+                    throw new UsernameExistsException("Username already exists");
+                }
+                if (attempt == ACCOUNT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        usernameFilter.add(username);
+        return saved;
     }
 
-    private String generateAccountNumber() {
-        return String.format("%010d", random.nextInt(1000000000));
+    public boolean isUsernameAvailable(String username) {
+        return !usernameFilter.mightContain(username) || !userRepository.existsByUsername(username);
     }
 
-    private String generateIban() {
-        return "DE" + String.format("%020d", random.nextLong() & Long.MAX_VALUE).substring(0, 20);
-    }
-    
     public User login(String username, String password) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new InvalidLoginException("Invalid username or password"));
 
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        if (!passwordHasher.matches(password, user.getPassword())) {
             throw new InvalidLoginException("Invalid username or password");
         }
 
+        // Rehash with the current cost while the plain password is at hand
+        if (passwordHasher.needsUpgrade(user.getPassword())) {
+            user.setPassword(passwordHasher.encode(password));
+            user.setUpdatedAt(LocalDateTime.now());
+            return saveAndInvalidate(user);
+        }
+
         return user;
     }
     
@@ -72,7 +103,8 @@ public class UserService {
     }
     
     public User getUserByAccountNumber(String accountNumber) {
-        return userRepository.findByAccountNumber(accountNumber)
+        return userCache.getByAccountNumber(accountNumber)
+                .or(() -> cached(() -> userRepository.findByAccountNumber(accountNumber)))
                 .orElseThrow(() -> new AccountNotFoundException("User not found with account number: " + accountNumber));
     }
 
@@ -85,7 +117,7 @@ public class UserService {
         }
 
         user.getSavedRecipientIbans().add(recipientIban);
-        return userRepository.save(user);
+        return saveAndInvalidate(user);
     }
 
     public List<User> getSavedRecipients(String userId) {
@@ -93,7 +125,8 @@ public class UserService {
                 .orElseThrow(() -> new AccountNotFoundException(USR_NOT_FOUND));
 
         return user.getSavedRecipientIbans().stream()
-                .map(iban -> userRepository.findByIban(iban)
+                .map(iban -> userCache.getByIban(iban)
+                        .or(() -> cached(() -> userRepository.findByIban(iban)))
                         .orElse(null))
                 .filter(Objects::nonNull)
                 .toList();
@@ -104,7 +137,7 @@ public class UserService {
                 .orElseThrow(() -> new AccountNotFoundException(USR_NOT_FOUND));
 
         user.getSavedRecipientIbans().remove(recipientIban);
-        return userRepository.save(user);
+        return saveAndInvalidate(user);
     }
 
     public User getAccountByAccountNumber(String accountNumber) {
@@ -113,34 +146,40 @@ public class UserService {
     }
 
     public User getUserByIban(String iban) {
-        return userRepository.findByIban(iban)
+        return userCache.getByIban(iban)
+                .or(() -> cached(() -> userRepository.findByIban(iban)))
                 .orElseThrow(() -> new AccountNotFoundException("User not found with IBAN: " + iban));
     }
 
     public User getUserById(String id) {
-        return userRepository.findById(id)
+        return userCache.getById(id)
+                .or(() -> cached(() -> userRepository.findById(id)))
                 .orElseThrow(() -> new AccountNotFoundException("User not found with id: " + id));
     }
 
+    // Balance changes always start from the stored document, never from the cache
     public void deposit(String accountNumber, BigDecimal amount) {
-        User user = getUserByAccountNumber(accountNumber);
+        User user = userRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountNotFoundException("User not found with account number: " + accountNumber));
         user.setBalance(user.getBalance().add(amount));
         user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        saveAndInvalidate(user);
     }
 
     public void withdraw(String accountNumber, BigDecimal amount) {
-        User user = getUserByAccountNumber(accountNumber);
+        User user = userRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountNotFoundException("User not found with account number: " + accountNumber));
         if (user.getBalance().compareTo(amount) < 0) {
             throw new InvalidTransferAmountException("Insufficient balance");
         }
         user.setBalance(user.getBalance().subtract(amount));
         user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        saveAndInvalidate(user);
     }
 
     public User updateUser(String id, User userDetails) {
-        User user = getUserById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new AccountNotFoundException("User not found with id: " + id));
 
         if (userDetails.getFirstName() != null) {
             user.setFirstName(userDetails.getFirstName());
@@ -148,6 +187,7 @@ public class UserService {
         if (userDetails.getLastName() != null) {
             user.setLastName(userDetails.getLastName());
         }
+        PayeeNames.apply(user);
         if (userDetails.getBalance() != null) {
             user.setBalance(userDetails.getBalance());
         }
@@ -156,10 +196,24 @@ public class UserService {
         }
 
         user.setUpdatedAt(LocalDateTime.now());
-        return userRepository.save(user);
+        return saveAndInvalidate(user);
     }
 
     public void deleteUser(String id) {
         userRepository.deleteById(id);
+        userCache.invalidate(id);
+    }
+
+    private User saveAndInvalidate(User user) {
+        User saved = userRepository.save(user);
+        userCache.invalidate(user.getId());
+        return saved;
+    }
+
+    private Optional<User> cached(Supplier<Optional<User>> read) {
+        long stamp = userCache.stamp();
+        Optional<User> user = read.get();
+        user.ifPresent(found -> userCache.put(found, stamp));
+        return user;
     }
 }
@@ -0,0 +1,297 @@
+package com.nilijoski.backend.standingorder;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nilijoski.backend.model.StandingOrder;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.service.TransactionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Executes due {@link StandingOrder}s without polling Mongo per order.
+ * <p>
+ * Every {@code load-interval} the orders due within {@code horizon} (and any overdue ones, which
+ * is how runs missed during downtime catch up) are read with one query into a
+ * {@link TimingWheel} on the scheduler's own thread. As the wheel expires them they are executed
+ * in batches: one {@code updateMulti} leases the whole batch to this node for
+ * {@code lease}, then each order goes through {@link TransactionService#transfer} and is
+ * advanced to its next occurrence right away, guarded by the lease. Every node loads the same
+ * orders; the lease decides which one runs each of them.
+ * <p>
+ * Orders run one after another, as concurrent transfers from the same account would race on
+ * its balance. A failed transfer (insufficient balance, closed recipient account) counts as the
+ * occurrence and is recorded on the order; a Mongo error ends the batch and leaves the rest
+ * leased, so they are retried once the lease expires. Overdue recurring orders run once per
+ * missed occurrence. A node that dies between a transfer and advancing its order leaves that
+ * occurrence to be run again after the lease expires; its transfer carries the order id and
+ * occurrence number as idempotency key, so the rerun finds the stored transaction instead of
+ * paying twice.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.standing-orders.enabled", havingValue = "true")
+public class StandingOrderScheduler {
+
+    // Time left on a lease below which the remaining orders of a batch are handed back
+    private static final Duration LEASE_MARGIN = Duration.ofSeconds(10);
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionService transactionService;
+    private final Clock clock;
+    private final Duration tick;
+    private final Duration horizon;
+    private final Duration loadInterval;
+    private final Duration lease;
+    private final int batchSize;
+    private final int maxScheduled;
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter leaseLost;
+
+    // Only touched on the scheduler thread
+    private final TimingWheel<String> wheel;
+    private final Set<String> scheduled = new HashSet<>();
+    // Expired before they reached the wheel: overdue orders and those due within the current tick
+    private final List<String> dueNow = new ArrayList<>();
+    private long nextLoadMillis;
+    private boolean loadTruncated;
+
+    private final Queue<StandingOrder> offered = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("standing-orders").daemon().factory());
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public StandingOrderScheduler(MongoTemplate mongoTemplate,
+                                  TransactionService transactionService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${banking.standing-orders.tick:1s}") Duration tick,
+                                  @Value("${banking.standing-orders.horizon:10m}") Duration horizon,
+                                  @Value("${banking.standing-orders.load-interval:1m}") Duration loadInterval,
+                                  @Value("${banking.standing-orders.lease:5m}") Duration lease,
+                                  @Value("${banking.standing-orders.batch-size:200}") int batchSize,
+                                  @Value("${banking.standing-orders.max-scheduled:100000}") int maxScheduled) {
+        this(mongoTemplate, transactionService, meterRegistry, Clock.systemDefaultZone(), tick, horizon, loadInterval,
+                lease, batchSize, maxScheduled);
+    }
+
+    StandingOrderScheduler(MongoTemplate mongoTemplate, TransactionService transactionService, MeterRegistry meterRegistry,
+                           Clock clock, Duration tick, Duration horizon, Duration loadInterval, Duration lease,
+                           int batchSize, int maxScheduled) {
+        if (horizon.compareTo(loadInterval) < 0) {
+            throw new IllegalArgumentException("banking.standing-orders.horizon must not be shorter than load-interval");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.transactionService = transactionService;
+        this.clock = clock;
+        this.tick = tick;
+        this.horizon = horizon;
+        this.loadInterval = loadInterval;
+        this.lease = lease;
+        this.batchSize = batchSize;
+        this.maxScheduled = maxScheduled;
+        this.wheel = new TimingWheel<>(tick.toMillis(), 64, clock.millis());
+        this.completed = runs(meterRegistry, "completed");
+        this.failed = runs(meterRegistry, "failed");
+        this.leaseLost = Counter.builder("banking.standing-orders.lease-lost")
+                .description("Orders whose lease expired before they were advanced")
+                .register(meterRegistry);
+        Gauge.builder("banking.standing-orders.scheduled", scheduled, Set::size)
+                .description("Orders loaded into the timing wheel")
+                .register(meterRegistry);
+    }
+
+    private static Counter runs(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("banking.standing-orders.runs")
+                .tag("outcome", outcome)
+                .description("Executed standing order occurrences")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                log.warn("Standing order tick failed: {}", e.getMessage());
+            }
+        }, 0, tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Not interrupted, which could abort a transfer halfway; the current order finishes and the rest is handed back
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Hands a new or changed order to the scheduler thread, so orders due within the horizon do
+     * not wait for the next load.
+     */
+    public void offer(StandingOrder order) {
+        if (StandingOrder.ACTIVE.equals(order.getStatus()) && order.getNextRunAt() != null) {
+            offered.add(order);
+        }
+    }
+
+    void tick() {
+        long now = clock.millis();
+        if (now >= nextLoadMillis || (loadTruncated && scheduled.size() < maxScheduled / 2)) {
+            load(now);
+            nextLoadMillis = now + loadInterval.toMillis();
+        }
+        StandingOrder order;
+        while ((order = offered.poll()) != null) {
+            long due = millis(order.getNextRunAt());
+            if (due < now + horizon.toMillis()) {
+                schedule(order.getId(), due);
+            }
+        }
+
+        List<String> due = new ArrayList<>(dueNow);
+        dueNow.clear();
+        wheel.advance(now, due::add);
+        for (int from = 0; from < due.size() && running; from += batchSize) {
+            List<String> batch = due.subList(from, Math.min(due.size(), from + batchSize));
+            batch.forEach(scheduled::remove);
+            execute(batch);
+        }
+    }
+
+    private void load(long now) {
+        if (scheduled.size() >= maxScheduled) {
+            return;
+        }
+        LocalDateTime until = LocalDateTime.ofInstant(clock.instant().plus(horizon), clock.getZone());
+        Query query = Query.query(where("status").is(StandingOrder.ACTIVE).and("nextRunAt").lt(until))
+                .with(Sort.by("nextRunAt"))
+                .limit(maxScheduled);
+        query.fields().include("nextRunAt");
+        List<StandingOrder> orders = mongoTemplate.find(query, StandingOrder.class);
+        loadTruncated = orders.size() == maxScheduled;
+        for (StandingOrder order : orders) {
+            schedule(order.getId(), millis(order.getNextRunAt()));
+        }
+    }
+
+    private void schedule(String id, long dueMillis) {
+        if (scheduled.add(id) && !wheel.add(dueMillis, id)) {
+            dueNow.add(id);
+        }
+    }
+
+    private void execute(List<String> ids) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        String owner = UUID.randomUUID().toString();
+        LocalDateTime leaseUntil = now.plus(lease);
+        UpdateResult claimed = mongoTemplate.updateMulti(
+                Query.query(where("_id").in(ids)
+                        .and("status").is(StandingOrder.ACTIVE)
+                        .and("nextRunAt").lte(now)
+                        .orOperator(where("leaseUntil").is(null), where("leaseUntil").lt(now))),
+                new Update().set("leaseOwner", owner).set("leaseUntil", leaseUntil),
+                StandingOrder.class);
+        if (claimed.getModifiedCount() == 0) {
+            return;
+        }
+
+        List<StandingOrder> orders = mongoTemplate.find(
+                Query.query(where("leaseOwner").is(owner)).with(Sort.by("nextRunAt")), StandingOrder.class);
+        LocalDateTime handBackAt = leaseUntil.minus(LEASE_MARGIN);
+        for (int i = 0; i < orders.size(); i++) {
+            if (!running || LocalDateTime.now(clock).isAfter(handBackAt)) {
+                release(owner);
+                return;
+            }
+            try {
+                run(orders.get(i), owner);
+            } catch (DataAccessException e) {
+                log.warn("Standing order batch stopped after {} of {} orders: {}", i, orders.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void run(StandingOrder order, String owner) {
+        Update update = new Update();
+        try {
+            Transaction transaction = transactionService.transfer(order.getFromIban(), order.getToIban(),
+                    order.getToFirstName(), order.getToLastName(), order.getAmount(), order.getDescription(),
+                    order.getId() + ":" + order.getExecutedRuns());
+            update.set("lastTransactionId", transaction.getId()).unset("lastError");
+            completed.increment();
+        } catch (DataAccessException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            update.set("lastError", e.getMessage()).inc("failedRuns", 1);
+            failed.increment();
+        }
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        long runs = order.getExecutedRuns() + 1;
+        LocalDateTime next = order.getFrequency().occurrence(order.getFirstRunAt(), runs);
+        boolean finished = next == null || (order.getEndAt() != null && next.isAfter(order.getEndAt()));
+        update.set("executedRuns", runs)
+                .set("lastRunAt", now)
+                .set("nextRunAt", finished ? null : next)
+                .set("status", finished ? StandingOrder.COMPLETED : StandingOrder.ACTIVE)
+                .set("updatedAt", now)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        UpdateResult advanced = mongoTemplate.updateFirst(
+                Query.query(where("_id").is(order.getId()).and("leaseOwner").is(owner)), update, StandingOrder.class);
+        if (advanced.getModifiedCount() == 0) {
+            leaseLost.increment();
+            log.warn("Lease on standing order {} expired during its run", order.getId());
+        } else if (!finished && millis(next) < clock.millis() + horizon.toMillis()) {
+            // Overdue occurrences follow one after another, later ones join the wheel
+            schedule(order.getId(), millis(next));
+        }
+    }
+
+    private void release(String owner) {
+        mongoTemplate.updateMulti(Query.query(where("leaseOwner").is(owner)),
+                new Update().unset("leaseOwner").unset("leaseUntil"), StandingOrder.class);
+    }
+
+    private long millis(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    int scheduledCount() {
+        return scheduled.size();
+    }
+}
@@ -0,0 +1,140 @@
+package com.nilijoski.backend.standingorder;
+
+import com.nilijoski.backend.exception.InvalidIbanException;
+import com.nilijoski.backend.exception.InvalidStandingOrderException;
+import com.nilijoski.backend.exception.InvalidTransferAmountException;
+import com.nilijoski.backend.exception.SameAccountTransferException;
+import com.nilijoski.backend.exception.StandingOrderNotFoundException;
+import com.nilijoski.backend.model.StandingOrder;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.service.UserService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Creates, lists and cancels {@link StandingOrder}s; running them is up to the
+ * {@link StandingOrderScheduler}. The recipient is only checked for a valid IBAN here, as the
+ * account may be closed or opened by the time an occurrence runs.
+ */
+@Service
+@ConditionalOnProperty(name = "banking.standing-orders.enabled", havingValue = "true")
+public class StandingOrderService {
+
+    // Tolerated clock difference to the client for orders meant to start right away
+    private static final Duration PAST_TOLERANCE = Duration.ofMinutes(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final UserService userService;
+    private final StandingOrderScheduler scheduler;
+    private final Clock clock;
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public StandingOrderService(MongoTemplate mongoTemplate, UserService userService, StandingOrderScheduler scheduler) {
+        this(mongoTemplate, userService, scheduler, Clock.systemDefaultZone());
+    }
+
+    StandingOrderService(MongoTemplate mongoTemplate, UserService userService, StandingOrderScheduler scheduler, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.userService = userService;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(StandingOrder.class)
+                .ensureIndex(new Index().on("status", Sort.Direction.ASC).on("nextRunAt", Sort.Direction.ASC));
+        mongoTemplate.indexOps(StandingOrder.class)
+                .ensureIndex(new Index().on("fromIban", Sort.Direction.ASC));
+    }
+
+    public StandingOrder create(String fromIban, String toIban, String toFirstName, String toLastName, BigDecimal amount,
+                                String description, StandingOrder.Frequency frequency, LocalDateTime firstRunAt,
+                                LocalDateTime endAt) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new InvalidTransferAmountException("Transfer amount must be positive");
+        }
+        if (!TransactionService.isValidIban(toIban)) {
+            throw new InvalidIbanException("Invalid IBAN format");
+        }
+        if (toIban.equals(fromIban)) {
+            throw new SameAccountTransferException("Cannot transfer money to your own account");
+        }
+        if (frequency == null) {
+            throw new InvalidStandingOrderException("Frequency is required");
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime first = firstRunAt == null ? now : firstRunAt;
+        if (first.isBefore(now.minus(PAST_TOLERANCE))) {
+            throw new InvalidStandingOrderException("First execution must not be in the past");
+        }
+        if (endAt != null && endAt.isBefore(first)) {
+            throw new InvalidStandingOrderException("End must not be before the first execution");
+        }
+        // Throws AccountNotFoundException for an unknown sender
+        userService.getUserByIban(fromIban);
+
+        StandingOrder order = new StandingOrder();
+        order.setFromIban(fromIban);
+        order.setToIban(toIban);
+        order.setToFirstName(toFirstName);
+        order.setToLastName(toLastName);
+        order.setAmount(amount);
+        order.setDescription(description);
+        order.setFrequency(frequency);
+        order.setFirstRunAt(first);
+        order.setEndAt(endAt);
+        order.setNextRunAt(first);
+        order.setStatus(StandingOrder.ACTIVE);
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        StandingOrder saved = mongoTemplate.insert(order);
+        scheduler.offer(saved);
+        return saved;
+    }
+
+    public List<StandingOrder> getByIban(String iban) {
+        return mongoTemplate.find(Query.query(where("fromIban").is(iban)).with(Sort.by("createdAt")), StandingOrder.class);
+    }
+
+    public StandingOrder getById(String id) {
+        StandingOrder order = mongoTemplate.findById(id, StandingOrder.class);
+        if (order == null) {
+            throw new StandingOrderNotFoundException("Standing order not found with id: " + id);
+        }
+        return order;
+    }
+
+    /**
+     * Stops further occurrences. One that is already running still completes.
+     */
+    public StandingOrder cancel(String id) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        StandingOrder cancelled = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id).and("status").is(StandingOrder.ACTIVE)),
+                new Update().set("status", StandingOrder.CANCELLED).unset("nextRunAt").set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true),
+                StandingOrder.class);
+        if (cancelled == null) {
+            throw new StandingOrderNotFoundException("No active standing order with id: " + id);
+        }
+        return cancelled;
+    }
+}
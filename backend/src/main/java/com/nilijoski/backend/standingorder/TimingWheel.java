@@ -0,0 +1,130 @@
+package com.nilijoski.backend.standingorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck): level 0 has {@code wheelSize} buckets of one
+ * tick each, every further level has as many buckets spanning a whole turn of the level below.
+ * Adding an entry and expiring one are O(1); an entry moves down a level each time the level
+ * below starts the range it falls into, so a far-future entry is touched at most once per level.
+ * <p>
+ * Entries expire in tick order once their whole tick has passed, so up to one tick late and
+ * never early. Not thread-safe.
+ */
+public final class TimingWheel<T> {
+
+    private final Level<T> root;
+    private int size;
+
+    private record Entry<T>(long dueMillis, T item) {
+    }
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tick must be positive and the wheel have at least two buckets");
+        }
+        this.root = new Level<>(tickMillis, wheelSize, Math.floorDiv(startMillis, tickMillis));
+    }
+
+    /**
+     * Schedules {@code item}, or returns false without scheduling it when its tick has already
+     * expired; the caller then handles it as due.
+     */
+    public boolean add(long dueMillis, T item) {
+        if (!root.add(new Entry<>(dueMillis, item))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Passes every entry whose tick ended at or before {@code nowMillis} to {@code expired}, in due order.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long target = Math.floorDiv(nowMillis, root.tickMillis);
+        while (root.processed < target) {
+            if (size == 0) {
+                root.skipTo(target);
+                return;
+            }
+            List<Entry<T>> bucket = root.take(root.processed);
+            root.processed++;
+            if (root.overflow != null && root.processed % root.wheelSize == 0) {
+                root.overflow.open(root.processed / root.wheelSize, root);
+            }
+            size -= bucket.size();
+            for (Entry<T> entry : bucket) {
+                expired.accept(entry.item());
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final List<Entry<T>>[] buckets;
+        // Ticks before this one are done: flushed on level 0, moved down on the levels above
+        private long processed;
+        private Level<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        Level(long tickMillis, int wheelSize, long processed) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.buckets = new List[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayList<>();
+            }
+            this.processed = processed;
+        }
+
+        boolean add(Entry<T> entry) {
+            long tick = Math.floorDiv(entry.dueMillis(), tickMillis);
+            if (tick < processed) {
+                return false;
+            }
+            if (tick < processed + wheelSize) {
+                buckets[(int) Math.floorMod(tick, wheelSize)].add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(tickMillis * wheelSize, wheelSize, Math.floorDiv(processed, wheelSize) + 1);
+            }
+            return overflow.add(entry);
+        }
+
+        List<Entry<T>> take(long tick) {
+            int index = (int) Math.floorMod(tick, wheelSize);
+            List<Entry<T>> bucket = buckets[index];
+            buckets[index] = new ArrayList<>();
+            return bucket;
+        }
+
+        // The level below has reached the start of this level's tick, so its entries move down
+        void open(long tick, Level<T> root) {
+            if (overflow != null && tick % wheelSize == 0) {
+                overflow.open(tick / wheelSize, root);
+            }
+            List<Entry<T>> bucket = take(tick);
+            processed = tick + 1;
+            for (Entry<T> entry : bucket) {
+                root.add(entry);
+            }
+        }
+
+        void skipTo(long tick) {
+            processed = tick;
+            if (overflow != null) {
+                overflow.skipTo(Math.floorDiv(tick, wheelSize) + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nilijoski.backend.velocity;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free count and sum of the events within a sliding window.
+ * <p>
+ * The window is split into {@code slots} equal slots that are reused round-robin. Each slot
+ * holds an immutable {@link Slot} stamped with the epoch (time divided by the slot length) it
+ * counts, replaced with a single compare-and-set. A slot stamped with an older epoch counts as
+ * empty and is restarted by the next event falling into it, so nothing has to expire events.
+ * <p>
+ * The window slides a slot at a time: it covers between {@code window - window / slots} and
+ * {@code window} of history.
+ */
+final class SlidingWindowCounter {
+
+    record Totals(long count, long sum) {
+    }
+
+    private record Slot(long epoch, long count, long sum) {
+    }
+
+    private final long slotMillis;
+    private final AtomicReferenceArray<Slot> slots;
+
+    SlidingWindowCounter(Duration window, int slots) {
+        this.slotMillis = Math.max(1, window.toMillis() / slots);
+        this.slots = new AtomicReferenceArray<>(slots);
+    }
+
+    /**
+     * Adds {@code count} events summing to {@code sum} at {@code timeMillis}; negative values undo
+     * an earlier add with the same time. Events whose slot was already reused are dropped, they
+     * are out of the window.
+     */
+    void add(long timeMillis, long count, long sum) {
+        long epoch = timeMillis / slotMillis;
+        int index = (int) Math.floorMod(epoch, (long) slots.length());
+        while (true) {
+            Slot current = slots.get(index);
+            Slot next;
+            if (current == null || current.epoch < epoch) {
+                next = new Slot(epoch, count, sum);
+            } else if (current.epoch == epoch) {
+                next = new Slot(epoch, current.count + count, current.sum + sum);
+            } else {
+                return;
+            }
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    Totals totals(long nowMillis) {
+        long now = nowMillis / slotMillis;
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.epoch > now - slots.length() && slot.epoch <= now) {
+                count += slot.count;
+                sum += slot.sum;
+            }
+        }
+        return new Totals(count, sum);
+    }
+}
@@ -0,0 +1,49 @@
+package com.nilijoski.backend.velocity;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Velocity rules under {@code banking.velocity.rules.<name>}, checked against every transfer of
+ * the sending account, and the flag for large transfers to recipients it has not paid before.
+ */
+@ConfigurationProperties("banking.velocity")
+public record VelocityProperties(Map<String, Rule> rules,
+                                 @DefaultValue NewRecipient newRecipient) {
+
+    public VelocityProperties {
+        rules = rules == null ? Map.of() : new LinkedHashMap<>(rules);
+    }
+
+    public enum Action {
+        /** The transfer goes through with the verdict in its warning. */
+        WARN,
+        /** The transfer is refused. */
+        REJECT
+    }
+
+    /**
+     * Limits the transfers sent within {@code window} to {@code maxCount} and their total to
+     * {@code maxAmount}; either may be left out. The window moves in {@code slots} steps.
+     */
+    public record Rule(@DefaultValue("1m") Duration window,
+                       @DefaultValue("12") int slots,
+                       Integer maxCount,
+                       BigDecimal maxAmount,
+                       @DefaultValue("reject") Action action) {
+    }
+
+    /**
+     * Flags transfers of at least {@code minAmount} to an IBAN the sender neither saved nor paid
+     * within {@code lookback}; off while {@code minAmount} is not set.
+     */
+    public record NewRecipient(BigDecimal minAmount,
+                               @DefaultValue("30d") Duration lookback,
+                               @DefaultValue("warn") Action action) {
+    }
+}
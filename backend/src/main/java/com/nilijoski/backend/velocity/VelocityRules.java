@@ -0,0 +1,345 @@
+package com.nilijoski.backend.velocity;
+
+import com.nilijoski.backend.exception.VelocityLimitExceededException;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.TransactionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Velocity and new-recipient checks for transfers, on counters held in memory per sending account.
+ * <p>
+ * Every rule has a {@link SlidingWindowCounter} per account. A transfer is added to the counters
+ * before they are compared with the limits, so concurrent transfers of one account see each
+ * other: at a limit both may be refused, but never both let through. A refused or failed
+ * transfer takes its addition back.
+ * <p>
+ * At startup the counters are rebuilt from the transfers within the longest window or the
+ * new-recipient lookback, whichever is longer; accounts idle for as long are evicted. Counters
+ * are per node: once started, a node only counts the transfers it handles itself.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(VelocityProperties.class)
+@ConditionalOnProperty(name = "banking.velocity.enabled", havingValue = "true")
+public class VelocityRules {
+
+    private static final String NEW_RECIPIENT = "new_recipient";
+
+    private final TransactionStore transactionStore;
+    private final Clock clock;
+    private final List<Rule> rules;
+    private final BigDecimal newRecipientMinAmount;
+    private final long lookbackMillis;
+    private final VelocityProperties.Action newRecipientAction;
+    private final Counter newRecipientVerdicts;
+    private final long retentionMillis;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    // Explicit for AOT processing, which does not pick the only public constructor by itself
+    @Autowired
+    public VelocityRules(VelocityProperties properties, TransactionStore transactionStore, MeterRegistry meterRegistry) {
+        this(properties, transactionStore, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    VelocityRules(VelocityProperties properties, TransactionStore transactionStore, MeterRegistry meterRegistry,
+                  Clock clock) {
+        this.transactionStore = transactionStore;
+        this.clock = clock;
+        List<Rule> compiled = new ArrayList<>();
+        properties.rules().forEach((name, rule) -> compiled.add(new Rule(name, rule, meterRegistry)));
+        this.rules = List.copyOf(compiled);
+
+        VelocityProperties.NewRecipient newRecipient = properties.newRecipient();
+        this.newRecipientMinAmount = newRecipient.minAmount();
+        this.lookbackMillis = newRecipient.lookback().toMillis();
+        this.newRecipientAction = newRecipient.action();
+        this.newRecipientVerdicts = verdicts(NEW_RECIPIENT, newRecipientAction, meterRegistry);
+
+        long retention = rules.stream().mapToLong(rule -> rule.windowMillis).max().orElse(0);
+        this.retentionMillis = newRecipientMinAmount == null ? retention : Math.max(retention, lookbackMillis);
+        Gauge.builder("banking.velocity.accounts", accounts, Map::size)
+                .description("Accounts with velocity counters in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts the transfer against the sender's rules.
+     *
+     * @return the reservation to {@link Screening#complete() complete} once the transfer is stored,
+     * or {@link Screening#cancel() cancel} if it fails
+     * @throws VelocityLimitExceededException if a rule refuses the transfer
+     */
+    public Screening screen(User sender, String toIban, BigDecimal amount) {
+        long now = clock.millis();
+        long cents = amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        Account account = touch(sender.getIban(), now);
+
+        String rejection = null;
+        List<String> warnings = null;
+        for (int i = 0; i < rules.size(); i++) {
+            account.counters[i].add(now, 1, cents);
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            String verdict = rule.check(account.counters[i].totals(now));
+            if (verdict != null) {
+                rule.verdicts.increment();
+                if (rule.action == VelocityProperties.Action.REJECT) {
+                    rejection = rejection == null ? verdict : rejection;
+                } else {
+                    warnings = add(warnings, verdict);
+                }
+            }
+        }
+        if (newRecipientMinAmount != null && amount.compareTo(newRecipientMinAmount) >= 0
+                && !knownRecipient(sender, account, toIban, now)) {
+            String verdict = "Large transfer to a new recipient";
+            newRecipientVerdicts.increment();
+            if (newRecipientAction == VelocityProperties.Action.REJECT) {
+                rejection = rejection == null ? verdict : rejection;
+            } else {
+                warnings = add(warnings, verdict);
+            }
+        }
+
+        Screening screening = new Screening(account, now, cents, toIban,
+                warnings == null ? null : String.join("; ", warnings));
+        if (rejection != null) {
+            screening.cancel();
+            throw new VelocityLimitExceededException(rejection);
+        }
+        return screening;
+    }
+
+    private static List<String> add(List<String> warnings, String verdict) {
+        List<String> list = warnings == null ? new ArrayList<>(2) : warnings;
+        list.add(verdict);
+        return list;
+    }
+
+    private boolean knownRecipient(User sender, Account account, String toIban, long now) {
+        Long paidAt = account.recipients.get(toIban);
+        if (paidAt != null && paidAt > now - lookbackMillis) {
+            return true;
+        }
+        return sender.getSavedRecipientIbans() != null && sender.getSavedRecipientIbans().contains(toIban);
+    }
+
+    // Under the lock of the account's map entry, which evictIdle takes too: an account is either
+    // evicted before, and a new one counts the transfer, or it is seen as active and kept
+    private Account touch(String iban, long now) {
+        return accounts.compute(iban, (key, account) -> {
+            Account touched = account == null ? new Account(rules) : account;
+            touched.lastActiveMillis = Math.max(touched.lastActiveMillis, now);
+            return touched;
+        });
+    }
+
+    private Account account(String iban) {
+        Account account = accounts.get(iban);
+        if (account == null) {
+            account = accounts.computeIfAbsent(iban, key -> new Account(rules));
+        }
+        return account;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (retentionMillis == 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        LocalDateTime from = LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.millis() - retentionMillis), clock.getZone());
+        long transfers = 0;
+        try (Stream<Transaction> transactions = transactionStore.streamSince(from)) {
+            for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+                if ("TRANSFER".equals(transaction.getTransactionType()) && transaction.getFromIban() != null) {
+                    replay(transaction);
+                    transfers++;
+                }
+            }
+        }
+        log.info("Rebuilt velocity counters of {} accounts from {} transfers in {} ms", accounts.size(), transfers,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private void replay(Transaction transaction) {
+        long time = transaction.getTransactionDate().atZone(clock.getZone()).toInstant().toEpochMilli();
+        long cents = transaction.getAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        Account account = account(transaction.getFromIban());
+        account.lastActiveMillis = Math.max(account.lastActiveMillis, time);
+        for (SlidingWindowCounter counter : account.counters) {
+            counter.add(time, 1, cents);
+        }
+        if (newRecipientMinAmount != null) {
+            account.recipients.merge(transaction.getToIban(), time, Math::max);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.velocity.eviction-interval:1m}")
+    public void evictIdle() {
+        long now = clock.millis();
+        for (String iban : accounts.keySet()) {
+            accounts.computeIfPresent(iban,
+                    (key, account) -> account.lastActiveMillis <= now - retentionMillis ? null : account);
+        }
+        if (newRecipientMinAmount != null) {
+            accounts.values().forEach(account ->
+                    account.recipients.values().removeIf(paidAt -> paidAt <= now - lookbackMillis));
+        }
+    }
+
+    int accountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * A transfer counted against its sender's rules, carrying the verdicts that let it through.
+     */
+    public final class Screening {
+
+        private final Account account;
+        private final long timeMillis;
+        private final long cents;
+        private final String toIban;
+        private final String warning;
+
+        private Screening(Account account, long timeMillis, long cents, String toIban, String warning) {
+            this.account = account;
+            this.timeMillis = timeMillis;
+            this.cents = cents;
+            this.toIban = toIban;
+            this.warning = warning;
+        }
+
+        /**
+         * The warning verdicts, separated by "; ", or {@code null} when no rule warned.
+         */
+        public String warning() {
+            return warning;
+        }
+
+        /**
+         * Remembers the recipient as paid by the sender.
+         */
+        public void complete() {
+            if (newRecipientMinAmount != null) {
+                account.recipients.merge(toIban, timeMillis, Math::max);
+            }
+        }
+
+        /**
+         * Takes the transfer back out of the counters.
+         */
+        public void cancel() {
+            for (SlidingWindowCounter counter : account.counters) {
+                counter.add(timeMillis, -1, -cents);
+            }
+        }
+    }
+
+    private static Counter verdicts(String rule, VelocityProperties.Action action, MeterRegistry meterRegistry) {
+        return Counter.builder("banking.velocity.verdicts")
+                .tag("rule", rule)
+                .tag("action", action.name().toLowerCase())
+                .description("Transfers a velocity rule warned about or refused")
+                .register(meterRegistry);
+    }
+
+    private static final class Account {
+
+        private final SlidingWindowCounter[] counters;
+        // Recipient IBAN to when it was last paid
+        private final Map<String, Long> recipients = new ConcurrentHashMap<>();
+        private volatile long lastActiveMillis;
+
+        Account(List<Rule> rules) {
+            counters = new SlidingWindowCounter[rules.size()];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new SlidingWindowCounter(rules.get(i).window, rules.get(i).slots);
+            }
+        }
+    }
+
+    private static final class Rule {
+
+        private final Duration window;
+        private final long windowMillis;
+        private final int slots;
+        private final long maxCount;
+        private final long maxCents;
+        private final VelocityProperties.Action action;
+        private final String countVerdict;
+        private final String amountVerdict;
+        private final Counter verdicts;
+
+        Rule(String name, VelocityProperties.Rule config, MeterRegistry meterRegistry) {
+            String prefix = "banking.velocity.rules." + name;
+            if (config.window().isNegative() || config.window().isZero() || config.slots() <= 0) {
+                throw new IllegalArgumentException(prefix + ".window and .slots must be positive");
+            }
+            if (config.maxCount() == null && config.maxAmount() == null) {
+                throw new IllegalArgumentException(prefix + " needs max-count or max-amount");
+            }
+            this.window = config.window();
+            this.windowMillis = config.window().toMillis();
+            this.slots = config.slots();
+            this.maxCount = config.maxCount() == null ? Long.MAX_VALUE : config.maxCount();
+            this.maxCents = config.maxAmount() == null ? Long.MAX_VALUE
+                    : config.maxAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+            this.action = config.action();
+            this.countVerdict = config.maxCount() == null ? null : "Velocity limit exceeded: more than "
+                    + config.maxCount() + " transfers within " + describe(config.window());
+            this.amountVerdict = config.maxAmount() == null ? null : "Velocity limit exceeded: more than "
+                    + config.maxAmount().toPlainString() + " EUR within " + describe(config.window());
+            this.verdicts = verdicts(name, action, meterRegistry);
+        }
+
+        String check(SlidingWindowCounter.Totals totals) {
+            if (totals.count() > maxCount) {
+                return countVerdict;
+            }
+            return totals.sum() > maxCents ? amountVerdict : null;
+        }
+
+        private static String describe(Duration window) {
+            long seconds = window.toSeconds();
+            if (seconds >= 86_400 && seconds % 86_400 == 0) {
+                return plural(seconds / 86_400, "day");
+            }
+            if (seconds >= 3_600 && seconds % 3_600 == 0) {
+                return plural(seconds / 3_600, "hour");
+            }
+            if (seconds >= 60 && seconds % 60 == 0) {
+                return plural(seconds / 60, "minute");
+            }
+            return plural(seconds, "second");
+        }
+
+        private static String plural(long count, String unit) {
+            return count == 1 ? "1 " + unit : count + " " + unit + "s";
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.nilijoski.backend.warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.dto.TransferResponse;
+import com.nilijoski.backend.exception.InvalidLoginException;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.PasswordHasher;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.service.UserService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the JIT, the Mongo connection pool and the caches before the instance takes traffic.
+ * <p>
+ * Runs while {@link ApplicationReadyEvent} is delivered, which Spring Boot does before it
+ * switches the readiness state to {@code ACCEPTING_TRAFFIC}, so {@code /actuator/health/readiness}
+ * stays down until the warm-up is over. The warm-up opens the minimum pool connections, loads
+ * the most recently active users into the near cache, builds the username filter and then runs
+ * the transfer, history and login code paths, each up to its iteration count, all within
+ * {@code banking.warm-up.budget}.
+ * <p>
+ * Nothing is written. Transfers and logins run against the in-memory accounts of a
+ * {@link WarmUpBank}, logins with a wrong password, which takes the same lookup and hash
+ * comparison as a successful one. Histories are read for the preloaded users.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "banking.warm-up.enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WarmUp {
+
+    // Steady-state latency is the mean of the last iterations of a path
+    private static final int STEADY_WINDOW = 10;
+
+    private final UserService userService;
+    private final TransactionService transactionService;
+    private final PasswordHasher passwordHasher;
+    private final TokenService tokenService;
+    private final UserCache userCache;
+    private final UsernameFilter usernameFilter;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final WarmUpConnectionPool connectionPool;
+    private final MeterRegistry meterRegistry;
+    private final Duration budget;
+    private final int iterations;
+    private final int loginIterations;
+    private final int cachedUsers;
+
+    public WarmUp(UserService userService,
+                  TransactionService transactionService,
+                  PasswordHasher passwordHasher,
+                  TokenService tokenService,
+                  UserCache userCache,
+                  UsernameFilter usernameFilter,
+                  MongoTemplate mongoTemplate,
+                  ObjectMapper objectMapper,
+                  WarmUpConnectionPool connectionPool,
+                  MeterRegistry meterRegistry,
+                  @Value("${banking.warm-up.budget:30s}") Duration budget,
+                  @Value("${banking.warm-up.iterations:500}") int iterations,
+                  @Value("${banking.warm-up.login-iterations:20}") int loginIterations,
+                  @Value("${banking.warm-up.cached-users:1000}") int cachedUsers) {
+        this.userService = userService;
+        this.transactionService = transactionService;
+        this.passwordHasher = passwordHasher;
+        this.tokenService = tokenService;
+        this.userCache = userCache;
+        this.usernameFilter = usernameFilter;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.connectionPool = connectionPool;
+        this.meterRegistry = meterRegistry;
+        this.budget = budget;
+        this.iterations = iterations;
+        this.loginIterations = loginIterations;
+        this.cachedUsers = cachedUsers;
+    }
+
+    /**
+     * Latency of one warmed-up code path: its first iteration against the mean of its last ones.
+     */
+    public record PathResult(String path, int iterations, double firstMillis, double steadyMillis) {
+    }
+
+    public record Report(Duration elapsed, boolean completed, int openConnections, long cachedUsers,
+                         List<PathResult> paths) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() throws InterruptedException {
+        Report report = run();
+        TimeGauge.builder("banking.warm-up.duration", report, TimeUnit.NANOSECONDS, r -> r.elapsed().toNanos())
+                .description("Time the last warm-up took")
+                .register(meterRegistry);
+        for (PathResult path : report.paths()) {
+            Gauge.builder("banking.warm-up.latency", path, PathResult::firstMillis)
+                    .tags("path", path.path(), "iteration", "first")
+                    .baseUnit("milliseconds")
+                    .description("Latency of warm-up iterations")
+                    .register(meterRegistry);
+            Gauge.builder("banking.warm-up.latency", path, PathResult::steadyMillis)
+                    .tags("path", path.path(), "iteration", "last")
+                    .baseUnit("milliseconds")
+                    .description("Latency of warm-up iterations")
+                    .register(meterRegistry);
+        }
+    }
+
+    public Report run() throws InterruptedException {
+        long started = System.nanoTime();
+        long deadline = started + budget.toNanos();
+
+        connectionPool.awaitOpen(deadline);
+        usernameFilter.rebuildIfNeeded();
+        List<User> recentlyActive = preloadUsers();
+
+        WarmUpBank bank = new WarmUpBank(passwordHasher, randomPassword());
+        List<Path> paths = List.of(
+                new Path("transfer", iterations, i -> serialize(TransferResponse.success(bank.transfer(i)))),
+                new Path("history", iterations, i -> history(recentlyActive, i)),
+                new Path("login", loginIterations, i -> login(bank)));
+
+        // Round robin, so a tight budget still touches every path
+        boolean completed = false;
+        while (!completed && System.nanoTime() < deadline) {
+            completed = true;
+            for (Path path : paths) {
+                if (path.run()) {
+                    completed = false;
+                }
+            }
+        }
+        Report report = new Report(Duration.ofNanos(System.nanoTime() - started), completed, connectionPool.open(),
+                userCache.size(), paths.stream().map(Path::result).toList());
+        log(report);
+        return report;
+    }
+
+    private List<User> preloadUsers() {
+        Query recentlyActive = new Query().with(Sort.by(Sort.Direction.DESC, "updatedAt")).limit(cachedUsers);
+        List<User> users = mongoTemplate.find(recentlyActive, User.class);
+        users.forEach(userCache::put);
+        return users;
+    }
+
+    // Read-only, and skipped on an empty database
+    private void history(List<User> users, int iteration) {
+        if (users.isEmpty()) {
+            return;
+        }
+        User user = users.get(iteration % users.size());
+        serialize(userService.getUserByAccountNumber(user.getAccountNumber()));
+        serialize(transactionService.getTransactionsByIban(user.getIban()));
+    }
+
+    private void login(WarmUpBank bank) {
+        try {
+            bank.login("warm-up");
+        } catch (InvalidLoginException expected) {
+            // The password is random and unknown, but the lookup and hash comparison have run
+        }
+        String token = tokenService.issue(bank.a()).accessToken();
+        tokenService.verify(token, TokenService.TokenType.ACCESS);
+    }
+
+    private void serialize(Object response) {
+        try {
+            objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void log(Report report) {
+        StringBuilder paths = new StringBuilder();
+        for (PathResult path : report.paths()) {
+            paths.append(String.format(Locale.ROOT, "%n  %-8s %4d iterations, first %.1f ms, last %.1f ms",
+                    path.path(), path.iterations(), path.firstMillis(), path.steadyMillis()));
+        }
+        if (report.completed()) {
+            log.info("Warm-up took {} ms, {} Mongo connections open, {} users cached{}", report.elapsed().toMillis(),
+                    report.openConnections(), report.cachedUsers(), paths);
+        } else {
+            log.warn("Warm-up stopped at its budget of {} after {} ms, {} Mongo connections open, {} users cached{}",
+                    budget, report.elapsed().toMillis(), report.openConnections(), report.cachedUsers(), paths);
+        }
+    }
+
+    private static String randomPassword() {
+        byte[] bytes = new byte[24];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run(int iteration);
+    }
+
+    private static final class Path {
+
+        private final String name;
+        private final int iterations;
+        private final Step step;
+        private final long[] latencies;
+        private int done;
+        private boolean failed;
+
+        Path(String name, int iterations, Step step) {
+            this.name = name;
+            this.iterations = iterations;
+            this.step = step;
+            this.latencies = new long[Math.max(iterations, 0)];
+        }
+
+        /**
+         * Runs the next iteration and tells whether another one is left; a failure ends the path.
+         */
+        boolean run() {
+            if (failed || done >= iterations) {
+                return false;
+            }
+            long start = System.nanoTime();
+            try {
+                step.run(done);
+            } catch (RuntimeException e) {
+                log.warn("Warm-up of {} failed after {} iterations: {}", name, done, e.getMessage());
+                failed = true;
+                return false;
+            }
+            latencies[done++] = System.nanoTime() - start;
+            return done < iterations;
+        }
+
+        PathResult result() {
+            if (done == 0) {
+                return new PathResult(name, 0, 0, 0);
+            }
+            long steady = 0;
+            int window = Math.min(STEADY_WINDOW, done);
+            for (int i = done - window; i < done; i++) {
+                steady += latencies[i];
+            }
+            return new PathResult(name, done, latencies[0] / 1e6, steady / 1e6 / window);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.nilijoski.backend.warmup;
+
+import com.nilijoski.backend.account.GermanIban;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.security.PasswordHasher;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Two accounts with a {@link UserService} and a {@link TransactionService} of their own, all held
+ * in memory, so the warm-up runs the transfer and login code without writing anything: no
+ * ledger entries, no outbox events, no velocity counters and no shared metrics. Only the
+ * password hasher is the application's, as the hashing is what a login spends its time on.
+ */
+final class WarmUpBank {
+
+    static final String BANK_CODE = "00000000";
+    static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private final WarmUpUserRepository users = new WarmUpUserRepository();
+    private final User a;
+    private final User b;
+    private final UserService userService;
+    private final TransactionService transactionService;
+
+    WarmUpBank(PasswordHasher passwordHasher, String password) {
+        String hash = passwordHasher.encode(password);
+        this.a = account("warm-up-a", "0000000001", hash);
+        this.b = account("warm-up-b", "0000000002", hash);
+        this.userService = new UserService(users, new UserCache(DataSize.ofKilobytes(64), Duration.ofMinutes(1)),
+                passwordHasher, null, null);
+        this.transactionService = new TransactionService(new Ledger(), userService, new SimpleMeterRegistry());
+    }
+
+    User a() {
+        return a;
+    }
+
+    /**
+     * Transfers {@link #AMOUNT} back and forth, so the balances never run out.
+     */
+    Transaction transfer(int iteration) {
+        User from = iteration % 2 == 0 ? a : b;
+        User to = iteration % 2 == 0 ? b : a;
+        return transactionService.transfer(from.getIban(), to.getIban(), to.getFirstName(), to.getLastName(), AMOUNT,
+                "Warm-up");
+    }
+
+    User login(String password) {
+        return userService.login(a.getUsername(), password);
+    }
+
+    private User account(String username, String accountNumber, String hash) {
+        LocalDateTime now = LocalDateTime.now();
+        User user = new User(username, username, hash, "Warm", "Up", GermanIban.of(BANK_CODE, accountNumber),
+                accountNumber, new BigDecimal("1000.00"), "ACTIVE", new ArrayList<>(), now, now,
+                PayeeNames.keys("Warm", "Up"));
+        return users.insert(user);
+    }
+
+    /**
+     * Assigns ids and keeps nothing.
+     */
+    private static final class Ledger implements TransactionStore {
+
+        private long saved;
+
+        @Override
+        public Transaction save(Transaction transaction) {
+            transaction.setId(Long.toHexString(++saved));
+            return transaction;
+        }
+
+        @Override
+        public Optional<Transaction> findById(String id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<Transaction> findAll() {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findByFromIban(String fromIban) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void deleteAll(Collection<Transaction> transactions) {
+            // Nothing is kept
+        }
+    }
+}
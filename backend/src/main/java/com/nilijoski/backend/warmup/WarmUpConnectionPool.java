@@ -0,0 +1,72 @@
+package com.nilijoski.backend.warmup;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.mongodb.event.ConnectionReadyEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps {@code banking.warm-up.connections} Mongo connections open at all times, so the first
+ * requests after a start do not pay for TCP and TLS handshakes and authentication, and lets
+ * {@link WarmUp} wait until the driver has opened them.
+ */
+@Component
+@ConditionalOnProperty(name = "banking.warm-up.enabled", havingValue = "true")
+public class WarmUpConnectionPool implements MongoClientSettingsBuilderCustomizer, ConnectionPoolListener {
+
+    private final int connections;
+    private final AtomicInteger open = new AtomicInteger();
+
+    public WarmUpConnectionPool(@Value("${banking.warm-up.connections:10}") int connections) {
+        this.connections = connections;
+    }
+
+    @Override
+    public void customize(MongoClientSettings.Builder settings) {
+        settings.applyToConnectionPoolSettings(pool -> {
+            // 0 leaves the minimum of the connection string in place
+            if (connections > 0) {
+                pool.minSize(connections);
+            }
+            pool.addConnectionPoolListener(this);
+        });
+    }
+
+    @Override
+    public void connectionReady(ConnectionReadyEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    int connections() {
+        return connections;
+    }
+
+    int open() {
+        return open.get();
+    }
+
+    /**
+     * Waits until the pool holds the configured minimum of connections or {@code deadline}
+     * ({@link System#nanoTime()}) has passed.
+     */
+    boolean awaitOpen(long deadline) throws InterruptedException {
+        while (open.get() < connections) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
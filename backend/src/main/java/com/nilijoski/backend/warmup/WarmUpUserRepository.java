@@ -0,0 +1,172 @@
+package com.nilijoski.backend.warmup;
+
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.UserRepository;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The users of the {@link WarmUpBank}, by id in a map. Covers the lookups and saves of transfers
+ * and logins; the bulk, paging and query-by-example methods are no part of the warm-up and throw.
+ */
+final class WarmUpUserRepository implements UserRepository {
+
+    private final Map<String, User> users = new LinkedHashMap<>();
+
+    @Override
+    public <S extends User> S save(S user) {
+        users.put(user.getId(), user);
+        return user;
+    }
+
+    @Override
+    public <S extends User> S insert(S user) {
+        if (users.putIfAbsent(user.getId(), user) != null) {
+            throw new IllegalStateException("Duplicate warm-up user " + user.getId());
+        }
+        return user;
+    }
+
+    @Override
+    public Optional<User> findById(String id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return find(User::getUsername, username);
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return findByUsername(username).isPresent();
+    }
+
+    @Override
+    public Optional<User> findByAccountNumber(String accountNumber) {
+        return find(User::getAccountNumber, accountNumber);
+    }
+
+    @Override
+    public Optional<User> findByIban(String iban) {
+        return find(User::getIban, iban);
+    }
+
+    private Optional<User> find(Function<User, String> key, String value) {
+        return users.values().stream().filter(user -> value.equals(key.apply(user))).findFirst();
+    }
+
+    @Override
+    public List<User> findAll() {
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        users.remove(id);
+    }
+
+    @Override
+    public void delete(User user) {
+        users.remove(user.getId());
+    }
+
+    @Override
+    public void deleteAll() {
+        users.clear();
+    }
+
+    @Override
+    public <S extends User> List<S> insert(Iterable<S> users) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> List<S> saveAll(Iterable<S> users) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<User> findAllById(Iterable<String> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        throw unsupported();
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends User> users) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<User> findAll(Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public Page<User> findAll(Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> Optional<S> findOne(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> List<S> findAll(Example<S> example, Sort sort) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> long count(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User> boolean exists(Example<S> example) {
+        throw unsupported();
+    }
+
+    @Override
+    public <S extends User, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> query) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not used by the warm-up");
+    }
+}
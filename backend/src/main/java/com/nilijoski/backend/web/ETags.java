@@ -0,0 +1,61 @@
+package com.nilijoski.backend.web;
+
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.TransactionStore;
+
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Entity tags derived from resource versions rather than from the serialized body, so a
+ * conditional request can be answered before anything is loaded or written.
+ * <p>
+ * The tags are weak: Tomcat does not compress a response carrying a strong tag, as the
+ * compressed bytes would differ from what the tag promises. If-None-Match compares weakly, so
+ * revalidation works the same.
+ * <p>
+ * A user's version is its {@code updatedAt}, which every balance change and profile update
+ * bumps. The transaction history of an account has a version of its own, taken from the
+ * transactions themselves: the balance changes before the transaction is stored, so a read in
+ * between would pair the new version with the old history.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(User user) {
+        return weak(version(user));
+    }
+
+    public static String of(List<User> users) {
+        // 64-bit FNV-1a over all member versions
+        long hash = 0xcbf29ce484222325L;
+        for (User user : users) {
+            String version = version(user);
+            for (int i = 0; i < version.length(); i++) {
+                hash = (hash ^ version.charAt(i)) * 0x100000001b3L;
+            }
+            hash = (hash ^ '|') * 0x100000001b3L;
+        }
+        return weak(users.size() + "-" + Long.toHexString(hash));
+    }
+
+    public static String of(TransactionStore.HistoryVersion version) {
+        return weak("h" + version.transactions() + "-" + (version.newestId() == null ? "" : version.newestId()));
+    }
+
+    public static String ofImmutable(String id) {
+        return weak(id);
+    }
+
+    private static String weak(String tag) {
+        return "W/\"" + tag + "\"";
+    }
+
+    private static String version(User user) {
+        long updated = user.getUpdatedAt() == null ? 0
+                : user.getUpdatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + user.getUpdatedAt().getNano();
+        return user.getId() + "-" + Long.toHexString(updated);
+    }
+}
@@ -0,0 +1,57 @@
+package com.nilijoski.backend.web;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ordered list of endpoint patterns with a value each; {@link #match} returns the value of the
+ * first entry whose HTTP method and path pattern match a request.
+ * <p>
+ * Populate it before sharing it between threads; matching itself does not allocate for literal paths.
+ */
+public final class EndpointMatcher<T> {
+
+    private final List<Entry<T>> entries = new ArrayList<>();
+
+    private record Entry<T>(PathPattern pattern, String exactPath, Set<String> methods, T value) {
+    }
+
+    /**
+     * @param methods HTTP methods the entry applies to, all methods when empty
+     */
+    public EndpointMatcher<T> add(String pattern, Collection<String> methods, T value) {
+        PathPattern parsed = PathPatternParser.defaultInstance.parse(pattern);
+        // Literal paths skip PathContainer parsing, which dominates the cost of a lookup
+        String exactPath = parsed.hasPatternSyntax() ? null : pattern;
+        entries.add(new Entry<>(parsed, exactPath, Set.copyOf(methods), value));
+        return this;
+    }
+
+    public T match(String method, String path) {
+        PathContainer container = null;
+        for (Entry<T> entry : entries) {
+            if (!entry.methods.isEmpty() && !entry.methods.contains(method)) {
+                continue;
+            }
+            if (entry.exactPath != null) {
+                if (entry.exactPath.equals(path)) {
+                    return entry.value;
+                }
+                continue;
+            }
+            if (container == null) {
+                container = PathContainer.parsePath(path);
+            }
+            if (entry.pattern.matches(container)) {
+                return entry.value;
+            }
+        }
+        return null;
+    }
+}
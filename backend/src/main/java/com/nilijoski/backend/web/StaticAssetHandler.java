@@ -0,0 +1,142 @@
+package com.nilijoski.backend.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.HttpRequestHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Serves {@link StaticAssets} and falls back to {@code index.html} for client-side routes.
+ * <p>
+ * The encoding is negotiated from {@code Accept-Encoding} (Brotli, then gzip, then none) and
+ * every representation has its own strong ETag, so {@code If-None-Match} works per encoding.
+ * Hashed assets are cacheable for a year; everything else, {@code index.html} in particular,
+ * has to be revalidated, which costs a 304 while it is unchanged.
+ * <p>
+ * Only paths whose last segment has no extension and that are outside {@code /api/} fall back
+ * to {@code index.html}; a missing script or stylesheet is a 404, not an HTML page.
+ */
+public class StaticAssetHandler implements HttpRequestHandler {
+
+    static final String INDEX = "index.html";
+
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+            .getHeaderValue();
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    private final StaticAssets assets;
+
+    public StaticAssetHandler(StaticAssets assets) {
+        this.assets = assets;
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String method = request.getMethod();
+        boolean head = HttpMethod.HEAD.matches(method);
+        if (!head && !HttpMethod.GET.matches(method)) {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        StaticAssets.Asset asset = assets.get(path.equals("/") ? INDEX : path.substring(1));
+        if (asset == null && isClientRoute(path)) {
+            asset = assets.get(INDEX);
+        }
+        if (asset == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        byte[] body = asset.identity();
+        String encoding = null;
+        if (asset.brotli() != null && accepts(acceptEncoding, "br")) {
+            body = asset.brotli();
+            encoding = "br";
+        } else if (asset.gzip() != null && accepts(acceptEncoding, "gzip")) {
+            body = asset.gzip();
+            encoding = "gzip";
+        }
+        String eTag = encoding == null ? asset.eTag()
+                : asset.eTag().substring(0, asset.eTag().length() - 1) + "-" + encoding + "\"";
+
+        if (asset.brotli() != null || asset.gzip() != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, asset.immutable() ? IMMUTABLE : REVALIDATE);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(asset.mediaType().toString());
+        if (encoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        response.setContentLength(body.length);
+        if (!head) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private static boolean isClientRoute(String path) {
+        return !path.startsWith("/api/") && path.indexOf('.', path.lastIndexOf('/')) < 0;
+    }
+
+    /**
+     * Whether {@code Accept-Encoding} allows {@code coding}, directly or through {@code *}, with a non-zero q.
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String name = parts[0].trim();
+            boolean allowed = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                return allowed;
+            }
+            if (name.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
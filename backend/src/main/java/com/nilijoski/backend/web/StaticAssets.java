@@ -0,0 +1,123 @@
+package com.nilijoski.backend.web;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory copy of the built frontend, read once at startup.
+ * <p>
+ * Every file is held with its precompressed variants: {@code .br} and {@code .gz} files written
+ * next to it by the frontend build are used as they are, and text files without a {@code .gz}
+ * are gzipped here. Brotli is only available when the build provides it, the JDK has no encoder.
+ * Vite's content-hashed files under {@code assets/} never change and are marked immutable.
+ */
+public final class StaticAssets {
+
+    private static final Set<String> COMPRESSIBLE = Set.of("html", "js", "mjs", "css", "svg", "json", "txt", "map");
+    private static final int MIN_COMPRESSED_SIZE = 1024;
+    // e.g. assets/index-BpQ3x8Zk.js
+    private static final Pattern HASHED = Pattern.compile("assets/.+-[A-Za-z0-9_-]{8,}\\.[A-Za-z0-9]+");
+
+    /**
+     * One file. {@code brotli} and {@code gzip} are {@code null} when no smaller variant exists.
+     */
+    public record Asset(String path, MediaType mediaType, byte[] identity, byte[] brotli, byte[] gzip,
+                        String eTag, boolean immutable) {
+    }
+
+    private final Map<String, Asset> assets;
+
+    private StaticAssets(Map<String, Asset> assets) {
+        this.assets = Map.copyOf(assets);
+    }
+
+    /**
+     * Indexes every file below {@code location}, e.g. {@code classpath:/static/}. A missing
+     * location gives an empty index.
+     */
+    public static StaticAssets load(ResourcePatternResolver resolver, String location) throws IOException {
+        Resource root = resolver.getResource(location);
+        if (!root.exists()) {
+            return new StaticAssets(Map.of());
+        }
+        String rootUrl = root.getURL().toString();
+        Map<String, byte[]> files = new HashMap<>();
+        for (Resource resource : resolver.getResources(location + "**/*")) {
+            String url = resource.getURL().toString();
+            if (url.endsWith("/") || !url.startsWith(rootUrl) || !resource.isReadable()) {
+                continue;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                files.put(url.substring(rootUrl.length()), in.readAllBytes());
+            }
+        }
+
+        Map<String, Asset> assets = new HashMap<>();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            String path = file.getKey();
+            if ((path.endsWith(".br") || path.endsWith(".gz")) && files.containsKey(path.substring(0, path.length() - 3))) {
+                continue;
+            }
+            byte[] identity = file.getValue();
+            byte[] gzip = files.get(path + ".gz");
+            if (gzip == null && compressible(path) && identity.length >= MIN_COMPRESSED_SIZE) {
+                gzip = gzip(identity);
+            }
+            assets.put(path, new Asset(path,
+                    MediaTypeFactory.getMediaType(path).orElse(MediaType.APPLICATION_OCTET_STREAM),
+                    identity, smaller(files.get(path + ".br"), identity), smaller(gzip, identity),
+                    "\"" + hash(identity) + "\"", HASHED.matcher(path).matches()));
+        }
+        return new StaticAssets(assets);
+    }
+
+    /**
+     * @param path relative to the location, without a leading slash
+     */
+    public Asset get(String path) {
+        return assets.get(path);
+    }
+
+    public int size() {
+        return assets.size();
+    }
+
+    private static boolean compressible(String path) {
+        return COMPRESSIBLE.contains(path.substring(path.lastIndexOf('.') + 1));
+    }
+
+    private static byte[] smaller(byte[] variant, byte[] identity) {
+        return variant != null && variant.length < identity.length ? variant : null;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.nilijoski.backend.account;
+
+import com.nilijoski.backend.model.Counter;
+import com.nilijoski.backend.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberAllocatorTest {
+
+    private static final String BANK_CODE = "37040044";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    // Stands in for the counter document; $inc with returnNew is atomic in Mongo
+    private final AtomicLong counter = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Counter.class))).thenAnswer(invocation -> {
+            Update update = invocation.getArgument(1);
+            long increment = ((Number) update.getUpdateObject().get("$inc", Document.class).get("value")).longValue();
+            return new Counter(AccountNumberAllocator.COUNTER_ID, counter.addAndGet(increment));
+        });
+        lenient().when(mongoTemplate.findDistinct(any(Query.class), eq("accountNumber"), eq(User.class), eq(String.class)))
+                .thenReturn(List.of());
+    }
+
+    @Test
+    void servesBlockFromMemory() {
+        AccountNumberAllocator allocator = new AccountNumberAllocator(mongoTemplate, BANK_CODE, 10);
+
+        for (int i = 0; i < 10; i++) {
+            allocator.next();
+        }
+        AccountNumberAllocator.AccountIdentifiers eleventh = allocator.next();
+
+        assertEquals("0000000011", eleventh.accountNumber());
+        assertEquals(GermanIban.of(BANK_CODE, "0000000011"), eleventh.iban());
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Counter.class));
+    }
+
+    @Test
+    void skipsNumbersTakenByExistingAccounts() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("accountNumber"), eq(User.class), eq(String.class)))
+                .thenReturn(List.of("0000000001", "0000000002"));
+        AccountNumberAllocator allocator = new AccountNumberAllocator(mongoTemplate, BANK_CODE, 5);
+
+        assertEquals("0000000003", allocator.next().accountNumber());
+    }
+
+    @Test
+    void rejectsInvalidBankCode() {
+        assertThrows(IllegalArgumentException.class, () -> new AccountNumberAllocator(mongoTemplate, "123", 10));
+    }
+
+    @Test
+    void concurrentRegistrationsOnSeveralNodesGetUniqueNumbers() throws Exception {
+        List<AccountNumberAllocator> nodes = List.of(
+                new AccountNumberAllocator(mongoTemplate, BANK_CODE, 50),
+                new AccountNumberAllocator(mongoTemplate, BANK_CODE, 50),
+                new AccountNumberAllocator(mongoTemplate, BANK_CODE, 50));
+        int threads = 12;
+        int perThread = 2_000;
+        Set<String> accountNumbers = ConcurrentHashMap.newKeySet();
+        Set<String> ibans = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            AccountNumberAllocator node = nodes.get(t % nodes.size());
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    AccountNumberAllocator.AccountIdentifiers account = node.next();
+                    assertTrue(accountNumbers.add(account.accountNumber()), account.accountNumber());
+                    assertTrue(ibans.add(account.iban()), account.iban());
+                    assertTrue(GermanIban.isValid(account.iban()), account.iban());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, accountNumbers.size());
+    }
+}
@@ -0,0 +1,36 @@
+package com.nilijoski.backend.account;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GermanIbanTest {
+
+    @Test
+    void computesCheckDigits() {
+        assertEquals("DE89370400440532013000", GermanIban.of("37040044", "0532013000"));
+        assertEquals("DE02120300000000202051", GermanIban.of("12030000", "0000202051"));
+    }
+
+    @Test
+    void generatedIbansAreValid() {
+        for (long number = 0; number < 10_000; number++) {
+            String iban = GermanIban.of("37040044", String.format("%010d", number));
+            assertTrue(GermanIban.isValid(iban), iban);
+        }
+    }
+
+    @Test
+    void detectsTypos() {
+        assertFalse(GermanIban.isValid("DE89370400440532013001"));
+        assertFalse(GermanIban.isValid("DE98370400440532013000"));
+        assertFalse(GermanIban.isValid("DE8937040044053201300"));
+        assertFalse(GermanIban.isValid("FR89370400440532013000"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> GermanIban.of("3704004", "0532013000"));
+        assertThrows(IllegalArgumentException.class, () -> GermanIban.of("37040044", "053201300X"));
+    }
+}
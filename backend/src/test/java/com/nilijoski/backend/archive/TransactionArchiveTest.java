@@ -0,0 +1,185 @@
+package com.nilijoski.backend.archive;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private TransactionArchive archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = new TransactionArchive(directory, 1000);
+        archive.loadSegments();
+    }
+
+    private Transaction transfer(String fromIban, String toIban, LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setId(new ObjectId().toHexString());
+        transaction.setFromIban(fromIban);
+        transaction.setToIban(toIban);
+        transaction.setFromAccountNumber("acc-" + fromIban);
+        transaction.setToAccountNumber("acc-" + toIban);
+        transaction.setFromFirstName("John");
+        transaction.setToLastName("Smith");
+        transaction.setAmount(new BigDecimal("12.50"));
+        transaction.setTransactionType("TRANSFER");
+        transaction.setStatus("COMPLETED");
+        transaction.setDescription(null);
+        transaction.setTransactionDate(date);
+        return transaction;
+    }
+
+    @Test
+    void segment_roundTripsAllColumns() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Transaction first = transfer("A", "B", now.minusDays(2));
+        Transaction second = transfer("B", "C", now.minusDays(1));
+
+        TransactionSegment.Index index = TransactionSegment.write(directory.resolve("test.seg"), List.of(second, first));
+        List<Transaction> rows = TransactionSegment.readRows(index.path());
+
+        assertEquals(List.of(first, second), rows);
+        assertEquals(first.getTransactionDate(), index.from());
+        assertTrue(List.of("A", "B", "C", "acc-A", "acc-C").stream().allMatch(index::mightContain));
+        assertFalse(index.mightContain("X"));
+    }
+
+    @Test
+    void segment_roundTripsValuesOver64Kilobytes() throws IOException {
+        Transaction transaction = transfer("A", "B", LocalDateTime.now().minusDays(1));
+        transaction.setDescription("\u00fc".repeat(40_000));
+
+        TransactionSegment.Index index = TransactionSegment.write(directory.resolve("test.seg"), List.of(transaction));
+
+        assertEquals(List.of(transaction), TransactionSegment.readRows(index.path()));
+    }
+
+    @Test
+    void loadSegments_failsWhileAnotherNodeHoldsTheLease() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(TransactionArchive.LEASE_COLLECTION)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+
+        TransactionArchive second = new TransactionArchive(directory, 1000, mongoTemplate);
+
+        assertThrows(IllegalStateException.class, second::loadSegments);
+        assertThrows(IllegalStateException.class,
+                () -> second.append(List.of(transfer("A", "B", LocalDateTime.now().minusDays(400)))));
+    }
+
+    @Test
+    void append_stopsOnceTheLeaseIsLost() throws IOException {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        TransactionArchive leased = new TransactionArchive(directory, 1000, mongoTemplate);
+        leased.loadSegments();
+        leased.append(List.of(transfer("A", "B", LocalDateTime.now().minusDays(400))));
+
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(TransactionArchive.LEASE_COLLECTION)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+        leased.renewLeaseScheduled();
+
+        assertThrows(IllegalStateException.class,
+                () -> leased.append(List.of(transfer("A", "B", LocalDateTime.now().minusDays(399)))));
+        assertEquals(1, leased.getSegments().size());
+    }
+
+    @Test
+    void loadSegments_readsExistingSegmentHeaders() throws IOException {
+        archive.append(List.of(transfer("A", "B", LocalDateTime.now().minusDays(400))));
+
+        TransactionArchive reopened = new TransactionArchive(directory, 1000);
+        reopened.loadSegments();
+
+        assertEquals(1, reopened.getSegments().size());
+        assertEquals(1, reopened.findByAccount("A", transaction -> true).size());
+    }
+
+    @Test
+    void findByAccount_skipsSegmentsWithoutTheAccount() {
+        Transaction ab = transfer("A", "B", LocalDateTime.now().minusDays(3));
+        Transaction cd = transfer("C", "D", LocalDateTime.now().minusDays(2));
+        archive.append(List.of(ab));
+        archive.append(List.of(cd));
+
+        assertEquals(List.of(cd), archive.findByAccount("D", transaction -> true));
+        assertTrue(archive.findByAccount("X", transaction -> true).isEmpty());
+    }
+
+    @Test
+    void findByAccount_servesRepeatedReadsFromTheCachedRows() throws IOException {
+        Transaction ab = transfer("A", "B", LocalDateTime.now().minusDays(3));
+        TransactionSegment.Index segment = archive.append(List.of(ab));
+        assertEquals(List.of(ab), archive.findByAccount("A", transaction -> true));
+
+        Files.delete(segment.path());
+
+        assertEquals(List.of(ab), archive.findByAccount("B", transaction -> true));
+    }
+
+    @Test
+    void findById_usesObjectIdTimestamp() {
+        Transaction transaction = transfer("A", "B", LocalDateTime.now());
+        archive.append(List.of(transaction));
+
+        assertEquals(Optional.of(transaction), archive.findById(transaction.getId()));
+        assertTrue(archive.findById(new ObjectId().toHexString()).isEmpty());
+    }
+
+    @Test
+    void archiver_movesOldTransactionsAndTieredStoreMergesThem() {
+        TransactionStore hot = mock(TransactionStore.class);
+        Transaction old = transfer("A", "B", LocalDateTime.now().minusDays(500));
+        Transaction recent = transfer("B", "A", LocalDateTime.now());
+        when(hot.findOlderThan(any(), anyInt())).thenReturn(List.of(old)).thenReturn(List.of());
+        when(hot.findByFromIbanOrToIban("A", "A")).thenReturn(List.of(recent));
+
+        TransactionArchiver archiver = new TransactionArchiver(hot, archive, Duration.ofDays(365), 1000);
+        int archived = archiver.archive(LocalDateTime.now().minusDays(365));
+
+        assertEquals(1, archived);
+        verify(hot).deleteAll(List.of(old));
+
+        TieredTransactionStore tiered = new TieredTransactionStore(hot, archive);
+        assertEquals(List.of(old, recent), tiered.findByFromIbanOrToIban("A", "A"));
+    }
+
+    @Test
+    void tieredStore_prefersHotCopyOfDuplicates() {
+        TransactionStore hot = mock(TransactionStore.class);
+        Transaction transaction = transfer("A", "B", LocalDateTime.now().minusDays(500));
+        archive.append(List.of(transaction));
+        when(hot.findByFromIban("A")).thenReturn(List.of(transaction));
+
+        List<Transaction> result = new TieredTransactionStore(hot, archive).findByFromIban("A");
+
+        assertEquals(1, result.size());
+        assertSame(transaction, result.get(0));
+    }
+}
@@ -0,0 +1,48 @@
+package com.nilijoski.backend.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+
+/**
+ * Starts a throwaway mongod for benchmarks, or connects to {@code BENCHMARK_MONGODB_URI} when set.
+ */
+public final class EmbeddedMongo implements AutoCloseable {
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> process;
+    private final String uri;
+
+    private EmbeddedMongo(TransitionWalker.ReachedState<RunningMongodProcess> process, String uri) {
+        this.process = process;
+        this.uri = uri;
+    }
+
+    public static EmbeddedMongo start() {
+        String external = System.getenv("BENCHMARK_MONGODB_URI");
+        if (external != null && !external.isBlank()) {
+            return new EmbeddedMongo(null, external);
+        }
+
+        TransitionWalker.ReachedState<RunningMongodProcess> process = Mongod.instance().start(Version.Main.V7_0);
+        var address = process.current().getServerAddress();
+        return new EmbeddedMongo(process, "mongodb://" + address.getHost() + ":" + address.getPort());
+    }
+
+    public String uri() {
+        return uri;
+    }
+
+    public MongoClient client() {
+        return MongoClients.create(uri);
+    }
+
+    @Override
+    public void close() {
+        if (process != null) {
+            process.close();
+        }
+    }
+}
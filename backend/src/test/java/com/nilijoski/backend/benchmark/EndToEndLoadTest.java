@@ -0,0 +1,228 @@
+package com.nilijoski.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.BackendApplication;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Boots the full application against embedded Mongo (or {@code BENCHMARK_MONGODB_URI}), seeds
+ * users through {@link UserService#register} and drives an open-model mix of transfers,
+ * dashboard loads and logins over HTTP. Prints HdrHistogram percentiles per endpoint and writes
+ * them as JSON to {@code load.output}.
+ * <p>
+ * Everything is configurable with system properties, for example
+ * {@code mvn test -Pbenchmark -Dtest=EndToEndLoadTest -Dload.rate=500 -Dload.duration=120s
+ * -Dload.mix=transfer:60,dashboard:35,login:5 -Dload.virtual-threads=true}.
+ * A dashboard load issues the three reads the frontend's dashboard issues, in parallel.
+ * Rate limiting is off so that it does not cap the measured capacity; bulkheads stay as configured.
+ */
+@Tag("benchmark")
+class EndToEndLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 500);
+    private static final int SAVED_RECIPIENTS = Integer.getInteger("load.saved-recipients", 3);
+    private static final double RATE = Double.parseDouble(System.getProperty("load.rate", "100"));
+    private static final Duration WARM_UP = duration("load.warm-up", "15s");
+    private static final Duration DURATION = duration("load.duration", "60s");
+    private static final String MIX = System.getProperty("load.mix", "transfer:40,dashboard:55,login:5");
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("load.max-in-flight", 10_000);
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("load.virtual-threads");
+    private static final String BCRYPT_STRENGTH = System.getProperty("load.bcrypt-strength", "10");
+    private static final Path OUTPUT = Path.of(System.getProperty("load.output", "target/load-summary.json"));
+
+    private static final String PASSWORD = "load-test-password";
+
+    private record Account(User user, String accessToken) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpClient client;
+    private String baseUrl;
+    private List<Account> accounts;
+
+    @Test
+    void driveMixedLoad() throws Exception {
+        try (EmbeddedMongo mongo = EmbeddedMongo.start();
+             ConfigurableApplicationContext context = boot(mongo.uri());
+             HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            client = httpClient;
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            accounts = seed(context.getBean(UserService.class), context.getBean(TokenService.class));
+
+            OpenLoadGenerator generator = new OpenLoadGenerator(MAX_IN_FLIGHT);
+            Map<String, Integer> mix = mix();
+            generator.add("transfer", mix.getOrDefault("transfer", 0), this::transfer)
+                    .add("dashboard", mix.getOrDefault("dashboard", 0), this::dashboard)
+                    .add("login", mix.getOrDefault("login", 0), this::login);
+
+            generator.run(RATE, WARM_UP);
+            LoadResult result = generator.run(RATE, DURATION);
+
+            result.print(System.out);
+            result.write(OUTPUT, configuration());
+            System.out.println("Summary written to " + OUTPUT.toAbsolutePath());
+            assertEquals(0, result.errors(), "requests failed under load");
+        }
+    }
+
+    private static ConfigurableApplicationContext boot(String mongoUri) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .properties(
+                        "spring.data.mongodb.uri=" + mongoUri + "/banking-load",
+                        "server.port=0",
+                        "management.server.port=0",
+                        "spring.threads.virtual.enabled=" + VIRTUAL_THREADS,
+                        "banking.rate-limit.enabled=false",
+                        "banking.security.bcrypt.strength=" + BCRYPT_STRENGTH,
+                        "banking.security.tokens.access-ttl=24h")
+                .run();
+    }
+
+    private List<Account> seed(UserService userService, TokenService tokenService) throws Exception {
+        long start = System.nanoTime();
+        List<Future<User>> registrations = new ArrayList<>();
+        // Registration is BCrypt-bound, so more threads than cores would only queue in the hasher
+        try (ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            String run = Long.toString(System.currentTimeMillis(), 36);
+            for (int i = 0; i < USERS; i++) {
+                String username = "load-" + run + "-" + i;
+                registrations.add(executor.submit(() -> userService.register(username, PASSWORD, "Load", "User")));
+            }
+        }
+        List<User> users = new ArrayList<>();
+        for (Future<User> registration : registrations) {
+            users.add(registration.get());
+        }
+        List<Account> seeded = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            for (int r = 1; r <= SAVED_RECIPIENTS && r < users.size(); r++) {
+                user = userService.addSavedRecipient(user.getId(), users.get((i + r) % users.size()).getIban());
+            }
+            seeded.add(new Account(user, tokenService.issue(user).accessToken()));
+        }
+        System.out.printf("Seeded %d users in %.1f s%n", seeded.size(), (System.nanoTime() - start) / 1e9);
+        return seeded;
+    }
+
+    private void transfer(OpenLoadGenerator recorder, long scheduledAt) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Account from = accounts.get(random.nextInt(accounts.size()));
+        Account to = accounts.get(random.nextInt(accounts.size()));
+        if (from == to) {
+            to = accounts.get((accounts.indexOf(from) + 1) % accounts.size());
+        }
+        String body = objectMapper.writeValueAsString(Map.of("fromIban", from.user().getIban(),
+                "toIban", to.user().getIban(), "toFirstName", "Load", "toLastName", "User",
+                "amount", 0.01, "description", "Load test"));
+        send(recorder, scheduledAt, "POST /api/transactions/transfer", from, HttpRequest.newBuilder(uri("/api/transactions/transfer"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private void dashboard(OpenLoadGenerator recorder, long scheduledAt) throws Exception {
+        Account account = accounts.get(ThreadLocalRandom.current().nextInt(accounts.size()));
+        User user = account.user();
+        List<Future<Boolean>> reads = new ArrayList<>();
+        try (ExecutorService parallel = Executors.newVirtualThreadPerTaskExecutor()) {
+            reads.add(parallel.submit(() -> send(recorder, scheduledAt, "GET /api/users/number/{accountNumber}", account,
+                    HttpRequest.newBuilder(uri("/api/users/number/" + user.getAccountNumber())))));
+            reads.add(parallel.submit(() -> send(recorder, scheduledAt, "GET /api/transactions/iban/{iban}", account,
+                    HttpRequest.newBuilder(uri("/api/transactions/iban/" + user.getIban())))));
+            reads.add(parallel.submit(() -> send(recorder, scheduledAt, "GET /api/users/{userId}/saved-recipients", account,
+                    HttpRequest.newBuilder(uri("/api/users/" + user.getId() + "/saved-recipients")))));
+        }
+        boolean success = true;
+        for (Future<Boolean> read : reads) {
+            success &= read.get();
+        }
+        recorder.record("dashboard (all three reads)", scheduledAt, success);
+    }
+
+    private void login(OpenLoadGenerator recorder, long scheduledAt) throws Exception {
+        Account account = accounts.get(ThreadLocalRandom.current().nextInt(accounts.size()));
+        String body = objectMapper.writeValueAsString(Map.of("username", account.user().getUsername(), "password", PASSWORD));
+        send(recorder, scheduledAt, "POST /api/users/login", null, HttpRequest.newBuilder(uri("/api/users/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private boolean send(OpenLoadGenerator recorder, long scheduledAt, String endpoint, Account account,
+                         HttpRequest.Builder request) throws InterruptedException {
+        if (account != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + account.accessToken());
+        }
+        boolean success;
+        try {
+            success = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode() < 300;
+        } catch (IOException e) {
+            success = false;
+        }
+        recorder.record(endpoint, scheduledAt, success);
+        return success;
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static Map<String, Integer> mix() {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : MIX.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+
+    private static Map<String, Object> configuration() {
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("users", USERS);
+        configuration.put("savedRecipients", SAVED_RECIPIENTS);
+        configuration.put("rate", RATE);
+        configuration.put("warmUp", WARM_UP.toString());
+        configuration.put("duration", DURATION.toString());
+        configuration.put("mix", MIX);
+        configuration.put("virtualThreads", VIRTUAL_THREADS);
+        configuration.put("bcryptStrength", BCRYPT_STRENGTH);
+        configuration.put("cores", Runtime.getRuntime().availableProcessors());
+        return configuration;
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        String value = System.getProperty(property, defaultValue).trim().toLowerCase();
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value.replace("s", "")));
+    }
+}
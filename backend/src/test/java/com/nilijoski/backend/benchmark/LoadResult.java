@@ -0,0 +1,64 @@
+package com.nilijoski.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of one {@link OpenLoadGenerator} run: offered and achieved load, and HdrHistogram
+ * latency percentiles per endpoint, in milliseconds.
+ */
+record LoadResult(double offeredRate, long offered, long dropped, double seconds, Map<String, Endpoint> endpoints) {
+
+    record Endpoint(long requests, long errors, double throughput, double mean, double p50, double p90, double p99,
+                    double p999, double max) {
+
+        static Endpoint of(Histogram histogram, long errors, double seconds) {
+            return new Endpoint(histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds,
+                    millis(histogram.getMean()), millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(double nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    long errors() {
+        return endpoints.values().stream().mapToLong(Endpoint::errors).sum();
+    }
+
+    void print(PrintStream out) {
+        out.printf("Offered %.0f ops/s for %.1f s: %d operations, %d dropped%n", offeredRate, seconds, offered, dropped);
+        out.printf("%-44s %9s %7s %9s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach((name, endpoint) -> out.printf("%-44s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, endpoint.requests(), endpoint.errors(), endpoint.throughput(), endpoint.p50(), endpoint.p90(),
+                endpoint.p99(), endpoint.p999(), endpoint.max()));
+    }
+
+    /**
+     * Writes this result together with the run configuration as JSON.
+     */
+    void write(Path file, Map<String, Object> configuration) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("configuration", configuration);
+        summary.put("offeredRate", offeredRate);
+        summary.put("offered", offered);
+        summary.put("dropped", dropped);
+        summary.put("seconds", seconds);
+        summary.put("endpoints", endpoints);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), summary);
+    }
+}
@@ -0,0 +1,128 @@
+package com.nilijoski.backend.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load: operations start at a constant arrival rate whether or not earlier ones have
+ * finished, each on its own virtual thread, like independent users would. Latency is measured
+ * from the moment an operation was scheduled to start, so a stalled server shows up as latency
+ * instead of silently lowering the offered load (coordinated omission).
+ * <p>
+ * Operations are picked by weight and report each HTTP call to {@link #record}, so one
+ * operation can cover several endpoints.
+ */
+final class OpenLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE = Duration.ofMinutes(2).toNanos();
+
+    /**
+     * One unit of work started by the generator; {@code scheduledAt} is its intended start.
+     */
+    @FunctionalInterface
+    interface Operation {
+        void run(OpenLoadGenerator recorder, long scheduledAt) throws Exception;
+    }
+
+    private record Weighted(String name, int weight, Operation operation) {
+    }
+
+    private final Map<String, Weighted> operations = new TreeMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int maxInFlight;
+    private int totalWeight;
+
+    OpenLoadGenerator(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    OpenLoadGenerator add(String name, int weight, Operation operation) {
+        if (weight > 0) {
+            operations.put(name, new Weighted(name, weight, operation));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    /**
+     * Records one call to {@code endpoint} that was meant to start at {@code scheduledAt}.
+     */
+    void record(String endpoint, long scheduledAt, boolean success) {
+        histograms.computeIfAbsent(endpoint, name -> new ConcurrentHistogram(HIGHEST_TRACKABLE, 3))
+                .recordValue(Math.min(System.nanoTime() - scheduledAt, HIGHEST_TRACKABLE));
+        if (!success) {
+            errors.computeIfAbsent(endpoint, name -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Offers {@code ratePerSecond} operations per second for {@code duration} and waits for the
+     * last of them to finish. Operations beyond {@code maxInFlight} are dropped and counted.
+     */
+    LoadResult run(double ratePerSecond, Duration duration) {
+        histograms.clear();
+        errors.clear();
+        dropped.reset();
+        Weighted[] byWeight = operations.values().toArray(Weighted[]::new);
+        long interval = (long) (1_000_000_000 / ratePerSecond);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long offered = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long scheduledAt = start; scheduledAt < end; scheduledAt = start + ++offered * interval) {
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (inFlight.get() >= maxInFlight) {
+                    dropped.increment();
+                    continue;
+                }
+                Weighted picked = pick(byWeight);
+                long intended = scheduledAt;
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        picked.operation().run(this, intended);
+                    } catch (Exception e) {
+                        record(picked.name(), intended, false);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, LoadResult.Endpoint> endpoints = new TreeMap<>();
+        histograms.forEach((name, histogram) -> endpoints.put(name, LoadResult.Endpoint.of(histogram,
+                errors.getOrDefault(name, new LongAdder()).sum(), seconds)));
+        return new LoadResult(ratePerSecond, offered, dropped.sum(), seconds, endpoints);
+    }
+
+    private Weighted pick(Weighted[] byWeight) {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Weighted weighted : byWeight) {
+            ticket -= weighted.weight();
+            if (ticket < 0) {
+                return weighted;
+            }
+        }
+        return byWeight[byWeight.length - 1];
+    }
+}
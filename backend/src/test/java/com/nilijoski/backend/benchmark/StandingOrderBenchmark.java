@@ -0,0 +1,123 @@
+package com.nilijoski.backend.benchmark;
+
+import com.nilijoski.backend.BackendApplication;
+import com.nilijoski.backend.model.StandingOrder;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Drains a backlog of overdue standing orders through the real scheduler and transfer path, as
+ * after downtime or on the first of the month when most monthly orders are due together, and
+ * reports the execution rate against one million orders a day.
+ * Run with {@code mvn test -Pbenchmark -Dtest=StandingOrderBenchmark -Dstanding-orders.orders=50000}.
+ */
+@Tag("benchmark")
+class StandingOrderBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("standing-orders.accounts", 200);
+    private static final int ORDERS = Integer.getInteger("standing-orders.orders", 20_000);
+    private static final String BATCH_SIZE = System.getProperty("standing-orders.batch-size", "200");
+    private static final Duration TIMEOUT = Duration.ofMinutes(Integer.getInteger("standing-orders.timeout-minutes", 30));
+
+    private static final double ORDERS_PER_DAY = 1_000_000;
+
+    @Test
+    void drainOverdueOrders() throws Exception {
+        try (EmbeddedMongo mongo = EmbeddedMongo.start();
+             ConfigurableApplicationContext context = boot(mongo.uri())) {
+            MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+            List<User> users = seed(context.getBean(UserService.class));
+
+            Random random = new Random(42);
+            LocalDateTime due = LocalDateTime.now().minusMinutes(1);
+            List<StandingOrder> chunk = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                int from = random.nextInt(ACCOUNTS);
+                int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                chunk.add(order(users.get(from), users.get(to), due));
+                if (chunk.size() == 1_000 || i == ORDERS - 1) {
+                    mongoTemplate.insert(chunk, StandingOrder.class);
+                    chunk.clear();
+                }
+            }
+
+            long start = System.nanoTime();
+            Query executed = Query.query(where("executedRuns").gte(1));
+            long done = 0;
+            while (done < ORDERS && System.nanoTime() - start < TIMEOUT.toNanos()) {
+                Thread.sleep(1_000);
+                done = mongoTemplate.count(executed, StandingOrder.class);
+                System.out.printf("%6.0f s  %,d of %,d executed%n", (System.nanoTime() - start) / 1e9, done, ORDERS);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double perSecond = done / seconds;
+            long failed = mongoTemplate.count(Query.query(where("failedRuns").gte(1)), StandingOrder.class);
+
+            System.out.printf("%nExecuted %,d orders in %.1f s: %.0f orders/s, %d failed%n", done, seconds, perSecond, failed);
+            System.out.printf("1M orders/day is %.1f orders/s on average; at this rate a day's worth due at once"
+                    + " drains in %.1f h%n", ORDERS_PER_DAY / 86_400, ORDERS_PER_DAY / perSecond / 3_600);
+            assertEquals(ORDERS, done, "backlog not drained within " + TIMEOUT);
+            assertEquals(0, failed);
+        }
+    }
+
+    private static ConfigurableApplicationContext boot(String mongoUri) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .properties(
+                        "spring.data.mongodb.uri=" + mongoUri + "/banking-standing-orders",
+                        "server.port=0",
+                        "management.server.port=0",
+                        "banking.warm-up.enabled=false",
+                        "banking.security.bcrypt.strength=4",
+                        "banking.standing-orders.enabled=true",
+                        // Picks up the inserted backlog without waiting for the regular load
+                        "banking.standing-orders.load-interval=5s",
+                        "banking.standing-orders.horizon=5s",
+                        "banking.standing-orders.batch-size=" + BATCH_SIZE,
+                        "banking.standing-orders.max-scheduled=" + Math.max(100_000, ORDERS))
+                .run();
+    }
+
+    private static List<User> seed(UserService userService) {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            users.add(userService.register("standing-" + run + "-" + i, "benchmark-password", "Standing", "Order"));
+        }
+        return users;
+    }
+
+    private static StandingOrder order(User from, User to, LocalDateTime due) {
+        StandingOrder order = new StandingOrder();
+        order.setFromIban(from.getIban());
+        order.setToIban(to.getIban());
+        order.setToFirstName(to.getFirstName());
+        order.setToLastName(to.getLastName());
+        // Small enough that no account runs out of its starting balance
+        order.setAmount(new BigDecimal("0.01"));
+        order.setDescription("Benchmark");
+        order.setFrequency(StandingOrder.Frequency.MONTHLY);
+        order.setFirstRunAt(due);
+        order.setNextRunAt(due);
+        order.setStatus(StandingOrder.ACTIVE);
+        order.setCreatedAt(due);
+        order.setUpdatedAt(due);
+        return order;
+    }
+}
@@ -0,0 +1,183 @@
+package com.nilijoski.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.nilijoski.backend.account.GermanIban;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.security.TokenRevocationList;
+import com.nilijoski.backend.security.TokenService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Cold start of the packaged application: time from process start to the first successful
+ * {@code POST /api/transactions/transfer}, and resident memory at that point. Compares the plain
+ * jar with the AOT-processed, CDS-backed build of the {@code fast-startup} profile and, when
+ * present, the native executable of the {@code native} profile. Variants whose artifacts are
+ * missing are skipped.
+ * <pre>
+ *   mvn -Pfast-startup package -DskipTests   (the training run needs a local Mongo)
+ *   mvn test -Pbenchmark -Dtest=StartupBenchmark -Dstartup.runs=5
+ * </pre>
+ * Sender and recipient are written to Mongo up front and the access token is minted with the
+ * shared secret, so the measurement contains no password hashing. Each run gets its own database.
+ */
+@Tag("benchmark")
+class StartupBenchmark {
+
+    private static final int RUNS = Integer.getInteger("startup.runs", 3);
+    private static final Duration TIMEOUT = Duration.ofSeconds(Integer.getInteger("startup.timeout-seconds", 120));
+    private static final Path TARGET = Path.of(System.getProperty("startup.target", "target"));
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String BANK_CODE = "37040044";
+
+    private record Variant(String name, Path artifact, List<String> command) {
+    }
+
+    private record Run(long millisToFirstTransfer, long residentKilobytes) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenService tokenService = new TokenService(SECRET, Duration.ofHours(1), Duration.ofDays(1),
+            new TokenRevocationList(), objectMapper);
+
+    @Test
+    void timeToFirstTransfer() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Path plainJar = TARGET.resolve("banking-app.jar");
+        Path extracted = TARGET.resolve("application");
+        List<Variant> variants = new ArrayList<>();
+        for (Variant variant : List.of(
+                new Variant("jar", plainJar, List.of(java, "-jar", plainJar.toString())),
+                new Variant("aot+cds", extracted.resolve("banking-app.jsa"), List.of(java,
+                        "-XX:SharedArchiveFile=" + extracted.resolve("banking-app.jsa"), "-Dspring.aot.enabled=true",
+                        "-jar", extracted.resolve("banking-app.jar").toString())),
+                new Variant("native", TARGET.resolve("banking-app"), List.of(TARGET.resolve("banking-app").toString())))) {
+            if (Files.exists(variant.artifact())) {
+                variants.add(variant);
+            } else {
+                System.out.printf("Skipping %s, %s not found%n", variant.name(), variant.artifact());
+            }
+        }
+        assertFalse(variants.isEmpty(), "nothing to start, run mvn package first");
+
+        Map<String, List<Run>> runs = new LinkedHashMap<>();
+        try (EmbeddedMongo mongo = EmbeddedMongo.start();
+             MongoClient mongoClient = mongo.client();
+             HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build()) {
+            // Interleaved, so drift on the machine affects every variant alike
+            for (int i = 0; i < RUNS; i++) {
+                for (Variant variant : variants) {
+                    String database = "banking-startup-" + variant.name().replace('+', '-') + "-" + i;
+                    Run run = start(variant, mongo.uri() + "/" + database, new MongoTemplate(mongoClient, database), client);
+                    System.out.printf("%-8s run %d: first transfer after %d ms, RSS %d MB%n", variant.name(), i + 1,
+                            run.millisToFirstTransfer(), run.residentKilobytes() / 1024);
+                    runs.computeIfAbsent(variant.name(), name -> new ArrayList<>()).add(run);
+                }
+            }
+        }
+
+        System.out.printf("%n%-8s %10s %10s %10s %12s%n", "variant", "median ms", "min ms", "max ms", "median RSS MB");
+        runs.forEach((name, results) -> {
+            long[] millis = results.stream().mapToLong(Run::millisToFirstTransfer).sorted().toArray();
+            long[] rss = results.stream().mapToLong(Run::residentKilobytes).sorted().toArray();
+            System.out.printf("%-8s %10d %10d %10d %12d%n", name, millis[millis.length / 2], millis[0],
+                    millis[millis.length - 1], rss[rss.length / 2] / 1024);
+        });
+    }
+
+    private Run start(Variant variant, String mongoUri, MongoTemplate mongoTemplate, HttpClient client) throws Exception {
+        User from = mongoTemplate.save(user("startup-from", "0000000001"));
+        User to = mongoTemplate.save(user("startup-to", "0000000002"));
+        String token = tokenService.issue(from).accessToken();
+        int port = freePort();
+        HttpRequest transfer = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/transactions/transfer"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(Map.of(
+                        "fromIban", from.getIban(), "toIban", to.getIban(), "toFirstName", to.getFirstName(),
+                        "toLastName", to.getLastName(), "amount", 1, "description", "Startup"))))
+                .build();
+
+        List<String> command = new ArrayList<>(variant.command());
+        command.addAll(List.of("--server.port=" + port, "--management.server.port=0",
+                "--spring.data.mongodb.uri=" + mongoUri, "--banking.security.tokens.secret=" + SECRET,
+                "--banking.rate-limit.enabled=false"));
+        Path log = TARGET.resolve("startup-" + variant.name().replace('+', '-') + ".log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        long started = System.nanoTime();
+        try {
+            long deadline = started + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.name() + " exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(transfer, HttpResponse.BodyHandlers.discarding()).statusCode() == 201) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                        return new Run(millis, residentKilobytes(process.pid()));
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(variant.name() + " did not accept a transfer within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static User user(String name, String accountNumber) {
+        LocalDateTime now = LocalDateTime.now();
+        return new User(null, name, "unused", name, "User", GermanIban.of(BANK_CODE, accountNumber), accountNumber,
+                new BigDecimal("1000.00"), "ACTIVE", new ArrayList<>(), now, now, PayeeNames.keys(name, "User"));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // VmRSS from /proc on Linux, ps elsewhere
+    private static long residentKilobytes(long pid) throws IOException, InterruptedException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (Files.exists(status)) {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        }
+        Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", Long.toString(pid)).start();
+        String output = new String(ps.getInputStream().readAllBytes()).trim();
+        ps.waitFor();
+        return output.isEmpty() ? -1 : Long.parseLong(output);
+    }
+}
@@ -0,0 +1,148 @@
+package com.nilijoski.backend.benchmark;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput and latency of the default platform-thread Tomcat pool against virtual threads,
+ * for requests that spend most of their time blocked on a simulated Mongo round trip.
+ * Tomcat is configured the way Spring Boot does it for {@code spring.threads.virtual.enabled}.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ThreadingModeLoadTest}.
+ */
+@Tag("benchmark")
+class ThreadingModeLoadTest {
+
+    private static final int CLIENTS = 1_000;
+    private static final Duration MONGO_ROUND_TRIP = Duration.ofMillis(10);
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    private record Result(String mode, long requests, long errors, double seconds, long[] latencies) {
+
+        double throughput() {
+            return requests / seconds;
+        }
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        void print() {
+            System.out.printf("%-10s %10d %8d %12.0f %10.2f %10.2f %10.2f%n", mode, requests, errors, throughput(),
+                    percentileMillis(50), percentileMillis(99), percentileMillis(99.9));
+        }
+    }
+
+    @Test
+    void compareModes() throws Exception {
+        Result platform = run("platform", false);
+        Result virtual = run("virtual", true);
+
+        System.out.printf("%-10s %10s %8s %12s %10s %10s %10s%n",
+                "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+        platform.print();
+        virtual.print();
+
+        assertEquals(0, platform.errors());
+        assertEquals(0, virtual.errors());
+        assertTrue(virtual.throughput() > platform.throughput(), "virtual threads should not be slower");
+    }
+
+    private Result run(String mode, boolean virtualThreads) throws Exception {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        if (virtualThreads) {
+            factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(new VirtualThreadExecutor("tomcat-handler-")));
+        }
+        factory.addInitializers(context -> context.addServlet("history", new SimulatedMongoServlet()).addMapping("/*"));
+        WebServer server = factory.getWebServer();
+        server.start();
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/api/transactions/iban/DE89370400440532013000");
+            load(client, uri, WARM_UP);
+            return load(client, uri, MEASUREMENT).named(mode);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private Load load(HttpClient client, URI uri, Duration duration) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<long[]>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < end) {
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<long[]> perClient = new ArrayList<>();
+        for (Future<long[]> future : clients) {
+            perClient.add(future.get());
+        }
+        long[] latencies = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Load(latencies.length, errors.get(), seconds, latencies);
+    }
+
+    private record Load(long requests, long errors, double seconds, long[] latencies) {
+
+        Result named(String mode) {
+            return new Result(mode, requests, errors, seconds, latencies);
+        }
+    }
+
+    private static final class SimulatedMongoServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(MONGO_ROUND_TRIP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("application/json");
+            response.getWriter().write("[]");
+        }
+    }
+}
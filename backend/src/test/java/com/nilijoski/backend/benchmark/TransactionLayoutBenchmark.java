@@ -0,0 +1,152 @@
+package com.nilijoski.backend.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.BucketedTransactionStore;
+import com.nilijoski.backend.repository.DocumentTransactionStore;
+import com.nilijoski.backend.repository.TransactionRepository;
+import com.nilijoski.backend.repository.TransactionStore;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Side-by-side read and write amplification of the document and bucketed transaction layouts.
+ * Run with {@code mvn test -Pbenchmark -Dtest=TransactionLayoutBenchmark}.
+ */
+@Tag("benchmark")
+class TransactionLayoutBenchmark {
+
+    private static final int ACCOUNTS = 200;
+    private static final int TRANSFERS = 50_000;
+    private static final int DAYS = 90;
+    private static final int HISTORY_READS = 500;
+
+    private static EmbeddedMongo mongo;
+    private static MongoClient client;
+
+    @BeforeAll
+    static void startMongo() {
+        mongo = EmbeddedMongo.start();
+        client = mongo.client();
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        client.close();
+        mongo.close();
+    }
+
+    @Test
+    void compareLayouts() {
+        MongoTemplate documentTemplate = new MongoTemplate(client, "bench-document");
+        documentTemplate.getDb().drop();
+        TransactionRepository repository = new MongoRepositoryFactory(documentTemplate).getRepository(TransactionRepository.class);
+        var transactionIndexes = documentTemplate.indexOps(Transaction.class);
+        for (String field : List.of("fromIban", "toIban", "fromAccountNumber", "toAccountNumber")) {
+            transactionIndexes.ensureIndex(new Index().on(field, Sort.Direction.ASC));
+        }
+
+        MongoTemplate bucketTemplate = new MongoTemplate(client, "bench-bucketed");
+        bucketTemplate.getDb().drop();
+        BucketedTransactionStore bucketed = new BucketedTransactionStore(bucketTemplate, 200);
+        bucketed.ensureIndexes();
+
+        Result document = run("document", new DocumentTransactionStore(repository, documentTemplate), documentTemplate, "transactions",
+                iban -> new Document("$or", List.of(new Document("fromIban", iban), new Document("toIban", iban))));
+        Result bucketedResult = run("bucketed", bucketed, bucketTemplate, "transaction_buckets",
+                iban -> new Document("iban", new Document("$in", List.of(iban))));
+
+        System.out.printf("%-10s %10s %12s %12s %14s %14s %14s %12s%n",
+                "layout", "documents", "data bytes", "index bytes", "write us/op", "read us/op", "docs/read", "rows/read");
+        document.print();
+        bucketedResult.print();
+
+        assertEquals(document.rowsPerRead, bucketedResult.rowsPerRead, 0.0001);
+    }
+
+    private Result run(String name, TransactionStore store, MongoTemplate template, String collection,
+                       Function<String, Document> historyFilter) {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.now().minusDays(DAYS);
+
+        long writeStart = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            Transaction transaction = new Transaction();
+            transaction.setFromIban(iban(from));
+            transaction.setToIban(iban(to));
+            transaction.setFromAccountNumber(accountNumber(from));
+            transaction.setToAccountNumber(accountNumber(to));
+            transaction.setAmount(BigDecimal.valueOf(random.nextInt(10_000), 2));
+            transaction.setTransactionType("TRANSFER");
+            transaction.setStatus("COMPLETED");
+            transaction.setTransactionDate(start.plusSeconds((long) i * DAYS * 86_400 / TRANSFERS));
+            store.save(transaction);
+        }
+        double writeMicros = (System.nanoTime() - writeStart) / 1_000.0 / TRANSFERS;
+
+        long readStart = System.nanoTime();
+        long rows = 0;
+        for (int i = 0; i < HISTORY_READS; i++) {
+            String iban = iban(i % ACCOUNTS);
+            rows += store.findByFromIbanOrToIban(iban, iban).size();
+        }
+        double readMicros = (System.nanoTime() - readStart) / 1_000.0 / HISTORY_READS;
+
+        long docsExamined = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            docsExamined += explainDocsExamined(template, collection, historyFilter.apply(iban(i)));
+        }
+
+        Document stats = template.getDb().runCommand(new Document("collStats", collection));
+        return new Result(name,
+                ((Number) stats.get("count")).longValue(),
+                ((Number) stats.get("size")).longValue(),
+                ((Number) stats.get("totalIndexSize")).longValue(),
+                writeMicros,
+                readMicros,
+                (double) docsExamined / ACCOUNTS,
+                (double) rows / HISTORY_READS);
+    }
+
+    private long explainDocsExamined(MongoTemplate template, String collection, Document filter) {
+        Document explain = template.getDb().runCommand(new Document("explain",
+                new Document("find", collection).append("filter", filter))
+                .append("verbosity", "executionStats"));
+        Document executionStats = explain.get("executionStats", Document.class);
+        return ((Number) executionStats.get("totalDocsExamined")).longValue();
+    }
+
+    private static String accountNumber(int account) {
+        return String.format("%010d", account);
+    }
+
+    private static String iban(int account) {
+        return "DE00" + String.format("%018d", account);
+    }
+
+    private record Result(String layout, long documents, long dataBytes, long indexBytes,
+                          double writeMicros, double readMicros, double docsPerRead, double rowsPerRead) {
+
+        void print() {
+            System.out.printf("%-10s %10d %12d %12d %14.1f %14.1f %14.1f %12.1f%n",
+                    layout, documents, dataBytes, indexBytes, writeMicros, readMicros, docsPerRead, rowsPerRead);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.nilijoski.backend.benchmark;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * Latency and memory of the servlet stack (Tomcat, blocking handler) against the reactive stack
+ * (Netty, non-blocking handler) with every connection waiting on a simulated Mongo round trip.
+ * Peak heap and thread count are sampled while the connections are held open and include the
+ * in-process clients, which are the same for both stacks. Each connection needs two file
+ * descriptors here, so lower {@code -Dbenchmark.connections} where {@code ulimit -n} is small.
+ * Run with {@code mvn test -Pbenchmark -Dtest=WebStackLoadTest}.
+ */
+@Tag("benchmark")
+class WebStackLoadTest {
+
+    private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 10_000);
+    private static final Duration MONGO_ROUND_TRIP = Duration.ofMillis(10);
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(15);
+    private static final String PATH = "/api/transactions/iban/DE89370400440532013000";
+
+    private record Result(String stack, long requests, long errors, double seconds, long[] latencies,
+                          long peakHeapBytes, int peakThreads) {
+
+        double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        void print(long baselineHeapBytes) {
+            double kbPerConnection = (peakHeapBytes - baselineHeapBytes) / 1024.0 / CONNECTIONS;
+            System.out.printf("%-9s %10d %8d %10.0f %9.2f %9.2f %9.2f %10.1f %9.1f %8d%n", stack, requests, errors,
+                    requests / seconds, percentileMillis(50), percentileMillis(99), percentileMillis(99.9),
+                    peakHeapBytes / 1048576.0, kbPerConnection, peakThreads);
+        }
+    }
+
+    @Test
+    void compareStacks() throws Exception {
+        long baselineHeap = usedHeapAfterGc();
+        Result servlet = run("servlet", WebStackLoadTest::tomcat);
+        Result reactive = run("reactive", WebStackLoadTest::netty);
+
+        System.out.printf("%d concurrent connections, %d ms simulated round trip%n", CONNECTIONS, MONGO_ROUND_TRIP.toMillis());
+        System.out.printf("%-9s %10s %8s %10s %9s %9s %9s %10s %9s %8s%n", "stack", "requests", "errors", "req/s",
+                "p50 ms", "p99 ms", "p99.9 ms", "heap MB", "KB/conn", "threads");
+        servlet.print(baselineHeap);
+        reactive.print(baselineHeap);
+
+        assertEquals(0, servlet.errors());
+        assertEquals(0, reactive.errors());
+    }
+
+    private static WebServer tomcat() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        // Accept every connection so that the worker pool, not the acceptor, is what queues requests
+        factory.addConnectorCustomizers(connector -> {
+            connector.setProperty("maxConnections", String.valueOf(CONNECTIONS * 2));
+            connector.setProperty("acceptCount", String.valueOf(CONNECTIONS));
+        });
+        factory.addInitializers(context -> context.addServlet("history", new SimulatedMongoServlet()).addMapping("/*"));
+        return factory.getWebServer();
+    }
+
+    private static WebServer netty() {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory(0);
+        return factory.getWebServer(RouterFunctions.toHttpHandler(RouterFunctions.route(GET("/**"), request ->
+                Mono.delay(MONGO_ROUND_TRIP).then(ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("[]")))));
+    }
+
+    private Result run(String stack, Supplier<WebServer> serverFactory) throws Exception {
+        WebServer server = serverFactory.get();
+        server.start();
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            URI uri = URI.create("http://localhost:" + server.getPort() + PATH);
+            load(client, uri, WARM_UP, null);
+            Sampler sampler = new Sampler();
+            Load load = load(client, uri, MEASUREMENT, sampler);
+            return new Result(stack, load.latencies().length, load.errors(), load.seconds(), load.latencies(),
+                    sampler.peakHeap, sampler.peakThreads);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private record Load(long errors, double seconds, long[] latencies) {
+    }
+
+    private Load load(HttpClient client, URI uri, Duration duration, Sampler sampler) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<long[]>> clients = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[256];
+                    int count = 0;
+                    while (System.nanoTime() < end) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - sent;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            if (sampler != null) {
+                while (System.nanoTime() < end) {
+                    sampler.sample();
+                    Thread.sleep(100);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<long[]> perClient = new ArrayList<>();
+        for (Future<long[]> future : clients) {
+            perClient.add(future.get());
+        }
+        return new Load(errors.get(), seconds, perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray());
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class Sampler {
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private long peakHeap;
+        private int peakThreads;
+
+        void sample() {
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            peakThreads = Math.max(peakThreads, threads.getThreadCount());
+        }
+    }
+
+    private static final class SimulatedMongoServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(MONGO_ROUND_TRIP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("application/json");
+            response.getWriter().write("[]");
+        }
+    }
+}
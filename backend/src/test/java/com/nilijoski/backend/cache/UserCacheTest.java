@@ -0,0 +1,107 @@
+package com.nilijoski.backend.cache;
+
+import com.nilijoski.backend.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(DataSize.ofKilobytes(64), Duration.ofMinutes(10));
+    }
+
+    private User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setIban("DE000000000000000000" + id);
+        user.setAccountNumber("00000000" + id);
+        user.setBalance(BigDecimal.TEN);
+        user.setSavedRecipientIbans(new ArrayList<>());
+        return user;
+    }
+
+    @Test
+    void allKeysResolveToTheSameEntry() {
+        User user = user("01");
+        userCache.put(user);
+
+        assertEquals(user, userCache.getById("01").orElseThrow());
+        assertEquals(user, userCache.getByIban(user.getIban()).orElseThrow());
+        assertEquals(user, userCache.getByAccountNumber(user.getAccountNumber()).orElseThrow());
+        assertEquals(1, userCache.size());
+    }
+
+    @Test
+    void invalidate_dropsAllKeys() {
+        User user = user("01");
+        userCache.put(user);
+
+        userCache.invalidate("01");
+
+        assertTrue(userCache.getById("01").isEmpty());
+        assertTrue(userCache.getByIban(user.getIban()).isEmpty());
+        assertTrue(userCache.getByAccountNumber(user.getAccountNumber()).isEmpty());
+    }
+
+    @Test
+    void put_skipsUsersReadBeforeAnInvalidation() {
+        long stamp = userCache.stamp();
+        User stale = user("01");
+
+        userCache.invalidate("01");
+        userCache.put(stale, stamp);
+
+        assertTrue(userCache.getById("01").isEmpty());
+        assertTrue(userCache.getByIban(stale.getIban()).isEmpty());
+
+        userCache.put(user("01"), userCache.stamp());
+        assertTrue(userCache.getById("01").isPresent());
+    }
+
+    @Test
+    void put_skipsUsersReadBeforeInvalidateAll() {
+        long stamp = userCache.stamp();
+
+        userCache.invalidateAll();
+        userCache.put(user("01"), stamp);
+
+        assertTrue(userCache.getById("01").isEmpty());
+    }
+
+    @Test
+    void returnsCopies() {
+        userCache.put(user("01"));
+
+        userCache.getById("01").orElseThrow().setBalance(BigDecimal.ZERO);
+        userCache.getById("01").orElseThrow().getSavedRecipientIbans().add("DE00");
+
+        User cached = userCache.getById("01").orElseThrow();
+        assertEquals(BigDecimal.TEN, cached.getBalance());
+        assertTrue(cached.getSavedRecipientIbans().isEmpty());
+    }
+
+    @Test
+    void staysWithinSizeBound() {
+        for (int i = 0; i < 2_000; i++) {
+            userCache.put(user(String.format("%04d", i)));
+        }
+        userCache.cleanUp();
+        var registry = new SimpleMeterRegistry();
+        userCache.bindTo(registry);
+
+        assertTrue(registry.get("banking.cache.users.weight").gauge().value() <= DataSize.ofKilobytes(64).toBytes());
+        assertTrue(registry.get("cache.evictions").functionCounter().count() > 0);
+    }
+}
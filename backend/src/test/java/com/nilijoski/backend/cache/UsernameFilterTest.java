@@ -0,0 +1,110 @@
+package com.nilijoski.backend.cache;
+
+import com.nilijoski.backend.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsernameFilterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private UsernameFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new UsernameFilter(mongoTemplate, 0.01, 100, 2.0, Duration.ofHours(6), new SimpleMeterRegistry());
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+
+    private void usersInMongo(String... usernames) {
+        when(mongoTemplate.estimatedCount(User.class)).thenReturn((long) usernames.length);
+        when(mongoTemplate.stream(any(Query.class), eq(User.class)))
+                .thenAnswer(invocation -> Stream.of(usernames).map(UsernameFilterTest::user));
+    }
+
+    @Test
+    void everythingMightBeTakenBeforeFirstBuild() {
+        assertTrue(filter.mightContain("anyone"));
+    }
+
+    @Test
+    void buildsFromUsersCollection() {
+        usersInMongo("alice", "bob");
+
+        filter.rebuildIfNeeded();
+
+        assertTrue(filter.mightContain("alice"));
+        assertTrue(filter.mightContain("bob"));
+        assertFalse(filter.mightContain("carol"));
+    }
+
+    @Test
+    void registeredNamesAreAdded() {
+        usersInMongo("alice");
+        filter.rebuild();
+
+        filter.add("carol");
+
+        assertTrue(filter.mightContain("carol"));
+    }
+
+    @Test
+    void rebuildsWhenMoreNamesWereAddedThanItWasSizedFor() {
+        usersInMongo("alice");
+        filter.rebuild();
+        filter.rebuildIfNeeded();
+        verify(mongoTemplate, times(1)).stream(any(Query.class), eq(User.class));
+
+        for (int i = 0; i <= 100; i++) {
+            filter.add("user" + i);
+        }
+        filter.rebuildIfNeeded();
+
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(User.class));
+    }
+
+    @Test
+    void keepsPreviousFilterWhenRebuildFails() {
+        usersInMongo("alice");
+        filter.rebuild();
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenThrow(new IllegalStateException("down"));
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("alice"));
+        assertFalse(filter.mightContain("carol"));
+    }
+
+    @Test
+    void sizesForUserCountWithHeadroom() {
+        when(mongoTemplate.estimatedCount(User.class)).thenReturn(1_000L);
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> Stream.of(List.<User>of()).flatMap(List::stream));
+
+        filter.rebuild();
+
+        filter.add("x");
+        assertTrue(filter.mightContain("x"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.nilijoski.backend.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureFileTest {
+
+    private static final long START = 1_760_000_000_000_000L;
+
+    private final List<CaptureRecord> records = List.of(
+            new CaptureRecord(START + 1_500, CapturedEndpoint.TRANSFER, 201, 12_345, 42L, -7L, 2_550),
+            // Completed after the transfer but started before it
+            new CaptureRecord(START + 900, CapturedEndpoint.HISTORY_BY_IBAN, 200, 80_000, 42L,
+                    CaptureRecord.NO_KEY, CaptureRecord.NO_AMOUNT),
+            new CaptureRecord(START + 60_000_000, CapturedEndpoint.LOGIN, 401, 95_000, Long.MIN_VALUE,
+                    CaptureRecord.NO_KEY, CaptureRecord.NO_AMOUNT));
+
+    private byte[] write(List<CaptureRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CaptureFile.Writer writer = new CaptureFile.Writer(bytes, START)) {
+            for (CaptureRecord record : records) {
+                writer.write(record);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        byte[] file = write(records);
+
+        assertEquals(records, CaptureFile.read(new ByteArrayInputStream(file)));
+        assertTrue(file.length < 13 + 3 * 32, "compact encoding, was " + file.length + " bytes");
+    }
+
+    @Test
+    void stopsAtATruncatedRecord() throws IOException {
+        byte[] file = write(records);
+
+        List<CaptureRecord> read = CaptureFile.read(new ByteArrayInputStream(Arrays.copyOf(file, file.length - 3)));
+
+        assertEquals(records.subList(0, 2), read);
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> CaptureFile.read(new ByteArrayInputStream("not a capture".getBytes())));
+    }
+}
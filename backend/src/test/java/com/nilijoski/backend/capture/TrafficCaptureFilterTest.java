@@ -0,0 +1,106 @@
+package com.nilijoski.backend.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.security.TokenService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class TrafficCaptureFilterTest {
+
+    private static final String FROM_IBAN = "DE89370400440532013000";
+    private static final String TO_IBAN = "DE75370400440000000042";
+
+    private final AccountKeys accountKeys = new AccountKeys("salt".getBytes(StandardCharsets.UTF_8), "37040044");
+    private final TrafficRecorder recorder = mock(TrafficRecorder.class);
+    private TrafficCaptureFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        when(recorder.accountKeys()).thenReturn(accountKeys);
+        filter = new TrafficCaptureFilter(recorder, new ObjectMapper());
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private CaptureRecord capture(MockHttpServletRequest request, int status) throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                // Like a controller binding @RequestBody
+                req.getInputStream().readAllBytes();
+                res.setStatus(status);
+            }
+        }));
+        ArgumentCaptor<CaptureRecord> record = ArgumentCaptor.forClass(CaptureRecord.class);
+        verify(recorder).record(record.capture());
+        return record.getValue();
+    }
+
+    @Test
+    void capturesTransfersWithHashedAccountsAndAmount() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/transactions/transfer");
+        request.setContentType("application/json");
+        request.setContent(("{\"fromIban\":\"" + FROM_IBAN + "\",\"toIban\":\"" + TO_IBAN + "\",\"toFirstName\":\"Jane\","
+                + "\"toLastName\":\"Doe\",\"amount\":25.5,\"description\":\"Rent\"}").getBytes(StandardCharsets.UTF_8));
+
+        CaptureRecord record = capture(request, 201);
+
+        assertEquals(CapturedEndpoint.TRANSFER, record.endpoint());
+        assertEquals(201, record.status());
+        assertEquals(accountKeys.ofIban(FROM_IBAN), record.accountKey());
+        assertEquals(accountKeys.ofIban(TO_IBAN), record.counterpartyKey());
+        assertEquals(2_550, record.amountCents());
+    }
+
+    @Test
+    void keysAccountNumbersLikeTheirIban() throws Exception {
+        CaptureRecord byNumber = capture(new MockHttpServletRequest("GET", "/api/users/number/0532013000"), 200);
+
+        assertEquals(CapturedEndpoint.ACCOUNT_BY_NUMBER, byNumber.endpoint());
+        assertEquals(accountKeys.ofIban(FROM_IBAN), byNumber.accountKey());
+    }
+
+    @Test
+    void keysUserIdPathsByTheAuthenticatedCaller() throws Exception {
+        TokenService.TokenClaims claims = new TokenService.TokenClaims("jti", TokenService.TokenType.ACCESS,
+                "user-1", "0532013000", FROM_IBAN, Long.MAX_VALUE);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(claims, null, AuthorityUtils.NO_AUTHORITIES));
+
+        CaptureRecord record = capture(new MockHttpServletRequest("DELETE",
+                "/api/users/user-1/saved-recipients/" + TO_IBAN), 200);
+
+        assertEquals(CapturedEndpoint.REMOVE_SAVED_RECIPIENT, record.endpoint());
+        assertEquals(accountKeys.ofIban(FROM_IBAN), record.accountKey());
+        assertEquals(accountKeys.ofIban(TO_IBAN), record.counterpartyKey());
+        assertEquals(CaptureRecord.NO_AMOUNT, record.amountCents());
+    }
+
+    @Test
+    void ignoresOtherEndpoints() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/users/token/refresh"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        verify(recorder, never()).record(any());
+    }
+}
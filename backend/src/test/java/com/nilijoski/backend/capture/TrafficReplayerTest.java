@@ -0,0 +1,96 @@
+package com.nilijoski.backend.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficReplayerTest {
+
+    private record Sent(long startMicros, int account, int counterparty) {
+    }
+
+    private static CaptureRecord transfer(long startMicros, long from, long to) {
+        return new CaptureRecord(startMicros, CapturedEndpoint.TRANSFER, 201, 1_000, from, to, 100);
+    }
+
+    private static CaptureRecord history(long startMicros, long account) {
+        return new CaptureRecord(startMicros, CapturedEndpoint.HISTORY_BY_IBAN, 200, 1_000, account,
+                CaptureRecord.NO_KEY, CaptureRecord.NO_AMOUNT);
+    }
+
+    @Test
+    void keepsTheCapturedOrderPerAccount() throws InterruptedException {
+        List<CaptureRecord> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            records.add(i % 3 == 0 ? transfer(i, 1 + i % 5, 1 + (i + 1) % 5) : history(i, 1 + i % 5));
+        }
+        Collections.shuffle(records);
+        List<Sent> sent = Collections.synchronizedList(new ArrayList<>());
+        ConcurrentHashMap<Integer, Boolean> busy = new ConcurrentHashMap<>();
+
+        TrafficReplayer.Report report = new TrafficReplayer(5, Double.POSITIVE_INFINITY, 64).replay(records,
+                (record, account, counterparty) -> {
+                    assertTrue(busy.putIfAbsent(account, true) == null, "account " + account + " already busy");
+                    sent.add(new Sent(record.startMicros(), account, counterparty));
+                    // Random delays let later requests overtake earlier ones unless they are held back
+                    Executor delayed = CompletableFuture.delayedExecutor(
+                            ThreadLocalRandom.current().nextInt(500), TimeUnit.MICROSECONDS);
+                    return CompletableFuture.supplyAsync(() -> {
+                        busy.remove(account);
+                        return record.status();
+                    }, delayed);
+                });
+
+        assertEquals(200, report.endpoints().stream().mapToInt(TrafficReplayer.EndpointStats::count).sum());
+        assertEquals(0, report.endpoints().stream().mapToInt(TrafficReplayer.EndpointStats::mismatches).sum());
+        for (int account = 0; account < 5; account++) {
+            int slot = account;
+            List<Long> starts = sent.stream()
+                    .filter(s -> s.account() == slot || s.counterparty() == slot)
+                    .map(Sent::startMicros)
+                    .toList();
+            assertEquals(starts.stream().sorted().toList(), starts, "order of account " + account);
+        }
+    }
+
+    @Test
+    void mapsAccountsDeterministicallyAndNeverOntoThemselves() throws InterruptedException {
+        List<CaptureRecord> records = List.of(history(0, 11), transfer(1, 22, 33), transfer(2, 11, 33));
+        List<Sent> first = new ArrayList<>();
+        List<Sent> second = new ArrayList<>();
+
+        new TrafficReplayer(2, Double.POSITIVE_INFINITY, 1).replay(records, (record, account, counterparty) -> {
+            first.add(new Sent(record.startMicros(), account, counterparty));
+            return CompletableFuture.completedFuture(record.status());
+        });
+        new TrafficReplayer(2, Double.POSITIVE_INFINITY, 1).replay(records, (record, account, counterparty) -> {
+            second.add(new Sent(record.startMicros(), account, counterparty));
+            return CompletableFuture.completedFuture(record.status());
+        });
+
+        assertEquals(List.of(new Sent(0, 0, -1), new Sent(1, 1, 0), new Sent(2, 0, 1)), first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void spacesRequestsByTheirCapturedOffsetDividedBySpeed() throws InterruptedException {
+        List<CaptureRecord> records = List.of(history(0, 1), history(200_000, 2));
+        long started = System.nanoTime();
+
+        new TrafficReplayer(2, 10, 8).replay(records,
+                (record, account, counterparty) -> CompletableFuture.completedFuture(200));
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertTrue(elapsedMillis >= 20 && elapsedMillis < 1_000, "took " + elapsedMillis + " ms");
+    }
+}
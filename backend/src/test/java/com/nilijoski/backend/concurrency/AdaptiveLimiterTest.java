@@ -0,0 +1,282 @@
+package com.nilijoski.backend.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private long now;
+
+    private AdaptiveLimiter limiter(int initialLimit, int minLimit) {
+        Map<String, AdmissionProperties.Group> groups = new LinkedHashMap<>();
+        groups.put("transfers", new AdmissionProperties.Group(List.of("/api/transactions/transfer"),
+                List.of("POST"), AdmissionProperties.Priority.CRITICAL));
+        groups.put("history", new AdmissionProperties.Group(List.of("/api/transactions/**"),
+                List.of("GET"), AdmissionProperties.Priority.SHEDDABLE));
+        return new AdaptiveLimiter(new AdmissionProperties(initialLimit, minLimit, 200, 0.5, groups),
+                registry, () -> now);
+    }
+
+    @Test
+    void keepsPartOfTheLimitForCriticalGroups() {
+        AdaptiveLimiter limiter = limiter(10, 2);
+        AdaptiveLimiter.Group transfers = limiter.match("POST", "/api/transactions/transfer");
+        AdaptiveLimiter.Group history = limiter.match("GET", "/api/transactions/iban/DE89370400440532013000");
+        assertNull(limiter.match("POST", "/api/users/login"));
+
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(history.tryAcquire());
+        }
+        assertNull(history.tryAcquire());
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(transfers.tryAcquire());
+        }
+        assertNull(transfers.tryAcquire());
+        assertEquals(10, limiter.inFlight());
+        assertEquals(1, registry.get("banking.admission.rejected").tag("group", "history").counter().count());
+        assertEquals(1, registry.get("banking.admission.rejected").tag("group", "transfers").counter().count());
+    }
+
+    @Test
+    void shrinksWhenRequestsQueueAndGrowsWhenTheyDoNot() {
+        AdaptiveLimiter limiter = limiter(20, 2);
+        AdaptiveLimiter.Group transfers = limiter.match("POST", "/api/transactions/transfer");
+
+        // Full limit in flight at the no-load latency
+        runConcurrently(transfers, 20, 2 * MS);
+        assertTrue(limiter.limit() > 20, "grows while latency stays at the baseline");
+
+        int grown = limiter.limit();
+        runConcurrently(transfers, grown, 20 * MS);
+        assertTrue(limiter.limit() < grown / 2, "shrinks once latency says most requests are queued");
+    }
+
+    @Test
+    void fastResponsesWithoutRealWorkDoNotSetTheBaseline() {
+        AdaptiveLimiter limiter = limiter(20, 2);
+        AdaptiveLimiter.Group history = limiter.match("GET", "/api/transactions/iban/DE89370400440532013000");
+
+        // Every other request is a 304 and one read in twenty a cache hit, all far faster than the 2 ms Mongo reads
+        int requests = 0;
+        for (int round = 0; round < 50; round++) {
+            List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+            for (int i = limiter.limit() / 2; i > 0; i--) {
+                permits.add(history.tryAcquire());
+            }
+            List<AdaptiveLimiter.Permit> slow = new ArrayList<>();
+            for (AdaptiveLimiter.Permit permit : permits) {
+                int request = requests++;
+                if (request % 2 == 0) {
+                    now += 10_000;
+                    permit.release(304);
+                } else if (request % 40 == 39) {
+                    now += 10_000;
+                    permit.release(200);
+                } else {
+                    slow.add(permit);
+                }
+            }
+            now += 2 * MS;
+            slow.forEach(permit -> permit.release(200));
+            now += MS;
+        }
+
+        assertTrue(limiter.limit() > 20, "limit " + limiter.limit());
+    }
+
+    @Test
+    void errorsAreNoSamples() {
+        AdaptiveLimiter limiter = limiter(20, 2);
+        AdaptiveLimiter.Group transfers = limiter.match("POST", "/api/transactions/transfer");
+
+        // Fast rejections first, then successful transfers at the 2 ms they take
+        for (int i = 0; i < 10; i++) {
+            AdaptiveLimiter.Permit permit = transfers.tryAcquire();
+            now += 10_000;
+            permit.release(400);
+        }
+        runConcurrently(transfers, 20, 2 * MS);
+
+        assertTrue(limiter.limit() > 20, "limit " + limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void steadyHealthyLoadIsNotShedAcrossAProbe() {
+        AdaptiveLimiter limiter = limiter(20, 5);
+        AdaptiveLimiter.Group transfers = limiter.match("POST", "/api/transactions/transfer");
+
+        // Ten at a time at the no-load latency, well past the first probe at 30 x limit samples
+        for (int round = 0; round < 200; round++) {
+            List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                AdaptiveLimiter.Permit permit = transfers.tryAcquire();
+                assertNotNull(permit, "rejected in round " + round + " at limit " + limiter.limit());
+                permits.add(permit);
+            }
+            now += 2 * MS;
+            permits.forEach(permit -> permit.release(200));
+            now += MS;
+        }
+
+        assertEquals(0, registry.get("banking.admission.rejected").tag("group", "transfers").counter().count());
+    }
+
+    private void runConcurrently(AdaptiveLimiter.Group group, int count, long latency) {
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(group.tryAcquire());
+        }
+        now += latency;
+        permits.forEach(permit -> permit.release(200));
+        now += MS;
+    }
+
+    @Test
+    void filterAnswers503OverTheLimitAndReleasesAfterwards() throws Exception {
+        AdaptiveLimiter limiter = limiter(2, 1);
+        AdmissionFilter filter = new AdmissionFilter(limiter);
+        AdaptiveLimiter.Permit held = limiter.match("POST", "/api/transactions/transfer").tryAcquire();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/transactions/1"), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        MockHttpServletResponse transfer = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/transactions/transfer"), transfer, new MockFilterChain());
+        assertEquals(200, transfer.getStatus());
+
+        MockHttpServletResponse unlimited = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/users/login"), unlimited, new MockFilterChain());
+        assertEquals(200, unlimited.getStatus());
+
+        held.release(200);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void keepsAdmittedLatencyBoundedWhenMongoSlowsDown() {
+        Simulation unlimited = simulate(null);
+        Simulation limited = simulate(limiter(20, 4));
+
+        // Without a limit the queue in front of the slow pool grows for as long as the overload lasts
+        assertTrue(unlimited.percentile(0.99) > 1_000 * MS, "unlimited p99 " + unlimited.percentile(0.99) / MS + " ms");
+
+        assertTrue(limited.percentile(0.99) < 100 * MS, "limited p99 " + limited.percentile(0.99) / MS + " ms");
+        assertTrue(limited.completed > 0.8 * Simulation.SLOW_CAPACITY_PER_SECOND * Simulation.MEASURED_SECONDS,
+                "keeps the pool busy: " + limited.completed + " completed");
+        assertTrue(limited.rejectedShare(true) < limited.rejectedShare(false),
+                "transfers " + limited.rejectedShare(true) + " vs history " + limited.rejectedShare(false));
+    }
+
+    /**
+     * Open-loop traffic (one request per millisecond, every fifth a transfer) against a Mongo
+     * stand-in with 8 connections, each served in FIFO order. After one second every query slows
+     * down from 2 ms to 20 ms, which cuts capacity from 4,000 to 400 requests per second.
+     * Latencies of requests admitted during the last three of six seconds are recorded.
+     */
+    private Simulation simulate(AdaptiveLimiter limiter) {
+        record Completion(long at, AdaptiveLimiter.Permit permit, long arrivedAt) {
+        }
+        now = 0;
+        AdaptiveLimiter.Group transfers = limiter == null ? null : limiter.match("POST", "/api/transactions/transfer");
+        AdaptiveLimiter.Group history = limiter == null ? null : limiter.match("GET", "/api/transactions/1");
+        PriorityQueue<Long> connectionFreeAt = new PriorityQueue<>();
+        for (int i = 0; i < 8; i++) {
+            connectionFreeAt.add(0L);
+        }
+        PriorityQueue<Completion> completions = new PriorityQueue<>(Comparator.comparingLong(Completion::at));
+        Simulation result = new Simulation();
+
+        long arrival = 0;
+        for (int i = 0; arrival < 6_000 * MS; i++, arrival += MS) {
+            while (!completions.isEmpty() && completions.peek().at() <= arrival) {
+                Completion done = completions.poll();
+                now = done.at();
+                if (done.permit() != null) {
+                    done.permit().release(200);
+                }
+                if (done.arrivedAt() >= 3_000 * MS) {
+                    result.record(done.at() - done.arrivedAt());
+                }
+            }
+            now = arrival;
+            boolean transfer = i % 5 == 0;
+            AdaptiveLimiter.Permit permit = null;
+            if (limiter != null) {
+                permit = (transfer ? transfers : history).tryAcquire();
+                if (arrival >= 3_000 * MS) {
+                    result.offered(transfer, permit != null);
+                }
+                if (permit == null) {
+                    continue;
+                }
+            }
+            long service = arrival < 1_000 * MS ? 2 * MS : 20 * MS;
+            long start = Math.max(arrival, connectionFreeAt.poll());
+            connectionFreeAt.add(start + service);
+            completions.add(new Completion(start + service, permit, arrival));
+        }
+        for (Completion done : completions) {
+            if (done.arrivedAt() >= 3_000 * MS) {
+                result.record(done.at() - done.arrivedAt());
+            }
+        }
+        return result;
+    }
+
+    private static final class Simulation {
+
+        static final int SLOW_CAPACITY_PER_SECOND = 400;
+        static final int MEASURED_SECONDS = 3;
+
+        private long[] latencies = new long[1024];
+        private int completed;
+        private final int[] offered = new int[2];
+        private final int[] rejected = new int[2];
+
+        void record(long latency) {
+            if (completed == latencies.length) {
+                latencies = Arrays.copyOf(latencies, completed * 2);
+            }
+            latencies[completed++] = latency;
+        }
+
+        void offered(boolean transfer, boolean admitted) {
+            int index = transfer ? 1 : 0;
+            offered[index]++;
+            if (!admitted) {
+                rejected[index]++;
+            }
+        }
+
+        double rejectedShare(boolean transfer) {
+            int index = transfer ? 1 : 0;
+            return (double) rejected[index] / offered[index];
+        }
+
+        long percentile(double p) {
+            long[] sorted = Arrays.copyOf(latencies, completed);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.nilijoski.backend.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private Bulkheads bulkheads(int historyLimit) {
+        Map<String, BulkheadProperties.Group> groups = new LinkedHashMap<>();
+        groups.put("auth", new BulkheadProperties.Group(List.of("/api/users/login", "/api/users/register"),
+                List.of("POST"), 2, Duration.ofMillis(10)));
+        groups.put("history", new BulkheadProperties.Group(List.of("/api/transactions/**"),
+                List.of("GET"), historyLimit, Duration.ofMillis(10)));
+        return new Bulkheads(new BulkheadProperties(groups), registry);
+    }
+
+    @Test
+    void matchesGroupsByPatternAndMethod() {
+        Bulkheads bulkheads = bulkheads(1);
+
+        assertEquals("auth", bulkheads.match("POST", "/api/users/register").name());
+        assertEquals("history", bulkheads.match("GET", "/api/transactions/iban/DE89370400440532013000").name());
+        assertNull(bulkheads.match("GET", "/api/users/login"));
+        assertNull(bulkheads.match("GET", "/api/users"));
+    }
+
+    @Test
+    void rejectsWhenGroupIsFull() throws Exception {
+        Bulkheads.Bulkhead history = bulkheads(1).match("GET", "/api/transactions/1");
+
+        assertTrue(history.tryAcquire());
+        assertFalse(history.tryAcquire());
+        assertEquals(1, history.active());
+        assertEquals(1, registry.get("banking.bulkhead.rejected").tag("group", "history").counter().count());
+
+        history.release();
+        assertTrue(history.tryAcquire());
+    }
+
+    @Test
+    void groupsDoNotShareSlots() throws Exception {
+        Bulkheads bulkheads = bulkheads(1);
+        assertTrue(bulkheads.match("GET", "/api/transactions/1").tryAcquire());
+
+        assertTrue(bulkheads.match("POST", "/api/users/login").tryAcquire());
+    }
+
+    @Test
+    void filterAnswers503WhileGroupIsFullAndReleasesAfterwards() throws Exception {
+        Bulkheads bulkheads = bulkheads(1);
+        BulkheadFilter filter = new BulkheadFilter(bulkheads);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch leave = new CountDownLatch(1);
+
+        Thread slow = Thread.ofVirtual().start(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/transactions/1"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            entered.countDown();
+                            try {
+                                leave.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/transactions/2"), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        MockHttpServletResponse unlimited = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), unlimited, new MockFilterChain());
+        assertEquals(200, unlimited.getStatus());
+
+        leave.countDown();
+        slow.join();
+        assertEquals(0, bulkheads.match("GET", "/api/transactions/1").active());
+    }
+
+    @Test
+    void rejectsNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> bulkheads(0));
+    }
+}
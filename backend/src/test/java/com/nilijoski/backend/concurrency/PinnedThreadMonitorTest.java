@@ -0,0 +1,50 @@
+package com.nilijoski.backend.concurrency;
+
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinnedThreadMonitorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PinnedThreadMonitor monitor = new PinnedThreadMonitor(Duration.ofMillis(10), registry);
+    private final Object lock = new Object();
+
+    @AfterEach
+    void stop() {
+        monitor.stop();
+    }
+
+    private void sleepWhileHoldingMonitor() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void countsPinnedVirtualThreadsByApplicationFrame() throws Exception {
+        monitor.start();
+        assertTrue(monitor.isRunning());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (Search.in(registry).name("banking.virtual-threads.pinned").counter() == null
+                && System.nanoTime() < deadline) {
+            Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+            Thread.sleep(200);
+        }
+
+        var pinned = registry.get("banking.virtual-threads.pinned").counter();
+        assertEquals(PinnedThreadMonitorTest.class.getName() + ".sleepWhileHoldingMonitor", pinned.getId().getTag("frame"));
+        assertTrue(registry.get("banking.virtual-threads.pinned.duration").timer().totalTime(TimeUnit.MILLISECONDS) >= 10);
+    }
+}
@@ -0,0 +1,323 @@
+package com.nilijoski.backend.contract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.account.AccountNumberAllocator;
+import com.nilijoski.backend.account.GermanIban;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.security.PasswordHasher;
+import com.nilijoski.backend.security.SecurityConfig;
+import com.nilijoski.backend.security.TokenRevocationList;
+import com.nilijoski.backend.security.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Behaviour of the public API that both the servlet and the reactive stack must show: same
+ * paths, status codes, headers and bodies. Each subclass wires its own controllers and
+ * services over repository fakes backed by {@link InMemoryBank}.
+ */
+abstract class ApiContract {
+
+    protected final InMemoryBank bank = new InMemoryBank();
+    protected final UserCache userCache = new UserCache(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+    protected final PasswordHasher passwordHasher = new PasswordHasher(4, 1, 16, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    protected final TokenService tokenService = new TokenService("", Duration.ofMinutes(15), Duration.ofDays(7),
+            new TokenRevocationList(), new ObjectMapper());
+    protected final AccountNumberAllocator accountNumberAllocator = mock(AccountNumberAllocator.class);
+    protected final UsernameFilter usernameFilter = mock(UsernameFilter.class);
+
+    private final AtomicInteger accountNumbers = new AtomicInteger(532013000);
+    private WebTestClient client;
+
+    protected abstract WebTestClient createClient();
+
+    @BeforeEach
+    void setUpStack() {
+        lenient().when(accountNumberAllocator.next()).thenAnswer(invocation -> {
+            String accountNumber = String.format("%010d", accountNumbers.incrementAndGet());
+            return new AccountNumberAllocator.AccountIdentifiers(accountNumber, GermanIban.of("37040044", accountNumber));
+        });
+        lenient().when(usernameFilter.mightContain(any())).thenReturn(true);
+        client = createClient();
+    }
+
+    private record Account(String id, String iban, String accountNumber, String refreshToken) {
+    }
+
+    private Account register(String username, String firstName, String lastName) {
+        var result = client.post().uri("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", username, "password", "secret123",
+                        "firstName", firstName, "lastName", lastName))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Map.class)
+                .returnResult();
+        Map<?, ?> body = Objects.requireNonNull(result.getResponseBody());
+        return new Account((String) body.get("id"), (String) body.get("iban"), (String) body.get("accountNumber"),
+                result.getResponseHeaders().getFirst(SecurityConfig.REFRESH_TOKEN_HEADER));
+    }
+
+    private WebTestClient.ResponseSpec transfer(Account from, Account to, String firstName, String lastName, Object amount) {
+        return client.post().uri("/api/transactions/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("fromIban", from.iban(), "toIban", to.iban(), "toFirstName", firstName,
+                        "toLastName", lastName, "amount", amount, "description", "Rent"))
+                .exchange();
+    }
+
+    private String eTagOf(String uri) {
+        return client.get().uri(uri).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+    }
+
+    @Test
+    void registerOpensAccountAndIssuesTokens() {
+        client.post().uri("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", "alice", "password", "secret123", "firstName", "Alice", "lastName", "Smith"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().exists(SecurityConfig.ACCESS_TOKEN_HEADER)
+                .expectHeader().exists(SecurityConfig.REFRESH_TOKEN_HEADER)
+                .expectBody()
+                .jsonPath("$.username").isEqualTo("alice")
+                .jsonPath("$.accountNumber").isEqualTo("0532013001")
+                .jsonPath("$.iban").value(iban -> assertTrue(GermanIban.isValid((String) iban)))
+                .jsonPath("$.balance").isEqualTo(1000.0)
+                .jsonPath("$.status").isEqualTo("ACTIVE");
+    }
+
+    @Test
+    void registerRejectsTakenUsername() {
+        register("alice", "Alice", "Smith");
+
+        client.post().uri("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", "alice", "password", "other", "firstName", "A", "lastName", "S"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void loginAcceptsOnlyTheRightPassword() {
+        register("alice", "Alice", "Smith");
+
+        client.post().uri("/api/users/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", "alice", "password", "secret123"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(SecurityConfig.ACCESS_TOKEN_HEADER)
+                .expectBody().jsonPath("$.username").isEqualTo("alice");
+        client.post().uri("/api/users/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", "alice", "password", "wrong"))
+                .exchange()
+                .expectStatus().isUnauthorized();
+        client.post().uri("/api/users/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("username", "nobody", "password", "secret123"))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void reportsUsernameAvailability() {
+        register("alice", "Alice", "Smith");
+
+        client.get().uri("/api/users/availability/alice").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.available").isEqualTo(false);
+        client.get().uri("/api/users/availability/bob").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.available").isEqualTo(true);
+    }
+
+    @Test
+    void accountByNumberIsRevalidatedWithETag() {
+        Account alice = register("alice", "Alice", "Smith");
+        String eTag = eTagOf("/api/users/number/" + alice.accountNumber());
+
+        client.get().uri("/api/users/number/" + alice.accountNumber())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+        client.get().uri("/api/users/number/0000000000").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findsUserByUsername() {
+        register("alice", "Alice", "Smith");
+
+        client.get().uri("/api/users/alice").exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody().jsonPath("$.firstName").isEqualTo("Alice");
+    }
+
+    @Test
+    void managesSavedRecipients() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+
+        client.post().uri("/api/users/" + alice.id() + "/saved-recipients")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("recipientIban", bob.iban()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.savedRecipientIbans[0]").isEqualTo(bob.iban());
+        client.get().uri("/api/users/" + alice.id() + "/saved-recipients").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].username").isEqualTo("bob");
+        client.delete().uri("/api/users/" + alice.id() + "/saved-recipients/" + bob.iban()).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.savedRecipientIbans.length()").isEqualTo(0);
+    }
+
+    @Test
+    void transferMovesMoneyBetweenAccounts() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+
+        transfer(alice, bob, "Bob", "Jones", 100)
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.transaction.fromIban").isEqualTo(alice.iban())
+                .jsonPath("$.transaction.status").isEqualTo("COMPLETED")
+                .jsonPath("$.transaction.warning").doesNotExist();
+
+        client.get().uri("/api/users/number/" + alice.accountNumber()).exchange()
+                .expectBody().jsonPath("$.balance").isEqualTo(900.0);
+        client.get().uri("/api/users/number/" + bob.accountNumber()).exchange()
+                .expectBody().jsonPath("$.balance").isEqualTo(1100.0);
+    }
+
+    @Test
+    void transferWarnsOnPayeeNameMismatch() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+
+        transfer(alice, bob, "Robert", "Jones", 10)
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.transaction.warning").isEqualTo("Name mismatch: the name does not match the account holder");
+    }
+
+    @Test
+    void transferRejectsInvalidRequests() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+        Account unknown = new Account(null, "DE02370400440532013999", null, null);
+        Account malformed = new Account(null, "NOT-AN-IBAN", null, null);
+
+        transfer(alice, bob, "Bob", "Jones", 5000).expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Insufficient balance");
+        transfer(alice, bob, "Bob", "Jones", -1).expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Transfer amount must be positive");
+        transfer(alice, alice, "Alice", "Smith", 1).expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Cannot transfer money to your own account");
+        transfer(alice, malformed, "X", "Y", 1).expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Invalid IBAN format");
+        transfer(alice, unknown, "X", "Y", 1).expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.success").isEqualTo(false)
+                .jsonPath("$.message").isEqualTo("Recipient IBAN not found. Please check the IBAN and try again.");
+
+        client.get().uri("/api/users/number/" + alice.accountNumber()).exchange()
+                .expectBody().jsonPath("$.balance").isEqualTo(1000.0);
+    }
+
+    @Test
+    void historyIsRevalidatedUntilTheAccountChanges() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+        transfer(alice, bob, "Bob", "Jones", 100).expectStatus().isCreated();
+        String history = "/api/transactions/iban/" + bob.iban();
+
+        String eTag = eTagOf(history);
+        client.get().uri(history).header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isNotModified();
+
+        transfer(alice, bob, "Bob", "Jones", 50).expectStatus().isCreated();
+        client.get().uri(history).header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].amount").isEqualTo(100.0);
+        client.get().uri("/api/transactions/account/" + alice.accountNumber()).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    void listsDistinctRecipients() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+        transfer(alice, bob, "Bob", "Jones", 10).expectStatus().isCreated();
+        transfer(alice, bob, "Bob", "Jones", 20).expectStatus().isCreated();
+
+        client.get().uri("/api/transactions/recipients/" + alice.iban()).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0]").isEqualTo(bob.iban());
+    }
+
+    @Test
+    void transactionByIdNeverChanges() {
+        Account alice = register("alice", "Alice", "Smith");
+        Account bob = register("bob", "Bob", "Jones");
+        transfer(alice, bob, "Bob", "Jones", 10).expectStatus().isCreated();
+        String id = bank.findTransactions(transaction -> true).get(0).getId();
+
+        String eTag = eTagOf("/api/transactions/" + id);
+        client.get().uri("/api/transactions/" + id).header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isNotModified();
+        client.get().uri("/api/transactions").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void refreshTokensRotateAndLogoutRevokes() {
+        Account alice = register("alice", "Alice", "Smith");
+
+        client.post().uri("/api/users/token/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("refreshToken", alice.refreshToken()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.accessToken").exists();
+        client.post().uri("/api/users/token/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("refreshToken", alice.refreshToken()))
+                .exchange()
+                .expectStatus().isUnauthorized();
+        client.post().uri("/api/users/logout")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("refreshToken", alice.refreshToken()))
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+}
@@ -0,0 +1,67 @@
+package com.nilijoski.backend.contract;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Stand-in for the two Mongo collections, shared by the repository fakes of both stacks.
+ * Hands out copies like a database would and enforces the unique username index.
+ */
+final class InMemoryBank {
+
+    private final Map<String, User> users = new LinkedHashMap<>();
+    private final Map<String, Transaction> transactions = new LinkedHashMap<>();
+    private int nextId;
+
+    synchronized User save(User user) {
+        String id = user.getId() == null ? Integer.toHexString(++nextId) : user.getId();
+        boolean taken = users.values().stream()
+                .anyMatch(other -> !other.getId().equals(id) && other.getUsername().equals(user.getUsername()));
+        if (taken) {
+            throw new DuplicateKeyException("E11000 duplicate key error collection: users index: username_1");
+        }
+        User stored = copy(user);
+        stored.setId(id);
+        users.put(id, stored);
+        return copy(stored);
+    }
+
+    synchronized Optional<User> findUser(Predicate<User> filter) {
+        return users.values().stream().filter(filter).findFirst().map(InMemoryBank::copy);
+    }
+
+    synchronized List<User> findUsers() {
+        return users.values().stream().map(InMemoryBank::copy).toList();
+    }
+
+    synchronized void deleteUser(String id) {
+        users.remove(id);
+    }
+
+    synchronized Transaction save(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(Integer.toHexString(++nextId));
+        }
+        transactions.put(transaction.getId(), transaction);
+        return transaction;
+    }
+
+    synchronized List<Transaction> findTransactions(Predicate<Transaction> filter) {
+        return transactions.values().stream().filter(filter).toList();
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getFirstName(), user.getLastName(),
+                user.getIban(), user.getAccountNumber(), user.getBalance(), user.getStatus(),
+                new ArrayList<>(user.getSavedRecipientIbans()), user.getCreatedAt(), user.getUpdatedAt(),
+                user.getNameKeys());
+    }
+}
@@ -0,0 +1,123 @@
+package com.nilijoski.backend.contract;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.reactive.ReactiveTransactionController;
+import com.nilijoski.backend.reactive.ReactiveTransactionRepository;
+import com.nilijoski.backend.reactive.ReactiveTransactionService;
+import com.nilijoski.backend.reactive.ReactiveUserController;
+import com.nilijoski.backend.reactive.ReactiveUserRepository;
+import com.nilijoski.backend.reactive.ReactiveUserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+class ReactiveApiContractTest extends ApiContract {
+
+    private final Sinks.Empty<Void> gate = Sinks.empty();
+    // Saves of this account wait for the gate
+    private volatile String gatedAccount;
+    private ReactiveUserService userService;
+    private ReactiveTransactionService transactionService;
+
+    @Override
+    protected WebTestClient createClient() {
+        ReactiveUserRepository userRepository = mock(ReactiveUserRepository.class);
+        lenient().when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            return Mono.defer(() -> user.getAccountNumber().equals(gatedAccount) ? gate.asMono() : Mono.<Void>empty())
+                    .then(Mono.fromCallable(() -> bank.save(user)));
+        });
+        lenient().when(userRepository.findById(anyString())).thenAnswer(invocation ->
+                user(user -> user.getId().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.findByUsername(anyString())).thenAnswer(invocation ->
+                user(user -> user.getUsername().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.findByIban(anyString())).thenAnswer(invocation ->
+                user(user -> user.getIban().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.findByAccountNumber(anyString())).thenAnswer(invocation ->
+                user(user -> user.getAccountNumber().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.existsByUsername(anyString())).thenAnswer(invocation ->
+                user(user -> user.getUsername().equals(invocation.getArgument(0))).hasElement());
+        lenient().when(userRepository.findAll()).thenAnswer(invocation -> Flux.defer(() -> Flux.fromIterable(bank.findUsers())));
+        lenient().when(userRepository.deleteById(anyString())).thenAnswer(invocation ->
+                Mono.fromRunnable(() -> bank.deleteUser(invocation.getArgument(0))));
+
+        ReactiveTransactionRepository transactionRepository = mock(ReactiveTransactionRepository.class);
+        lenient().when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation ->
+                Mono.fromCallable(() -> bank.save(invocation.<Transaction>getArgument(0))));
+        lenient().when(transactionRepository.findById(anyString())).thenAnswer(invocation ->
+                transactions(transaction -> transaction.getId().equals(invocation.getArgument(0))).next());
+        lenient().when(transactionRepository.findAll()).thenAnswer(invocation -> transactions(transaction -> true));
+        lenient().when(transactionRepository.findByFromIban(anyString())).thenAnswer(invocation ->
+                transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromIban())));
+        lenient().when(transactionRepository.findByFromIbanOrToIban(anyString(), anyString())).thenAnswer(invocation ->
+                transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromIban())
+                        || invocation.getArgument(1).equals(transaction.getToIban())));
+        lenient().when(transactionRepository.findByFromAccountNumberOrToAccountNumber(anyString(), anyString())).thenAnswer(invocation ->
+                transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromAccountNumber())
+                        || invocation.getArgument(1).equals(transaction.getToAccountNumber())));
+        lenient().when(transactionRepository.countByFromIbanOrToIban(anyString(), anyString())).thenAnswer(invocation ->
+                transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromIban())
+                        || invocation.getArgument(1).equals(transaction.getToIban())).count());
+        lenient().when(transactionRepository.findFirstByFromIbanOrToIbanOrderByIdDesc(anyString(), anyString())).thenAnswer(invocation ->
+                transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromIban())
+                        || invocation.getArgument(1).equals(transaction.getToIban())).takeLast(1).next());
+        lenient().when(transactionRepository.countByFromAccountNumberOrToAccountNumber(anyString(), anyString())).thenAnswer(invocation ->
+                transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromAccountNumber())
+                        || invocation.getArgument(1).equals(transaction.getToAccountNumber())).count());
+        lenient().when(transactionRepository.findFirstByFromAccountNumberOrToAccountNumberOrderByIdDesc(anyString(), anyString()))
+                .thenAnswer(invocation -> transactions(transaction -> invocation.getArgument(0).equals(transaction.getFromAccountNumber())
+                        || invocation.getArgument(1).equals(transaction.getToAccountNumber())).takeLast(1).next());
+
+        userService = new ReactiveUserService(userRepository, userCache, passwordHasher, accountNumberAllocator,
+                usernameFilter);
+        transactionService = new ReactiveTransactionService(transactionRepository, userService, "document", false);
+
+        return WebTestClient.bindToController(
+                        new ReactiveUserController(userService, tokenService),
+                        new ReactiveTransactionController(transactionService))
+                .build();
+    }
+
+    @Test
+    void transferRunsToCompletionWhenTheClientGoesAway() {
+        User alice = userService.register("alice", "secret123", "Alice", "Smith").block();
+        User bob = userService.register("bob", "secret123", "Bob", "Jones").block();
+        gatedAccount = bob.getAccountNumber();
+
+        Disposable request = transactionService.transfer(alice.getIban(), bob.getIban(), "Bob", "Jones",
+                new BigDecimal("100.00"), "Rent").subscribe();
+        // Alice is debited and the deposit waits at the gate
+        request.dispose();
+        gate.tryEmitEmpty();
+
+        assertEquals(0, new BigDecimal("900.00").compareTo(balance(alice)));
+        assertEquals(0, new BigDecimal("1100.00").compareTo(balance(bob)));
+        assertEquals(1, bank.findTransactions(transaction -> true).size());
+    }
+
+    private BigDecimal balance(User user) {
+        return bank.findUser(stored -> stored.getId().equals(user.getId())).orElseThrow().getBalance();
+    }
+
+    private Mono<User> user(Predicate<User> filter) {
+        return Mono.defer(() -> Mono.justOrEmpty(bank.findUser(filter)));
+    }
+
+    private Flux<Transaction> transactions(Predicate<Transaction> filter) {
+        return Flux.defer(() -> Flux.fromIterable(bank.findTransactions(filter)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.nilijoski.backend.contract;
+
+import com.nilijoski.backend.controller.TransactionController;
+import com.nilijoski.backend.controller.UserController;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.repository.UserRepository;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.client.MockMvcWebTestClient;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+class ServletApiContractTest extends ApiContract {
+
+    @Override
+    protected WebTestClient createClient() {
+        UserRepository userRepository = mock(UserRepository.class);
+        lenient().when(userRepository.save(any(User.class))).thenAnswer(invocation -> bank.save(invocation.<User>getArgument(0)));
+        lenient().when(userRepository.findById(anyString())).thenAnswer(invocation ->
+                bank.findUser(user -> user.getId().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.findByUsername(anyString())).thenAnswer(invocation ->
+                bank.findUser(user -> user.getUsername().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.findByIban(anyString())).thenAnswer(invocation ->
+                bank.findUser(user -> user.getIban().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.findByAccountNumber(anyString())).thenAnswer(invocation ->
+                bank.findUser(user -> user.getAccountNumber().equals(invocation.getArgument(0))));
+        lenient().when(userRepository.existsByUsername(anyString())).thenAnswer(invocation ->
+                bank.findUser(user -> user.getUsername().equals(invocation.getArgument(0))).isPresent());
+        lenient().when(userRepository.findAll()).thenAnswer(invocation -> bank.findUsers());
+        lenient().doAnswer(invocation -> {
+            bank.deleteUser(invocation.getArgument(0));
+            return null;
+        }).when(userRepository).deleteById(anyString());
+
+        UserService userService = new UserService(userRepository, userCache, passwordHasher, accountNumberAllocator,
+                usernameFilter);
+        TransactionService transactionService = new TransactionService(new BankTransactionStore(), userService,
+                new SimpleMeterRegistry());
+
+        return MockMvcWebTestClient.bindToController(
+                        new UserController(userService, tokenService),
+                        new TransactionController(transactionService))
+                .build();
+    }
+
+    private class BankTransactionStore implements TransactionStore {
+
+        @Override
+        public Transaction save(Transaction transaction) {
+            return bank.save(transaction);
+        }
+
+        @Override
+        public Optional<Transaction> findById(String id) {
+            return bank.findTransactions(transaction -> transaction.getId().equals(id)).stream().findFirst();
+        }
+
+        @Override
+        public List<Transaction> findAll() {
+            return bank.findTransactions(transaction -> true);
+        }
+
+        @Override
+        public List<Transaction> findByFromIban(String fromIban) {
+            return bank.findTransactions(transaction -> fromIban.equals(transaction.getFromIban()));
+        }
+
+        @Override
+        public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+            return bank.findTransactions(transaction ->
+                    fromIban.equals(transaction.getFromIban()) || toIban.equals(transaction.getToIban()));
+        }
+
+        @Override
+        public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+            return bank.findTransactions(transaction -> fromAccountNumber.equals(transaction.getFromAccountNumber())
+                    || toAccountNumber.equals(transaction.getToAccountNumber()));
+        }
+
+        @Override
+        public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void deleteAll(Collection<Transaction> transactions) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
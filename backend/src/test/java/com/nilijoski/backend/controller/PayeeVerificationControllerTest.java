@@ -0,0 +1,68 @@
+package com.nilijoski.backend.controller;
+
+import com.nilijoski.backend.exception.AccountNotFoundException;
+import com.nilijoski.backend.payee.PayeeMatcher;
+import com.nilijoski.backend.payee.PayeeVerificationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PayeeVerificationController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class PayeeVerificationControllerTest {
+
+    private static final String IBAN = "DE02120300000000202051";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private PayeeVerificationService payeeVerificationService;
+
+    @Test
+    void verify_closeMatchNamesTheHolder() throws Exception {
+        when(payeeVerificationService.verify(IBAN, "Jane", "Smyth"))
+                .thenReturn(new PayeeVerificationService.Verification(PayeeMatcher.Result.CLOSE_MATCH, "Jane Smith"));
+
+        mockMvc.perform(post("/api/payee-verification")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"iban":"%s","firstName":"Jane","lastName":"Smyth"}
+                                """.formatted(IBAN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("CLOSE_MATCH"))
+                .andExpect(jsonPath("$.accountHolder").value("Jane Smith"));
+    }
+
+    @Test
+    void verify_unknownIban() throws Exception {
+        when(payeeVerificationService.verify(IBAN, "Jane", "Smith"))
+                .thenThrow(new AccountNotFoundException("User not found with IBAN: " + IBAN));
+
+        mockMvc.perform(post("/api/payee-verification")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"iban":"%s","firstName":"Jane","lastName":"Smith"}
+                                """.formatted(IBAN)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void verify_missingIban() throws Exception {
+        mockMvc.perform(post("/api/payee-verification")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"firstName":"Jane","lastName":"Smith"}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,182 @@
+package com.nilijoski.backend.controller;
+
+import com.nilijoski.backend.exception.InvalidStandingOrderException;
+import com.nilijoski.backend.exception.StandingOrderNotFoundException;
+import com.nilijoski.backend.model.StandingOrder;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.standingorder.StandingOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = StandingOrderController.class, properties = "banking.standing-orders.enabled=true")
+@AutoConfigureMockMvc(addFilters = false)
+class StandingOrderControllerTest {
+
+    private static final String FROM_IBAN = "DE89370400440532013000";
+    private static final String TO_IBAN = "DE02120300000000202051";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private StandingOrderService standingOrderService;
+
+    private StandingOrder order() {
+        StandingOrder order = new StandingOrder();
+        order.setId("o1");
+        order.setFromIban(FROM_IBAN);
+        order.setToIban(TO_IBAN);
+        order.setAmount(new BigDecimal("25.0"));
+        order.setFrequency(StandingOrder.Frequency.MONTHLY);
+        order.setStatus(StandingOrder.ACTIVE);
+        return order;
+    }
+
+    @Test
+    void create_success() throws Exception {
+        when(standingOrderService.create(eq(FROM_IBAN), eq(TO_IBAN), eq("Jane"), eq("Doe"), eq(new BigDecimal("25.0")),
+                eq("Rent"), eq(StandingOrder.Frequency.MONTHLY), eq(LocalDateTime.of(2025, 4, 1, 8, 0)), isNull()))
+                .thenReturn(order());
+
+        mockMvc.perform(post("/api/standing-orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"fromIban":"%s","toIban":"%s","toFirstName":"Jane","toLastName":"Doe","amount":25,
+                                 "description":"Rent","frequency":"MONTHLY","firstRunAt":"2025-04-01T08:00:00"}
+                                """.formatted(FROM_IBAN, TO_IBAN)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value("o1"))
+                .andExpect(jsonPath("$.status").value("ACTIVE"));
+    }
+
+    @Test
+    void create_invalid() throws Exception {
+        when(standingOrderService.create(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new InvalidStandingOrderException("First execution must not be in the past"));
+
+        mockMvc.perform(post("/api/standing-orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"fromIban":"%s","toIban":"%s","amount":25,"frequency":"DAILY","firstRunAt":"2020-01-01T08:00:00"}
+                                """.formatted(FROM_IBAN, TO_IBAN)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void create_unknownFrequency() throws Exception {
+        mockMvc.perform(post("/api/standing-orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"fromIban":"%s","toIban":"%s","amount":25,"frequency":"HOURLY"}
+                                """.formatted(FROM_IBAN, TO_IBAN)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getByIban_success() throws Exception {
+        when(standingOrderService.getByIban(FROM_IBAN)).thenReturn(List.of(order()));
+
+        mockMvc.perform(get("/api/standing-orders/iban/" + FROM_IBAN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].frequency").value("MONTHLY"));
+    }
+
+    @Test
+    void getById_notFound() throws Exception {
+        when(standingOrderService.getById("missing")).thenThrow(new StandingOrderNotFoundException("missing"));
+
+        mockMvc.perform(get("/api/standing-orders/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void cancel_success() throws Exception {
+        when(standingOrderService.getById("o1")).thenReturn(order());
+        when(standingOrderService.cancel("o1")).thenReturn(order());
+
+        mockMvc.perform(delete("/api/standing-orders/o1"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void cancel_notActive() throws Exception {
+        when(standingOrderService.getById("o1")).thenReturn(order());
+        when(standingOrderService.cancel("o1")).thenThrow(new StandingOrderNotFoundException("o1"));
+
+        mockMvc.perform(delete("/api/standing-orders/o1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void create_fromAnotherHoldersAccount_isForbidden() throws Exception {
+        mockMvc.perform(post("/api/standing-orders")
+                        .principal(caller(TO_IBAN))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"fromIban":"%s","toIban":"%s","amount":25,"frequency":"DAILY"}
+                                """.formatted(FROM_IBAN, TO_IBAN)))
+                .andExpect(status().isForbidden());
+
+        verify(standingOrderService, never()).create(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void create_withoutFromIban_debitsTheCallersAccount() throws Exception {
+        when(standingOrderService.create(eq(FROM_IBAN), eq(TO_IBAN), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(order());
+
+        mockMvc.perform(post("/api/standing-orders")
+                        .principal(caller(FROM_IBAN))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"toIban":"%s","amount":25,"frequency":"DAILY"}
+                                """.formatted(TO_IBAN)))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void ordersOfAnotherHolder_areForbidden() throws Exception {
+        when(standingOrderService.getById("o1")).thenReturn(order());
+        Principal caller = caller(TO_IBAN);
+
+        mockMvc.perform(get("/api/standing-orders/iban/" + FROM_IBAN).principal(caller))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/standing-orders/o1").principal(caller))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/standing-orders/o1").principal(caller))
+                .andExpect(status().isForbidden());
+
+        verify(standingOrderService, never()).getByIban(any());
+        verify(standingOrderService, never()).cancel(any());
+    }
+
+    private static Principal caller(String iban) {
+        return new UsernamePasswordAuthenticationToken(
+                new TokenService.TokenClaims("jti", TokenService.TokenType.ACCESS, "u1", "12345", iban, 0),
+                null, AuthorityUtils.NO_AUTHORITIES);
+    }
+}
@@ -1,24 +1,36 @@
 package com.nilijoski.backend.controller;
 
+import com.nilijoski.backend.exception.TransactionNotFoundException;
 import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.security.TokenService;
 import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.web.ETags;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +44,12 @@ class TransactionControllerTest {
     @MockitoBean
     private TransactionService transactionService;
 
+    @BeforeEach
+    void setUp() {
+        when(transactionService.getHistoryVersionByIban(anyString())).thenReturn(version(0, null));
+        when(transactionService.getHistoryVersionByAccountNumber(anyString())).thenReturn(version(0, null));
+    }
+
     @Test
     void testTransferSuccess() throws Exception {
         Transaction transaction = new Transaction();
@@ -82,6 +100,70 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.message").value("Invalid IBAN"));
     }
 
+    @Test
+    void transfer_fromAnotherHoldersAccount_isForbidden() throws Exception {
+        String requestBody = """
+                {
+                    "fromIban": "DE999",
+                    "toIban": "DE456",
+                    "toFirstName": "John",
+                    "toLastName": "Doe",
+                    "amount": 100,
+                    "description": "Test transfer"
+                }
+                """;
+
+        mockMvc.perform(post("/api/transactions/transfer")
+                        .principal(caller("u1", "12345", "DE123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.success").value(false));
+
+        verify(transactionService, never()).transfer(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_withoutFromIban_debitsTheCallersAccount() throws Exception {
+        Transaction transaction = new Transaction();
+        transaction.setId("123");
+        when(transactionService.transfer(eq("DE123"), anyString(), anyString(), anyString(), any(BigDecimal.class), anyString()))
+                .thenReturn(transaction);
+
+        String requestBody = """
+                {
+                    "toIban": "DE456",
+                    "toFirstName": "John",
+                    "toLastName": "Doe",
+                    "amount": 100,
+                    "description": "Test transfer"
+                }
+                """;
+
+        mockMvc.perform(post("/api/transactions/transfer")
+                        .principal(caller("u1", "12345", "DE123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.transaction.id").value("123"));
+    }
+
+    @Test
+    void histories_ofAnotherHolder_areForbidden() throws Exception {
+        Principal caller = caller("u1", "12345", "DE123");
+
+        mockMvc.perform(get("/api/transactions/iban/DE999").principal(caller))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/transactions/recipients/DE999").principal(caller))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/transactions/account/99999").principal(caller))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/transactions/iban/DE123").principal(caller))
+                .andExpect(status().isOk());
+
+        verify(transactionService, never()).getTransactionsByIban("DE999");
+    }
+
     @Test
     void testGetRecipientsByUserIban() throws Exception {
         List<String> recipients = Arrays.asList("DE111", "DE222");
@@ -129,6 +211,29 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.id").value("123"));
     }
 
+    @Test
+    void getAllTransactions_isForOperatorsOnly() throws Exception {
+        mockMvc.perform(get("/api/transactions").principal(caller("u1", "12345", "DE123")))
+                .andExpect(status().isForbidden());
+
+        verify(transactionService, never()).getAllTransactions();
+    }
+
+    @Test
+    void getTransactionById_ofOtherParties_isForbidden() throws Exception {
+        Transaction t = new Transaction();
+        t.setId("123");
+        t.setFromIban("DE999");
+        t.setToIban("DE123");
+        when(transactionService.getTransactionById("123")).thenReturn(t);
+
+        mockMvc.perform(get("/api/transactions/123").principal(caller("u2", "77777", "DE777"))
+                        .header("If-None-Match", "W/\"123\""))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/transactions/123").principal(caller("u1", "12345", "DE123")))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void testGetTransactionsByAccountNumber() throws Exception {
         Transaction t1 = new Transaction();
@@ -139,4 +244,93 @@ class TransactionControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value("1"));
     }
+
+    private static TransactionStore.HistoryVersion version(long transactions, String newestId) {
+        return new TransactionStore.HistoryVersion(transactions, newestId);
+    }
+
+    @Test
+    void testGetTransactionsByIban_notModified() throws Exception {
+        when(transactionService.getHistoryVersionByIban("DE123")).thenReturn(version(1, "t1"));
+        when(transactionService.getTransactionsByIban("DE123")).thenReturn(List.of(new Transaction()));
+
+        String eTag = mockMvc.perform(get("/api/transactions/iban/DE123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/transactions/iban/DE123").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag));
+    }
+
+    @Test
+    void testGetTransactionsByIban_notModifiedSkipsLoadingHistory() throws Exception {
+        when(transactionService.getHistoryVersionByIban("DE123")).thenReturn(version(1, "t1"));
+        String eTag = ETags.of(version(1, "t1"));
+
+        mockMvc.perform(get("/api/transactions/iban/DE123").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        verify(transactionService, never()).getTransactionsByIban("DE123");
+    }
+
+    @Test
+    void testGetTransactionsByIban_eTagChangesWithEveryStoredTransaction() throws Exception {
+        when(transactionService.getHistoryVersionByIban("DE123")).thenReturn(version(1, "t2"));
+        when(transactionService.getTransactionsByIban("DE123")).thenReturn(List.of(new Transaction()));
+
+        String eTag = mockMvc.perform(get("/api/transactions/iban/DE123"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // A concurrent transfer with an older id was stored after the newer one: the count still moves
+        when(transactionService.getHistoryVersionByIban("DE123")).thenReturn(version(2, "t2"));
+        Transaction transfer = new Transaction();
+        transfer.setId("t1");
+        when(transactionService.getTransactionsByIban("DE123")).thenReturn(List.of(new Transaction(), transfer));
+
+        mockMvc.perform(get("/api/transactions/iban/DE123").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().exists("ETag"));
+    }
+
+    @Test
+    void testGetTransactionsByAccountNumber_notModified() throws Exception {
+        when(transactionService.getHistoryVersionByAccountNumber("ACC123")).thenReturn(version(3, "t3"));
+
+        mockMvc.perform(get("/api/transactions/account/ACC123").header("If-None-Match", ETags.of(version(3, "t3"))))
+                .andExpect(status().isNotModified());
+
+        verify(transactionService, never()).getTransactionsByAccountNumber("ACC123");
+    }
+
+    @Test
+    void testGetTransactionById_immutableETag() throws Exception {
+        Transaction t = new Transaction();
+        t.setId("123");
+        when(transactionService.getTransactionById("123")).thenReturn(t);
+
+        mockMvc.perform(get("/api/transactions/123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"123\""));
+
+        mockMvc.perform(get("/api/transactions/123").header("If-None-Match", "W/\"123\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testGetTransactionById_unknownIdIsNotFoundEvenWhenConditional() throws Exception {
+        when(transactionService.getTransactionById("404"))
+                .thenThrow(new TransactionNotFoundException("Transaction not found with id: 404"));
+
+        mockMvc.perform(get("/api/transactions/404").header("If-None-Match", "W/\"404\""))
+                .andExpect(status().isNotFound());
+    }
+
+    private static Principal caller(String userId, String accountNumber, String iban) {
+        return new UsernamePasswordAuthenticationToken(
+                new TokenService.TokenClaims("jti", TokenService.TokenType.ACCESS, userId, accountNumber, iban, 0),
+                null, AuthorityUtils.NO_AUTHORITIES);
+    }
 }
@@ -1,22 +1,35 @@
 package com.nilijoski.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.exception.InvalidTokenException;
+import com.nilijoski.backend.exception.PasswordHashingUnavailableException;
 import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.security.SecurityConfig;
+import com.nilijoski.backend.security.TokenService;
 import com.nilijoski.backend.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -30,6 +43,9 @@ class UserControllerTest {
     @MockitoBean
     private UserService userService;
 
+    @MockitoBean
+    private TokenService tokenService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -40,13 +56,19 @@ class UserControllerTest {
         user.setFirstName("John");
         user.setLastName("Doe");
         user.setAccountNumber("12345");
+        PayeeNames.apply(user);
         return user;
     }
 
+    private TokenService.TokenPair tokens() {
+        return new TokenService.TokenPair("access", "refresh", 900);
+    }
+
     @Test
     void register_success() throws Exception {
         when(userService.register(any(), any(), any(), any()))
                 .thenReturn(mockUser());
+        when(tokenService.issue(any())).thenReturn(tokens());
 
         mockMvc.perform(post("/api/users/register")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -59,7 +81,8 @@ class UserControllerTest {
                                 )
                         )))
                 .andExpect(status().isCreated())
-                .andExpect(jsonPath("$.username").value("johndoe"));
+                .andExpect(jsonPath("$.username").value("johndoe"))
+                .andExpect(jsonPath("$.nameKeys").doesNotExist());
     }
 
     @Test
@@ -77,6 +100,7 @@ class UserControllerTest {
     void login_success() throws Exception {
         when(userService.login("johndoe", "pw"))
                 .thenReturn(mockUser());
+        when(tokenService.issue(any())).thenReturn(tokens());
 
         mockMvc.perform(post("/api/users/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -84,7 +108,53 @@ class UserControllerTest {
                                 Map.of("username", "johndoe", "password", "pw")
                         )))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.username").value("johndoe"));
+                .andExpect(jsonPath("$.username").value("johndoe"))
+                .andExpect(header().string("X-Access-Token", "access"))
+                .andExpect(header().string("X-Refresh-Token", "refresh"));
+    }
+
+    @Test
+    void getUsernameAvailability_success() throws Exception {
+        when(userService.isUsernameAvailable("janedoe")).thenReturn(true);
+
+        mockMvc.perform(get("/api/users/availability/janedoe"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("janedoe"))
+                .andExpect(jsonPath("$.available").value(true));
+    }
+
+    @Test
+    void refreshToken_success() throws Exception {
+        when(tokenService.refresh("refresh")).thenReturn(tokens());
+
+        mockMvc.perform(post("/api/users/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", "refresh"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").value("access"))
+                .andExpect(jsonPath("$.expiresIn").value(900));
+    }
+
+    @Test
+    void refreshToken_unauthorized() throws Exception {
+        when(tokenService.refresh(any())).thenThrow(new InvalidTokenException("Token revoked"));
+
+        mockMvc.perform(post("/api/users/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", "old"))))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logout_revokesTokens() throws Exception {
+        mockMvc.perform(post("/api/users/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                Map.of("accessToken", "access", "refreshToken", "refresh"))))
+                .andExpect(status().isNoContent());
+
+        verify(tokenService).revoke("access");
+        verify(tokenService).revoke("refresh");
     }
 
     @Test
@@ -98,6 +168,20 @@ class UserControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void login_serviceUnavailableWhenHashingIsSaturated() throws Exception {
+        when(userService.login(any(), any()))
+                .thenThrow(new PasswordHashingUnavailableException("busy"));
+
+        mockMvc.perform(post("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                Map.of("username", "johndoe", "password", "pw")
+                        )))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
     @Test
     void getAllUsers_success() throws Exception {
         when(userService.getAllUsers()).thenReturn(List.of(mockUser()));
@@ -107,6 +191,37 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.length()").value(1));
     }
 
+    @Test
+    void getAllUsers_isForOperatorsOnly() throws Exception {
+        when(userService.getAllUsers()).thenReturn(List.of(mockUser()));
+
+        mockMvc.perform(get("/api/users").principal(caller("u1")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users").principal(operator()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getUserByUsername_ofAnotherUser_isForbidden() throws Exception {
+        when(userService.getUserByUsername("johndoe")).thenReturn(mockUser());
+
+        mockMvc.perform(get("/api/users/johndoe").principal(caller("u2")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/johndoe").principal(caller("u1")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void passwordHashIsNeverSerialized() throws Exception {
+        User user = mockUser();
+        user.setPassword("$2a$10$hash");
+        when(userService.getUserByAccountNumber("12345")).thenReturn(user);
+
+        mockMvc.perform(get("/api/users/number/12345"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.password").doesNotExist());
+    }
+
     @Test
     void getAccountByAccountNumber_success() throws Exception {
         when(userService.getUserByAccountNumber("12345"))
@@ -167,4 +282,102 @@ class UserControllerTest {
         mockMvc.perform(delete("/api/users/u1/saved-recipients/IBAN1"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void savedRecipients_ofAnotherUser_areForbidden() throws Exception {
+        Principal caller = caller("u2");
+
+        mockMvc.perform(post("/api/users/u1/saved-recipients")
+                        .principal(caller)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("recipientIban", "IBAN1"))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/u1/saved-recipients").principal(caller))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/users/u1/saved-recipients/IBAN1").principal(caller))
+                .andExpect(status().isForbidden());
+
+        verify(userService, never()).addSavedRecipient(anyString(), anyString());
+        verify(userService, never()).getSavedRecipients(anyString());
+        verify(userService, never()).removeSavedRecipient(anyString(), anyString());
+    }
+
+    @Test
+    void deleteUser_ofAnotherUser_isForbidden() throws Exception {
+        mockMvc.perform(delete("/api/users/u1").principal(caller("u2")))
+                .andExpect(status().isForbidden());
+
+        verify(userService, never()).deleteUser(anyString());
+    }
+
+    @Test
+    void deleteUser_self() throws Exception {
+        mockMvc.perform(delete("/api/users/u1").principal(caller("u1")))
+                .andExpect(status().isOk());
+
+        verify(userService).deleteUser("u1");
+    }
+
+    @Test
+    void getAccountByAccountNumber_ofAnotherHolder_isForbidden() throws Exception {
+        mockMvc.perform(get("/api/users/number/99999").principal(caller("u1")))
+                .andExpect(status().isForbidden());
+
+        verify(userService, never()).getUserByAccountNumber(anyString());
+    }
+
+    @Test
+    void getAccountByAccountNumber_notModifiedUntilAccountChanges() throws Exception {
+        User user = mockUser();
+        user.setUpdatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        when(userService.getUserByAccountNumber("12345")).thenReturn(user);
+
+        String eTag = mockMvc.perform(get("/api/users/number/12345"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/users/number/12345").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        User afterTransfer = mockUser();
+        afterTransfer.setUpdatedAt(LocalDateTime.of(2025, 1, 1, 12, 5));
+        when(userService.getUserByAccountNumber("12345")).thenReturn(afterTransfer);
+
+        mockMvc.perform(get("/api/users/number/12345").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("12345"));
+    }
+
+    @Test
+    void getSavedRecipients_eTagCoversEveryRecipient() throws Exception {
+        User recipient = mockUser();
+        recipient.setUpdatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        when(userService.getSavedRecipients("u1")).thenReturn(List.of(recipient));
+
+        String eTag = mockMvc.perform(get("/api/users/u1/saved-recipients"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/users/u1/saved-recipients").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        User updatedRecipient = mockUser();
+        updatedRecipient.setUpdatedAt(LocalDateTime.of(2025, 1, 2, 12, 0));
+        when(userService.getSavedRecipients("u1")).thenReturn(List.of(updatedRecipient));
+
+        mockMvc.perform(get("/api/users/u1/saved-recipients").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    private static Principal operator() {
+        return new UsernamePasswordAuthenticationToken(
+                new TokenService.TokenClaims("jti", TokenService.TokenType.ACCESS, "ops", "00000", "DE000", 0),
+                null, AuthorityUtils.createAuthorityList("ROLE_" + SecurityConfig.OPERATOR_ROLE));
+    }
+
+    private static Principal caller(String userId) {
+        return new UsernamePasswordAuthenticationToken(
+                new TokenService.TokenClaims("jti", TokenService.TokenType.ACCESS, userId, "12345", "DE123", 0),
+                null, AuthorityUtils.NO_AUTHORITIES);
+    }
 }
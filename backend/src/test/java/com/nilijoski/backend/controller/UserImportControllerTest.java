@@ -0,0 +1,118 @@
+package com.nilijoski.backend.controller;
+
+import com.nilijoski.backend.exception.ImportJobNotFoundException;
+import com.nilijoski.backend.model.ImportError;
+import com.nilijoski.backend.model.ImportJob;
+import com.nilijoski.backend.onboarding.ImportRowReader;
+import com.nilijoski.backend.onboarding.UserImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = UserImportController.class, properties = "banking.import.enabled=true")
+@AutoConfigureMockMvc(addFilters = false)
+class UserImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserImportService userImportService;
+
+    private ImportJob job(String status) {
+        ImportJob job = new ImportJob();
+        job.setId("job1");
+        job.setStatus(status);
+        job.setCommittedRows(2);
+        job.setInserted(1);
+        job.setFailed(1);
+        return job;
+    }
+
+    @Test
+    void importCsv_success() throws Exception {
+        when(userImportService.importUsers(any(), eq(ImportRowReader.Format.CSV), isNull()))
+                .thenReturn(job(ImportJob.COMPLETED));
+
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("text/csv")
+                        .content("username,password\nalice,a\nalice,b\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("job1"))
+                .andExpect(jsonPath("$.failed").value(1));
+    }
+
+    @Test
+    void importNdJson_resumesJob() throws Exception {
+        when(userImportService.importUsers(any(), eq(ImportRowReader.Format.NDJSON), eq("job1")))
+                .thenReturn(job(ImportJob.COMPLETED));
+
+        mockMvc.perform(post("/api/users/import?jobId=job1")
+                        .contentType("application/x-ndjson")
+                        .content("{\"username\":\"alice\",\"password\":\"a\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
+    @Test
+    void importUsers_unknownJob() throws Exception {
+        when(userImportService.importUsers(any(), any(), eq("missing")))
+                .thenThrow(new ImportJobNotFoundException("Import job not found: missing"));
+
+        mockMvc.perform(post("/api/users/import?jobId=missing")
+                        .contentType("text/csv")
+                        .content("username,password\n"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void importUsers_unsupportedFormat() throws Exception {
+        mockMvc.perform(post("/api/users/import")
+                        .contentType("application/xml")
+                        .content("<users/>"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    void getJob_success() throws Exception {
+        when(userImportService.getJob("job1")).thenReturn(job(ImportJob.INTERRUPTED));
+
+        mockMvc.perform(get("/api/users/import/job1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.committedRows").value(2));
+    }
+
+    @Test
+    void getErrors_streamsNdJson() throws Exception {
+        when(userImportService.streamErrors("job1"))
+                .thenReturn(Stream.of(new ImportError("e1", "job1", 2, "alice", "Username already exists")));
+
+        MvcResult result = mockMvc.perform(get("/api/users/import/job1/errors"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"message\":\"Username already exists\"")));
+    }
+}
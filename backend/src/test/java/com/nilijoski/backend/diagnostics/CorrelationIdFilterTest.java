@@ -0,0 +1,58 @@
+package com.nilijoski.backend.diagnostics;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorrelationIdFilterTest {
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+    private String filter(String requested, MockHttpServletResponse response) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/transactions");
+        if (requested != null) {
+            request.addHeader(CorrelationId.HEADER, requested);
+        }
+        AtomicReference<String> seen = new AtomicReference<>();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                seen.set(CorrelationId.current());
+            }
+        }));
+        return seen.get();
+    }
+
+    @Test
+    void keepsAWellFormedCallerId() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertEquals("checkout-42", filter("checkout-42", response));
+        assertEquals("checkout-42", response.getHeader(CorrelationId.HEADER));
+        assertEquals("", CorrelationId.current());
+    }
+
+    @Test
+    void generatesAnIdWhenMissingOrMalformed() throws Exception {
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+        MockHttpServletResponse malformed = new MockHttpServletResponse();
+
+        String generated = filter(null, missing);
+        String replaced = filter("bad\nid", malformed);
+
+        assertEquals(36, generated.length());
+        assertEquals(generated, missing.getHeader(CorrelationId.HEADER));
+        assertNotEquals("bad\nid", replaced);
+        assertTrue(replaced.matches("[0-9a-f-]{36}"));
+    }
+}
@@ -0,0 +1,210 @@
+package com.nilijoski.backend.diagnostics;
+
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.MDC;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecordingAnalyzerTest {
+
+    private static final String FROM_IBAN = "DE89370400440532013000";
+    private static final String TO_IBAN = "DE75512108001245126199";
+
+    @TempDir
+    Path directory;
+
+    private Recording recording;
+
+    @BeforeEach
+    void startRecording() {
+        recording = new Recording();
+        FlightRecording.EVENTS.forEach(event -> recording.enable(event).withoutThreshold());
+        recording.start();
+    }
+
+    @AfterEach
+    void closeRecording() {
+        recording.close();
+        MDC.clear();
+    }
+
+    private List<RecordedEvent> stop() throws Exception {
+        recording.stop();
+        Path file = directory.resolve("banking.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private void transferAs(String correlationId) {
+        UserService userService = mock(UserService.class);
+        when(userService.getUserByIban(FROM_IBAN)).thenReturn(user(FROM_IBAN, "John", "Doe", "12345"));
+        when(userService.getUserByIban(TO_IBAN)).thenReturn(user(TO_IBAN, "Jane", "Smith", "67890"));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new InMemoryStore());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new RepositoryCallRecorder());
+        TransactionStore store = factory.getProxy();
+
+        MDC.put(CorrelationId.MDC_KEY, correlationId);
+        new TransactionService(store, userService, new SimpleMeterRegistry())
+                .transfer(FROM_IBAN, TO_IBAN, "Jane", "Smith", new BigDecimal("10"), "Rent");
+        store.findByFromIban(FROM_IBAN);
+        new UserCache(DataSize.ofMegabytes(1), Duration.ofMinutes(1)).getByIban(TO_IBAN);
+        MDC.remove(CorrelationId.MDC_KEY);
+    }
+
+    @Test
+    void eventsCarryTheCorrelationId() throws Exception {
+        transferAs("req-1");
+
+        List<RecordedEvent> events = stop();
+
+        assertEquals(1, count(events, TransferEvent.NAME));
+        assertEquals(6, count(events, StageEvent.NAME));
+        assertEquals(2, count(events, RepositoryCallEvent.NAME));
+        assertEquals(1, count(events, CacheLookupEvent.NAME));
+        assertTrue(events.stream().allMatch(event -> "req-1".equals(event.getString("correlationId"))));
+
+        RecordedEvent transfer = events.stream()
+                .filter(event -> event.getEventType().getName().equals(TransferEvent.NAME)).findFirst().orElseThrow();
+        assertEquals("committed", transfer.getString("outcome"));
+        RecordedEvent lookup = events.stream()
+                .filter(event -> event.getEventType().getName().equals(RepositoryCallEvent.NAME)
+                        && event.getString("method").equals("findByFromIban"))
+                .findFirst().orElseThrow();
+        assertEquals("InMemoryStore", lookup.getString("repository"));
+        assertEquals(1, lookup.getInt("documents"));
+    }
+
+    @Test
+    void breaksDownLatencyPerStage() throws Exception {
+        transferAs("req-1");
+        transferAs("req-2");
+
+        String report = print(out -> {
+            try {
+                RecordingAnalyzer.breakdown(stop(), out);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertTrue(report.contains("Transfers"), report);
+        assertTrue(report.contains("committed"), report);
+        assertTrue(report.contains("banking.transfer.stage sender_lookup"), report);
+        assertTrue(report.contains("banking.transfer.stage insert"), report);
+        assertTrue(report.contains("InMemoryStore.save"), report);
+        assertTrue(report.contains("users by iban"), report);
+        assertTrue(report.contains("0.0% hits"), report);
+    }
+
+    @Test
+    void printsTheTimelineOfOneRequest() throws Exception {
+        transferAs("req-1");
+        transferAs("req-2");
+        List<RecordedEvent> events = stop();
+
+        String timeline = print(out -> RecordingAnalyzer.timeline(events, "req-2", out));
+
+        assertEquals(10, timeline.lines().count(), timeline);
+        assertTrue(timeline.contains("transfer committed"), timeline);
+        assertTrue(timeline.contains("stage withdraw"), timeline);
+        assertTrue(timeline.contains("InMemoryStore.findByFromIban -> 1 documents"), timeline);
+        assertTrue(timeline.contains("users cache by iban miss"), timeline);
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+
+    private static String print(Consumer<PrintStream> printer) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        printer.accept(new PrintStream(buffer, true));
+        return buffer.toString();
+    }
+
+    private static User user(String iban, String firstName, String lastName, String accountNumber) {
+        User user = new User();
+        user.setIban(iban);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setAccountNumber(accountNumber);
+        return user;
+    }
+
+    static class InMemoryStore implements TransactionStore {
+
+        private final List<Transaction> transactions = new ArrayList<>();
+
+        @Override
+        public Transaction save(Transaction transaction) {
+            transactions.add(transaction);
+            return transaction;
+        }
+
+        @Override
+        public Optional<Transaction> findById(String id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<Transaction> findAll() {
+            return List.copyOf(transactions);
+        }
+
+        @Override
+        public List<Transaction> findByFromIban(String fromIban) {
+            return transactions.stream().filter(transaction -> fromIban.equals(transaction.getFromIban())).toList();
+        }
+
+        @Override
+        public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+            return List.of();
+        }
+
+        @Override
+        public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void deleteAll(Collection<Transaction> transactions) {
+            this.transactions.removeAll(transactions);
+        }
+    }
+}
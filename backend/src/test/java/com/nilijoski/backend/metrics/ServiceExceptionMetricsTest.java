@@ -0,0 +1,77 @@
+package com.nilijoski.backend.metrics;
+
+import com.nilijoski.backend.exception.AccountNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ServiceExceptionMetricsTest {
+
+    @Service
+    static class AccountService {
+
+        public String find(String id) {
+            throw new AccountNotFoundException("User not found");
+        }
+
+        public String echo(String id) {
+            return id;
+        }
+
+        public Mono<String> findLater(String id) {
+            return Mono.error(new AccountNotFoundException("User not found"));
+        }
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AccountService service;
+
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new AccountService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceExceptionMetrics(meterRegistry));
+        service = factory.getProxy();
+    }
+
+    private double count(String method) {
+        return meterRegistry.get(ServiceExceptionMetrics.METER)
+                .tag("service", "AccountService")
+                .tag("method", method)
+                .tag("exception", "AccountNotFoundException")
+                .counter().count();
+    }
+
+    @Test
+    void countsThrownExceptionsAndRethrows() {
+        assertThrows(AccountNotFoundException.class, () -> service.find("42"));
+        assertThrows(AccountNotFoundException.class, () -> service.find("43"));
+
+        assertEquals(2, count("find"));
+    }
+
+    @Test
+    void successfulCallsAreNotCounted() {
+        assertEquals("42", service.echo("42"));
+
+        assertNull(meterRegistry.find(ServiceExceptionMetrics.METER).counter());
+    }
+
+    @Test
+    void countsErrorSignalsWhenTheyAreEmitted() {
+        Mono<String> result = service.findLater("42");
+        assertNull(meterRegistry.find(ServiceExceptionMetrics.METER).counter());
+
+        StepVerifier.create(result).expectError(AccountNotFoundException.class).verify();
+
+        assertEquals(1, count("findLater"));
+    }
+}
@@ -0,0 +1,242 @@
+package com.nilijoski.backend.onboarding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.nilijoski.backend.account.AccountNumberAllocator;
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.model.ImportError;
+import com.nilijoski.backend.model.ImportJob;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Mock
+    private UsernameFilter usernameFilter;
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(4, 2, 4, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    private final List<List<User>> insertedBatches = new ArrayList<>();
+    private final List<ImportError> errors = new ArrayList<>();
+
+    private UserImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserImportService(mongoTemplate, passwordHasher, accountNumberAllocator, usernameFilter, new ObjectMapper(),
+                2, new BigDecimal("1000.00"));
+
+        AtomicInteger accounts = new AtomicInteger();
+        lenient().when(accountNumberAllocator.next()).thenAnswer(invocation -> {
+            String number = String.format("%010d", accounts.incrementAndGet());
+            return new AccountNumberAllocator.AccountIdentifiers(number, "DE00" + number);
+        });
+        lenient().when(mongoTemplate.save(any(ImportJob.class))).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            if (job.getId() == null) {
+                job.setId("job1");
+            }
+            return job;
+        });
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(bulkOperations);
+        lenient().when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            insertedBatches.add(new ArrayList<>(invocation.<List<User>>getArgument(0)));
+            return bulkOperations;
+        });
+        lenient().when(bulkOperations.execute())
+                .thenAnswer(invocation -> acknowledged(insertedBatches.get(insertedBatches.size() - 1).size()));
+        lenient().when(mongoTemplate.insert(anyList(), eq(ImportError.class))).thenAnswer(invocation -> {
+            Collection<ImportError> batch = invocation.getArgument(0);
+            errors.addAll(batch);
+            return batch;
+        });
+    }
+
+    private static BulkWriteResult acknowledged(int inserted) {
+        return BulkWriteResult.acknowledged(inserted, 0, 0, 0, List.of(), List.of());
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importsCsvInBatches() {
+        String csv = """
+                username,password,firstName,lastName
+                alice,secret1,Alice,"Smith, Jr."
+                bob,secret2,Bob,Jones
+                carol,secret3,Carol,White
+                """;
+
+        ImportJob job = service.importUsers(input(csv), ImportRowReader.Format.CSV, null);
+
+        assertEquals(ImportJob.COMPLETED, job.getStatus());
+        assertEquals(3, job.getInserted());
+        assertEquals(3, job.getCommittedRows());
+        assertEquals(0, job.getFailed());
+        assertEquals(2, insertedBatches.size());
+
+        User alice = insertedBatches.get(0).get(0);
+        assertEquals("Smith, Jr.", alice.getLastName());
+        assertEquals(new BigDecimal("1000.00"), alice.getBalance());
+        assertTrue(passwordHasher.matches("secret1", alice.getPassword()));
+        assertEquals("0000000001", alice.getAccountNumber());
+        verify(usernameFilter).add("carol");
+    }
+
+    @Test
+    void reportsInvalidRowsAndKeepsGoing() {
+        String ndjson = """
+                {"username":"alice","password":"secret1","firstName":"Alice","lastName":"Smith"}
+                {"username":"bob"
+                {"username":"","password":"x"}
+                {"username":"carol","password":"secret3"}
+                """;
+
+        ImportJob job = service.importUsers(input(ndjson), ImportRowReader.Format.NDJSON, null);
+
+        assertEquals(2, job.getInserted());
+        assertEquals(2, job.getFailed());
+        assertEquals(List.of(2L, 3L), errors.stream().map(ImportError::getRow).toList());
+        assertTrue(errors.get(0).getMessage().startsWith("Malformed JSON"));
+        assertEquals("Username is required", errors.get(1).getMessage());
+    }
+
+    @Test
+    void rejectsRowsWithABalance() {
+        String csv = """
+                username,password,balance
+                alice,a,
+                bob,b,1000000.00
+                """;
+        String ndjson = """
+                {"username":"carol","password":"c","balance":null}
+                {"username":"dave","password":"d","balance":1000000.00}
+                """;
+
+        ImportJob fromCsv = service.importUsers(input(csv), ImportRowReader.Format.CSV, null);
+        ImportJob fromNdjson = service.importUsers(input(ndjson), ImportRowReader.Format.NDJSON, null);
+
+        assertEquals(1, fromCsv.getInserted());
+        assertEquals(1, fromNdjson.getInserted());
+        assertEquals(List.of(2L, 2L), errors.stream().map(ImportError::getRow).toList());
+        assertTrue(errors.stream().allMatch(error -> error.getMessage().equals("Balances cannot be imported")));
+    }
+
+    @Test
+    void duplicateKeysFailPerRow() {
+        doThrow(new BulkOperationException("duplicate", new MongoBulkWriteException(
+                acknowledged(1),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key error collection: users index: username_1",
+                        new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of()))).when(bulkOperations).execute();
+
+        ImportJob job = service.importUsers(input("username,password\nalice,a\nbob,b\n"), ImportRowReader.Format.CSV, null);
+
+        assertEquals(1, job.getInserted());
+        assertEquals(1, job.getFailed());
+        assertEquals("bob", errors.get(0).getUsername());
+        assertEquals(2, errors.get(0).getRow());
+        assertEquals("Username already exists", errors.get(0).getMessage());
+    }
+
+    @Test
+    void resumesAfterCommittedRows() {
+        ImportJob interrupted = new ImportJob();
+        interrupted.setId("job1");
+        interrupted.setStatus(ImportJob.INTERRUPTED);
+        interrupted.setCommittedRows(2);
+        interrupted.setInserted(2);
+        when(mongoTemplate.findById("job1", ImportJob.class)).thenReturn(interrupted);
+
+        ImportJob job = service.importUsers(input("username,password\nalice,a\nbob,b\ncarol,c\n"),
+                ImportRowReader.Format.CSV, "job1");
+
+        assertEquals(ImportJob.COMPLETED, job.getStatus());
+        assertEquals(3, job.getInserted());
+        assertEquals(3, job.getCommittedRows());
+        assertEquals(List.of("carol"), insertedBatches.get(0).stream().map(User::getUsername).toList());
+    }
+
+    @Test
+    void brokenInputLeavesJobResumable() {
+        InputStream failing = new InputStream() {
+            private final InputStream rows = input("username,password\nalice,a\nbob,b\ncarol,c\n");
+
+            @Override
+            public int read() throws IOException {
+                int next = rows.read();
+                if (next == -1) {
+                    throw new IOException("connection reset");
+                }
+                return next;
+            }
+        };
+
+        ImportJob job = service.importUsers(failing, ImportRowReader.Format.CSV, null);
+
+        assertEquals(ImportJob.INTERRUPTED, job.getStatus());
+        assertEquals(2, job.getCommittedRows());
+        ArgumentCaptor<ImportJob> saved = ArgumentCaptor.forClass(ImportJob.class);
+        verify(mongoTemplate, atLeastOnce()).save(saved.capture());
+        assertEquals(ImportJob.INTERRUPTED, saved.getValue().getStatus());
+    }
+
+    @Test
+    void failedWriteMarksJobFailed() {
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("connection refused");
+        doThrow(down).when(bulkOperations).execute();
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () ->
+                service.importUsers(input("username,password\nalice,a\nbob,b\n"), ImportRowReader.Format.CSV, null));
+
+        assertSame(down, thrown);
+        ArgumentCaptor<ImportJob> saved = ArgumentCaptor.forClass(ImportJob.class);
+        verify(mongoTemplate, atLeastOnce()).save(saved.capture());
+        assertEquals(ImportJob.FAILED, saved.getValue().getStatus());
+        assertEquals(0, saved.getValue().getCommittedRows());
+    }
+}
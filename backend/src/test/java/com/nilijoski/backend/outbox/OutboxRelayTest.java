@@ -0,0 +1,274 @@
+package com.nilijoski.backend.outbox;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.nilijoski.backend.model.OutboxEvent;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private final MutableClock clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TransactionStore transactionStore = mock(TransactionStore.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, OutboxEvent> events = new LinkedHashMap<>();
+    private final Set<String> stored = new HashSet<>();
+    private final RecordingSink webhook = new RecordingSink("webhook", 2);
+    private final RecordingSink file = new RecordingSink("file", 100);
+    private final OutboxRelay relay;
+
+    OutboxRelayTest() {
+        relay = new OutboxRelay(mongoTemplate, transactionStore, List.of(webhook, file), registry, clock,
+                Duration.ofMillis(200), Duration.ofSeconds(30), Duration.ofMinutes(5), 1000, Duration.ofMinutes(1));
+        stubCollection();
+    }
+
+    @Test
+    void deliversStoredTransactionsToEverySinkInBatches() {
+        for (int i = 1; i <= 5; i++) {
+            event("t" + i, START.plusSeconds(i), true);
+        }
+        clock.advance(Duration.ofSeconds(10));
+
+        relay.maintain();
+        relay.drainSinks();
+
+        assertEquals(List.of(List.of("t1", "t2"), List.of("t3", "t4"), List.of("t5")), webhook.batches);
+        assertEquals(List.of(List.of("t1", "t2", "t3", "t4", "t5")), file.batches);
+        assertTrue(events.isEmpty(), "acknowledged by every sink");
+        assertEquals(5, registry.get("banking.outbox.delivered").tag("sink", "webhook").counter().count());
+        assertEquals(5, registry.get("banking.outbox.lag").tag("sink", "file").timer().count());
+        assertEquals(Duration.ofSeconds(9).toNanos(),
+                (long) registry.get("banking.outbox.lag").tag("sink", "file").timer().max(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void holdsBackEventsUntilTheirTransactionIsStored() {
+        event("t1", START, false);
+
+        relay.maintain();
+        relay.drainSinks();
+        assertTrue(webhook.batches.isEmpty());
+        assertFalse(events.get("t1").isConfirmed());
+
+        stored.add("t1");
+        relay.maintain();
+        relay.drainSinks();
+        assertEquals(List.of(List.of("t1")), webhook.batches);
+    }
+
+    @Test
+    void dropsEventsWhoseTransactionWasNeverStored() {
+        event("lost", START, false);
+        event("young", START.plusMinutes(4), false);
+        clock.advance(Duration.ofMinutes(5).plusSeconds(1));
+
+        relay.maintain();
+
+        assertEquals(Set.of("young"), events.keySet());
+        assertEquals(1, registry.get("banking.outbox.abandoned").counter().count());
+    }
+
+    @Test
+    void retriesAFailingSinkAfterABackoffWithoutHoldingBackTheOthers() {
+        event("t1", START, true);
+        webhook.failures = 2;
+
+        relay.maintain();
+        relay.drainSinks();
+        assertEquals(List.of(List.of("t1")), file.batches);
+        assertEquals(List.of("webhook"), events.get("t1").getPendingSinks());
+
+        // First backoff is one second, the next one two
+        clock.advance(Duration.ofMillis(500));
+        relay.drainSinks();
+        clock.advance(Duration.ofMillis(500));
+        relay.drainSinks();
+        clock.advance(Duration.ofSeconds(1));
+        relay.drainSinks();
+        assertTrue(webhook.batches.isEmpty());
+        clock.advance(Duration.ofSeconds(1));
+        relay.drainSinks();
+
+        assertEquals(List.of(List.of("t1")), webhook.batches);
+        assertEquals(2, registry.get("banking.outbox.failures").tag("sink", "webhook").counter().count());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void onlyTheLeaseHolderRelays() {
+        event("t1", START, true);
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("outbox_leases")))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+
+        relay.maintain();
+        relay.drainSinks();
+
+        assertFalse(relay.leader());
+        assertTrue(webhook.batches.isEmpty());
+        assertFalse(events.get("t1").isConfirmed());
+    }
+
+    private void event(String id, LocalDateTime createdAt, boolean transactionStored) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setTransaction(transaction);
+        event.setCreatedAt(createdAt);
+        event.setPendingSinks(new ArrayList<>(List.of("webhook", "file")));
+        events.put(id, event);
+        if (transactionStored) {
+            stored.add(id);
+        }
+    }
+
+    /**
+     * Evaluates the few queries the relay sends against {@link #events}.
+     */
+    private void stubCollection() {
+        when(transactionStore.findByIds(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream()
+                        .filter(stored::contains)
+                        .map(id -> events.get(id).getTransaction())
+                        .toList());
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), anyString()))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Document filter = query.getQueryObject();
+            return events.values().stream()
+                    .filter(event -> event.isConfirmed() == filter.getBoolean("confirmed"))
+                    .filter(event -> !filter.containsKey("pendingSinks")
+                            || event.getPendingSinks().contains(filter.getString("pendingSinks")))
+                    .sorted(Comparator.comparing(OutboxEvent::getCreatedAt))
+                    .limit(query.getLimit())
+                    .toList();
+        });
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(OutboxEvent.class))).thenAnswer(invocation -> {
+            List<OutboxEvent> matched = matching(invocation.getArgument(0), event -> true);
+            Document changes = invocation.<Update>getArgument(1).getUpdateObject();
+            for (OutboxEvent event : matched) {
+                if (changes.containsKey("$set")) {
+                    event.setConfirmed(changes.get("$set", Document.class).getBoolean("confirmed"));
+                }
+                if (changes.containsKey("$pull")) {
+                    event.getPendingSinks().remove(changes.get("$pull", Document.class).getString("pendingSinks"));
+                }
+            }
+            return UpdateResult.acknowledged(matched.size(), (long) matched.size(), null);
+        });
+        when(mongoTemplate.remove(any(Query.class), eq(OutboxEvent.class))).thenAnswer(invocation -> {
+            Document filter = invocation.<Query>getArgument(0).getQueryObject();
+            List<OutboxEvent> matched = matching(invocation.getArgument(0), filter.containsKey("pendingSinks")
+                    ? event -> event.getPendingSinks().isEmpty()
+                    : event -> !event.isConfirmed());
+            matched.forEach(event -> events.remove(event.getId()));
+            return DeleteResult.acknowledged(matched.size());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxEvent> matching(Query query, Predicate<OutboxEvent> condition) {
+        Collection<String> ids = query.getQueryObject().get("_id", Document.class).get("$in", Collection.class);
+        return events.values().stream()
+                .filter(event -> ids.contains(event.getId()))
+                .filter(condition)
+                .toList();
+    }
+
+    private static final class RecordingSink implements OutboxSink {
+
+        private final String name;
+        private final int batchSize;
+        private final List<List<String>> batches = new ArrayList<>();
+        private int failures;
+
+        RecordingSink(String name, int batchSize) {
+            this.name = name;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int batchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public void deliver(List<Transaction> transactions) throws IOException {
+            if (failures > 0) {
+                failures--;
+                throw new IOException("Connection refused");
+            }
+            batches.add(transactions.stream().map(Transaction::getId).toList());
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
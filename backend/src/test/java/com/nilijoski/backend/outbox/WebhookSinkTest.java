@@ -0,0 +1,84 @@
+package com.nilijoski.backend.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nilijoski.backend.model.Transaction;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<JsonNode> received = new CopyOnWriteArrayList<>();
+    private volatile int status = 204;
+    private HttpServer server;
+    private WebhookSink sink;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/transactions", exchange -> {
+            received.add(objectMapper.readTree(exchange.getRequestBody()));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        sink = new WebhookSink(objectMapper,
+                URI.create("http://localhost:" + server.getAddress().getPort() + "/transactions"), Duration.ofSeconds(2), 100);
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void postsTheBatchAsAJsonArray() throws Exception {
+        sink.deliver(List.of(transaction("t1"), transaction("t2")));
+
+        assertEquals(1, received.size());
+        JsonNode batch = received.getFirst();
+        assertEquals(2, batch.size());
+        assertEquals("t1", batch.get(0).get("id").asText());
+        assertEquals("DE89370400440532013000", batch.get(1).get("fromIban").asText());
+    }
+
+    @Test
+    void failsTheBatchOnAnErrorStatus() {
+        status = 503;
+
+        IOException failure = assertThrows(IOException.class, () -> sink.deliver(List.of(transaction("t1"))));
+        assertEquals("Webhook answered 503", failure.getMessage());
+    }
+
+    @Test
+    void failsTheBatchWhenTheReceiverIsDown() {
+        server.stop(0);
+
+        assertThrows(IOException.class, () -> sink.deliver(List.of(transaction("t1"))));
+    }
+
+    private static Transaction transaction(String id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setFromIban("DE89370400440532013000");
+        transaction.setToIban("DE02120300000000202051");
+        transaction.setAmount(new BigDecimal("25.00"));
+        transaction.setTransactionDate(LocalDateTime.of(2025, 3, 1, 9, 0));
+        return transaction;
+    }
+}
@@ -0,0 +1,61 @@
+package com.nilijoski.backend.payee;
+
+import org.junit.jupiter.api.Test;
+
+import static com.nilijoski.backend.payee.PayeeMatcher.Result.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PayeeMatcherTest {
+
+    @Test
+    void equalNormalizedNamesMatch() {
+        assertEquals(MATCH, match("Jürgen", "Groß", "JUERGEN", "Gross"));
+        assertEquals(MATCH, match("Anne-Marie", "Dupont", "anne marie", "dupont"));
+    }
+
+    @Test
+    void typosWithinTheAllowedEditsAreClose() {
+        assertEquals(CLOSE_MATCH, match("Jane", "Smith", "Jane", "Smiht"));
+        assertEquals(CLOSE_MATCH, match("Jürgen", "Groß", "Jurgen", "Gros"));
+        assertEquals(CLOSE_MATCH, match("Alexander", "Hoffmann", "Alexandra", "Hofman"));
+        assertEquals(NO_MATCH, match("Jane", "Smith", "Jane", "Smoth-Jones"));
+    }
+
+    @Test
+    void namesThatSoundAlikeAreClose() {
+        assertEquals(CLOSE_MATCH, match("Hans", "Meier", "Hans", "Mayer"));
+        assertEquals(CLOSE_MATCH, match("Karl", "Schmidt", "Carl", "Schmitt"));
+    }
+
+    @Test
+    void shortNamesNeedToBeExactOrSoundAlike() {
+        assertEquals(NO_MATCH, match("Bob", "Jones", "Rob", "Jones"));
+        assertEquals(NO_MATCH, match("Bob", "Jones", "Robert", "Jones"));
+    }
+
+    @Test
+    void initialsAndSwappedPartsAreClose() {
+        assertEquals(CLOSE_MATCH, match("Jane", "Smith", "J.", "Smith"));
+        assertEquals(CLOSE_MATCH, match("Jane", "Smith", "Smith", "Jane"));
+        assertEquals(NO_MATCH, match("Jane", "Smith", "K", "Smith"));
+    }
+
+    @Test
+    void missingPartsDoNotMatch() {
+        assertEquals(NO_MATCH, match("Jane", "Smith", null, "Smith"));
+        assertEquals(NO_MATCH, match("Jane", "Smith", "", ""));
+    }
+
+    @Test
+    void distanceStopsAtTheBound() {
+        assertEquals(0, PayeeMatcher.distance("smith", "smith", 2));
+        assertEquals(1, PayeeMatcher.distance("smith", "smiht", 2));
+        assertEquals(2, PayeeMatcher.distance("hoffmann", "hofman", 2));
+        assertEquals(3, PayeeMatcher.distance("meier", "schulz", 2));
+        assertEquals(2, PayeeMatcher.distance("a", "abcdef", 1));
+    }
+
+    private static PayeeMatcher.Result match(String holderFirst, String holderLast, String givenFirst, String givenLast) {
+        return PayeeMatcher.match(PayeeNames.keys(holderFirst, holderLast), PayeeNames.keys(givenFirst, givenLast));
+    }
+}
@@ -0,0 +1,39 @@
+package com.nilijoski.backend.payee;
+
+import com.nilijoski.backend.model.NameKeys;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PayeeNamesTest {
+
+    @Test
+    void normalizesCaseTransliterationsDiacriticsAndSeparators() {
+        assertEquals("joerg peter", PayeeNames.normalize("  Jörg-Peter "));
+        assertEquals("strasse", PayeeNames.normalize("STRAẞE"));
+        assertEquals("obrien", PayeeNames.normalize("O'Brien"));
+        assertEquals("jose maria", PayeeNames.normalize("José  María"));
+        assertEquals("lukasz zoe", PayeeNames.normalize("Łukasz Zoë"));
+        assertEquals("mueller", PayeeNames.normalize("Mu\u0308ller"));
+        assertEquals("jose", PayeeNames.normalize("Jose\u0301"));
+        assertEquals("", PayeeNames.normalize(null));
+    }
+
+    @Test
+    void codesEveryWordWithTheColognePhonetics() {
+        assertEquals("3412", PayeeNames.phonetic("wikipedia"));
+        assertEquals("657 52682", PayeeNames.phonetic("mueller luedenscheidt"));
+        for (String name : new String[]{"meier", "mayer", "maier", "meyer"}) {
+            assertEquals("67", PayeeNames.phonetic(name), name);
+        }
+        assertEquals(PayeeNames.phonetic("schmidt"), PayeeNames.phonetic("schmitt"));
+        assertEquals("", PayeeNames.phonetic(""));
+    }
+
+    @Test
+    void keysHoldBothPartsNormalizedAndCoded() {
+        NameKeys keys = PayeeNames.keys("Björn", "Schäfer");
+
+        assertEquals(new NameKeys("bjoern", "schaefer", "176", "837"), keys);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nilijoski.backend.payee;
+
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.service.UserService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PayeeVerificationServiceTest {
+
+    private static final String IBAN = "DE02120300000000202051";
+
+    private final UserService userService = mock(UserService.class);
+    private final PayeeVerificationService service = new PayeeVerificationService(userService);
+
+    @Test
+    void namesTheHolderOnlyForACloseMatch() {
+        when(userService.getUserByIban(IBAN)).thenReturn(holder(true));
+
+        assertEquals(new PayeeVerificationService.Verification(PayeeMatcher.Result.MATCH, null),
+                service.verify(IBAN, "Joerg", "Mueller"));
+        assertEquals(new PayeeVerificationService.Verification(PayeeMatcher.Result.CLOSE_MATCH, "Jörg Müller"),
+                service.verify(IBAN, "Jörg", "Muller"));
+        assertEquals(new PayeeVerificationService.Verification(PayeeMatcher.Result.NO_MATCH, null),
+                service.verify(IBAN, "Peter", "Schulz"));
+    }
+
+    @Test
+    void derivesKeysOfAccountsWrittenBeforeKeysWereStored() {
+        when(userService.getUserByIban(IBAN)).thenReturn(holder(false));
+
+        assertEquals(PayeeMatcher.Result.MATCH, service.verify(IBAN, "joerg", "MÜLLER").result());
+    }
+
+    private static User holder(boolean withKeys) {
+        User user = new User();
+        user.setIban(IBAN);
+        user.setFirstName("Jörg");
+        user.setLastName("Müller");
+        if (withKeys) {
+            PayeeNames.apply(user);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,163 @@
+package com.nilijoski.backend.ratelimit;
+
+import com.nilijoski.backend.security.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private RateLimiter limiter(int capacity, Duration period) {
+        Map<String, RateLimitProperties.Rule> rules = new LinkedHashMap<>();
+        rules.put("transfer", new RateLimitProperties.Rule("/api/transactions/transfer", List.of("POST"), capacity, period));
+        rules.put("history", new RateLimitProperties.Rule("/api/transactions/**", List.of("GET"), 100, period));
+        return new RateLimiter(new RateLimitProperties(Duration.ofMinutes(10), rules), registry, now::get);
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void allowsBurstThenRejects() {
+        RateLimiter limiter = limiter(3, Duration.ofSeconds(3));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed());
+        }
+        RateLimiter.Decision rejected = limiter.tryAcquire("POST", "/api/transactions/transfer", "a");
+
+        assertFalse(rejected.allowed());
+        assertEquals("transfer", rejected.rule());
+        assertEquals(Duration.ofSeconds(1).toNanos(), rejected.retryAfterNanos());
+        assertEquals(1, registry.get("banking.rate-limit.rejected").tag("rule", "transfer").counter().count());
+    }
+
+    @Test
+    void refillsOverTime() {
+        RateLimiter limiter = limiter(2, Duration.ofSeconds(2));
+        limiter.tryAcquire("POST", "/api/transactions/transfer", "a");
+        limiter.tryAcquire("POST", "/api/transactions/transfer", "a");
+        assertFalse(limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        assertTrue(limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed());
+        assertFalse(limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed());
+    }
+
+    @Test
+    void keysAndRulesAreIndependent() {
+        RateLimiter limiter = limiter(1, Duration.ofMinutes(1));
+
+        assertTrue(limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed());
+        assertTrue(limiter.tryAcquire("POST", "/api/transactions/transfer", "b").allowed());
+        assertTrue(limiter.tryAcquire("GET", "/api/transactions/iban/DE1", "a").allowed());
+        assertFalse(limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed());
+    }
+
+    @Test
+    void unmatchedRequestsAreNotLimited() {
+        RateLimiter limiter = limiter(1, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("DELETE", "/api/users/u1", "a").allowed());
+        }
+        assertEquals(0, limiter.bucketCount());
+    }
+
+    @Test
+    void evictsIdleBuckets() {
+        RateLimiter limiter = limiter(5, Duration.ofMinutes(1));
+        limiter.tryAcquire("POST", "/api/transactions/transfer", "a");
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+        limiter.tryAcquire("POST", "/api/transactions/transfer", "b");
+
+        now.addAndGet(Duration.ofMinutes(6).toNanos());
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.bucketCount());
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+        limiter.evictIdle();
+        assertEquals(0, limiter.bucketCount());
+    }
+
+    @Test
+    void concurrentCallersNeverExceedCapacity() throws Exception {
+        RateLimiter limiter = limiter(1_000, Duration.ofHours(1));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                int allowed = 0;
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire("POST", "/api/transactions/transfer", "a").allowed()) {
+                        allowed++;
+                    }
+                }
+                return allowed;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1_000, total);
+    }
+
+    @Test
+    void filterAnswersTooManyRequestsWithRetryAfter() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(limiter(1, Duration.ofSeconds(90)));
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/transactions/transfer"), first, new MockFilterChain());
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/transactions/transfer"), second, chain);
+
+        assertEquals(200, first.getStatus());
+        assertEquals(429, second.getStatus());
+        assertEquals("90", second.getHeader("Retry-After"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void filterLimitsSignedInCallersPerAccount() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(limiter(1, Duration.ofMinutes(1)));
+        var claims = new TokenService.TokenClaims("j", TokenService.TokenType.ACCESS, "u1", "12345", "DE1", 0);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(claims, null, List.of()));
+
+        MockHttpServletRequest fromOneAddress = new MockHttpServletRequest("POST", "/api/transactions/transfer");
+        fromOneAddress.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest fromAnotherAddress = new MockHttpServletRequest("POST", "/api/transactions/transfer");
+        fromAnotherAddress.setRemoteAddr("10.0.0.2");
+        filter.doFilter(fromOneAddress, new MockHttpServletResponse(), new MockFilterChain());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(fromAnotherAddress, response, new MockFilterChain());
+
+        assertEquals(429, response.getStatus());
+    }
+}
@@ -0,0 +1,131 @@
+package com.nilijoski.backend.reactive;
+
+import com.nilijoski.backend.exception.InvalidTransferAmountException;
+import com.nilijoski.backend.exception.VelocityLimitExceededException;
+import com.nilijoski.backend.model.OutboxEvent;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.outbox.Outbox;
+import com.nilijoski.backend.outbox.OutboxSink;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.velocity.VelocityProperties;
+import com.nilijoski.backend.velocity.VelocityRules;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveTransactionServiceTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("10");
+
+    @Mock
+    private ReactiveTransactionRepository transactionRepository;
+
+    @Mock
+    private ReactiveUserService userService;
+
+    @Mock
+    private TransactionStore transactionStore;
+
+    private ReactiveTransactionService transactionService;
+
+    private User fromUser;
+    private User toUser;
+
+    @BeforeEach
+    void setUp() {
+        VelocityProperties properties = new VelocityProperties(
+                Map.of("per-minute", new VelocityProperties.Rule(Duration.ofMinutes(1), 12, 1, null,
+                        VelocityProperties.Action.REJECT)),
+                new VelocityProperties.NewRecipient(null, Duration.ofDays(30), VelocityProperties.Action.WARN));
+        transactionService = new ReactiveTransactionService(transactionRepository, userService, "document", false,
+                new VelocityRules(properties, transactionStore, new SimpleMeterRegistry()), null, null);
+
+        fromUser = new User();
+        fromUser.setIban("DE89370400440532013000");
+        fromUser.setAccountNumber("12345");
+        toUser = new User();
+        toUser.setIban("DE75512108001245126199");
+        toUser.setAccountNumber("67890");
+        toUser.setFirstName("Jane");
+        toUser.setLastName("Smith");
+
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(Mono.just(fromUser));
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(Mono.just(toUser));
+        lenient().when(userService.deposit(toUser.getAccountNumber(), AMOUNT)).thenReturn(Mono.just(toUser));
+        lenient().when(transactionRepository.save(any(Transaction.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    }
+
+    private Mono<Transaction> transfer() {
+        return transactionService.transfer(fromUser.getIban(), toUser.getIban(), "Jane", "Smith", AMOUNT, "Test");
+    }
+
+    @Test
+    void transferOverTheVelocityLimitIsRejected() {
+        when(userService.withdraw(fromUser.getAccountNumber(), AMOUNT)).thenReturn(Mono.just(fromUser));
+
+        assertEquals("COMPLETED", transfer().block().getStatus());
+        VelocityLimitExceededException exception = assertThrows(VelocityLimitExceededException.class,
+                () -> transfer().block());
+
+        assertEquals("Velocity limit exceeded: more than 1 transfers within 1 minute", exception.getMessage());
+        verify(userService, times(1)).withdraw(fromUser.getAccountNumber(), AMOUNT);
+    }
+
+    @Test
+    void failedTransferIsTakenOutOfTheCounters() {
+        when(userService.withdraw(fromUser.getAccountNumber(), AMOUNT))
+                .thenReturn(Mono.error(new InvalidTransferAmountException("Insufficient balance")))
+                .thenReturn(Mono.just(fromUser));
+
+        assertThrows(InvalidTransferAmountException.class, () -> transfer().block());
+
+        assertEquals("COMPLETED", transfer().block().getStatus());
+    }
+
+    @Test
+    void transferWritesTheOutboxEventBeforeTheTransaction() {
+        when(userService.withdraw(fromUser.getAccountNumber(), AMOUNT)).thenReturn(Mono.just(fromUser));
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<OutboxSink> sinks = mock(ObjectProvider.class);
+        OutboxSink sink = mock(OutboxSink.class);
+        when(sink.name()).thenReturn("webhook");
+        when(sinks.orderedStream()).thenReturn(Stream.of(sink));
+        ReactiveOutboxEventRepository outboxEvents = mock(ReactiveOutboxEventRepository.class);
+        when(outboxEvents.insert(any(OutboxEvent.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        transactionService = new ReactiveTransactionService(transactionRepository, userService, "document", false,
+                (VelocityRules) null, new Outbox(mongoTemplate, sinks), outboxEvents);
+
+        Transaction transaction = transfer().block();
+
+        assertNotNull(transaction.getId());
+        InOrder inOrder = inOrder(outboxEvents, transactionRepository);
+        inOrder.verify(outboxEvents).insert(argThat((OutboxEvent event) -> event.getId().equals(transaction.getId())
+                && event.getTransaction() == transaction
+                && event.getPendingSinks().equals(List.of("webhook"))));
+        inOrder.verify(transactionRepository).save(transaction);
+        verifyNoInteractions(mongoTemplate);
+    }
+}
@@ -0,0 +1,189 @@
+package com.nilijoski.backend.repository;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.TransactionBucket;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BucketedTransactionStoreTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private BucketedTransactionStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new BucketedTransactionStore(mongoTemplate, 200);
+    }
+
+    private Transaction transfer(String id, String fromIban, String toIban) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setFromIban(fromIban);
+        transaction.setToIban(toIban);
+        transaction.setFromAccountNumber("acc-" + fromIban);
+        transaction.setToAccountNumber("acc-" + toIban);
+        transaction.setTransactionDate(LocalDateTime.now());
+        return transaction;
+    }
+
+    private TransactionBucket bucket(Transaction... transactions) {
+        TransactionBucket bucket = new TransactionBucket();
+        bucket.setDay(LocalDate.now());
+        bucket.setTransactions(new ArrayList<>(List.of(transactions)));
+        bucket.setCount(transactions.length);
+        return bucket;
+    }
+
+    @Test
+    void save_appendsToSenderAndRecipientBucket() {
+        Transaction transaction = transfer(null, "A", "B");
+
+        Transaction result = store.save(transaction);
+
+        assertNotNull(result.getId());
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), any(Update.class), eq(TransactionBucket.class));
+    }
+
+    @Test
+    void save_depositOnlyTouchesOneBucket() {
+        Transaction deposit = new Transaction();
+        deposit.setToAccountNumber("12345");
+        deposit.setTransactionDate(LocalDateTime.now());
+
+        store.save(deposit);
+
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), any(Update.class), eq(TransactionBucket.class));
+    }
+
+    @Test
+    void findByFromIbanOrToIban_filtersAndDeduplicates() {
+        Transaction ab = transfer("t1", "A", "B");
+        Transaction bc = transfer("t2", "B", "C");
+        Transaction cd = transfer("t3", "C", "D");
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class)))
+                .thenReturn(List.of(bucket(ab, bc), bucket(ab), bucket(cd)));
+
+        List<Transaction> result = store.findByFromIbanOrToIban("B", "B");
+
+        assertEquals(List.of(ab, bc), result);
+    }
+
+    @Test
+    void findByFromIban_onlySentTransactions() {
+        Transaction ab = transfer("t1", "A", "B");
+        Transaction ba = transfer("t2", "B", "A");
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class)))
+                .thenReturn(List.of(bucket(ab, ba)));
+
+        List<Transaction> result = store.findByFromIban("A");
+
+        assertEquals(List.of(ab), result);
+    }
+
+    @Test
+    void findById_extractsEmbeddedTransaction() {
+        Transaction ab = transfer("t1", "A", "B");
+        Transaction bc = transfer("t2", "B", "C");
+        when(mongoTemplate.findOne(any(Query.class), eq(TransactionBucket.class))).thenReturn(bucket(ab, bc));
+
+        Optional<Transaction> result = store.findById("t2");
+
+        assertTrue(result.isPresent());
+        assertEquals(bc, result.get());
+    }
+
+    @Test
+    void findByIds_keepsRequestedTransactionsOnce() {
+        Transaction ab = transfer("t1", "A", "B");
+        Transaction bc = transfer("t2", "B", "C");
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class)))
+                .thenReturn(List.of(bucket(ab, bc), bucket(ab)));
+
+        List<Transaction> result = store.findByIds(List.of("t1", "t3"));
+
+        assertEquals(List.of(ab), result);
+    }
+
+    @Test
+    void findOlderThan_walksBucketsByDayAndLimitsInMongo() {
+        Transaction ab = transfer("t1", "A", "B");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(TransactionBucket.class), eq(Transaction.class)))
+                .thenReturn(new AggregationResults<>(List.of(ab), new Document()));
+
+        List<Transaction> result = store.findOlderThan(LocalDateTime.now(), 50);
+
+        assertEquals(List.of(ab), result);
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(TransactionBucket.class), eq(Transaction.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(new Document("day", 1), pipeline.get(1).get("$sort"));
+        assertEquals(50L, pipeline.get(pipeline.size() - 2).get("$limit"));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(TransactionBucket.class));
+    }
+
+    @Test
+    void deleteAll_recountsAndRemovesOnlyTheTouchedBuckets() {
+        Transaction ab = transfer("t1", "A", "B");
+        TransactionBucket sender = bucket(ab);
+        sender.setId("bucket-A");
+        TransactionBucket recipient = bucket(ab);
+        recipient.setId("bucket-B");
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class))).thenReturn(List.of(sender, recipient));
+
+        store.deleteAll(List.of(ab));
+
+        ArgumentCaptor<Query> updated = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> pull = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongoTemplate).updateMulti(updated.capture(), pull.capture(), eq(TransactionBucket.class));
+        Document touched = new Document("_id", new Document("$in", List.of("bucket-A", "bucket-B")));
+        assertEquals(touched, updated.getValue().getQueryObject());
+        assertEquals(new Document("$size", "$transactions"),
+                ((Document) pull.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(1).get("$set")).get("count"));
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(TransactionBucket.class));
+        assertEquals(touched.append("count", 0), removed.getValue().getQueryObject());
+    }
+
+    @Test
+    void deleteAll_unknownRowsTouchNoBucket() {
+        when(mongoTemplate.find(any(Query.class), eq(TransactionBucket.class))).thenReturn(List.of());
+
+        store.deleteAll(List.of(transfer("t1", "A", "B")));
+
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(AggregationUpdate.class), eq(TransactionBucket.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(TransactionBucket.class));
+    }
+
+    @Test
+    void findById_notFound() {
+        when(mongoTemplate.findOne(any(Query.class), eq(TransactionBucket.class))).thenReturn(null);
+
+        assertTrue(store.findById("missing").isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package com.nilijoski.backend.security;
+
+import com.nilijoski.backend.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void encodeAndMatch() {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 4, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+        String hash = hasher.encode("secret");
+
+        assertTrue(hasher.matches("secret", hash));
+        assertFalse(hasher.matches("wrong", hash));
+        assertFalse(hasher.needsUpgrade(hash));
+    }
+
+    @Test
+    void encodeAllKeepsOrderAndLeavesQueueForLogins() {
+        PasswordHasher hasher = new PasswordHasher(4, 2, 1, Duration.ofSeconds(5), new SimpleMeterRegistry());
+        List<String> passwords = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            passwords.add("secret" + i);
+        }
+
+        List<String> hashes = hasher.encodeAll(passwords);
+
+        assertEquals(20, hashes.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(hasher.matches("secret" + i, hashes.get(i)));
+        }
+    }
+
+    @Test
+    void recordsLatency() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordHasher hasher = new PasswordHasher(4, 1, 4, Duration.ofSeconds(5), registry);
+
+        hasher.matches("secret", hasher.encode("secret"));
+
+        assertEquals(1, registry.get("banking.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, registry.get("banking.password.hash").tag("operation", "verify").timer().count());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordHasher hasher = new PasswordHasher(12, 1, 1, Duration.ofSeconds(30), registry);
+        int callers = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(callers);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return hasher.encode("secret");
+            }, clients));
+        }
+        start.countDown();
+
+        int rejected = 0;
+        for (CompletableFuture<String> result : results) {
+            try {
+                result.join();
+            } catch (CompletionException e) {
+                assertInstanceOf(PasswordHashingUnavailableException.class, e.getCause());
+                rejected++;
+            }
+        }
+        clients.shutdown();
+
+        // One running and one queued at most; the rest are turned away without waiting
+        assertTrue(rejected >= callers - 2, "rejected " + rejected);
+        assertEquals(rejected, registry.get("banking.password.hash.rejected").counter().count());
+    }
+
+    @Test
+    void timesOutSlowHashes() {
+        PasswordHasher hasher = new PasswordHasher(14, 1, 1, Duration.ofMillis(10), new SimpleMeterRegistry());
+
+        assertThrows(PasswordHashingUnavailableException.class, () -> hasher.encode("secret"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.nilijoski.backend.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.exception.InvalidTokenException;
+import com.nilijoski.backend.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+    private final TokenService tokenService = tokenService(Duration.ofMinutes(15));
+
+    private TokenService tokenService(Duration accessTtl) {
+        return new TokenService(SECRET, accessTtl, Duration.ofDays(7), revocationList, new ObjectMapper());
+    }
+
+    private User user() {
+        User user = new User();
+        user.setId("u1");
+        user.setAccountNumber("12345");
+        user.setIban("DE89370400440532013000");
+        return user;
+    }
+
+    @Test
+    void issuedAccessTokenCarriesAccount() {
+        TokenService.TokenPair tokens = tokenService.issue(user());
+
+        TokenService.TokenClaims claims = tokenService.verify(tokens.accessToken(), TokenService.TokenType.ACCESS);
+
+        assertEquals("u1", claims.sub());
+        assertEquals("12345", claims.acc());
+        assertEquals("DE89370400440532013000", claims.iban());
+        assertEquals(900, tokens.expiresIn());
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        String token = tokenService.issue(user()).accessToken();
+        String[] parts = token.split("\\.");
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"jti\":\"x\",\"typ\":\"ACCESS\",\"sub\":\"u2\",\"acc\":\"1\",\"iban\":\"DE1\",\"exp\":99999999999}".getBytes());
+
+        assertThrows(InvalidTokenException.class,
+                () -> tokenService.verify(parts[0] + "." + forged + "." + parts[2], TokenService.TokenType.ACCESS));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() {
+        TokenService other = new TokenService("", Duration.ofMinutes(15), Duration.ofDays(7), revocationList, new ObjectMapper());
+        String token = other.issue(user()).accessToken();
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.verify(token, TokenService.TokenType.ACCESS));
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        String token = tokenService(Duration.ZERO).issue(user()).accessToken();
+
+        InvalidTokenException e = assertThrows(InvalidTokenException.class,
+                () -> tokenService.verify(token, TokenService.TokenType.ACCESS));
+        assertEquals("Token expired", e.getMessage());
+    }
+
+    @Test
+    void refreshTokenIsNotAnAccessToken() {
+        String refresh = tokenService.issue(user()).refreshToken();
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.verify(refresh, TokenService.TokenType.ACCESS));
+    }
+
+    @Test
+    void refreshRotatesTheRefreshToken() {
+        String refresh = tokenService.issue(user()).refreshToken();
+
+        TokenService.TokenPair renewed = tokenService.refresh(refresh);
+
+        assertEquals("u1", tokenService.verify(renewed.accessToken(), TokenService.TokenType.ACCESS).sub());
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh(refresh));
+    }
+
+    @Test
+    void revokedTokenIsRejected() {
+        String access = tokenService.issue(user()).accessToken();
+
+        tokenService.revoke(access);
+
+        InvalidTokenException e = assertThrows(InvalidTokenException.class,
+                () -> tokenService.verify(access, TokenService.TokenType.ACCESS));
+        assertEquals("Token revoked", e.getMessage());
+        assertEquals(1, revocationList.size());
+    }
+
+    @Test
+    void revocationListForgetsExpiredTokens() {
+        revocationList.revoke("old", 1);
+        revocationList.revoke("current", Long.MAX_VALUE);
+
+        revocationList.removeExpired();
+
+        assertFalse(revocationList.isRevoked("old"));
+        assertTrue(revocationList.isRevoked("current"));
+    }
+
+    @Test
+    void filterAuthenticatesBearerToken() throws Exception {
+        TokenAuthenticationFilter filter = new TokenAuthenticationFilter(tokenService);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/number/12345");
+        request.addHeader("Authorization", "Bearer " + tokenService.issue(user()).accessToken());
+        MockFilterChain chain = new MockFilterChain();
+
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+            assertNotNull(chain.getRequest());
+            var principal = (TokenService.TokenClaims) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            assertEquals("12345", principal.acc());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    void filterGrantsOperatorRoleToOperatorsOnly() throws Exception {
+        TokenAuthenticationFilter filter = new TokenAuthenticationFilter(tokenService, Set.of("u1"));
+        User customer = user();
+        customer.setId("u2");
+
+        try {
+            filter.doFilter(bearer(user()), new MockHttpServletResponse(), new MockFilterChain());
+            assertEquals(List.of("ROLE_OPERATOR"), AuthorityUtils.authorityListToSet(
+                    SecurityContextHolder.getContext().getAuthentication().getAuthorities()).stream().toList());
+
+            filter.doFilter(bearer(customer), new MockHttpServletResponse(), new MockFilterChain());
+            assertTrue(SecurityContextHolder.getContext().getAuthentication().getAuthorities().isEmpty());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private MockHttpServletRequest bearer(User user) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users/import");
+        request.addHeader("Authorization", "Bearer " + tokenService.issue(user).accessToken());
+        return request;
+    }
+
+    @Test
+    void filterRejectsInvalidToken() throws Exception {
+        TokenAuthenticationFilter filter = new TokenAuthenticationFilter(tokenService);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/number/12345");
+        request.addHeader("Authorization", "Bearer not.a.token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+}
@@ -1,19 +1,31 @@
 package com.nilijoski.backend.service;
 
 import com.nilijoski.backend.exception.*;
+import com.nilijoski.backend.model.OutboxEvent;
 import com.nilijoski.backend.model.Transaction;
 import com.nilijoski.backend.model.User;
-import com.nilijoski.backend.repository.TransactionRepository;
+import com.nilijoski.backend.outbox.Outbox;
+import com.nilijoski.backend.outbox.OutboxSink;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.velocity.VelocityProperties;
+import com.nilijoski.backend.velocity.VelocityRules;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,12 +34,13 @@ import static org.mockito.Mockito.*;
 class TransactionServiceTest {
 
     @Mock
-    private TransactionRepository transactionRepository;
+    private TransactionStore transactionStore;
 
     @Mock
     private UserService userService;
 
-    @InjectMocks
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private TransactionService transactionService;
 
     private User fromUser;
@@ -35,6 +48,7 @@ class TransactionServiceTest {
 
     @BeforeEach
     void setUp() {
+        transactionService = new TransactionService(transactionStore, userService, meterRegistry);
 
         fromUser = new User();
         fromUser.setIban("DE89370400440532013000");
@@ -68,7 +82,127 @@ class TransactionServiceTest {
         assertEquals("TRANSFER", transaction.getTransactionType());
         verify(userService).withdraw(fromUser.getAccountNumber(), new BigDecimal("100.00"));
         verify(userService).deposit(toUser.getAccountNumber(), new BigDecimal("100.00"));
-        verify(transactionRepository).save(transaction);
+        verify(transactionStore).save(transaction);
+    }
+
+    @Test
+    void transfer_storesItsIdempotencyKey() {
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+        when(transactionStore.findByIdempotencyKey("o1:0")).thenReturn(Optional.empty());
+
+        Transaction transaction = transactionService.transfer(fromUser.getIban(), toUser.getIban(),
+                toUser.getFirstName(), toUser.getLastName(), new BigDecimal("100.00"), "Rent", "o1:0");
+
+        assertEquals("o1:0", transaction.getIdempotencyKey());
+        verify(transactionStore).save(transaction);
+    }
+
+    @Test
+    void transfer_withAKeyAlreadyStoredReturnsThatTransaction() {
+        Transaction earlier = new Transaction();
+        earlier.setIdempotencyKey("o1:0");
+        when(transactionStore.findByIdempotencyKey("o1:0")).thenReturn(Optional.of(earlier));
+
+        Transaction transaction = transactionService.transfer(fromUser.getIban(), toUser.getIban(),
+                toUser.getFirstName(), toUser.getLastName(), new BigDecimal("100.00"), "Rent", "o1:0");
+
+        assertSame(earlier, transaction);
+        verifyNoInteractions(userService);
+        verify(transactionStore, never()).save(any());
+    }
+
+    @Test
+    void transfer_writesTheOutboxEventBeforeTheTransaction() {
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<OutboxSink> sinks = mock(ObjectProvider.class);
+        OutboxSink sink = mock(OutboxSink.class);
+        when(sink.name()).thenReturn("webhook");
+        when(sinks.orderedStream()).thenReturn(Stream.of(sink));
+        transactionService = new TransactionService(transactionStore, userService, meterRegistry,
+                new Outbox(mongoTemplate, sinks), null);
+
+        Transaction transaction = transactionService.transfer(fromUser.getIban(), toUser.getIban(),
+                toUser.getFirstName(), toUser.getLastName(), new BigDecimal("100.00"), "Test transfer");
+
+        assertNotNull(transaction.getId());
+        InOrder inOrder = inOrder(mongoTemplate, transactionStore);
+        inOrder.verify(mongoTemplate).insert(argThat((OutboxEvent event) -> event.getId().equals(transaction.getId())
+                && event.getTransaction() == transaction
+                && !event.isConfirmed()
+                && event.getPendingSinks().equals(List.of("webhook"))));
+        inOrder.verify(transactionStore).save(transaction);
+    }
+
+    @Test
+    void transfer_recordsEveryStage() {
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+
+        transactionService.transfer(fromUser.getIban(), toUser.getIban(), toUser.getFirstName(),
+                toUser.getLastName(), new BigDecimal("100.00"), "Test transfer");
+
+        for (String stage : List.of("validation", "sender_lookup", "recipient_lookup", "withdraw", "deposit", "insert")) {
+            Timer timer = meterRegistry.get(TransactionService.TRANSFER_STAGE_METER).tag("stage", stage).timer();
+            assertEquals(1, timer.count(), stage);
+        }
+    }
+
+    @Test
+    void transfer_appendsVelocityWarningsToTheNameMismatch() {
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+        transactionService = new TransactionService(transactionStore, userService, meterRegistry, null,
+                velocityRules(1, VelocityProperties.Action.WARN));
+
+        transactionService.transfer(fromUser.getIban(), toUser.getIban(), "Jane", "Smith", new BigDecimal("10"), "First");
+        Transaction transaction = transactionService.transfer(fromUser.getIban(), toUser.getIban(), "Mary", "Smith",
+                new BigDecimal("10"), "Second");
+
+        assertEquals("Name mismatch: the name does not match the account holder; "
+                + "Velocity limit exceeded: more than 1 transfers within 1 minute", transaction.getWarning());
+        assertEquals(2, meterRegistry.get(TransactionService.TRANSFER_STAGE_METER).tag("stage", "velocity").timer().count());
+    }
+
+    @Test
+    void transfer_failedTransferDoesNotCountAgainstVelocityLimits() {
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+        doThrow(new InvalidTransferAmountException("Insufficient balance")).doNothing()
+                .when(userService).withdraw(fromUser.getAccountNumber(), new BigDecimal("10"));
+        transactionService = new TransactionService(transactionStore, userService, meterRegistry, null,
+                velocityRules(1, VelocityProperties.Action.REJECT));
+
+        assertThrows(InvalidTransferAmountException.class, () -> transactionService.transfer(fromUser.getIban(),
+                toUser.getIban(), "Jane", "Smith", new BigDecimal("10"), "Test"));
+        transactionService.transfer(fromUser.getIban(), toUser.getIban(), "Jane", "Smith", new BigDecimal("10"), "Test");
+
+        VelocityLimitExceededException exception = assertThrows(VelocityLimitExceededException.class, () ->
+                transactionService.transfer(fromUser.getIban(), toUser.getIban(), "Jane", "Smith", new BigDecimal("10"),
+                        "Test"));
+        assertEquals("Velocity limit exceeded: more than 1 transfers within 1 minute", exception.getMessage());
+        verify(userService, times(2)).withdraw(fromUser.getAccountNumber(), new BigDecimal("10"));
+    }
+
+    private VelocityRules velocityRules(int maxTransfersPerMinute, VelocityProperties.Action action) {
+        VelocityProperties properties = new VelocityProperties(
+                Map.of("per-minute", new VelocityProperties.Rule(Duration.ofMinutes(1), 12, maxTransfersPerMinute, null, action)),
+                new VelocityProperties.NewRecipient(null, Duration.ofDays(30), VelocityProperties.Action.WARN));
+        return new VelocityRules(properties, transactionStore, meterRegistry);
+    }
+
+    @Test
+    void transfer_failedStageIsRecordedAndLaterStagesAreNot() {
+        when(userService.getUserByIban(fromUser.getIban())).thenThrow(new RuntimeException());
+
+        assertThrows(AccountNotFoundException.class, () -> transactionService.transfer(fromUser.getIban(),
+                toUser.getIban(), toUser.getFirstName(), toUser.getLastName(), new BigDecimal("100"), "Test"));
+
+        assertEquals(1, meterRegistry.get(TransactionService.TRANSFER_STAGE_METER).tag("stage", "sender_lookup").timer().count());
+        assertEquals(0, meterRegistry.get(TransactionService.TRANSFER_STAGE_METER).tag("stage", "withdraw").timer().count());
     }
 
     @Test
@@ -129,6 +263,29 @@ class TransactionServiceTest {
         assertEquals("Your account not found", exception.getMessage());
     }
 
+    @Test
+    void transfer_closeMatchWarnsWithTheHolderName() {
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+
+        Transaction transaction = transactionService.transfer(fromUser.getIban(), toUser.getIban(), "Jane", "Smyth",
+                new BigDecimal("100.00"), "Test transfer");
+
+        assertEquals("Close match: Account holder is Jane Smith", transaction.getWarning());
+    }
+
+    @Test
+    void transfer_transliteratedNameMatches() {
+        toUser.setLastName("Müller");
+        when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
+        when(userService.getUserByIban(toUser.getIban())).thenReturn(toUser);
+
+        Transaction transaction = transactionService.transfer(fromUser.getIban(), toUser.getIban(), "JANE", "Mueller",
+                new BigDecimal("100.00"), "Test transfer");
+
+        assertNull(transaction.getWarning());
+    }
+
     @Test
     void transfer_toAccountNameMismatch_setsWarning() {
         when(userService.getUserByIban(fromUser.getIban())).thenReturn(fromUser);
@@ -149,7 +306,7 @@ class TransactionServiceTest {
 
     @Test
     void createDepositTransaction_successful() {
-        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(transactionStore.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
 
         Transaction transaction = transactionService.createDepositTransaction("12345", new BigDecimal("200"));
 
@@ -160,7 +317,7 @@ class TransactionServiceTest {
 
     @Test
     void createWithdrawalTransaction_successful() {
-        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(transactionStore.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
 
         Transaction transaction = transactionService.createWithdrawalTransaction("12345", new BigDecimal("150"));
 
@@ -173,7 +330,7 @@ class TransactionServiceTest {
     void getTransactionById_found() {
         Transaction tx = new Transaction();
         tx.setFromAccountNumber("12345");
-        when(transactionRepository.findById("tx1")).thenReturn(Optional.of(tx));
+        when(transactionStore.findById("tx1")).thenReturn(Optional.of(tx));
 
         Transaction result = transactionService.getTransactionById("tx1");
 
@@ -182,7 +339,7 @@ class TransactionServiceTest {
 
     @Test
     void getTransactionById_notFound_throwsException() {
-        when(transactionRepository.findById("tx1")).thenReturn(Optional.empty());
+        when(transactionStore.findById("tx1")).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class,
                 () -> transactionService.getTransactionById("tx1"));
@@ -201,7 +358,7 @@ class TransactionServiceTest {
         Transaction t3 = new Transaction();
         t3.setToIban("IBAN1"); // duplicate
 
-        when(transactionRepository.findByFromIban(fromUser.getIban()))
+        when(transactionStore.findByFromIban(fromUser.getIban()))
                 .thenReturn(List.of(t1, t2, t3));
 
         List<String> result = transactionService.getRecipientIbanByUserIban(fromUser.getIban());
@@ -213,17 +370,17 @@ class TransactionServiceTest {
 
     @Test
     void getAllTransactions_success() {
-        when(transactionRepository.findAll()).thenReturn(List.of(new Transaction()));
+        when(transactionStore.findAll()).thenReturn(List.of(new Transaction()));
 
         List<Transaction> result = transactionService.getAllTransactions();
 
         assertEquals(1, result.size());
-        verify(transactionRepository).findAll();
+        verify(transactionStore).findAll();
     }
 
     @Test
     void getTransactionById_notFound_throwsTransactionNotFoundException() {
-        when(transactionRepository.findById("tx1")).thenReturn(Optional.empty());
+        when(transactionStore.findById("tx1")).thenReturn(Optional.empty());
 
         assertThrows(TransactionNotFoundException.class,
                 () -> transactionService.getTransactionById("tx1"));
@@ -231,7 +388,7 @@ class TransactionServiceTest {
 
     @Test
     void getTransactionsByAccountNumber_success() {
-        when(transactionRepository
+        when(transactionStore
                 .findByFromAccountNumberOrToAccountNumber("12345", "12345"))
                 .thenReturn(List.of(new Transaction()));
 
@@ -243,7 +400,7 @@ class TransactionServiceTest {
 
     @Test
     void getTransactionsByIban_success() {
-        when(transactionRepository
+        when(transactionStore
                 .findByFromIbanOrToIban(fromUser.getIban(), fromUser.getIban()))
                 .thenReturn(List.of(new Transaction()));
 
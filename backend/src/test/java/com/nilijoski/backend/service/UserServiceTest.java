@@ -1,18 +1,28 @@
 package com.nilijoski.backend.service;
 
+import com.nilijoski.backend.account.AccountNumberAllocator;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.cache.UsernameFilter;
 import com.nilijoski.backend.exception.AccountNotFoundException;
 import com.nilijoski.backend.exception.InvalidTransferAmountException;
+import com.nilijoski.backend.exception.UsernameExistsException;
 import com.nilijoski.backend.model.User;
 import com.nilijoski.backend.repository.UserRepository;
+import com.nilijoski.backend.security.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.util.unit.DataSize;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +38,18 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private PasswordHasher passwordHasher = new PasswordHasher(4, 2, 16, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Mock
+    private UsernameFilter usernameFilter;
+
+    @Spy
+    private UserCache userCache = new UserCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+
     @InjectMocks
     private UserService userService;
 
@@ -35,6 +57,8 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        // As before the filter is built: every name might be taken
+        lenient().when(usernameFilter.mightContain(any())).thenReturn(true);
         testUser = new User();
         testUser.setId("user123");
         testUser.setUsername("johndoe");
@@ -54,6 +78,8 @@ class UserServiceTest {
     void register_Success() {
         // Arrange
         when(userRepository.existsByUsername("johndoe")).thenReturn(false);
+        when(accountNumberAllocator.next())
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013000", "DE89370400440532013000"));
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
         // Act
@@ -66,7 +92,96 @@ class UserServiceTest {
         assertEquals("Doe", result.getLastName());
         assertEquals("DE89370400440532013000", result.getIban());
         verify(userRepository).existsByUsername("johndoe");
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).save(argThat(user -> "0532013000".equals(user.getAccountNumber())
+                && "DE89370400440532013000".equals(user.getIban())));
+    }
+
+    @Test
+    void register_StoresNameKeysForPayeeVerification() {
+        when(userRepository.existsByUsername("jmueller")).thenReturn(false);
+        when(accountNumberAllocator.next())
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013000", "DE89370400440532013000"));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User result = userService.register("jmueller", "password123", "Jörg", "Müller-Lüdenscheidt");
+
+        assertEquals("joerg", result.getNameKeys().getFirstName());
+        assertEquals("mueller luedenscheidt", result.getNameKeys().getLastName());
+    }
+
+    @Test
+    void register_AddsUsernameToFilter() {
+        when(userRepository.existsByUsername("johndoe")).thenReturn(false);
+        when(accountNumberAllocator.next())
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013000", "DE89370400440532013000"));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+
+        userService.register("johndoe", "password123", "John", "Doe");
+
+        verify(usernameFilter).add("johndoe");
+    }
+
+    @Test
+    void register_ConcurrentDuplicateRejectedByIndex() {
+        when(userRepository.existsByUsername("johndoe")).thenReturn(false);
+        when(accountNumberAllocator.next())
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013000", "DE89370400440532013000"));
+        when(userRepository.save(any(User.class))).thenThrow(duplicate("username_1"));
+
+        assertThrows(UsernameExistsException.class,
+                () -> userService.register("johndoe", "password123", "John", "Doe"));
+        verify(usernameFilter, never()).add(any());
+    }
+
+    @Test
+    void register_TakenAccountNumberIsAllocatedAgain() {
+        when(userRepository.existsByUsername("johndoe")).thenReturn(false);
+        when(accountNumberAllocator.next())
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013000", "DE89370400440532013000"))
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013001", "DE62370400440532013001"));
+        when(userRepository.save(any(User.class)))
+                .thenThrow(duplicate("accountNumber_1"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        User result = userService.register("johndoe", "password123", "John", "Doe");
+
+        assertEquals("0532013001", result.getAccountNumber());
+        assertEquals("DE62370400440532013001", result.getIban());
+        verify(usernameFilter).add("johndoe");
+    }
+
+    @Test
+    void register_GivesUpOnTakenIbansAfterThreeAttempts() {
+        when(userRepository.existsByUsername("johndoe")).thenReturn(false);
+        when(accountNumberAllocator.next())
+                .thenReturn(new AccountNumberAllocator.AccountIdentifiers("0532013000", "DE89370400440532013000"));
+        when(userRepository.save(any(User.class))).thenThrow(duplicate("iban_1"));
+
+        assertThrows(DuplicateKeyException.class,
+                () -> userService.register("johndoe", "password123", "John", "Doe"));
+        verify(userRepository, times(3)).save(any(User.class));
+        verify(usernameFilter, never()).add(any());
+    }
+
+    private static DuplicateKeyException duplicate(String index) {
+        return new DuplicateKeyException("E11000 duplicate key error collection: banking.users index: " + index
+                + " dup key: { }");
+    }
+
+    @Test
+    void isUsernameAvailable_FilterMissNeedsNoQuery() {
+        when(usernameFilter.mightContain("newname")).thenReturn(false);
+
+        assertTrue(userService.isUsernameAvailable("newname"));
+        verify(userRepository, never()).existsByUsername(any());
+    }
+
+    @Test
+    void isUsernameAvailable_FilterHitIsConfirmed() {
+        when(userRepository.existsByUsername("johndoe")).thenReturn(false);
+
+        assertTrue(userService.isUsernameAvailable("johndoe"));
+        verify(userRepository).existsByUsername("johndoe");
     }
 
     @Test
@@ -414,4 +529,99 @@ class UserServiceTest {
         verify(userRepository).deleteById("user123");
     }
 
+    @Test
+    void getUserByIban_servedFromCacheOnSecondLookup() {
+        when(userRepository.findByIban(testUser.getIban()))
+                .thenReturn(Optional.of(testUser));
+
+        userService.getUserByIban(testUser.getIban());
+        User byAccountNumber = userService.getUserByAccountNumber(testUser.getAccountNumber());
+        User byId = userService.getUserById(testUser.getId());
+
+        assertEquals(testUser, byAccountNumber);
+        assertEquals(testUser, byId);
+        verify(userRepository, times(1)).findByIban(testUser.getIban());
+        verify(userRepository, never()).findByAccountNumber(any());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void withdraw_readsBalanceFromRepositoryAndInvalidatesCache() {
+        testUser.setBalance(BigDecimal.valueOf(100));
+        userCache.put(testUser);
+        User stored = userCache.getById(testUser.getId()).orElseThrow();
+        stored.setBalance(BigDecimal.valueOf(30));
+        when(userRepository.findByAccountNumber("1234567890"))
+                .thenReturn(Optional.of(stored));
+
+        assertThrows(InvalidTransferAmountException.class,
+                () -> userService.withdraw("1234567890", BigDecimal.valueOf(50)));
+
+        userService.withdraw("1234567890", BigDecimal.valueOf(20));
+
+        assertTrue(userCache.getById(testUser.getId()).isEmpty());
+        assertTrue(userCache.getByIban(testUser.getIban()).isEmpty());
+    }
+
+    @Test
+    void updateUser_invalidatesCachedUser() {
+        userCache.put(testUser);
+        when(userRepository.findById("user123"))
+                .thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class)))
+                .thenReturn(testUser);
+
+        User update = new User();
+        update.setFirstName("Updated");
+        userService.updateUser("user123", update);
+
+        assertTrue(userCache.getByAccountNumber(testUser.getAccountNumber()).isEmpty());
+    }
+
+    @Test
+    void getUserById_doesNotCacheAReadOvertakenByAnUpdate() {
+        User stale = testUser;
+        when(userRepository.findById("user123")).thenAnswer(invocation -> {
+            // The update is saved and invalidated while this read is still on its way
+            userCache.invalidate("user123");
+            return Optional.of(stale);
+        });
+
+        assertEquals(stale, userService.getUserById("user123"));
+
+        assertTrue(userCache.getById("user123").isEmpty());
+    }
+
+    @Test
+    void deleteUser_invalidatesCachedUser() {
+        userCache.put(testUser);
+
+        userService.deleteUser("user123");
+
+        assertTrue(userCache.getById("user123").isEmpty());
+    }
+
+    @Test
+    void login_upgradesHashCreatedWithLowerCost() {
+        PasswordHasher strongerHasher = new PasswordHasher(6, 1, 4, Duration.ofSeconds(5), new SimpleMeterRegistry());
+        UserService service = new UserService(userRepository, userCache, strongerHasher, accountNumberAllocator, usernameFilter);
+        testUser.setPassword(new BCryptPasswordEncoder(4).encode("password123"));
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User result = service.login("johndoe", "password123");
+
+        assertTrue(result.getPassword().startsWith("$2a$06$"));
+        assertFalse(strongerHasher.needsUpgrade(result.getPassword()));
+        verify(userRepository).save(testUser);
+    }
+
+    @Test
+    void login_doesNotRehashCurrentCost() {
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(testUser));
+
+        userService.login("johndoe", "password123");
+
+        verify(userRepository, never()).save(any(User.class));
+    }
 }
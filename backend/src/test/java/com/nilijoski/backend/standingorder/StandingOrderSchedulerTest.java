@@ -0,0 +1,302 @@
+package com.nilijoski.backend.standingorder;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nilijoski.backend.exception.InvalidTransferAmountException;
+import com.nilijoski.backend.model.StandingOrder;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StandingOrderSchedulerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private final MutableClock clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, StandingOrder> orders = new LinkedHashMap<>();
+    private StandingOrderScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new StandingOrderScheduler(mongoTemplate, transactionService, registry, clock,
+                Duration.ofSeconds(1), Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(30), 200, 1000);
+        when(transactionService.transfer(anyString(), anyString(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> transaction());
+        stubCollection();
+    }
+
+    @Test
+    void runsOrdersOnceTheirTickHasPassedAndAdvancesThem() {
+        StandingOrder order = order("o1", StandingOrder.Frequency.DAILY, START.plusSeconds(5));
+
+        tickAt(START);
+        tickAt(START.plusSeconds(5));
+        verify(transactionService, never()).transfer(anyString(), anyString(), any(), any(), any(), any(), any());
+
+        tickAt(START.plusSeconds(6));
+        verify(transactionService).transfer("DE89370400440532013000", "DE02120300000000202051", "Jane", "Doe",
+                new BigDecimal("25.00"), "Rent", "o1:0");
+        assertEquals(1, order.getExecutedRuns());
+        assertEquals(START.plusDays(1).plusSeconds(5), order.getNextRunAt());
+        assertEquals("t1", order.getLastTransactionId());
+        assertNull(order.getLeaseOwner());
+        assertNull(order.getLeaseUntil());
+        assertEquals(StandingOrder.ACTIVE, order.getStatus());
+        assertEquals(1, registry.get("banking.standing-orders.runs").tag("outcome", "completed").counter().count());
+
+        tickAt(START.plusSeconds(7));
+        verify(transactionService, times(1)).transfer(anyString(), anyString(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void recordsFailedTransfersAsTheOccurrence() {
+        StandingOrder order = order("o1", StandingOrder.Frequency.ONCE, START);
+        when(transactionService.transfer(anyString(), anyString(), any(), any(), any(), any(), any()))
+                .thenThrow(new InvalidTransferAmountException("Insufficient balance"));
+
+        tickAt(START.plusSeconds(1));
+
+        assertEquals(1, order.getExecutedRuns());
+        assertEquals(1, order.getFailedRuns());
+        assertEquals("Insufficient balance", order.getLastError());
+        assertNull(order.getNextRunAt());
+        assertEquals(StandingOrder.COMPLETED, order.getStatus());
+        assertEquals(1, registry.get("banking.standing-orders.runs").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void catchesUpOnMissedOccurrencesOneAfterAnother() {
+        LocalDateTime first = START.minusDays(3).minusHours(1);
+        StandingOrder order = order("o1", StandingOrder.Frequency.DAILY, first);
+        order.setEndAt(START.plusDays(30));
+
+        for (int second = 0; second < 10; second++) {
+            tickAt(START.plusSeconds(second));
+        }
+
+        // Three days and an hour ago, two days, one day and an hour ago
+        assertEquals(4, order.getExecutedRuns());
+        assertEquals(first.plusDays(4), order.getNextRunAt());
+        verify(transactionService, times(4)).transfer(anyString(), anyString(), any(), any(), any(), any(), any());
+        for (String key : List.of("o1:0", "o1:1", "o1:2", "o1:3")) {
+            verify(transactionService).transfer(anyString(), anyString(), any(), any(), any(), any(), eq(key));
+        }
+    }
+
+    @Test
+    void rerunsAnOccurrenceWhoseLeaseWasLostUnderTheSameKey() {
+        StandingOrder order = order("o1", StandingOrder.Frequency.DAILY, START);
+        when(transactionService.transfer(anyString(), anyString(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    order.setLeaseOwner("other");
+                    return transaction();
+                })
+                .thenAnswer(invocation -> transaction());
+
+        tickAt(START.plusSeconds(1));
+        order.setLeaseUntil(START);
+        tickAt(START.plusMinutes(1).plusSeconds(1));
+
+        assertEquals(1, order.getExecutedRuns());
+        verify(transactionService, times(2)).transfer(anyString(), anyString(), any(), any(), any(), any(), eq("o1:0"));
+    }
+
+    @Test
+    void skipsOrdersLeasedByAnotherNode() {
+        StandingOrder order = order("o1", StandingOrder.Frequency.DAILY, START);
+        order.setLeaseOwner("other");
+        order.setLeaseUntil(START.plusSeconds(20));
+
+        tickAt(START.plusSeconds(1));
+        verify(transactionService, never()).transfer(anyString(), anyString(), any(), any(), any(), any(), any());
+
+        // Orders are reloaded every load interval, by then the lease has expired
+        tickAt(START.plusMinutes(1).plusSeconds(1));
+        assertEquals(1, order.getExecutedRuns());
+    }
+
+    @Test
+    void countsOrdersWhoseLeaseWasTakenOverDuringTheTransfer() {
+        StandingOrder order = order("o1", StandingOrder.Frequency.DAILY, START);
+        when(transactionService.transfer(anyString(), anyString(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            order.setLeaseOwner("other");
+            return transaction();
+        });
+
+        tickAt(START.plusSeconds(1));
+
+        assertEquals(0, order.getExecutedRuns());
+        assertEquals(START, order.getNextRunAt());
+        assertEquals(1, registry.get("banking.standing-orders.lease-lost").counter().count());
+    }
+
+    @Test
+    void handsBackTheRestOfABatchBeforeItsLeaseRunsOut() {
+        StandingOrder first = order("o1", StandingOrder.Frequency.DAILY, START);
+        StandingOrder second = order("o2", StandingOrder.Frequency.DAILY, START.plusNanos(1));
+        when(transactionService.transfer(anyString(), anyString(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            // Leaves less than the margin of the 30 s lease
+            clock.advance(Duration.ofSeconds(25));
+            return transaction();
+        });
+
+        tickAt(START.plusSeconds(1));
+
+        assertEquals(1, first.getExecutedRuns());
+        assertEquals(0, second.getExecutedRuns());
+        assertNull(second.getLeaseOwner());
+        assertNull(second.getLeaseUntil());
+    }
+
+    @Test
+    void schedulesOfferedOrdersWithoutWaitingForTheNextLoad() {
+        tickAt(START);
+        StandingOrder order = order("o1", StandingOrder.Frequency.WEEKLY, START.plusSeconds(30));
+        scheduler.offer(order);
+
+        tickAt(START.plusSeconds(1));
+        assertEquals(1, scheduler.scheduledCount());
+        tickAt(START.plusSeconds(31));
+
+        assertEquals(1, order.getExecutedRuns());
+        assertEquals(START.plusWeeks(1).plusSeconds(30), order.getNextRunAt());
+        verify(mongoTemplate, times(1)).find(argThat(query -> !query.getQueryObject().containsKey("leaseOwner")),
+                eq(StandingOrder.class));
+    }
+
+    private void tickAt(LocalDateTime time) {
+        clock.set(time.toInstant(ZoneOffset.UTC));
+        scheduler.tick();
+    }
+
+    private StandingOrder order(String id, StandingOrder.Frequency frequency, LocalDateTime firstRunAt) {
+        StandingOrder order = new StandingOrder();
+        order.setId(id);
+        order.setFromIban("DE89370400440532013000");
+        order.setToIban("DE02120300000000202051");
+        order.setToFirstName("Jane");
+        order.setToLastName("Doe");
+        order.setAmount(new BigDecimal("25.00"));
+        order.setDescription("Rent");
+        order.setFrequency(frequency);
+        order.setFirstRunAt(firstRunAt);
+        order.setNextRunAt(firstRunAt);
+        order.setStatus(StandingOrder.ACTIVE);
+        orders.put(id, order);
+        return order;
+    }
+
+    private static Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId("t1");
+        return transaction;
+    }
+
+    /**
+     * Evaluates the few queries the scheduler sends against {@link #orders}.
+     */
+    private void stubCollection() {
+        when(mongoTemplate.find(any(Query.class), eq(StandingOrder.class))).thenAnswer(invocation -> {
+            Document query = invocation.<Query>getArgument(0).getQueryObject();
+            Predicate<StandingOrder> matches = query.containsKey("leaseOwner")
+                    ? order -> Objects.equals(order.getLeaseOwner(), query.get("leaseOwner"))
+                    : order -> StandingOrder.ACTIVE.equals(order.getStatus())
+                    && order.getNextRunAt().isBefore((LocalDateTime) query.get("nextRunAt", Document.class).get("$lt"));
+            return orders.values().stream()
+                    .filter(matches)
+                    .sorted(Comparator.comparing(StandingOrder::getNextRunAt))
+                    .toList();
+        });
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(StandingOrder.class))).thenAnswer(invocation -> {
+            Document query = invocation.<Query>getArgument(0).getQueryObject();
+            LocalDateTime now = LocalDateTime.now(clock);
+            Predicate<StandingOrder> matches = query.containsKey("_id")
+                    ? order -> query.get("_id", Document.class).get("$in", Collection.class).contains(order.getId())
+                    && StandingOrder.ACTIVE.equals(order.getStatus())
+                    && !order.getNextRunAt().isAfter(now)
+                    && (order.getLeaseUntil() == null || order.getLeaseUntil().isBefore(now))
+                    : order -> Objects.equals(order.getLeaseOwner(), query.get("leaseOwner"));
+            return apply(orders.values().stream().filter(matches).toList(), invocation.getArgument(1));
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StandingOrder.class))).thenAnswer(invocation -> {
+            Document query = invocation.<Query>getArgument(0).getQueryObject();
+            StandingOrder order = orders.get((String) query.get("_id"));
+            boolean matches = order != null && Objects.equals(order.getLeaseOwner(), query.get("leaseOwner"));
+            return apply(matches ? List.of(order) : List.of(), invocation.getArgument(1));
+        });
+    }
+
+    private static UpdateResult apply(List<StandingOrder> matched, Update update) {
+        Document changes = update.getUpdateObject();
+        for (StandingOrder order : matched) {
+            BeanWrapperImpl bean = new BeanWrapperImpl(order);
+            changes.get("$set", new Document()).forEach(bean::setPropertyValue);
+            changes.get("$unset", new Document()).keySet().forEach(field -> bean.setPropertyValue(field, null));
+            changes.get("$inc", new Document()).forEach((field, by) ->
+                    bean.setPropertyValue(field, (long) bean.getPropertyValue(field) + ((Number) by).longValue()));
+        }
+        return UpdateResult.acknowledged(matched.size(), (long) matched.size(), null);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.nilijoski.backend.standingorder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresEntriesOnceTheirTickHasPassed() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 8, 10_000);
+        assertTrue(wheel.add(12_500, "b"));
+        assertTrue(wheel.add(11_000, "a"));
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(11_999, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(12_000, expired::add);
+        assertEquals(List.of("a"), expired);
+
+        wheel.advance(13_000, expired::add);
+        assertEquals(List.of("a", "b"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rejectsEntriesWhoseTickHasExpired() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 8, 10_000);
+        wheel.advance(20_000, item -> fail());
+
+        assertFalse(wheel.add(19_999, "late"));
+        assertTrue(wheel.add(20_000, "current tick"));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void cascadesFarFutureEntriesThroughTheLevels() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 4, 0);
+        // Four levels of 4 buckets: 4 s, 16 s, 64 s and 256 s per turn
+        assertTrue(wheel.add(200_000, "far"));
+        assertTrue(wheel.add(70_500, "middle"));
+        assertTrue(wheel.add(2_000, "near"));
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(70_000, expired::add);
+        assertEquals(List.of("near"), expired);
+        wheel.advance(71_000, expired::add);
+        assertEquals(List.of("near", "middle"), expired);
+        wheel.advance(200_000, expired::add);
+        assertEquals(List.of("near", "middle"), expired);
+        wheel.advance(201_000, expired::add);
+        assertEquals(List.of("near", "middle", "far"), expired);
+    }
+
+    @Test
+    void expiresRandomEntriesInTickOrderNeitherEarlyNorLate() {
+        Random random = new Random(7);
+        TimingWheel<long[]> wheel = new TimingWheel<>(100, 16, 5_000);
+        List<long[]> scheduled = new ArrayList<>();
+        Set<long[]> expired = Collections.newSetFromMap(new IdentityHashMap<>());
+        long now = 5_000;
+
+        for (int step = 0; step < 2_000; step++) {
+            for (int i = random.nextInt(5); i > 0; i--) {
+                long[] entry = {now + random.nextInt(random.nextBoolean() ? 2_000 : 500_000)};
+                if (wheel.add(entry[0], entry)) {
+                    scheduled.add(entry);
+                }
+            }
+            now += random.nextInt(400);
+            long until = now;
+            long[] previous = {Long.MIN_VALUE};
+            wheel.advance(now, entry -> {
+                assertTrue(entry[0] < until, "expired early");
+                assertTrue(previous[0] / 100 <= entry[0] / 100, "out of tick order");
+                previous[0] = entry[0];
+                expired.add(entry);
+            });
+            for (long[] entry : scheduled) {
+                if ((entry[0] / 100 + 1) * 100 <= now) {
+                    assertTrue(expired.contains(entry), "expired late");
+                }
+            }
+        }
+        wheel.advance(Long.MAX_VALUE / 2, expired::add);
+
+        assertEquals(scheduled.size(), expired.size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.nilijoski.backend.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlidingWindowCounterTest {
+
+    // One minute in six ten-second slots
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(1), 6);
+
+    @Test
+    void sumsTheEventsWithinTheWindow() {
+        counter.add(0, 1, 100);
+        counter.add(15_000, 1, 250);
+        counter.add(59_999, 2, 50);
+
+        assertEquals(new SlidingWindowCounter.Totals(4, 400), counter.totals(59_999));
+    }
+
+    @Test
+    void slidesOneSlotAtATime() {
+        counter.add(5_000, 1, 100);
+        counter.add(15_000, 1, 200);
+
+        assertEquals(new SlidingWindowCounter.Totals(2, 300), counter.totals(59_999));
+        // The first slot (0 to 10 s) leaves the window as a whole
+        assertEquals(new SlidingWindowCounter.Totals(1, 200), counter.totals(60_000));
+        assertEquals(new SlidingWindowCounter.Totals(0, 0), counter.totals(70_000));
+    }
+
+    @Test
+    void reusesSlotsOfEarlierRounds() {
+        counter.add(5_000, 1, 100);
+        counter.add(65_000, 1, 300);
+
+        assertEquals(new SlidingWindowCounter.Totals(1, 300), counter.totals(65_000));
+    }
+
+    @Test
+    void dropsEventsOlderThanTheirSlot() {
+        counter.add(65_000, 1, 300);
+        // Rebuilt history arrives in any order; this one is a round too old for its slot
+        counter.add(5_000, 1, 100);
+
+        assertEquals(new SlidingWindowCounter.Totals(1, 300), counter.totals(65_000));
+    }
+
+    @Test
+    void negativeAddsUndoEarlierOnes() {
+        counter.add(5_000, 1, 100);
+        counter.add(5_000, 1, 200);
+        counter.add(5_000, -1, -200);
+
+        assertEquals(new SlidingWindowCounter.Totals(1, 100), counter.totals(5_000));
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    counter.add(30_000, 1, 5);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(new SlidingWindowCounter.Totals(80_000, 400_000), counter.totals(30_000));
+    }
+}
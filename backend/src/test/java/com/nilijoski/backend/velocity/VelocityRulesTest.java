@@ -0,0 +1,198 @@
+package com.nilijoski.backend.velocity;
+
+import com.nilijoski.backend.exception.VelocityLimitExceededException;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.TransactionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VelocityRulesTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 0);
+    private static final String SENDER = "DE89370400440532013000";
+    private static final String RECIPIENT = "DE02120300000000202051";
+    private static final String SAVED = "DE75512108001245126199";
+
+    private final MutableClock clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+    private final TransactionStore transactionStore = mock(TransactionStore.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final User sender = new User();
+
+    VelocityRulesTest() {
+        sender.setIban(SENDER);
+        sender.setSavedRecipientIbans(List.of(SAVED));
+    }
+
+    @Test
+    void refusesTransfersOverTheCountAndTakesThemBackOut() {
+        VelocityRules rules = rules(Map.of("per-minute",
+                rule(Duration.ofMinutes(1), 3, null, VelocityProperties.Action.REJECT)), null);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(rules.screen(sender, RECIPIENT, new BigDecimal("10")).warning());
+        }
+        VelocityLimitExceededException exception = assertThrows(VelocityLimitExceededException.class,
+                () -> rules.screen(sender, RECIPIENT, new BigDecimal("10")));
+        assertEquals("Velocity limit exceeded: more than 3 transfers within 1 minute", exception.getMessage());
+        assertThrows(VelocityLimitExceededException.class, () -> rules.screen(sender, RECIPIENT, new BigDecimal("10")));
+        assertEquals(2, registry.get("banking.velocity.verdicts").tag("rule", "per-minute").tag("action", "reject")
+                .counter().count());
+
+        // The refused attempts did not count, so the window frees up as soon as the first transfers leave it
+        clock.advance(Duration.ofMinutes(1));
+        rules.screen(sender, RECIPIENT, new BigDecimal("10"));
+    }
+
+    @Test
+    void warnsAboutAmountsOverTheLimitAndLetsThemThrough() {
+        VelocityRules rules = rules(Map.of("per-day",
+                rule(Duration.ofDays(1), null, new BigDecimal("1000"), VelocityProperties.Action.WARN)), null);
+
+        rules.screen(sender, RECIPIENT, new BigDecimal("600"));
+        clock.advance(Duration.ofHours(12));
+        VelocityRules.Screening screening = rules.screen(sender, RECIPIENT, new BigDecimal("400.01"));
+
+        assertEquals("Velocity limit exceeded: more than 1000 EUR within 1 day", screening.warning());
+    }
+
+    @Test
+    void cancelledTransfersLeaveTheCounters() {
+        VelocityRules rules = rules(Map.of("per-minute",
+                rule(Duration.ofMinutes(1), 1, null, VelocityProperties.Action.REJECT)), null);
+
+        rules.screen(sender, RECIPIENT, new BigDecimal("10")).cancel();
+
+        assertDoesNotThrow(() -> rules.screen(sender, RECIPIENT, new BigDecimal("10")));
+    }
+
+    @Test
+    void flagsLargeTransfersToRecipientsNotPaidBefore() {
+        VelocityRules rules = rules(Map.of(), new BigDecimal("500"));
+
+        assertNull(rules.screen(sender, RECIPIENT, new BigDecimal("499.99")).warning());
+        assertNull(rules.screen(sender, SAVED, new BigDecimal("5000")).warning());
+        VelocityRules.Screening first = rules.screen(sender, RECIPIENT, new BigDecimal("500"));
+        assertEquals("Large transfer to a new recipient", first.warning());
+        first.complete();
+
+        assertNull(rules.screen(sender, RECIPIENT, new BigDecimal("800")).warning());
+        clock.advance(Duration.ofDays(30));
+        assertEquals("Large transfer to a new recipient", rules.screen(sender, RECIPIENT, new BigDecimal("800")).warning());
+    }
+
+    @Test
+    void rebuildsCountersAndRecipientsFromRecentTransfers() {
+        when(transactionStore.streamSince(any())).thenAnswer(invocation -> {
+            assertEquals(START.minusDays(30), invocation.getArgument(0));
+            return Stream.of(
+                    transfer(RECIPIENT, "300", START.minusHours(2)),
+                    transfer(RECIPIENT, "300", START.minusMinutes(1)),
+                    deposit(START.minusMinutes(1)));
+        });
+        VelocityRules rules = rules(Map.of("per-day",
+                rule(Duration.ofDays(1), null, new BigDecimal("2000"), VelocityProperties.Action.REJECT)), new BigDecimal("500"));
+
+        rules.rebuild();
+
+        assertEquals(1, rules.accountCount());
+        assertNull(rules.screen(sender, RECIPIENT, new BigDecimal("1000")).warning());
+        assertThrows(VelocityLimitExceededException.class, () -> rules.screen(sender, RECIPIENT, new BigDecimal("400.01")));
+    }
+
+    @Test
+    void evictsAccountsIdleForTheLongestWindow() {
+        VelocityRules rules = rules(Map.of("per-hour",
+                rule(Duration.ofHours(1), 10, null, VelocityProperties.Action.REJECT)), null);
+        rules.screen(sender, RECIPIENT, new BigDecimal("10"));
+
+        clock.advance(Duration.ofMinutes(59));
+        rules.evictIdle();
+        assertEquals(1, rules.accountCount());
+
+        clock.advance(Duration.ofMinutes(1));
+        rules.evictIdle();
+        assertEquals(0, rules.accountCount());
+    }
+
+    @Test
+    void rulesNeedALimit() {
+        assertThrows(IllegalArgumentException.class, () -> rules(Map.of("empty",
+                rule(Duration.ofMinutes(1), null, null, VelocityProperties.Action.WARN)), null));
+    }
+
+    private VelocityRules rules(Map<String, VelocityProperties.Rule> rules, BigDecimal newRecipientMinAmount) {
+        VelocityProperties properties = new VelocityProperties(new LinkedHashMap<>(rules),
+                new VelocityProperties.NewRecipient(newRecipientMinAmount, Duration.ofDays(30), VelocityProperties.Action.WARN));
+        return new VelocityRules(properties, transactionStore, registry, clock);
+    }
+
+    private static VelocityProperties.Rule rule(Duration window, Integer maxCount, BigDecimal maxAmount,
+                                                VelocityProperties.Action action) {
+        return new VelocityProperties.Rule(window, 12, maxCount, maxAmount, action);
+    }
+
+    private static Transaction transfer(String toIban, String amount, LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setFromIban(SENDER);
+        transaction.setToIban(toIban);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setTransactionType("TRANSFER");
+        transaction.setTransactionDate(date);
+        return transaction;
+    }
+
+    private static Transaction deposit(LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setToAccountNumber("12345");
+        transaction.setAmount(new BigDecimal("5000"));
+        transaction.setTransactionType("DEPOSIT");
+        transaction.setTransactionDate(date);
+        return transaction;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.nilijoski.backend.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.PasswordHasher;
+import com.nilijoski.backend.security.TokenRevocationList;
+import com.nilijoski.backend.security.TokenService;
+import com.nilijoski.backend.service.TransactionService;
+import com.nilijoski.backend.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WarmUpTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final PasswordHasher passwordHasher = new PasswordHasher(4, 1, 16, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    private final UsernameFilter usernameFilter = mock(UsernameFilter.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final UserCache userCache = new UserCache(DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final TokenService tokenService = new TokenService("", Duration.ofMinutes(15), Duration.ofDays(7),
+            new TokenRevocationList(), objectMapper);
+    private final User hot = user("3", "hot", "DE02370400440000000003", "0000000003");
+
+    @BeforeEach
+    void setUp() {
+        when(userService.getUserByAccountNumber(anyString())).thenReturn(hot);
+        when(mongoTemplate.find(any(Query.class), eq(User.class))).thenReturn(List.of(hot));
+    }
+
+    private WarmUp warmUp(Duration budget, int iterations) {
+        return new WarmUp(userService, transactionService, passwordHasher, tokenService, userCache, usernameFilter,
+                mongoTemplate, objectMapper, new WarmUpConnectionPool(0), new SimpleMeterRegistry(), budget,
+                iterations, 3, 100);
+    }
+
+    private static User user(String id, String username, String iban, String accountNumber) {
+        LocalDateTime now = LocalDateTime.now();
+        return new User(id, username, "hash", "Warm", "Up", iban, accountNumber, new BigDecimal("1000.00"), "ACTIVE",
+                new ArrayList<>(), now, now, null);
+    }
+
+    @Test
+    void runsEveryPathWithoutWriting() throws Exception {
+        WarmUp.Report report = warmUp(Duration.ofSeconds(30), 10).run();
+
+        assertTrue(report.completed());
+        assertEquals(List.of(10, 10, 3), report.paths().stream().map(WarmUp.PathResult::iterations).toList());
+        assertEquals(1, report.cachedUsers());
+        verify(usernameFilter).rebuildIfNeeded();
+        // Transfers and logins stay in the warm-up's own bank, histories are read for the cached users
+        verify(transactionService, times(10)).getTransactionsByIban(hot.getIban());
+        verifyNoMoreInteractions(transactionService);
+        verify(userService, times(10)).getUserByAccountNumber(hot.getAccountNumber());
+        verifyNoMoreInteractions(userService);
+        verify(mongoTemplate).find(any(Query.class), eq(User.class));
+        verifyNoMoreInteractions(mongoTemplate);
+    }
+
+    @Test
+    void transfersBackAndForthInMemory() {
+        WarmUpBank bank = new WarmUpBank(passwordHasher, "secret");
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(WarmUpBank.AMOUNT, bank.transfer(i).getAmount());
+        }
+
+        assertEquals(new BigDecimal("1000.00"), bank.a().getBalance());
+        assertEquals(bank.a().getUsername(), bank.login("secret").getUsername());
+    }
+
+    @Test
+    void skipsHistoriesOnAnEmptyDatabase() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(User.class))).thenReturn(List.of());
+
+        WarmUp.Report report = warmUp(Duration.ofSeconds(30), 2).run();
+
+        assertTrue(report.completed());
+        verifyNoInteractions(transactionService, userService);
+    }
+
+    @Test
+    void stopsAtTheBudget() throws Exception {
+        when(transactionService.getTransactionsByIban(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return List.of();
+        });
+
+        WarmUp.Report report = warmUp(Duration.ofMillis(100), 1_000).run();
+
+        assertFalse(report.completed());
+        assertTrue(report.elapsed().toMillis() < 1_000, "took " + report.elapsed());
+        assertTrue(report.paths().get(1).iterations() < 1_000);
+    }
+
+    @Test
+    void aFailingPathDoesNotStopTheOthers() throws Exception {
+        when(transactionService.getTransactionsByIban(anyString())).thenThrow(new IllegalStateException("Mongo is down"));
+
+        WarmUp.Report report = warmUp(Duration.ofSeconds(30), 5).run();
+
+        assertEquals(List.of(5, 0, 3), report.paths().stream().map(WarmUp.PathResult::iterations).toList());
+    }
+}
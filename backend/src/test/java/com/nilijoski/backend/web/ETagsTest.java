@@ -0,0 +1,84 @@
+package com.nilijoski.backend.web;
+
+import com.nilijoski.backend.controller.TransactionController;
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+import com.nilijoski.backend.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ETagsTest {
+
+    private static final String IBAN = "DE89370400440532013000";
+
+    @Test
+    void tagsAreWeak() {
+        assertEquals("W/\"h3-abc\"", ETags.of(new TransactionStore.HistoryVersion(3, "abc")));
+        assertEquals("W/\"123\"", ETags.ofImmutable("123"));
+    }
+
+    @Test
+    void taggedHistoryIsCompressed() throws Exception {
+        TransactionService transactionService = mock(TransactionService.class);
+        List<Transaction> history = IntStream.range(0, 50).mapToObj(i -> {
+            Transaction transaction = new Transaction();
+            transaction.setId("t" + i);
+            transaction.setFromIban(IBAN);
+            transaction.setAmount(new BigDecimal("10.00"));
+            transaction.setDescription("Rent");
+            return transaction;
+        }).toList();
+        when(transactionService.getHistoryVersionByIban(IBAN)).thenReturn(new TransactionStore.HistoryVersion(50, "t49"));
+        when(transactionService.getTransactionsByIban(IBAN)).thenReturn(history);
+
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.register(Mvc.class);
+        context.addBeanFactoryPostProcessor(beanFactory ->
+                beanFactory.registerSingleton("transactionController", new TransactionController(transactionService)));
+        // As configured in application.properties
+        Compression compression = new Compression();
+        compression.setEnabled(true);
+        compression.setMimeTypes(new String[]{"application/json"});
+        compression.setMinResponseSize(DataSize.ofKilobytes(1));
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.setCompression(compression);
+        WebServer server = factory.getWebServer(servletContext ->
+                servletContext.addServlet("dispatcher", new DispatcherServlet(context)).addMapping("/"));
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + server.getPort() + "/api/transactions/iban/" + IBAN))
+                    .header("Accept-Encoding", "gzip")
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+            assertEquals(200, response.statusCode());
+            assertEquals("W/\"h50-t49\"", response.headers().firstValue("ETag").orElse(null));
+            assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        } finally {
+            server.stop();
+            context.close();
+        }
+    }
+
+    @EnableWebMvc
+    static class Mvc {
+    }
+}
@@ -0,0 +1,129 @@
+package com.nilijoski.backend.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticAssetHandlerTest {
+
+    private static final String INDEX = "<!doctype html><html><body><div id=\"root\"></div></body></html>";
+    private static final String SCRIPT = "console.log('banking');\n".repeat(100);
+
+    @TempDir
+    Path directory;
+
+    private StaticAssetHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(directory.resolve("index.html"), INDEX);
+        Files.writeString(directory.resolve("logo-banking.jpg"), "jpg");
+        Files.createDirectories(directory.resolve("assets"));
+        Files.writeString(directory.resolve("assets/index-BpQ3x8Zk.js"), SCRIPT);
+        // As the frontend build writes it; any bytes smaller than the original do for the test
+        Files.writeString(directory.resolve("assets/index-BpQ3x8Zk.js.br"), "brotli");
+        StaticAssets assets = StaticAssets.load(new PathMatchingResourcePatternResolver(),
+                directory.toUri().toString());
+        handler = new StaticAssetHandler(assets);
+    }
+
+    private MockHttpServletResponse get(String path, String acceptEncoding, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.handleRequest(request, response);
+        return response;
+    }
+
+    @Test
+    void prefersBrotliThenGzip() throws Exception {
+        MockHttpServletResponse brotli = get("/assets/index-BpQ3x8Zk.js", "gzip, deflate, br", null);
+        MockHttpServletResponse gzip = get("/assets/index-BpQ3x8Zk.js", "gzip, br;q=0", null);
+        MockHttpServletResponse identity = get("/assets/index-BpQ3x8Zk.js", null, null);
+
+        assertEquals("br", brotli.getHeader("Content-Encoding"));
+        assertEquals("brotli", brotli.getContentAsString());
+        assertEquals("gzip", gzip.getHeader("Content-Encoding"));
+        assertEquals(SCRIPT, new String(new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))
+                .readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(identity.getHeader("Content-Encoding"));
+        assertEquals(SCRIPT, identity.getContentAsString());
+        assertEquals("Accept-Encoding", identity.getHeader("Vary"));
+        assertEquals("text/javascript", identity.getContentType());
+        assertNotEquals(brotli.getHeader("ETag"), gzip.getHeader("ETag"));
+        assertNotEquals(gzip.getHeader("ETag"), identity.getHeader("ETag"));
+    }
+
+    @Test
+    void marksOnlyHashedAssetsImmutable() throws Exception {
+        assertEquals("max-age=31536000, public, immutable",
+                get("/assets/index-BpQ3x8Zk.js", null, null).getHeader("Cache-Control"));
+        assertEquals("no-cache", get("/", null, null).getHeader("Cache-Control"));
+        assertEquals("no-cache", get("/logo-banking.jpg", null, null).getHeader("Cache-Control"));
+    }
+
+    @Test
+    void fallsBackToIndexForClientRoutesOnly() throws Exception {
+        MockHttpServletResponse route = get("/dashboard/transfers", null, null);
+
+        assertEquals(200, route.getStatus());
+        assertEquals(INDEX, route.getContentAsString());
+        assertEquals(404, get("/assets/index-Old12345.js", null, null).getStatus());
+        assertEquals(404, get("/api/unknown", null, null).getStatus());
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithNotModified() throws Exception {
+        String eTag = get("/dashboard", null, null).getHeader("ETag");
+
+        MockHttpServletResponse revalidated = get("/login", null, eTag);
+
+        assertEquals(304, revalidated.getStatus());
+        assertEquals(0, revalidated.getContentAsByteArray().length);
+        assertEquals(200, get("/login", null, "\"other\"").getStatus());
+    }
+
+    @Test
+    void leavesSmallFilesUncompressed() throws Exception {
+        MockHttpServletResponse index = get("/", "gzip, br", null);
+
+        assertNull(index.getHeader("Content-Encoding"));
+        assertNull(index.getHeader("Vary"));
+    }
+
+    @Test
+    void rejectsOtherMethods() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        handler.handleRequest(new MockHttpServletRequest("POST", "/dashboard"), response);
+
+        assertEquals(405, response.getStatus());
+        assertEquals("GET, HEAD", response.getHeader("Allow"));
+    }
+
+    @Test
+    void readsQualityValues() {
+        assertTrue(StaticAssetHandler.accepts("gzip;q=0.5", "gzip"));
+        assertFalse(StaticAssetHandler.accepts("gzip;q=0", "gzip"));
+        assertTrue(StaticAssetHandler.accepts("*", "br"));
+        assertFalse(StaticAssetHandler.accepts("*, br;q=0", "br"));
+        assertFalse(StaticAssetHandler.accepts("identity", "gzip"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.account.GermanIban;
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.security.PasswordHasher;
+import com.nilijoski.backend.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Test accounts and a {@link UserService} over {@link InMemoryUserRepository}. Registration is not
+ * benchmarked, so the service gets no account number allocator or username filter.
+ */
+final class Accounts {
+
+    static final String BANK_CODE = "37040044";
+
+    private Accounts() {
+    }
+
+    static User account(int index) {
+        String accountNumber = String.format("%010d", 532_000_000 + index);
+        return new User(Integer.toHexString(index), "user" + index, "", "First" + index, "Last" + index,
+                GermanIban.of(BANK_CODE, accountNumber), accountNumber, new BigDecimal("1000000000.00"), "ACTIVE",
+                new ArrayList<>(), LocalDateTime.now(), LocalDateTime.now(), PayeeNames.keys("First" + index, "Last" + index));
+    }
+
+    static UserService userService(InMemoryUserRepository users, UserCache userCache) {
+        return new UserService(users.asRepository(), userCache,
+                new PasswordHasher(4, 1, 16, Duration.ofSeconds(5), new SimpleMeterRegistry()), null, null);
+    }
+
+    static UserCache userCache() {
+        return new UserCache(DataSize.ofMegabytes(64), Duration.ofHours(1));
+    }
+}
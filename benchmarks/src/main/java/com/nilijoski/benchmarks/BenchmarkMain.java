@@ -0,0 +1,69 @@
+package com.nilijoski.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation rate and bytes per operation) and saves
+ * the results as JSON under {@code results/}, named after the current commit, for
+ * {@link CompareResults}. Accepts the usual JMH command line, e.g. {@code Transfer -f 1}.
+ */
+public final class BenchmarkMain {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Path result = resultFile();
+        Files.createDirectories(result.getParent());
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build())
+                .run();
+    }
+
+    // results/<commit>-<time>.json, or results/<label>.json with -Dbenchmark.label
+    private static Path resultFile() {
+        String label = System.getProperty("benchmark.label");
+        if (label == null) {
+            label = currentCommit() + "-" + LocalDateTime.now().format(FILE_TIME);
+        }
+        return Path.of(System.getProperty("benchmark.results", "results"), label + ".json");
+    }
+
+    private static String currentCommit() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String commit = new String(git.getInputStream().readAllBytes()).trim();
+            if (git.waitFor(5, TimeUnit.SECONDS) && git.exitValue() == 0 && !commit.isEmpty()) {
+                return commit;
+            }
+        } catch (IOException e) {
+            // Not a git checkout
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "unknown";
+    }
+}
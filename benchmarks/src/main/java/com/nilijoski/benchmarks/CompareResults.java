@@ -0,0 +1,76 @@
+package com.nilijoski.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints the score and allocation of every benchmark in two JMH JSON result files side by side,
+ * with the relative change. Lower is better for the average-time benchmarks in this module.
+ * <p>
+ * {@code java -cp target/benchmarks.jar com.nilijoski.benchmarks.CompareResults results/a.json results/b.json}
+ */
+public final class CompareResults {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private CompareResults() {
+    }
+
+    private record Score(double score, String unit, Double bytesPerOp) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> candidate = read(Path.of(args[1]));
+
+        System.out.printf("%-70s %14s %14s %8s %12s %12s%n", "benchmark", "baseline", "candidate", "change",
+                "B/op before", "B/op after");
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            Score before = entry.getValue();
+            Score after = candidate.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-70s %14.3f %14s%n", entry.getKey(), before.score(), "missing");
+                continue;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+7.1f%% %12s %12s  %s%n", entry.getKey(), before.score(),
+                    after.score(), (after.score() - before.score()) / before.score() * 100,
+                    bytes(before.bytesPerOp()), bytes(after.bytesPerOp()), after.unit());
+        }
+        candidate.keySet().stream()
+                .filter(name -> !baseline.containsKey(name))
+                .forEach(name -> System.out.printf("%-70s %14s %14.3f%n", name, "new", candidate.get(name).score()));
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder name = new StringBuilder(run.get("benchmark").asText());
+            JsonNode params = run.get("params");
+            if (params != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            JsonNode primary = run.get("primaryMetric");
+            JsonNode allocation = run.path("secondaryMetrics").get(ALLOCATION);
+            scores.put(name.toString().replace("com.nilijoski.benchmarks.", ""), new Score(
+                    primary.get("score").asDouble(), primary.get("scoreUnit").asText(), allocation == null ? null : allocation.get("score").asDouble()));
+        }
+        return scores;
+    }
+
+    private static String bytes(Double bytesPerOp) {
+        return bytesPerOp == null ? "-" : String.format("%.0f", bytesPerOp);
+    }
+}
@@ -0,0 +1,26 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TransactionService.isValidIban}, which runs on every transfer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IbanValidationBenchmark {
+
+    @Param({"DE89370400440532013000", "DE89 3704 0044 0532 0130 00", "GB29NWBK60161331926819", "DE8937040044"})
+    private String iban;
+
+    @Benchmark
+    public boolean isValidIban() {
+        return TransactionService.isValidIban(iban);
+    }
+}
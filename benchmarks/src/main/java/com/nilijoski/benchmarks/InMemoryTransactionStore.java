@@ -0,0 +1,58 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.repository.TransactionStore;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Assigns ids and keeps only a count, so the store does not grow over a long benchmark run.
+ */
+final class InMemoryTransactionStore implements TransactionStore {
+
+    private long saved;
+
+    @Override
+    public Transaction save(Transaction transaction) {
+        transaction.setId(Long.toHexString(++saved));
+        return transaction;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return List.of();
+    }
+
+    @Override
+    public List<Transaction> findByFromIban(String fromIban) {
+        return List.of();
+    }
+
+    @Override
+    public List<Transaction> findByFromIbanOrToIban(String fromIban, String toIban) {
+        return List.of();
+    }
+
+    @Override
+    public List<Transaction> findByFromAccountNumberOrToAccountNumber(String fromAccountNumber, String toAccountNumber) {
+        return List.of();
+    }
+
+    @Override
+    public List<Transaction> findOlderThan(LocalDateTime cutoff, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public void deleteAll(Collection<Transaction> transactions) {
+        // Nothing is kept
+    }
+}
@@ -0,0 +1,57 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.repository.UserRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Map-backed stand-in for the Mongo user repository, covering the queries the benchmarked
+ * service methods use. Reads return copies, like documents mapped from Mongo would be.
+ */
+final class InMemoryUserRepository {
+
+    private final Map<String, User> byId = new HashMap<>();
+    private final Map<String, User> byIban = new HashMap<>();
+    private final Map<String, User> byAccountNumber = new HashMap<>();
+
+    void add(User user) {
+        byId.put(user.getId(), user);
+        byIban.put(user.getIban(), user);
+        byAccountNumber.put(user.getAccountNumber(), user);
+    }
+
+    UserRepository asRepository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> find(byId, args[0]);
+                    case "findByIban" -> find(byIban, args[0]);
+                    case "findByAccountNumber" -> find(byAccountNumber, args[0]);
+                    case "save" -> save((User) args[0]);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryUserRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Optional<User> find(Map<String, User> index, Object key) {
+        return Optional.ofNullable(index.get(key)).map(InMemoryUserRepository::copy);
+    }
+
+    private User save(User user) {
+        add(copy(user));
+        return user;
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getFirstName(), user.getLastName(),
+                user.getIban(), user.getAccountNumber(), user.getBalance(), user.getStatus(),
+                new ArrayList<>(user.getSavedRecipientIbans()), user.getCreatedAt(), user.getUpdatedAt(),
+                user.getNameKeys());
+    }
+}
@@ -0,0 +1,72 @@
+package com.nilijoski.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a {@link Transaction} and of a history, with an {@link ObjectMapper}
+ * configured the way Spring Boot configures the one behind the controllers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int historySize;
+
+    private ObjectMapper objectMapper;
+    private Transaction transaction;
+    private List<Transaction> history;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            history.add(transaction(i));
+        }
+        transaction = history.getFirst();
+    }
+
+    private static Transaction transaction(int index) {
+        Transaction transaction = new Transaction();
+        transaction.setId(String.format("%024x", index));
+        transaction.setFromIban("DE89370400440532013000");
+        transaction.setToIban("DE75512108001245126199");
+        transaction.setFromFirstName("John");
+        transaction.setFromLastName("Doe");
+        transaction.setToFirstName("Jane");
+        transaction.setToLastName("Smith");
+        transaction.setFromAccountNumber("0532013000");
+        transaction.setToAccountNumber("1245126199");
+        transaction.setAmount(new BigDecimal("125.50").add(BigDecimal.valueOf(index)));
+        transaction.setTransactionType("TRANSFER");
+        transaction.setDescription("Rent " + index);
+        transaction.setTransactionDate(LocalDateTime.of(2025, 1, 1, 12, 0).plusMinutes(index));
+        transaction.setStatus("COMPLETED");
+        return transaction;
+    }
+
+    @Benchmark
+    public byte[] transaction() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+
+    @Benchmark
+    public byte[] history() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(history);
+    }
+}
@@ -0,0 +1,45 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.security.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt through {@link PasswordHasher}, the way registration and login use it, at the cost
+ * configured in {@code banking.security.bcrypt.strength}. Each extra cost step doubles the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"10"})
+    private int strength;
+
+    private PasswordHasher passwordHasher;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        passwordHasher = new PasswordHasher(strength, 1, 16, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        hash = passwordHasher.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordHasher.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordHasher.matches(PASSWORD, hash);
+    }
+}
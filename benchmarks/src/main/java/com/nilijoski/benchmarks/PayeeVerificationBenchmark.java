@@ -0,0 +1,62 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.payee.PayeeNames;
+import com.nilijoski.backend.payee.PayeeVerificationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code PayeeVerificationService.verify} with the holder served by the user cache, sampled so
+ * JMH reports percentiles; the target is a p99 under 50 µs. Requests cycle through an exact
+ * name, a transliteration, a typo, a name that sounds alike and a different name, so every
+ * outcome and the edit distance are exercised.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayeeVerificationBenchmark {
+
+    private static final String[][] HOLDERS = {
+            {"Jörg", "Müller-Lüdenscheidt"}, {"Anna", "Meier"}, {"Karl-Heinz", "Schmidt"}, {"Zoë", "Großmann"}};
+
+    private static final String[][] GIVEN = {
+            {"Jörg", "Müller-Lüdenscheidt"}, {"Anna", "Meier"}, {"Karl-Heinz", "Schmidt"}, {"Zoë", "Großmann"},
+            {"Joerg", "Mueller-Luedenscheidt"}, {"ANNA", "MEIER"}, {"Karl Heinz", "Schmitt"}, {"Zoe", "Grossmann"},
+            {"Jorg", "Muller Ludenscheid"}, {"Anna", "Mayer"}, {"Karlheinz", "Schmid"}, {"Zoe", "Grosman"},
+            {"Peter", "Schulz"}, {"Hanna", "Becker"}, {"Klaus", "Wagner"}, {"Sofia", "Hoffmann"}};
+
+    private PayeeVerificationService payeeVerificationService;
+    private String[] ibans;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        ibans = new String[HOLDERS.length];
+        for (int i = 0; i < HOLDERS.length; i++) {
+            User holder = Accounts.account(i);
+            holder.setFirstName(HOLDERS[i][0]);
+            holder.setLastName(HOLDERS[i][1]);
+            PayeeNames.apply(holder);
+            repository.add(holder);
+            ibans[i] = holder.getIban();
+        }
+        payeeVerificationService = new PayeeVerificationService(Accounts.userService(repository, Accounts.userCache()));
+        for (String iban : ibans) {
+            payeeVerificationService.verify(iban, "", "");
+        }
+    }
+
+    @Benchmark
+    public PayeeVerificationService.Verification verify() {
+        String[] given = GIVEN[next];
+        String iban = ibans[next % ibans.length];
+        next = (next + 1) % GIVEN.length;
+        return payeeVerificationService.verify(iban, given[0], given[1]);
+    }
+}
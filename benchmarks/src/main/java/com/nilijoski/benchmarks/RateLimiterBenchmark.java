@@ -0,0 +1,79 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.ratelimit.RateLimitFilter;
+import com.nilijoski.backend.ratelimit.RateLimitProperties;
+import com.nilijoski.backend.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link RateLimiter} and {@link RateLimitFilter} under contention, with 10k active
+ * client keys spread over four threads, sampled so JMH reports percentiles; the target is a p99
+ * under 1 µs.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private RateLimiter limiter;
+    private RateLimitFilter filter;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        int next;
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/transactions/transfer");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final FilterChain chain = (req, res) -> { };
+
+        @Setup(Level.Trial)
+        public void start() {
+            next = (int) Thread.currentThread().threadId() * 7919;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, RateLimitProperties.Rule> rules = new LinkedHashMap<>();
+        rules.put("login", new RateLimitProperties.Rule("/api/users/login", List.of("POST"), 10, Duration.ofMinutes(1)));
+        rules.put("transfer", new RateLimitProperties.Rule("/api/transactions/transfer", List.of("POST"), 1_000_000, Duration.ofSeconds(1)));
+        rules.put("history", new RateLimitProperties.Rule("/api/transactions/**", List.of("GET"), 120, Duration.ofMinutes(1)));
+        limiter = new RateLimiter(new RateLimitProperties(Duration.ofMinutes(10), rules), new SimpleMeterRegistry());
+        filter = new RateLimitFilter(limiter);
+        keys = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            keys[i] = "10.0." + (i / 256) + "." + (i % 256);
+            limiter.tryAcquire("POST", "/api/transactions/transfer", keys[i]);
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Decision tryAcquire(Caller caller) {
+        String key = keys[Math.floorMod(caller.next++, CLIENTS)];
+        return limiter.tryAcquire("POST", "/api/transactions/transfer", key);
+    }
+
+    @Benchmark
+    public int filter(Caller caller) throws Exception {
+        caller.request.clearAttributes();
+        caller.request.setRemoteAddr(keys[Math.floorMod(caller.next++, CLIENTS)]);
+        filter.doFilter(caller.request, caller.response, caller.chain);
+        return caller.response.getStatus();
+    }
+}
@@ -0,0 +1,60 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.cache.UserCache;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.service.UserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code UserService.getSavedRecipients}: one user lookup, then one lookup per saved IBAN,
+ * served by the user cache when {@code warmCache} is set and by the repository otherwise.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SavedRecipientsBenchmark {
+
+    @Param({"5", "50"})
+    private int recipients;
+
+    @Param({"true", "false"})
+    private boolean warmCache;
+
+    private UserCache userCache;
+    private UserService userService;
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        User owner = Accounts.account(0);
+        for (int i = 1; i <= recipients; i++) {
+            User recipient = Accounts.account(i);
+            repository.add(recipient);
+            owner.getSavedRecipientIbans().add(recipient.getIban());
+        }
+        repository.add(owner);
+        userId = owner.getId();
+        userCache = Accounts.userCache();
+        userService = Accounts.userService(repository, userCache);
+        userService.getSavedRecipients(userId);
+    }
+
+    @Setup(Level.Invocation)
+    public void coolCache() {
+        if (!warmCache) {
+            userCache.invalidateAll();
+        }
+    }
+
+    @Benchmark
+    public List<User> getSavedRecipients() {
+        return userService.getSavedRecipients(userId);
+    }
+}
@@ -0,0 +1,133 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.web.StaticAssetHandler;
+import com.nilijoski.backend.web.StaticAssets;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SPA route fallbacks and a hashed asset, served by {@link StaticAssetHandler} from memory and,
+ * for comparison, by the resolver chain it replaced: a cached {@link PathResourceResolver} that
+ * looks every path up in the static location and falls back to a new {@code index.html}
+ * resource. {@code unique-route} uses a new path per request, like links with ids do, which the
+ * old resource cache cannot help with.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StaticAssetBenchmark {
+
+    private static final String ASSET = "assets/index-BpQ3x8Zk.js";
+
+    @Param({"route", "unique-route", "asset"})
+    private String request;
+
+    @Param({"gzip, deflate, br", "identity"})
+    private String acceptEncoding;
+
+    private final AtomicLong ids = new AtomicLong();
+    private Path directory;
+    private HttpRequestHandler inMemory;
+    private HttpRequestHandler resolverChain;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("static-assets");
+        Files.writeString(directory.resolve("index.html"), """
+                <!doctype html>
+                <html lang="en">
+                  <head>
+                    <meta charset="UTF-8" />
+                    <link rel="icon" type="image/jpg" href="/logo-banking.jpg" />
+                    <meta name="viewport" content="width=device-width, initial-scale=1.0" />
+                    <title>Banking App</title>
+                    <script type="module" crossorigin src="/assets/index-BpQ3x8Zk.js"></script>
+                    <link rel="stylesheet" crossorigin href="/assets/index-C7x2kLmQ.css">
+                  </head>
+                  <body>
+                    <div id="root"></div>
+                  </body>
+                </html>
+                """);
+        Files.createDirectories(directory.resolve("assets"));
+        Files.writeString(directory.resolve(ASSET), "export const account = {iban: 'DE89370400440532013000'};\n".repeat(4_000));
+
+        inMemory = new StaticAssetHandler(StaticAssets.load(new PathMatchingResourcePatternResolver(),
+                directory.toUri().toString()));
+        resolverChain = resolverChain(directory);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    private static HttpRequestHandler resolverChain(Path directory) throws Exception {
+        FileSystemResource index = new FileSystemResource(directory.resolve("index.html"));
+        ResourceHttpRequestHandler handler = new ResourceHttpRequestHandler();
+        handler.setServletContext(new MockServletContext());
+        handler.setLocations(List.of(new FileSystemResource(directory.toString() + "/")));
+        handler.setResourceResolvers(List.of(
+                new CachingResourceResolver(new ConcurrentMapCache("resources")),
+                new PathResourceResolver() {
+                    @Override
+                    protected Resource getResource(String resourcePath, Resource location) throws IOException {
+                        Resource requested = location.createRelative(resourcePath);
+                        if (requested.exists() && requested.isReadable()) {
+                            return requested;
+                        }
+                        return index;
+                    }
+                }));
+        handler.afterPropertiesSet();
+        return handler;
+    }
+
+    private MockHttpServletRequest request() {
+        String path = switch (request) {
+            case "route" -> "dashboard";
+            case "unique-route" -> "transactions/" + ids.incrementAndGet();
+            default -> ASSET;
+        };
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/" + path);
+        servletRequest.addHeader("Accept-Encoding", acceptEncoding);
+        servletRequest.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, path);
+        return servletRequest;
+    }
+
+    @Benchmark
+    public int inMemory() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        inMemory.handleRequest(request(), response);
+        return response.getContentAsByteArray().length;
+    }
+
+    @Benchmark
+    public int resolverChain() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        resolverChain.handleRequest(request(), response);
+        return response.getContentAsByteArray().length;
+    }
+}
@@ -0,0 +1,69 @@
+package com.nilijoski.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.security.TokenAuthenticationFilter;
+import com.nilijoski.backend.security.TokenRevocationList;
+import com.nilijoski.backend.security.TokenService;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of {@link TokenAuthenticationFilter}, with a revocation list holding
+ * 100k entries. {@code no-token} passes the request through unauthenticated; the difference to
+ * {@code bearer-token} is what verifying the token costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenFilterBenchmark {
+
+    private static final int REVOKED = 100_000;
+    private static final String PATH = "/api/transactions/iban/DE89370400441234567890";
+
+    @Param({"no-token", "bearer-token"})
+    private String request;
+
+    private TokenAuthenticationFilter filter;
+    private MockHttpServletRequest servletRequest;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        TokenRevocationList revocationList = new TokenRevocationList();
+        for (int i = 0; i < REVOKED; i++) {
+            revocationList.revoke("revoked-" + i, Long.MAX_VALUE);
+        }
+        TokenService tokenService = new TokenService("", Duration.ofMinutes(15), Duration.ofDays(7),
+                revocationList, new ObjectMapper());
+        filter = new TokenAuthenticationFilter(tokenService);
+
+        servletRequest = new MockHttpServletRequest("GET", PATH);
+        if (request.equals("bearer-token")) {
+            User user = new User();
+            user.setId("65f1c0ffee0000000000abcd");
+            user.setAccountNumber("1234567890");
+            user.setIban("DE89370400441234567890");
+            servletRequest.addHeader("Authorization", "Bearer " + tokenService.issue(user).accessToken());
+        }
+    }
+
+    @Benchmark
+    public int filter() throws Exception {
+        // OncePerRequestFilter marks the request as filtered, so clear it before the next pass
+        servletRequest.clearAttributes();
+        filter.doFilter(servletRequest, response, chain);
+        SecurityContextHolder.clearContext();
+        return response.getStatus();
+    }
+}
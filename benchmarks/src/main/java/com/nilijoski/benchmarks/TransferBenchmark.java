@@ -0,0 +1,54 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.model.Transaction;
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TransactionService.transfer} end to end over in-memory repositories: validation, both
+ * lookups (through the user cache), withdraw, deposit and the transaction insert, plus the stage
+ * timers. Senders and recipients rotate over {@code accounts} accounts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"1000"})
+    private int accounts;
+
+    private TransactionService transactionService;
+    private User[] users;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        users = new User[accounts];
+        for (int i = 0; i < accounts; i++) {
+            users[i] = Accounts.account(i);
+            repository.add(users[i]);
+        }
+        transactionService = new TransactionService(new InMemoryTransactionStore(),
+                Accounts.userService(repository, Accounts.userCache()), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Transaction transfer() {
+        User from = users[next];
+        next = (next + 1) % accounts;
+        User to = users[next];
+        return transactionService.transfer(from.getIban(), to.getIban(), to.getFirstName(), to.getLastName(),
+                AMOUNT, "Rent");
+    }
+}
@@ -0,0 +1,75 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.cache.UsernameFilter;
+import com.nilijoski.backend.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lookup latency of {@link UsernameFilter} built from one million usernames on four threads,
+ * for names that are taken (the caller then queries Mongo) and names that are free (answered
+ * in memory), sampled so JMH reports percentiles; the target is a p99 under 1 µs.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class UsernameFilterBenchmark {
+
+    private static final int USERS = 1_000_000;
+
+    private UsernameFilter filter;
+    private String[] taken;
+    private String[] free;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        int next;
+
+        @Setup(Level.Trial)
+        public void start() {
+            next = (int) Thread.currentThread().threadId() * 7919;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taken = IntStream.range(0, USERS).mapToObj(i -> "user" + i).toArray(String[]::new);
+        free = IntStream.range(0, USERS).mapToObj(i -> "free" + i).toArray(String[]::new);
+
+        MongoTemplate mongoTemplate = Mockito.mock(MongoTemplate.class);
+        when(mongoTemplate.estimatedCount(User.class)).thenReturn((long) USERS);
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation ->
+                IntStream.range(0, USERS).mapToObj(i -> {
+                    User user = new User();
+                    user.setUsername(taken[i]);
+                    return user;
+                }));
+        filter = new UsernameFilter(mongoTemplate, 0.01, 100_000, 2.0, Duration.ofHours(6), new SimpleMeterRegistry());
+        filter.rebuild();
+    }
+
+    @Benchmark
+    public boolean takenName(Caller caller) {
+        return filter.mightContain(taken[Math.floorMod(caller.next++, USERS)]);
+    }
+
+    @Benchmark
+    public boolean freeName(Caller caller) {
+        return filter.mightContain(free[Math.floorMod(caller.next++, USERS)]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.nilijoski.benchmarks;
+
+import com.nilijoski.backend.model.User;
+import com.nilijoski.backend.velocity.VelocityProperties;
+import com.nilijoski.backend.velocity.VelocityRules;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the velocity rules add to a transfer: a per-minute count and a per-day amount rule plus
+ * the new-recipient check, screened and completed. Limits are out of reach, so every transfer
+ * passes all checks. {@code screen} rotates senders and recipients over {@code accounts}
+ * accounts; {@code screenOneAccount} has four threads sending from the same account, contending
+ * on its counters. The target is under 10 µs per transfer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VelocityRulesBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1500.00");
+
+    @Param({"1000"})
+    private int accounts;
+
+    private VelocityRules velocityRules;
+    private User[] users;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() {
+        users = new User[accounts];
+        for (int i = 0; i < accounts; i++) {
+            users[i] = Accounts.account(i);
+        }
+        Map<String, VelocityProperties.Rule> rules = new LinkedHashMap<>();
+        rules.put("per-minute", new VelocityProperties.Rule(Duration.ofMinutes(1), 12, Integer.MAX_VALUE, null,
+                VelocityProperties.Action.REJECT));
+        rules.put("per-day", new VelocityProperties.Rule(Duration.ofDays(1), 24, null, new BigDecimal("1000000000000"),
+                VelocityProperties.Action.REJECT));
+        velocityRules = new VelocityRules(new VelocityProperties(rules,
+                new VelocityProperties.NewRecipient(new BigDecimal("1000"), Duration.ofDays(30), VelocityProperties.Action.WARN)),
+                new InMemoryTransactionStore(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public VelocityRules.Screening screen(Cursor cursor) {
+        User from = users[cursor.next];
+        cursor.next = (cursor.next + 1) % accounts;
+        VelocityRules.Screening screening = velocityRules.screen(from, users[cursor.next].getIban(), AMOUNT);
+        screening.complete();
+        return screening;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VelocityRules.Screening screenOneAccount(Cursor cursor) {
+        cursor.next = (cursor.next + 1) % accounts;
+        VelocityRules.Screening screening = velocityRules.screen(users[0], users[cursor.next].getIban(), AMOUNT);
+        screening.complete();
+        return screening;
+    }
+}
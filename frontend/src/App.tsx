@@ -5,6 +5,7 @@ import Register from './components/Register';
 import type {User} from './types/types.ts';
 import './App.css';
 import Dashboard from "./components/Dashboard.tsx";
+import {logout} from "./services/api";
 
 
 function App() {
@@ -22,6 +23,7 @@ function App() {
     };
 
     const handleLogout = () => {
+        void logout();
         setUser(null);
         sessionStorage.removeItem('user');
         navigate('/login');
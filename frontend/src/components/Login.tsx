@@ -1,6 +1,7 @@
 import { useState } from 'react';
 import { Link } from 'react-router-dom';
 import { API_URL } from '../config';
+import { storeTokens } from '../services/api';
 import * as React from "react";
 import type { User } from '../types/types.ts';
 
@@ -28,10 +29,17 @@ function Login({ onLogin }: Readonly<LoginProps>) {
                 body: JSON.stringify({ username, password }),
             });
 
+            if (response.status === 429) {
+                throw new Error('Too many login attempts, please wait a minute and try again');
+            }
+            if (response.status === 503) {
+                throw new Error('Login is busy right now, please try again in a moment');
+            }
             if (!response.ok) {
                 throw new Error('Invalid username or password');
             }
 
+            storeTokens(response);
             const user = await response.json();
             onLogin(user);
         } catch (err) {
@@ -1,6 +1,7 @@
-import { useState } from 'react';
+import { useEffect, useState } from 'react';
 import { Link } from 'react-router-dom';
 import { API_URL } from '../config';
+import { checkUsernameAvailability, storeTokens } from '../services/api';
 import * as React from "react";
 import { Eye, EyeOff, Check, X } from 'lucide-react';
 import type { User } from '../types/types.ts';
@@ -31,6 +32,23 @@ function Register({ onRegister }: Readonly<RegisterProps>) {
   const [showConfirmPassword, setShowConfirmPassword] = useState(false);
   const [error, setError] = useState('');
   const [loading, setLoading] = useState(false);
+  const [usernameTaken, setUsernameTaken] = useState(false);
+
+  useEffect(() => {
+    setUsernameTaken(false);
+    if (!username) return;
+
+    const controller = new AbortController();
+    const timer = setTimeout(() => {
+      checkUsernameAvailability(username, controller.signal)
+          .then(available => setUsernameTaken(!available))
+          .catch(() => undefined);
+    }, 300);
+    return () => {
+      clearTimeout(timer);
+      controller.abort();
+    };
+  }, [username]);
 
   const passwordRequirements = {
     minLength: password.length >= 8,
@@ -41,7 +59,7 @@ function Register({ onRegister }: Readonly<RegisterProps>) {
 
   const isPasswordValid = Object.values(passwordRequirements).every(req => req);
   const doPasswordsMatch = password === confirmPassword && password.length > 0;
-  const isFormValid = username && firstName && lastName && isPasswordValid && doPasswordsMatch;
+  const isFormValid = username && !usernameTaken && firstName && lastName && isPasswordValid && doPasswordsMatch;
 
   const handleSubmit = async (e: React.FormEvent) => {
     e.preventDefault();
@@ -68,6 +86,7 @@ function Register({ onRegister }: Readonly<RegisterProps>) {
         throw new Error(errorData || 'Registration failed');
       }
 
+      storeTokens(response);
       const user = await response.json();
       onRegister(user);
     } catch (err) {
@@ -93,6 +112,7 @@ function Register({ onRegister }: Readonly<RegisterProps>) {
                 required
                 disabled={loading}
             />
+            {usernameTaken && <RequirementItem met={false} text="Username is already taken" />}
           </div>
           <div className="form-group">
             <label htmlFor="firstName">First Name</label>
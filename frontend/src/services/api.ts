@@ -1,20 +1,94 @@
 import { API_URL } from '../config';
 import type {User, Transaction, SavedRecipient} from '../types/types.ts';
 
+const ACCESS_TOKEN = 'accessToken';
+const REFRESH_TOKEN = 'refreshToken';
+
+export const storeTokens = (response: Response) => {
+    const accessToken = response.headers.get('X-Access-Token');
+    const refreshToken = response.headers.get('X-Refresh-Token');
+    if (accessToken) sessionStorage.setItem(ACCESS_TOKEN, accessToken);
+    if (refreshToken) sessionStorage.setItem(REFRESH_TOKEN, refreshToken);
+};
+
+// A refresh token is revoked on first use, so requests failing together share one refresh
+let refreshing: Promise<boolean> | null = null;
+
+const refreshTokens = (): Promise<boolean> => {
+    if (!refreshing) {
+        refreshing = rotateTokens().finally(() => {
+            refreshing = null;
+        });
+    }
+    return refreshing;
+};
+
+const rotateTokens = async (): Promise<boolean> => {
+    const refreshToken = sessionStorage.getItem(REFRESH_TOKEN);
+    if (!refreshToken) return false;
+
+    const response = await fetch(`${API_URL}/users/token/refresh`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ refreshToken }),
+    });
+    if (!response.ok) return false;
+
+    const tokens = await response.json();
+    sessionStorage.setItem(ACCESS_TOKEN, tokens.accessToken);
+    sessionStorage.setItem(REFRESH_TOKEN, tokens.refreshToken);
+    return true;
+};
+
+const withToken = (init: RequestInit): RequestInit => {
+    const accessToken = sessionStorage.getItem(ACCESS_TOKEN);
+    const headers = new Headers(init.headers);
+    if (accessToken) headers.set('Authorization', `Bearer ${accessToken}`);
+    return { ...init, headers };
+};
+
+// Sends the access token and, when it has expired, refreshes it once and retries
+const authFetch = async (url: string, init: RequestInit = {}): Promise<Response> => {
+    const response = await fetch(url, withToken(init));
+    if (response.status !== 401 || !(await refreshTokens())) return response;
+    return fetch(url, withToken(init));
+};
+
+export const logout = async () => {
+    const accessToken = sessionStorage.getItem(ACCESS_TOKEN);
+    const refreshToken = sessionStorage.getItem(REFRESH_TOKEN);
+    sessionStorage.removeItem(ACCESS_TOKEN);
+    sessionStorage.removeItem(REFRESH_TOKEN);
+    if (!accessToken && !refreshToken) return;
+
+    await fetch(`${API_URL}/users/logout`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ accessToken, refreshToken }),
+    }).catch(() => undefined);
+};
+
+export const checkUsernameAvailability = async (username: string, signal?: AbortSignal): Promise<boolean> => {
+    const response = await fetch(`${API_URL}/users/availability/${encodeURIComponent(username)}`, { signal });
+    if (!response.ok) throw new Error('Failed to check username');
+    const result = await response.json();
+    return result.available;
+};
+
 export const fetchUser = async (accountNumber: string): Promise<User> => {
-    const response = await fetch(`${API_URL}/users/number/${accountNumber}`);
+    const response = await authFetch(`${API_URL}/users/number/${accountNumber}`);
     if (!response.ok) throw new Error('Failed to fetch account');
     return response.json();
 };
 
 export const fetchTransactions = async (iban: string): Promise<Transaction[]> => {
-    const response = await fetch(`${API_URL}/transactions/iban/${iban}`);
+    const response = await authFetch(`${API_URL}/transactions/iban/${iban}`);
     if (!response.ok) throw new Error('Failed to fetch transactions');
     return response.json();
 };
 
 export const fetchSavedRecipients = async (userId: string): Promise<SavedRecipient[]> => {
-    const response = await fetch(`${API_URL}/users/${userId}/saved-recipients`);
+    const response = await authFetch(`${API_URL}/users/${userId}/saved-recipients`);
     if (!response.ok) throw new Error('Failed to fetch saved recipients');
     return response.json();
 };
@@ -27,7 +101,7 @@ export const createTransfer = async (transferData: {
     amount: number;
     description: string;
 }) => {
-    const response = await fetch(`${API_URL}/transactions/transfer`, {
+    const response = await authFetch(`${API_URL}/transactions/transfer`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify(transferData),
@@ -41,7 +115,7 @@ export const createTransfer = async (transferData: {
 };
 
 export const saveRecipient = async (userId: string, recipientIban: string, firstName: string, lastName: string) => {
-    const response = await fetch(`${API_URL}/users/${userId}/saved-recipients`, {
+    const response = await authFetch(`${API_URL}/users/${userId}/saved-recipients`, {
         method: 'POST',
         headers: { 'Content-Type': 'application/json' },
         body: JSON.stringify({ recipientIban, firstName, lastName }),
@@ -52,7 +126,7 @@ export const saveRecipient = async (userId: string, recipientIban: string, first
 };
 
 export const deleteRecipient = async (userId: string, recipientIban: string) => {
-    const response = await fetch(`${API_URL}/users/${userId}/saved-recipients/${recipientIban}`, {
+    const response = await authFetch(`${API_URL}/users/${userId}/saved-recipients/${recipientIban}`, {
         method: 'DELETE',
     });
 
@@ -60,7 +134,7 @@ export const deleteRecipient = async (userId: string, recipientIban: string) =>
 };
 
 export const deleteUser = async (userId: string) => {
-    const response = await fetch(`${API_URL}/users/${userId}`, {
+    const response = await authFetch(`${API_URL}/users/${userId}`, {
         method: 'DELETE',
     });
 
@@ -1,8 +1,38 @@
-import {defineConfig} from 'vite'
+import {defineConfig, type Plugin} from 'vite'
 import react from '@vitejs/plugin-react'
+import {readdirSync, readFileSync, writeFileSync} from 'node:fs'
+import {join} from 'node:path'
+import {brotliCompressSync, constants, gzipSync} from 'node:zlib'
+
+const COMPRESSIBLE = /\.(html|js|mjs|css|svg|json|txt)$/
+const MIN_SIZE = 1024
+
+// Writes .br and .gz next to every text file of the build; the backend serves them by Accept-Encoding
+function precompress(): Plugin {
+    return {
+        name: 'precompress',
+        apply: 'build',
+        writeBundle(options) {
+            const walk = (directory: string): string[] => readdirSync(directory, {withFileTypes: true})
+                .flatMap(entry => entry.isDirectory()
+                    ? walk(join(directory, entry.name))
+                    : [join(directory, entry.name)])
+            for (const file of walk(options.dir ?? 'dist').filter(name => COMPRESSIBLE.test(name))) {
+                const content = readFileSync(file)
+                if (content.length < MIN_SIZE) {
+                    continue
+                }
+                writeFileSync(`${file}.br`, brotliCompressSync(content, {
+                    params: {[constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY},
+                }))
+                writeFileSync(`${file}.gz`, gzipSync(content, {level: constants.Z_BEST_COMPRESSION}))
+            }
+        },
+    }
+}
 
 export default defineConfig({
-    plugins: [react()],
+    plugins: [react(), precompress()],
     server: {
         proxy: {
             '/api': {
@@ -16,4 +46,4 @@ export default defineConfig({
     resolve: {
         dedupe: ['react', 'react-dom', 'react-router-dom', 'react-router'],
     },
-})
\ No newline at end of file
+})